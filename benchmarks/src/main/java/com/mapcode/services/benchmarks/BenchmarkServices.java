@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) 2016-2026, Stichting Mapcode Foundation (http://www.mapcode.com)
+ */
+package com.mapcode.services.benchmarks;
+
+import com.mapcode.services.MapcodeResource;
+import com.mapcode.services.implementation.AdmissionProcessor;
+import com.mapcode.services.implementation.BoundaryService;
+import com.mapcode.services.implementation.MapcodeResourceImpl;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * The services under test, shared by all benchmarks in a JVM. The mapcode resource handles requests
+ * directly on the calling thread, without rate limits or request metrics, like the offline converter.
+ *
+ * The borders file is read from the system property "mapcode.borders.path", like the service does, or
+ * else from "borders.fgb" on the classpath. If neither exists, the small test borders of the service are
+ * used, if the benchmarks run from the root of the project; territory lookups are then much cheaper than
+ * with real borders.
+ */
+final class BenchmarkServices {
+    @Nullable
+    private static BoundaryService boundaryService = null;
+    @Nullable
+    private static MapcodeResource mapcodeResource = null;
+
+    private BenchmarkServices() {
+        // Prevent instantiation.
+    }
+
+    @Nonnull
+    static synchronized BoundaryService getBoundaryService() {
+        if (boundaryService == null) {
+            boundaryService = loadBoundaryService();
+        }
+        return boundaryService;
+    }
+
+    @Nonnull
+    static synchronized MapcodeResource getMapcodeResource() {
+        if (mapcodeResource == null) {
+            mapcodeResource = new MapcodeResourceImpl(AdmissionProcessor.createDirect(), getBoundaryService());
+        }
+        return mapcodeResource;
+    }
+
+    @Nonnull
+    private static BoundaryService loadBoundaryService() {
+        final String path = System.getProperty("mapcode.borders.path", System.getenv("MAPCODE_BORDERS_PATH"));
+        if ((path != null) && !path.isEmpty()) {
+            return new BoundaryService(path);
+        }
+        final InputStream stream = BenchmarkServices.class.getResourceAsStream("/borders.fgb");
+        if (stream != null) {
+            return new BoundaryService(stream, "classpath:/borders.fgb");
+        }
+        final Path testBorders = Paths.get(BorderSpec.TEST_BORDERS);
+        if (Files.isRegularFile(testBorders)) {
+            System.err.println("No borders file configured (set mapcode.borders.path), using " +
+                    BorderSpec.TEST_BORDERS);
+            return new BoundaryService(testBorders.toAbsolutePath().toString());
+        }
+        throw new IllegalStateException("No borders file configured (set mapcode.borders.path or " +
+                "MAPCODE_BORDERS_PATH) and no borders.fgb found on the classpath.");
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2016-2026, Stichting Mapcode Foundation (http://www.mapcode.com)
+ */
+package com.mapcode.services.benchmarks;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+
+/**
+ * Borders to benchmark the boundary service with, given as a benchmark parameter:
+ *
+ * <ul>
+ * <li>"test": the small test borders of the service,</li>
+ * <li>"file": the borders file in the system property "mapcode.borders.path",</li>
+ * <li>"{polygons}x{vertices}": synthetic borders (see {@link SyntheticBorders}) with a number of polygons,
+ * each with a number of vertices, such as "200x500" for 100k vertices in total.</li>
+ * </ul>
+ */
+final class BorderSpec {
+    static final String TEST_BORDERS = "service/src/test/resources/borders-test.fgb";
+    private static final long SEED = 1;
+
+    @Nonnull
+    private final Path path;
+    private final boolean synthetic;
+
+    private BorderSpec(@Nonnull final Path path, final boolean synthetic) {
+        this.path = path;
+        this.synthetic = synthetic;
+    }
+
+    @Nonnull
+    static BorderSpec parse(@Nonnull final String spec) throws IOException {
+        switch (spec) {
+            case "test":
+                if (!Files.isRegularFile(Paths.get(TEST_BORDERS))) {
+                    throw new IllegalStateException("Test borders not found, run from the root of the project: " +
+                            TEST_BORDERS);
+                }
+                return new BorderSpec(Paths.get(TEST_BORDERS).toAbsolutePath(), false);
+
+            case "file":
+                final String file = System.getProperty("mapcode.borders.path", System.getenv("MAPCODE_BORDERS_PATH"));
+                if ((file == null) || file.isEmpty()) {
+                    throw new IllegalStateException("Set mapcode.borders.path to benchmark with a borders file");
+                }
+                return new BorderSpec(Paths.get(file), false);
+
+            default:
+                final String[] parts = spec.split("x");
+                if (parts.length != 2) {
+                    throw new IllegalArgumentException("Borders must be test, file or {polygons}x{vertices}: " + spec);
+                }
+                return new BorderSpec(
+                        SyntheticBorders.create(Integer.parseInt(parts[0]), Integer.parseInt(parts[1])), true);
+        }
+    }
+
+    @Nonnull
+    Path getPath() {
+        return path;
+    }
+
+    /**
+     * Generate points to look up: for synthetic borders, uniformly spread over the polygons; for other
+     * borders, around cities and near borders.
+     *
+     * @return Points, as {lat, lon}; always the same points, in the same order.
+     */
+    @Nonnull
+    double[][] generatePoints() {
+        if (!synthetic) {
+            final double[][] cities = PointSet.CITIES.generate();
+            final double[][] borders = PointSet.BORDERS.generate();
+            final double[][] points = new double[PointSet.SIZE][];
+            for (int i = 0; i < points.length; ++i) {
+                points[i] = ((i % 2) == 0) ? cities[i] : borders[i];
+            }
+            return points;
+        }
+        final Random random = new Random(SEED);
+        final double[][] points = new double[PointSet.SIZE][2];
+        for (final double[] point : points) {
+            point[0] = SyntheticBorders.MIN_LAT + (random.nextDouble() * (SyntheticBorders.MAX_LAT - SyntheticBorders.MIN_LAT));
+            point[1] = SyntheticBorders.MIN_LON + (random.nextDouble() * (SyntheticBorders.MAX_LON - SyntheticBorders.MIN_LON));
+        }
+        return points;
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright (C) 2016-2026, Stichting Mapcode Foundation (http://www.mapcode.com)
+ */
+package com.mapcode.services.benchmarks;
+
+import com.mapcode.services.implementation.BoundaryService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to load and index a borders file in a {@link BoundaryService}, for borders of increasing size and
+ * complexity. Every iteration loads the file once; the first iterations are not measured, so the file is
+ * in the page cache and the loading code is compiled.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class BoundaryLoadBenchmark {
+
+    // See BorderSpec: 10k, 100k and 1M vertices, and 1M vertices in more, smaller polygons.
+    @Param({"test", "200x50", "200x500", "200x5000", "2000x500"})
+    public String borders;
+
+    private String path;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        path = BorderSpec.parse(borders).getPath().toString();
+    }
+
+    @Benchmark
+    public BoundaryService load() {
+        return new BoundaryService(path);
+    }
+}
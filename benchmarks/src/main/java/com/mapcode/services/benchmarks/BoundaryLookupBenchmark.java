@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2016-2026, Stichting Mapcode Foundation (http://www.mapcode.com)
+ */
+package com.mapcode.services.benchmarks;
+
+import com.mapcode.services.implementation.BoundaryService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of {@link BoundaryService#lookup(double, double)}, for borders of increasing size and
+ * complexity, with 1 thread up to a thread per core. All threads share one boundary service, so the
+ * results show how lookups scale, and how much they contend for the prepared geometry cache.
+ *
+ * With a "warm" cache, the cache holds all polygons and is filled before measuring. With a "cold" cache,
+ * the cache holds a single polygon, so almost every lookup prepares its candidate polygons again.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoundaryLookupBenchmark {
+
+    private static final String PROPERTY_CACHE_SIZE = "mapcode.boundary.prepared-cache-size";
+    private static final int WARM_CACHE_SIZE = 1000000;
+
+    @State(Scope.Benchmark)
+    public static class Borders {
+
+        // See BorderSpec: 10k, 100k and 1M vertices, and 1M vertices in more, smaller polygons.
+        @Param({"test", "200x50", "200x500", "200x5000", "2000x500"})
+        public String borders;
+
+        @Param({"warm", "cold"})
+        public String cache;
+
+        BoundaryService boundaryService;
+        double[][] points;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            final BorderSpec spec = BorderSpec.parse(borders);
+            final boolean warm = "warm".equals(cache);
+            final String cacheSize = System.getProperty(PROPERTY_CACHE_SIZE);
+            System.setProperty(PROPERTY_CACHE_SIZE, String.valueOf(warm ? WARM_CACHE_SIZE : 1));
+            try {
+                boundaryService = new BoundaryService(spec.getPath().toString());
+            } finally {
+                if (cacheSize == null) {
+                    System.clearProperty(PROPERTY_CACHE_SIZE);
+                } else {
+                    System.setProperty(PROPERTY_CACHE_SIZE, cacheSize);
+                }
+            }
+            points = spec.generatePoints();
+            if (warm) {
+                for (final double[] point : points) {
+                    boundaryService.lookup(point[0], point[1]);
+                }
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next = 0;
+
+        int next() {
+            final int i = next;
+            next = (i + 1) & (PointSet.SIZE - 1);
+            return i;
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public List<?> lookup1Thread(final Borders borders, final Cursor cursor) {
+        return lookup(borders, cursor);
+    }
+
+    @Benchmark
+    @Threads(2)
+    public List<?> lookup2Threads(final Borders borders, final Cursor cursor) {
+        return lookup(borders, cursor);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public List<?> lookup4Threads(final Borders borders, final Cursor cursor) {
+        return lookup(borders, cursor);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public List<?> lookupMaxThreads(final Borders borders, final Cursor cursor) {
+        return lookup(borders, cursor);
+    }
+
+    private static List<?> lookup(final Borders borders, final Cursor cursor) {
+        final double[] point = borders.points[cursor.next()];
+        return borders.boundaryService.lookup(point[0], point[1]);
+    }
+}
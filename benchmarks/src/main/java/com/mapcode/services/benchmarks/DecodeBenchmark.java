@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2016-2026, Stichting Mapcode Foundation (http://www.mapcode.com)
+ */
+package com.mapcode.services.benchmarks;
+
+import com.mapcode.Mapcode;
+import com.mapcode.MapcodeCodec;
+import com.mapcode.Territory;
+import com.mapcode.Territory.AlphaCodeFormat;
+import com.mapcode.services.MapcodeResource;
+import com.mapcode.services.implementation.TestAsyncResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of decoding a mapcode to a lat/lon ("GET /mapcode/coords/{code}"). The mapcodes are the
+ * encoded points of a point set, alternately the shortest local mapcode, with its territory as context,
+ * and the international mapcode.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DecodeBenchmark {
+
+    @Param({"CITIES", "BORDERS", "SEA", "POLES"})
+    public PointSet points;
+
+    // Value "none" means no include options.
+    @Param({"none", "rectangle"})
+    public String include;
+
+    private MapcodeResource resource;
+    private String[] codes;
+    private String[] contexts;
+    private String paramInclude;
+    private int next = 0;
+
+    @Setup
+    public void setUp() {
+        resource = BenchmarkServices.getMapcodeResource();
+        final double[][] generated = points.generate();
+        codes = new String[generated.length];
+        contexts = new String[generated.length];
+        for (int i = 0; i < generated.length; ++i) {
+            final List<Mapcode> mapcodes = MapcodeCodec.encode(generated[i][0], generated[i][1]);
+            final Mapcode mapcode = mapcodes.get(((i % 2) == 0) ? 0 : (mapcodes.size() - 1));
+            final Territory territory = mapcode.getTerritory();
+            codes[i] = mapcode.getCode();
+            contexts[i] = (territory == Territory.AAA) ? null : territory.toAlphaCode(AlphaCodeFormat.INTERNATIONAL);
+        }
+        paramInclude = "none".equals(include) ? "" : include;
+    }
+
+    @Benchmark
+    public Object convertMapcodeToLatLon() throws Exception {
+        final int i = next;
+        next = (i + 1) & (PointSet.SIZE - 1);
+        final TestAsyncResponse response = new TestAsyncResponse();
+        resource.convertMapcodeToLatLon(codes[i], contexts[i], null, paramInclude, "", "false", response);
+        return response.getResponse();
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2016-2026, Stichting Mapcode Foundation (http://www.mapcode.com)
+ */
+package com.mapcode.services.benchmarks;
+
+import com.mapcode.services.MapcodeResource;
+import com.mapcode.services.implementation.TestAsyncResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.annotation.Nullable;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of encoding a lat/lon to mapcodes ("GET /mapcode/codes/{lat},{lon}/{type}"), for every type
+ * and include option.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EncodeBenchmark {
+
+    @Param({"CITIES", "BORDERS", "SEA", "POLES"})
+    public PointSet points;
+
+    // Value "all" means no type, which returns all mapcodes.
+    @Param({"all", "mapcodes", "local", "international"})
+    public String type;
+
+    // Value "none" means no include options.
+    @Param({"none", "offset", "territory", "alphabet", "rectangle", "offset,territory,alphabet,rectangle"})
+    public String include;
+
+    private MapcodeResource resource;
+    private String[] latDegs;
+    private String[] lonDegs;
+    @Nullable
+    private String paramType;
+    private String paramInclude;
+    private int next = 0;
+
+    @Setup
+    public void setUp() {
+        resource = BenchmarkServices.getMapcodeResource();
+        final double[][] generated = points.generate();
+        latDegs = new String[generated.length];
+        lonDegs = new String[generated.length];
+        for (int i = 0; i < generated.length; ++i) {
+            latDegs[i] = String.format(Locale.ROOT, "%.6f", generated[i][0]);
+            lonDegs[i] = String.format(Locale.ROOT, "%.6f", generated[i][1]);
+        }
+        paramType = "all".equals(type) ? null : type;
+        paramInclude = "none".equals(include) ? "" : include;
+    }
+
+    @Benchmark
+    public Object convertLatLonToMapcode() throws Exception {
+        final int i = next;
+        next = (i + 1) & (PointSet.SIZE - 1);
+        final TestAsyncResponse response = new TestAsyncResponse();
+        resource.convertLatLonToMapcode(latDegs[i], lonDegs[i], paramType, null, null, null, null, null,
+                paramInclude, "", "false", response);
+        return response.getResponse();
+    }
+}
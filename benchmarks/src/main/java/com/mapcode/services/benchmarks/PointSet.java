@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2016-2026, Stichting Mapcode Foundation (http://www.mapcode.com)
+ */
+package com.mapcode.services.benchmarks;
+
+import javax.annotation.Nonnull;
+import java.util.Random;
+
+/**
+ * Sets of points to convert, generated from a fixed seed so every run converts the same points. Each set
+ * stresses a different part of the conversions: dense cities have short local mapcodes, points near
+ * borders have candidates in several territories, points at sea only have international mapcodes, and
+ * points near the poles are at the edges of the coordinate system.
+ */
+public enum PointSet {
+    CITIES {
+        @Override
+        void generate(@Nonnull final Random random, @Nonnull final double[] point) {
+            final double[] city = CITY_CENTERS[random.nextInt(CITY_CENTERS.length)];
+            point[0] = city[0] + jitter(random, 0.05);
+            point[1] = city[1] + jitter(random, 0.05);
+        }
+    },
+
+    BORDERS {
+        @Override
+        void generate(@Nonnull final Random random, @Nonnull final double[] point) {
+            final double[] border = BORDER_POINTS[random.nextInt(BORDER_POINTS.length)];
+            point[0] = border[0] + jitter(random, 0.01);
+            point[1] = border[1] + jitter(random, 0.01);
+        }
+    },
+
+    SEA {
+        @Override
+        void generate(@Nonnull final Random random, @Nonnull final double[] point) {
+            final double[] area = SEA_AREAS[random.nextInt(SEA_AREAS.length)];
+            point[0] = area[0] + (random.nextDouble() * (area[1] - area[0]));
+            point[1] = area[2] + (random.nextDouble() * (area[3] - area[2]));
+        }
+    },
+
+    POLES {
+        @Override
+        void generate(@Nonnull final Random random, @Nonnull final double[] point) {
+            final double latDeg = 80.0 + (random.nextDouble() * 10.0);
+            point[0] = random.nextBoolean() ? latDeg : -latDeg;
+            point[1] = -180.0 + (random.nextDouble() * 360.0);
+        }
+    };
+
+    /**
+     * Number of points in a set, a power of 2.
+     */
+    public static final int SIZE = 4096;
+
+    private static final long SEED = 1;
+
+    // Centers of large cities, as {lat, lon}.
+    private static final double[][] CITY_CENTERS = {
+            {52.3731, 4.8922},          // Amsterdam.
+            {51.5074, -0.1278},         // London.
+            {48.8566, 2.3522},          // Paris.
+            {55.7558, 37.6173},         // Moscow.
+            {40.7128, -74.0060},        // New York.
+            {34.0522, -118.2437},       // Los Angeles.
+            {19.4326, -99.1332},        // Mexico City.
+            {-23.5505, -46.6333},       // Sao Paulo.
+            {6.5244, 3.3792},           // Lagos.
+            {30.0444, 31.2357},         // Cairo.
+            {19.0760, 72.8777},         // Mumbai.
+            {39.9042, 116.4074},        // Beijing.
+            {35.6762, 139.6503},        // Tokyo.
+            {-6.2088, 106.8456},        // Jakarta.
+            {-33.8688, 151.2093}        // Sydney.
+    };
+
+    // Points on borders between countries or states, as {lat, lon}.
+    private static final double[][] BORDER_POINTS = {
+            {51.4400, 4.9300},          // Netherlands, Belgium (Baarle).
+            {48.9700, 8.2000},          // Germany, France.
+            {52.3400, 14.5500},         // Germany, Poland.
+            {42.0300, -8.6400},         // Spain, Portugal.
+            {49.0000, -97.0000},        // United States, Canada.
+            {32.5400, -117.0300},       // United States, Mexico.
+            {40.7500, -74.0200},        // New York, New Jersey.
+            {-25.6000, -54.5800},       // Argentina, Brazil.
+            {-29.3000, 27.5000},        // South Africa, Lesotho.
+            {31.6000, 74.5700},         // India, Pakistan.
+            {48.4800, 135.0700},        // China, Russia.
+            {-36.1000, 146.9000}        // New South Wales, Victoria.
+    };
+
+    // Areas of open sea, as {minLat, maxLat, minLon, maxLon}.
+    private static final double[][] SEA_AREAS = {
+            {-30.0, 30.0, -170.0, -130.0},      // Pacific Ocean.
+            {-40.0, 40.0, -40.0, -20.0},        // Atlantic Ocean.
+            {-40.0, -10.0, 60.0, 90.0}          // Indian Ocean.
+    };
+
+    /**
+     * Generate the points of the set.
+     *
+     * @return Points, as {lat, lon}; always the same points, in the same order.
+     */
+    @Nonnull
+    public double[][] generate() {
+        final Random random = new Random(SEED + ordinal());
+        final double[][] points = new double[SIZE][2];
+        for (final double[] point : points) {
+            generate(random, point);
+        }
+        return points;
+    }
+
+    abstract void generate(@Nonnull final Random random, @Nonnull final double[] point);
+
+    private static double jitter(@Nonnull final Random random, final double maxDeg) {
+        return (random.nextDouble() * 2.0 * maxDeg) - maxDeg;
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright (C) 2016-2026, Stichting Mapcode Foundation (http://www.mapcode.com)
+ */
+package com.mapcode.services.benchmarks;
+
+import com.google.flatbuffers.FlatBufferBuilder;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.Polygon;
+import org.wololo.flatgeobuf.ColumnMeta;
+import org.wololo.flatgeobuf.GeometryConversions;
+import org.wololo.flatgeobuf.HeaderMeta;
+import org.wololo.flatgeobuf.generated.ColumnType;
+import org.wololo.flatgeobuf.generated.Feature;
+import org.wololo.flatgeobuf.generated.GeometryType;
+
+import javax.annotation.Nonnull;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates borders files with a given number of polygons and vertices, in the format the
+ * {@link com.mapcode.services.implementation.BoundaryService} reads: FlatGeobuf polygons with the columns
+ * "alphaCode", "parentAlphaCode", "adminLevel" and "area", without a spatial index.
+ *
+ * Half of the polygons are "countries" on a grid that covers the world between 60S and 75N; the other half
+ * are "subdivisions" that cover the western half of a country. So, like real borders, most points have two
+ * candidate polygons. The borders of every polygon are jagged, with the same number of vertices on each
+ * side, so the cost of a containment test grows with the number of vertices.
+ */
+final class SyntheticBorders {
+    static final double MIN_LAT = -60.0;
+    static final double MAX_LAT = 75.0;
+    static final double MIN_LON = -180.0;
+    static final double MAX_LON = 180.0;
+
+    private static final byte[] MAGIC_BYTES = {0x66, 0x67, 0x62, 0x03, 0x66, 0x67, 0x62, 0x00};
+    private static final GeometryFactory GEOMETRY_FACTORY = new GeometryFactory();
+    private static final double MAX_JITTER = 0.05;        // Fraction of the size of a polygon.
+    private static final long SEED = 1;
+
+    private SyntheticBorders() {
+        // Prevent instantiation.
+    }
+
+    /**
+     * Write a borders file to a temporary file, which is deleted when the JVM exits.
+     *
+     * @param polygons           Number of polygons, at least 2.
+     * @param verticesPerPolygon Number of vertices of every polygon, at least 4; rounded down to a multiple of 4.
+     * @return Path of the file.
+     * @throws IOException If the file cannot be written.
+     */
+    @Nonnull
+    static Path create(final int polygons, final int verticesPerPolygon) throws IOException {
+        assert polygons >= 2;
+        assert verticesPerPolygon >= 4;
+        final Path path = Files.createTempFile("mapcode-borders-" + polygons + 'x' + verticesPerPolygon + '-', ".fgb");
+        path.toFile().deleteOnExit();
+        final long startNanos = System.nanoTime();
+        try (final OutputStream out = new BufferedOutputStream(Files.newOutputStream(path))) {
+            write(out, polygons, verticesPerPolygon);
+        }
+        System.err.println("Generated " + polygons + " polygons with " + verticesPerPolygon + " vertices (" +
+                Files.size(path) + " bytes) in " + ((System.nanoTime() - startNanos) / 1000000) + " ms: " + path);
+        return path;
+    }
+
+    private static void write(
+            @Nonnull final OutputStream out,
+            final int polygons,
+            final int verticesPerPolygon) throws IOException {
+        final int countries = (polygons + 1) / 2;
+        final int subdivisions = polygons - countries;
+        final int columns = (int) Math.ceil(Math.sqrt(2.0 * countries));
+        final int rows = (int) Math.ceil(countries / (double) columns);
+        final double width = (MAX_LON - MIN_LON) / columns;
+        final double height = (MAX_LAT - MIN_LAT) / rows;
+
+        final HeaderMeta header = new HeaderMeta();
+        header.name = "borders";
+        header.geometryType = GeometryType.Polygon;
+        header.columns = Arrays.asList(
+                column("alphaCode", ColumnType.String),
+                column("parentAlphaCode", ColumnType.String),
+                column("adminLevel", ColumnType.Int),
+                column("area", ColumnType.Double));
+        header.featuresCount = polygons;
+        header.indexNodeSize = 0;
+
+        final FlatBufferBuilder builder = new FlatBufferBuilder(1024);
+        out.write(MAGIC_BYTES);
+        HeaderMeta.write(header, out, builder);
+
+        final Random random = new Random(SEED);
+        for (int i = 0; i < countries; ++i) {
+            final double minLon = MIN_LON + ((i % columns) * width);
+            final double minLat = MIN_LAT + ((i / columns) * height);
+            final String alphaCode = "C" + i;
+            writeFeature(out, builder, header,
+                    createPolygon(random, minLon, minLat, width, height, verticesPerPolygon),
+                    alphaCode, "", 2, width * height);
+            if (i < subdivisions) {
+                writeFeature(out, builder, header,
+                        createPolygon(random, minLon, minLat, width / 2.0, height, verticesPerPolygon),
+                        alphaCode + "-S", alphaCode, 4, (width / 2.0) * height);
+            }
+        }
+    }
+
+    @Nonnull
+    private static ColumnMeta column(@Nonnull final String name, final int type) {
+        final ColumnMeta column = new ColumnMeta();
+        column.name = name;
+        column.type = (byte) type;
+        return column;
+    }
+
+    /**
+     * Create a rectangle with jagged sides: the vertices on a side are moved inwards by a random amount.
+     * Near the corners, vertices are moved less than their distance to the corner, so the polygon never
+     * intersects itself.
+     */
+    @Nonnull
+    private static Polygon createPolygon(
+            @Nonnull final Random random,
+            final double minLon,
+            final double minLat,
+            final double width,
+            final double height,
+            final int vertices) {
+        final int perSide = vertices / 4;
+        final List<Coordinate> ring = new ArrayList<>(vertices + 1);
+        final double[][] corners = {
+                {minLon, minLat}, {minLon + width, minLat}, {minLon + width, minLat + height}, {minLon, minLat + height}
+        };
+        for (int side = 0; side < 4; ++side) {
+            final double[] from = corners[side];
+            final double[] to = corners[(side + 1) % 4];
+            final double length = (side % 2 == 0) ? width : height;
+            final double maxJitter = MAX_JITTER * Math.min(width, height);
+
+            // Inward normal of the side (the ring is counter-clockwise).
+            final double normalLon = (side == 1) ? -1.0 : ((side == 3) ? 1.0 : 0.0);
+            final double normalLat = (side == 0) ? 1.0 : ((side == 2) ? -1.0 : 0.0);
+            for (int v = 0; v < perSide; ++v) {
+                final double fraction = v / (double) perSide;
+                final double distanceToCorner = Math.min(fraction, 1.0 - fraction) * length;
+                final double jitter = (v == 0) ? 0.0 :
+                        random.nextDouble() * Math.min(maxJitter, distanceToCorner / 2.0);
+                ring.add(new Coordinate(
+                        from[0] + (fraction * (to[0] - from[0])) + (jitter * normalLon),
+                        from[1] + (fraction * (to[1] - from[1])) + (jitter * normalLat)));
+            }
+        }
+        ring.add(ring.get(0));
+        return GEOMETRY_FACTORY.createPolygon(ring.toArray(new Coordinate[0]));
+    }
+
+    private static void writeFeature(
+            @Nonnull final OutputStream out,
+            @Nonnull final FlatBufferBuilder builder,
+            @Nonnull final HeaderMeta header,
+            @Nonnull final Polygon polygon,
+            @Nonnull final String alphaCode,
+            @Nonnull final String parentAlphaCode,
+            final int adminLevel,
+            final double area) throws IOException {
+        final byte[] alphaCodeBytes = alphaCode.getBytes(StandardCharsets.UTF_8);
+        final byte[] parentAlphaCodeBytes = parentAlphaCode.getBytes(StandardCharsets.UTF_8);
+        final ByteBuffer properties = ByteBuffer.allocate(
+                2 + 4 + alphaCodeBytes.length + 2 + 4 + parentAlphaCodeBytes.length + 2 + 4 + 2 + 8).
+                order(ByteOrder.LITTLE_ENDIAN);
+        properties.putShort((short) 0).putInt(alphaCodeBytes.length).put(alphaCodeBytes);
+        properties.putShort((short) 1).putInt(parentAlphaCodeBytes.length).put(parentAlphaCodeBytes);
+        properties.putShort((short) 2).putInt(adminLevel);
+        properties.putShort((short) 3).putDouble(area);
+
+        builder.clear();
+        final int geometryOffset = GeometryConversions.serialize(builder, polygon, header.geometryType);
+        final int propertiesOffset = Feature.createPropertiesVector(builder, properties.array());
+        final int featureOffset = Feature.createFeature(builder, geometryOffset, propertiesOffset, 0);
+        builder.finishSizePrefixed(featureOffset);
+        out.write(builder.sizedByteArray());
+    }
+}
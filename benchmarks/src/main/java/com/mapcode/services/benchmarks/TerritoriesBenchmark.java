@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2016-2026, Stichting Mapcode Foundation (http://www.mapcode.com)
+ */
+package com.mapcode.services.benchmarks;
+
+import com.mapcode.services.MapcodeResource;
+import com.mapcode.services.implementation.TestAsyncResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of finding the territories of a lat/lon by their borders
+ * ("GET /mapcode/codes/{lat},{lon}/territories").
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TerritoriesBenchmark {
+
+    @Param({"CITIES", "BORDERS", "SEA", "POLES"})
+    public PointSet points;
+
+    private MapcodeResource resource;
+    private String[] latDegs;
+    private String[] lonDegs;
+    private int next = 0;
+
+    @Setup
+    public void setUp() {
+        resource = BenchmarkServices.getMapcodeResource();
+        final double[][] generated = points.generate();
+        latDegs = new String[generated.length];
+        lonDegs = new String[generated.length];
+        for (int i = 0; i < generated.length; ++i) {
+            latDegs[i] = String.format(Locale.ROOT, "%.6f", generated[i][0]);
+            lonDegs[i] = String.format(Locale.ROOT, "%.6f", generated[i][1]);
+        }
+    }
+
+    @Benchmark
+    public Object getTerritoriesForLatLon() throws Exception {
+        final int i = next;
+        next = (i + 1) & (PointSet.SIZE - 1);
+        final TestAsyncResponse response = new TestAsyncResponse();
+        resource.getTerritoriesForLatLon(latDegs[i], lonDegs[i], "", "false", response);
+        return response.getResponse();
+    }
+}
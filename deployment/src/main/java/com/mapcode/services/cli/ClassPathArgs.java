@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) 2016-2026, Stichting Mapcode Foundation (http://www.mapcode.com)
+ */
+package com.mapcode.services.cli;
+
+import javax.annotation.Nonnull;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Writes the classpath of an exploded WAR to an argument file for the java launcher, as "-cp jar:jar:...".
+ * The JARs are in the order in which {@link Main} loads them from an exploded WAR: the order of the
+ * Class-Path of its manifest. This is used to run the service with the JARs on the classpath directly,
+ * as AppCDS requires:
+ *
+ * java -cp exploded com.mapcode.services.cli.ClassPathArgs exploded exploded/classpath.args
+ * java @exploded/classpath.args com.mapcode.services.standalone.MainCommandLine [arguments]
+ */
+public final class ClassPathArgs {
+
+    private ClassPathArgs() {
+        // Prevent instantiation.
+    }
+
+    public static void main(@Nonnull final String... args) throws IOException {
+        assert args != null;
+        if (args.length != 2) {
+            throw new IllegalArgumentException("Usage: " + ClassPathArgs.class.getName() +
+                    " <exploded-war-dir> <argument-file>");
+        }
+        final List<Path> jars = Main.listJars(Paths.get(args[0]));
+        Files.write(Paths.get(args[1]), Collections.singletonList(toClassPathArgs(jars)), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Return the java launcher arguments for a classpath.
+     *
+     * @param jars JARs, in classpath order.
+     * @return Arguments, such as "-cp a.jar:b.jar".
+     */
+    @Nonnull
+    static String toClassPathArgs(@Nonnull final List<Path> jars) {
+        final StringBuilder classPath = new StringBuilder("-cp ");
+        for (int i = 0; i < jars.size(); ++i) {
+            if (i > 0) {
+                classPath.append(File.pathSeparatorChar);
+            }
+            classPath.append(jars.get(i));
+        }
+        return classPath.toString();
+    }
+}
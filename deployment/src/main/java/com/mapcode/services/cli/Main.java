@@ -17,6 +17,7 @@
 package com.mapcode.services.cli;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
@@ -24,13 +25,27 @@ import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.net.URL;
 import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.Enumeration;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.Attributes;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.stream.Stream;
 
 /**
  * Stub to load CLI main from war file.
@@ -38,11 +53,27 @@ import java.util.jar.JarFile;
  *
  * java -jar war-file [arguments]
  *
+ * The nested JARs are extracted once, to a cache directory named after a hash of the nested JARs, and
+ * reused by later starts of the same WAR. The cache directory is "mapcode-war-cache" in the temp directory,
+ * or set with -Dmapcode.launcher.cache-dir=dir. Cached WARs that have not been used for a week are removed.
+ *
+ * The application can also run from an exploded WAR, without extracting anything:
+ *
+ * mkdir exploded; cd exploded; jar xf ../war-file
+ * java -cp exploded com.mapcode.services.cli.Main [arguments]
+ *
  */
 public final class Main {
     private static final String MAIN_CLASS_NAME = "com.mapcode.services.standalone.MainCommandLine";
     private static final String MAIN_METHOD_NAME = "execute";
 
+    private static final String PROPERTY_CACHE_DIR = "mapcode.launcher.cache-dir";
+    private static final String DEFAULT_CACHE_DIR_NAME = "mapcode-war-cache";
+    private static final String LIB_DIR = "WEB-INF/lib";
+    private static final String JAR_SUFFIX = ".jar";
+    private static final String INDEX_FILE_NAME = "classpath.idx";
+    private static final long STALE_CACHE_MILLIS = TimeUnit.DAYS.toMillis(7);
+
     private Main() {
         // Prevent instantiation.
     }
@@ -50,30 +81,26 @@ public final class Main {
     public static void main(@Nonnull final String... args)
             throws ClassNotFoundException, NoSuchMethodException, IllegalAccessException, IOException {
         assert args != null;
-        final String warFile = getWarFile();
-
-        // Extract nested JARs from the WAR to a temp directory and build a
-        // URLClassLoader from them. The old nestedjar:// URL scheme no longer
-        // works on Java 9+ because JarURLConnection became stricter about
-        // double-nested URLs.
-        final File tempDir = Files.createTempDirectory("mapcode-war-").toFile();
-        tempDir.deleteOnExit();
 
-        final List<URL> newUrls = new ArrayList<>();
-        try (final JarFile jarFile = new JarFile(warFile)) {
-            for (final Enumeration<JarEntry> entryEnum = jarFile.entries(); entryEnum.hasMoreElements(); ) {
-                final JarEntry entry = entryEnum.nextElement();
-                if (entry.getName().endsWith(".jar")) {
-                    final File tempJar = new File(tempDir, new File(entry.getName()).getName());
-                    tempJar.deleteOnExit();
-                    try (final InputStream is = jarFile.getInputStream(entry)) {
-                        Files.copy(is, tempJar.toPath(), StandardCopyOption.REPLACE_EXISTING);
-                    }
-                    newUrls.add(tempJar.toURI().toURL());
-                }
+        // Build a URLClassLoader from the nested JARs. The old nestedjar:// URL scheme no longer
+        // works on Java 9+ because JarURLConnection became stricter about double-nested URLs.
+        final List<Path> jars;
+        final String warFile = findWarFile();
+        if (warFile != null) {
+            jars = extractCached(Paths.get(warFile), getCacheDir());
+        } else {
+            final Path explodedDir = findExplodedDir();
+            if (explodedDir == null) {
+                throw new IllegalStateException("Should be run from the war file (using java -jar <warfile>), " +
+                        "or from an exploded war file (using java -cp <dir> " + Main.class.getName() + ").");
             }
+            jars = listJars(explodedDir);
         }
 
+        final List<URL> newUrls = new ArrayList<>();
+        for (final Path jar : jars) {
+            newUrls.add(jar.toUri().toURL());
+        }
         final URLClassLoader newClassLoader = new URLClassLoader(newUrls.toArray(new URL[0]));
         Thread.currentThread().setContextClassLoader(newClassLoader);
         final Class<?> mainClass = newClassLoader.loadClass(MAIN_CLASS_NAME);
@@ -86,17 +113,239 @@ public final class Main {
         }
     }
 
+    /**
+     * Return the nested JARs of a WAR file, extracted to a subdirectory of the cache directory. The
+     * subdirectory is named after a hash of the nested JARs, so a WAR with the same JARs reuses it, and a
+     * changed WAR gets a new one. A subdirectory is only used once it is complete: the JARs are extracted to
+     * a temporary directory first, which is then renamed. Concurrent starts may both extract, but only one
+     * rename wins.
+     *
+     * @param warFile  WAR file.
+     * @param cacheDir Cache directory, created if it does not exist.
+     * @return Extracted JARs, in the order of the WAR file.
+     * @throws IOException If the JARs cannot be extracted.
+     */
+    @Nonnull
+    static List<Path> extractCached(@Nonnull final Path warFile, @Nonnull final Path cacheDir) throws IOException {
+        Files.createDirectories(cacheDir);
+        try (final JarFile jarFile = new JarFile(warFile.toFile())) {
+            final Path dir = cacheDir.resolve(hashNestedJars(jarFile));
+            List<Path> jars = readIndex(dir);
+            if (jars == null) {
+                final Path tempDir = Files.createTempDirectory(cacheDir, dir.getFileName() + "-");
+                try {
+                    extractJars(jarFile, tempDir);
+                    if (Files.exists(dir) && (readIndex(dir) == null)) {
+                        // An incomplete directory, such as one that was partly removed.
+                        deleteRecursively(dir);
+                    }
+                    try {
+                        Files.move(tempDir, dir, StandardCopyOption.ATOMIC_MOVE);
+                    } catch (final AtomicMoveNotSupportedException ignored) {
+                        Files.move(tempDir, dir);
+                    }
+                } catch (final FileAlreadyExistsException ignored) {
+                    // Another process extracted the same WAR first; use its directory.
+                } catch (final IOException e) {
+                    // Another process may have extracted the same WAR first; use its directory if it is complete.
+                    if (readIndex(dir) == null) {
+                        throw e;
+                    }
+                } finally {
+                    deleteRecursively(tempDir);
+                }
+                jars = readIndex(dir);
+                if (jars == null) {
+                    throw new IOException("Cannot extract the nested JARs of " + warFile + " to " + dir);
+                }
+                removeStaleEntries(cacheDir, dir);
+            }
+
+            // Mark the directory as used, so it is not removed as stale.
+            Files.setLastModifiedTime(dir, FileTime.fromMillis(System.currentTimeMillis()));
+            return jars;
+        }
+    }
+
+    /**
+     * Return a hash of the nested JARs of a WAR file: their names, sizes and CRCs. These are read from the
+     * central directory of the WAR, so the JARs themselves need not be read.
+     *
+     * @param jarFile WAR file.
+     * @return Hash, as a hexadecimal string.
+     */
+    @Nonnull
+    static String hashNestedJars(@Nonnull final JarFile jarFile) {
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
+        for (final Enumeration<JarEntry> entryEnum = jarFile.entries(); entryEnum.hasMoreElements(); ) {
+            final JarEntry entry = entryEnum.nextElement();
+            if (entry.getName().endsWith(JAR_SUFFIX)) {
+                digest.update((entry.getName() + ':' + entry.getSize() + ':' + entry.getCrc() + '\n').
+                        getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        final StringBuilder hash = new StringBuilder();
+        final byte[] bytes = digest.digest();
+        for (int i = 0; i < 16; ++i) {
+            hash.append(String.format("%02x", bytes[i]));
+        }
+        return hash.toString();
+    }
+
+    /**
+     * Extract the nested JARs, and write the index file that lists them last.
+     */
+    private static void extractJars(@Nonnull final JarFile jarFile, @Nonnull final Path dir) throws IOException {
+        final List<String> names = new ArrayList<>();
+        for (final Enumeration<JarEntry> entryEnum = jarFile.entries(); entryEnum.hasMoreElements(); ) {
+            final JarEntry entry = entryEnum.nextElement();
+            if (entry.getName().endsWith(JAR_SUFFIX)) {
+                final String name = new File(entry.getName()).getName();
+                try (final InputStream is = jarFile.getInputStream(entry)) {
+                    Files.copy(is, dir.resolve(name), StandardCopyOption.REPLACE_EXISTING);
+                }
+                names.add(name);
+            }
+        }
+        Files.write(dir.resolve(INDEX_FILE_NAME), names, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Read the JARs of a cache directory from its index file.
+     *
+     * @param dir Cache directory of a WAR file.
+     * @return JARs, or null if the directory is missing or incomplete.
+     */
+    @Nullable
+    private static List<Path> readIndex(@Nonnull final Path dir) throws IOException {
+        final Path index = dir.resolve(INDEX_FILE_NAME);
+        if (!Files.isRegularFile(index)) {
+            return null;
+        }
+        final List<Path> jars = new ArrayList<>();
+        for (final String name : Files.readAllLines(index, StandardCharsets.UTF_8)) {
+            final Path jar = dir.resolve(name);
+            if (!Files.isRegularFile(jar)) {
+                return null;
+            }
+            jars.add(jar);
+        }
+        return jars;
+    }
+
+    /**
+     * Remove the cache directories of other WAR files that have not been used for a while. Failures are
+     * ignored: a directory may still be in use by another process.
+     */
+    private static void removeStaleEntries(@Nonnull final Path cacheDir, @Nonnull final Path current) {
+        final long staleBefore = System.currentTimeMillis() - STALE_CACHE_MILLIS;
+        try (final DirectoryStream<Path> entries = Files.newDirectoryStream(cacheDir)) {
+            for (final Path entry : entries) {
+                if (!entry.equals(current) && (Files.getLastModifiedTime(entry).toMillis() < staleBefore)) {
+                    deleteRecursively(entry);
+                }
+            }
+        } catch (final IOException ignored) {
+            // Try again next time.
+        }
+    }
+
+    private static void deleteRecursively(@Nonnull final Path path) {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (final Stream<Path> paths = Files.walk(path)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        } catch (final IOException ignored) {
+            // Nothing to do.
+        }
+    }
+
+    /**
+     * Return the JARs of an exploded WAR, in the order of the Class-Path of its manifest. JARs that are not
+     * in the manifest follow, sorted by name.
+     *
+     * @param explodedDir Exploded WAR directory.
+     * @return JARs.
+     * @throws IOException If the directory cannot be read.
+     */
+    @Nonnull
+    static List<Path> listJars(@Nonnull final Path explodedDir) throws IOException {
+        final List<Path> jars = new ArrayList<>();
+        final Path manifestFile = explodedDir.resolve(JarFile.MANIFEST_NAME);
+        if (Files.isRegularFile(manifestFile)) {
+            try (final InputStream is = Files.newInputStream(manifestFile)) {
+                final String classPath = new Manifest(is).getMainAttributes().getValue(Attributes.Name.CLASS_PATH);
+                if (classPath != null) {
+                    for (final String entry : classPath.trim().split("\\s+")) {
+                        final Path jar = explodedDir.resolve(entry);
+                        if (entry.endsWith(JAR_SUFFIX) && Files.isRegularFile(jar)) {
+                            jars.add(jar);
+                        }
+                    }
+                }
+            }
+        }
+        final List<Path> others = new ArrayList<>();
+        try (final DirectoryStream<Path> entries =
+                     Files.newDirectoryStream(explodedDir.resolve(LIB_DIR), '*' + JAR_SUFFIX)) {
+            for (final Path entry : entries) {
+                if (!jars.contains(entry)) {
+                    others.add(entry);
+                }
+            }
+        }
+        others.sort(Comparator.comparing(Path::toString));
+        jars.addAll(others);
+        return jars;
+    }
+
     @Nonnull
-    private static String getWarFile() {
+    private static Path getCacheDir() {
+        final String cacheDir = System.getProperty(PROPERTY_CACHE_DIR);
+        if ((cacheDir != null) && !cacheDir.isEmpty()) {
+            return Paths.get(cacheDir);
+        }
+        return Paths.get(System.getProperty("java.io.tmpdir"), DEFAULT_CACHE_DIR_NAME);
+    }
+
+    @Nullable
+    private static String findWarFile() {
         // In Java 9+, AppClassLoader no longer extends URLClassLoader, so we
         // read the WAR path from the system classpath instead.
-        final String classPath = System.getProperty("java.class.path", "");
-        final String pathSeparator = System.getProperty("path.separator", ":");
-        for (final String entry : classPath.split(pathSeparator)) {
+        for (final String entry : getClassPath()) {
             if (entry.endsWith(".war")) {
                 return entry;
             }
         }
-        throw new IllegalStateException("Should be run from the war file (using java -jar <warfile>).");
+        return null;
+    }
+
+    /**
+     * Return the exploded WAR on the classpath: a directory with a WEB-INF/lib directory.
+     *
+     * @return Exploded WAR directory, or null if there is none.
+     */
+    @Nullable
+    private static Path findExplodedDir() {
+        for (final String entry : getClassPath()) {
+            final Path dir = Paths.get(entry);
+            if (Files.isDirectory(dir.resolve(LIB_DIR))) {
+                return dir;
+            }
+        }
+        return null;
+    }
+
+    @Nonnull
+    private static String[] getClassPath() {
+        final String classPath = System.getProperty("java.class.path", "");
+        final String pathSeparator = System.getProperty("path.separator", ":");
+        return classPath.split(pathSeparator);
     }
 }
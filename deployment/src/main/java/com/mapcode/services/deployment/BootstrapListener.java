@@ -0,0 +1,49 @@
+/*
+ * Copyright (C) 2016-2026, Stichting Mapcode Foundation (http://www.mapcode.com)
+ */
+package com.mapcode.services.deployment;
+
+import com.google.inject.Injector;
+import com.mapcode.services.implementation.HealthCheck;
+import com.mapcode.services.implementation.HotCells;
+import com.tomtom.speedtools.guice.LoggingGuiceResteasyBootstrapServletContextListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.servlet.ServletContextEvent;
+
+/**
+ * Bootstrap listener of the web application: the SpeedTools Guice bootstrap, which also starts the health check
+ * (and with it, the warm-up) when the web application is started. When it is stopped, the health check is stopped,
+ * and so are the hot cells, so they are saved a last time. This stops all background threads of the service, so
+ * they do not leak when the web application is redeployed.
+ */
+public class BootstrapListener extends LoggingGuiceResteasyBootstrapServletContextListener {
+    private static final Logger LOG = LoggerFactory.getLogger(BootstrapListener.class);
+
+    @Nullable
+    private volatile Injector injector = null;
+
+    @Override
+    protected void withInjector(@Nonnull final Injector injector) {
+        assert injector != null;
+        super.withInjector(injector);
+        this.injector = injector;
+        LOG.info("withInjector: start health check");
+        injector.getInstance(HealthCheck.class).start();
+    }
+
+    @Override
+    public void contextDestroyed(@Nonnull final ServletContextEvent event) {
+        assert event != null;
+        final Injector currentInjector = injector;
+        if (currentInjector != null) {
+            LOG.info("contextDestroyed: stop health check and hot cells");
+            currentInjector.getInstance(HealthCheck.class).stop();
+            currentInjector.getInstance(HotCells.class).stop();
+        }
+        super.contextDestroyed(event);
+    }
+}
@@ -16,15 +16,36 @@
 
 package com.mapcode.services.cli;
 
+import org.junit.Assert;
 import org.junit.Ignore;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
 @SuppressWarnings("OverlyBroadThrowsClause")
 public class MainTest {
     private static final Logger LOG = LoggerFactory.getLogger(MainTest.class);
 
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
     @Ignore
     @SuppressWarnings("ProhibitedExceptionDeclared")
     @Test(expected = IllegalStateException.class)
@@ -35,4 +56,75 @@ public class MainTest {
         // Arguments: [--port <port>] [--silent] [--debug] [--help]
         Main.main("--port", "8080", "--debug");
     }
+
+    @Test
+    public void testExtractCachedReusesDirectory() throws IOException {
+        LOG.info("testExtractCachedReusesDirectory");
+        final Path war = folder.getRoot().toPath().resolve("test.war");
+        final Path cacheDir = folder.getRoot().toPath().resolve("cache");
+        writeWar(war, "a");
+
+        final List<Path> jars = Main.extractCached(war, cacheDir);
+        Assert.assertEquals(2, jars.size());
+        Assert.assertEquals("b.jar", jars.get(0).getFileName().toString());
+        Assert.assertEquals("a.jar", jars.get(1).getFileName().toString());
+        Assert.assertEquals("a", new String(Files.readAllBytes(jars.get(1)), StandardCharsets.UTF_8));
+
+        // The second start uses the extracted JARs, without writing them again.
+        final FileTime modified = FileTime.fromMillis(1000);
+        Files.setLastModifiedTime(jars.get(1), modified);
+        Assert.assertEquals(jars, Main.extractCached(war, cacheDir));
+        Assert.assertEquals(modified, Files.getLastModifiedTime(jars.get(1)));
+
+        // A changed WAR is extracted to a new directory.
+        writeWar(war, "changed");
+        final List<Path> changedJars = Main.extractCached(war, cacheDir);
+        Assert.assertNotEquals(jars.get(1).getParent(), changedJars.get(1).getParent());
+        Assert.assertEquals("changed", new String(Files.readAllBytes(changedJars.get(1)), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testExtractCachedRepairsIncompleteDirectory() throws IOException {
+        LOG.info("testExtractCachedRepairsIncompleteDirectory");
+        final Path war = folder.getRoot().toPath().resolve("test.war");
+        final Path cacheDir = folder.getRoot().toPath().resolve("cache");
+        writeWar(war, "a");
+
+        final List<Path> jars = Main.extractCached(war, cacheDir);
+        Files.delete(jars.get(0));
+        Assert.assertEquals(jars, Main.extractCached(war, cacheDir));
+        Assert.assertTrue(Files.isRegularFile(jars.get(0)));
+    }
+
+    @Test
+    public void testListJarsUsesManifestOrder() throws IOException {
+        LOG.info("testListJarsUsesManifestOrder");
+        final Path exploded = folder.getRoot().toPath();
+        final Path lib = Files.createDirectories(exploded.resolve("WEB-INF/lib"));
+        for (final String name : Arrays.asList("a.jar", "b.jar", "c.jar")) {
+            Files.write(lib.resolve(name), new byte[0]);
+        }
+        final Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        manifest.getMainAttributes().put(Attributes.Name.CLASS_PATH, "WEB-INF/lib/c.jar WEB-INF/lib/a.jar");
+        Files.createDirectories(exploded.resolve("META-INF"));
+        try (final OutputStream out = Files.newOutputStream(exploded.resolve(JarFile.MANIFEST_NAME))) {
+            manifest.write(out);
+        }
+
+        Assert.assertEquals(Arrays.asList(lib.resolve("c.jar"), lib.resolve("a.jar"), lib.resolve("b.jar")),
+                Main.listJars(exploded));
+    }
+
+    private static void writeWar(@Nonnull final Path war, @Nonnull final String content) throws IOException {
+        try (final JarOutputStream out = new JarOutputStream(Files.newOutputStream(war))) {
+            out.putNextEntry(new JarEntry("index.html"));
+            out.write("<html/>".getBytes(StandardCharsets.UTF_8));
+            out.putNextEntry(new JarEntry("WEB-INF/lib/b.jar"));
+            out.write("b".getBytes(StandardCharsets.UTF_8));
+            out.putNextEntry(new JarEntry("WEB-INF/lib/a.jar"));
+            out.write(content.getBytes(StandardCharsets.UTF_8));
+            out.closeEntry();
+        }
+    }
 }
@@ -0,0 +1,173 @@
+/*
+ * Copyright (C) 2016-2026, Stichting Mapcode Foundation (http://www.mapcode.com)
+ */
+package com.mapcode.services.loadgen;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogWriter;
+import org.HdrHistogram.Recorder;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.PrintStream;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latencies and outcomes of the requests to a single endpoint. Two latencies are recorded per request, in
+ * microseconds:
+ *
+ * - "latency": from the intended send time of the request to its completion. The schedule does not wait
+ * for responses, and a request that is sent late (because the load generator could not keep up) still
+ * counts from its intended send time. So the time requests spend queued is included, and the results are
+ * free of coordinated omission.
+ *
+ * - "service": from the actual send time to the completion, which is what a closed-loop tool measures.
+ *
+ * The interval histograms are written to a log with the tags "(endpoint)" and "(endpoint).service".
+ */
+final class EndpointStats {
+    private static final int SIGNIFICANT_DIGITS = 3;
+    private static final String SERVICE_SUFFIX = ".service";
+
+    @Nonnull
+    private final String name;
+    @Nonnull
+    private final Recorder latencyRecorder = new Recorder(SIGNIFICANT_DIGITS);
+    @Nonnull
+    private final Recorder serviceRecorder = new Recorder(SIGNIFICANT_DIGITS);
+    @Nonnull
+    private final Histogram latencyTotal = new Histogram(SIGNIFICANT_DIGITS);
+    @Nonnull
+    private final Histogram serviceTotal = new Histogram(SIGNIFICANT_DIGITS);
+    @Nullable
+    private Histogram latencyInterval = null;
+    @Nullable
+    private Histogram serviceInterval = null;
+
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder ok = new LongAdder();
+    private final LongAdder rejected = new LongAdder();       // 429 Too Many Requests, 503 Service Unavailable.
+    private final LongAdder errors = new LongAdder();         // Any other status.
+    private final LongAdder failures = new LongAdder();       // No response: timeouts, connection errors.
+
+    EndpointStats(@Nonnull final String name) {
+        assert name != null;
+        this.name = name;
+    }
+
+    @Nonnull
+    String getName() {
+        return name;
+    }
+
+    void sent() {
+        sent.increment();
+    }
+
+    /**
+     * Record a completed request.
+     *
+     * @param intendedNanos   Intended send time.
+     * @param sentNanos       Actual send time.
+     * @param completedNanos  Completion time.
+     * @param status          HTTP status, or 0 if there was no response.
+     * @param measured        False to count the request, but leave it out of the histograms (during warm-up).
+     */
+    void completed(
+            final long intendedNanos,
+            final long sentNanos,
+            final long completedNanos,
+            final int status,
+            final boolean measured) {
+        if (status == 0) {
+            failures.increment();
+        } else if ((status >= 200) && (status < 300)) {
+            ok.increment();
+        } else if ((status == 429) || (status == 503)) {
+            rejected.increment();
+        } else {
+            errors.increment();
+        }
+        if (measured) {
+            latencyRecorder.recordValue(TimeUnit.NANOSECONDS.toMicros(Math.max(0, completedNanos - intendedNanos)));
+            serviceRecorder.recordValue(TimeUnit.NANOSECONDS.toMicros(Math.max(0, completedNanos - sentNanos)));
+        }
+    }
+
+    /**
+     * Take the histograms of the interval since the previous call, add them to the totals and write them
+     * to a log.
+     *
+     * @param log Log to write to, or null.
+     * @return Number of requests in the interval.
+     */
+    synchronized long nextInterval(@Nullable final HistogramLogWriter log) {
+        latencyInterval = latencyRecorder.getIntervalHistogram(latencyInterval);
+        serviceInterval = serviceRecorder.getIntervalHistogram(serviceInterval);
+        latencyTotal.add(latencyInterval);
+        serviceTotal.add(serviceInterval);
+        if (log != null) {
+            latencyInterval.setTag(name);
+            serviceInterval.setTag(name + SERVICE_SUFFIX);
+            log.outputIntervalHistogram(latencyInterval);
+            log.outputIntervalHistogram(serviceInterval);
+        }
+        return latencyInterval.getTotalCount();
+    }
+
+    /**
+     * Return the 99th percentile latency of the last interval.
+     *
+     * @return Latency, in milliseconds.
+     */
+    synchronized double getIntervalP99Millis() {
+        return (latencyInterval == null) ? 0.0 : toMillis(latencyInterval.getValueAtPercentile(99.0));
+    }
+
+    long getSent() {
+        return sent.sum();
+    }
+
+    long getCompleted() {
+        return ok.sum() + rejected.sum() + errors.sum() + failures.sum();
+    }
+
+    long getUnsuccessful() {
+        return rejected.sum() + errors.sum() + failures.sum();
+    }
+
+    static void printHeader(@Nonnull final PrintStream out) {
+        out.printf(Locale.ROOT, "%-24s %8s %8s %8s %8s %8s %9s %9s %9s %9s %9s %9s%n",
+                "endpoint (ms)", "sent", "ok", "rejected", "errors", "failures",
+                "mean", "p50", "p90", "p99", "p99.9", "max");
+    }
+
+    synchronized void printSummary(@Nonnull final PrintStream out) {
+        printRow(out, name, latencyTotal, true);
+        printRow(out, name + SERVICE_SUFFIX, serviceTotal, false);
+    }
+
+    private void printRow(
+            @Nonnull final PrintStream out,
+            @Nonnull final String label,
+            @Nonnull final Histogram histogram,
+            final boolean withCounts) {
+        final String counts = withCounts ?
+                String.format(Locale.ROOT, "%8d %8d %8d %8d %8d",
+                        sent.sum(), ok.sum(), rejected.sum(), errors.sum(), failures.sum()) :
+                String.format(Locale.ROOT, "%8s %8s %8s %8s %8s", "", "", "", "", "");
+        out.printf(Locale.ROOT, "%-24s %s %9.2f %9.2f %9.2f %9.2f %9.2f %9.2f%n", label, counts,
+                histogram.getMean() / 1000.0,
+                toMillis(histogram.getValueAtPercentile(50.0)),
+                toMillis(histogram.getValueAtPercentile(90.0)),
+                toMillis(histogram.getValueAtPercentile(99.0)),
+                toMillis(histogram.getValueAtPercentile(99.9)),
+                toMillis(histogram.getMaxValue()));
+    }
+
+    private static double toMillis(final long micros) {
+        return micros / 1000.0;
+    }
+}
@@ -0,0 +1,445 @@
+/*
+ * Copyright (C) 2016-2026, Stichting Mapcode Foundation (http://www.mapcode.com)
+ */
+package com.mapcode.services.loadgen;
+
+import org.HdrHistogram.HistogramLogWriter;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Open-loop load generator for the REST API. Requests are sent on a schedule of intended send times,
+ * drawn from the traffic model of tools/mapcode-stresstest.py (see {@link TrafficModel}), whether or not
+ * earlier requests have completed. Latencies are measured from the intended send times, so a slow or
+ * stalled service shows up in the results, instead of slowing down the load (see {@link EndpointStats}).
+ *
+ * The mix of requests is that of the Python tool, plus territory lookups: encodes of random points,
+ * decodes of mapcodes that earlier encodes returned, and territory lookups of random points.
+ *
+ * The latency histograms of every second are written to an HdrHistogram log, which can be compared
+ * across builds with the HdrHistogram tools; a summary is printed when the run ends.
+ */
+@SuppressWarnings("UseOfSystemOutOrSystemErr")
+public final class LoadGenerator {
+    private static final String CMD_HELP = "--help";
+    private static final String CMD_URL = "--url";
+    private static final String CMD_RATE = "--rate";
+    private static final String CMD_DURATION = "--duration";
+    private static final String CMD_WARMUP = "--warmup";
+    private static final String CMD_TOTAL_REQUESTS = "--total-requests";
+    private static final String CMD_BUCKET_SIZE = "--bucket-size";
+    private static final String CMD_TERRITORIES = "--territories";
+    private static final String CMD_TIMEOUT = "--timeout";
+    private static final String CMD_CLIENT = "--client";
+    private static final String CMD_SEED = "--seed";
+    private static final String CMD_LOG = "--log";
+
+    private static final String DEFAULT_URL = "http://localhost:8080";
+    private static final double DEFAULT_RATE = 10.0;
+    private static final int DEFAULT_DURATION_SECS = 60;
+    private static final int DEFAULT_BUCKET_SIZE = 10000;
+    private static final int DEFAULT_TERRITORIES_PERCENT = 10;
+    private static final int DEFAULT_TIMEOUT_SECS = 10;
+
+    // The share of encodes goes from 90% with an empty bucket to 50% with a full bucket.
+    private static final double MAX_ENCODE_SHARE = 0.9;
+    private static final double MIN_ENCODE_SHARE = 0.5;
+    private static final double MAX_LAT = 85.0;
+    private static final double MAX_LON = 180.0;
+    private static final long INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final Pattern VERSION = Pattern.compile("\"version\"\\s*:\\s*\"([^\"]+)\"");
+
+    @Nonnull
+    private final String url;
+    private final double rate;
+    private final long warmUpNanos;
+    private final long durationNanos;
+    private final long totalRequests;
+    private final double territoriesShare;
+    @Nonnull
+    private final Duration timeout;
+    @Nonnull
+    private final String clientParam;
+    @Nonnull
+    private final Random random;
+    @Nonnull
+    private final TrafficModel trafficModel;
+    @Nonnull
+    private final MapcodeBucket bucket;
+    @Nonnull
+    private final HttpClient httpClient;
+    @Nonnull
+    private final ExecutorService executor;
+
+    @Nonnull
+    private final EndpointStats encodeStats = new EndpointStats("encode");
+    @Nonnull
+    private final EndpointStats decodeStats = new EndpointStats("decode");
+    @Nonnull
+    private final EndpointStats territoriesStats = new EndpointStats("territories");
+    @Nonnull
+    private final List<EndpointStats> allStats = Arrays.asList(encodeStats, decodeStats, territoriesStats);
+    @Nonnull
+    private final AtomicLong inFlight = new AtomicLong();
+
+    private volatile long measureStartNanos = Long.MAX_VALUE;
+
+    private LoadGenerator(
+            @Nonnull final String url,
+            final double rate,
+            final int warmUpSecs,
+            final int durationSecs,
+            final long totalRequests,
+            final int bucketSize,
+            final int territoriesPercent,
+            final int timeoutSecs,
+            @Nullable final String client,
+            final long seed) {
+        this.url = url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+        this.rate = rate;
+        this.warmUpNanos = TimeUnit.SECONDS.toNanos(warmUpSecs);
+        this.durationNanos = TimeUnit.SECONDS.toNanos(durationSecs);
+        this.totalRequests = totalRequests;
+        this.territoriesShare = territoriesPercent / 100.0;
+        this.timeout = Duration.ofSeconds(timeoutSecs);
+        this.clientParam = (client == null) ? "" : ("?client=" + URLEncoder.encode(client, StandardCharsets.UTF_8));
+        this.random = new Random(seed);
+        this.trafficModel = new TrafficModel(rate, seed);
+        this.bucket = new MapcodeBucket(bucketSize);
+
+        // Responses are handled on a thread pool of their own, so the scheduler thread never waits for them.
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            final Thread thread = new Thread(runnable, "mapcode-loadgen");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.httpClient = HttpClient.newBuilder().
+                version(HttpClient.Version.HTTP_1_1).
+                connectTimeout(timeout).
+                executor(executor).
+                build();
+    }
+
+    public static void main(final String... args) {
+        String url = DEFAULT_URL;
+        double rate = DEFAULT_RATE;
+        int warmUpSecs = 0;
+        int durationSecs = DEFAULT_DURATION_SECS;
+        long totalRequests = Long.MAX_VALUE;
+        int bucketSize = DEFAULT_BUCKET_SIZE;
+        int territoriesPercent = DEFAULT_TERRITORIES_PERCENT;
+        int timeoutSecs = DEFAULT_TIMEOUT_SECS;
+        String client = null;
+        long seed = System.nanoTime();
+        String logFile = null;
+
+        // Parse command-line arguments.
+        try {
+            int index = 0;
+            while (index < args.length) {
+                final String option = args[index];
+                if (CMD_HELP.equals(option)) {
+                    printUsage();
+                    return;
+                }
+                if (index >= (args.length - 1)) {
+                    System.out.println("Missing value for option: " + option);
+                    printUsage();
+                    System.exit(1);
+                }
+                final String value = args[index + 1];
+                switch (option) {
+                    case CMD_URL:
+                        url = value;
+                        break;
+
+                    case CMD_RATE:
+                        rate = Double.parseDouble(value);
+                        break;
+
+                    case CMD_DURATION:
+                        durationSecs = Integer.parseInt(value);
+                        break;
+
+                    case CMD_WARMUP:
+                        warmUpSecs = Integer.parseInt(value);
+                        break;
+
+                    case CMD_TOTAL_REQUESTS:
+                        totalRequests = Long.parseLong(value);
+                        break;
+
+                    case CMD_BUCKET_SIZE:
+                        bucketSize = Integer.parseInt(value);
+                        break;
+
+                    case CMD_TERRITORIES:
+                        territoriesPercent = Integer.parseInt(value);
+                        break;
+
+                    case CMD_TIMEOUT:
+                        timeoutSecs = Integer.parseInt(value);
+                        break;
+
+                    case CMD_CLIENT:
+                        client = value;
+                        break;
+
+                    case CMD_SEED:
+                        seed = Long.parseLong(value);
+                        break;
+
+                    case CMD_LOG:
+                        logFile = value;
+                        break;
+
+                    default:
+                        System.out.println("Unknown option: " + option);
+                        printUsage();
+                        System.exit(1);
+                }
+                index += 2;
+            }
+        } catch (final NumberFormatException e) {
+            System.out.println("Invalid number: " + e.getMessage());
+            printUsage();
+            System.exit(1);
+        }
+        if ((rate <= 0.0) || (durationSecs <= 0) || (warmUpSecs < 0) || (totalRequests <= 0) ||
+                (bucketSize <= 0) || (territoriesPercent < 0) || (territoriesPercent > 100) || (timeoutSecs <= 0)) {
+            System.out.println("Option values out of range");
+            printUsage();
+            System.exit(1);
+        }
+
+        final LoadGenerator loadGenerator = new LoadGenerator(url, rate, warmUpSecs, durationSecs, totalRequests,
+                bucketSize, territoriesPercent, timeoutSecs, client, seed);
+        try {
+            System.exit(loadGenerator.run(logFile) ? 0 : 1);
+        } catch (final IOException e) {
+            System.out.println("Cannot write log: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Run the load.
+     *
+     * @param logFile HdrHistogram log file, or null for none.
+     * @return False if the service could not be reached.
+     * @throws IOException If the log file cannot be written.
+     */
+    private boolean run(@Nullable final String logFile) throws IOException {
+        final String version = getVersion();
+        if (version == null) {
+            return false;
+        }
+        System.err.printf(Locale.ROOT, "Service %s at %s, %.2f req/s (mean burst %.1f), warm-up %ds, duration %ds%n",
+                version, url, rate, trafficModel.getMeanBurst(), TimeUnit.NANOSECONDS.toSeconds(warmUpNanos),
+                TimeUnit.NANOSECONDS.toSeconds(durationNanos));
+
+        final HistogramLogWriter log = (logFile == null) ? null : createLog(logFile);
+        final long startNanos = System.nanoTime();
+        measureStartNanos = startNanos + warmUpNanos;
+        final long endNanos = measureStartNanos + durationNanos;
+        long nextIntervalNanos = startNanos + INTERVAL_NANOS;
+        long intendedNanos = startNanos;
+        long scheduled = 0;
+
+        // The schedule of intended send times does not depend on responses: that makes it an open loop.
+        while ((intendedNanos < endNanos) && (scheduled < totalRequests)) {
+            waitUntil(Math.min(intendedNanos, nextIntervalNanos));
+            if (System.nanoTime() >= nextIntervalNanos) {
+                nextInterval((nextIntervalNanos >= measureStartNanos + INTERVAL_NANOS) ? log : null, startNanos);
+                nextIntervalNanos += INTERVAL_NANOS;
+                continue;
+            }
+            final int burstSize = (int) Math.min(trafficModel.nextBurstSize(), totalRequests - scheduled);
+            for (int i = 0; i < burstSize; ++i) {
+                send(intendedNanos);
+            }
+            scheduled += burstSize;
+            intendedNanos += trafficModel.nextDelayNanos(burstSize);
+        }
+
+        // Wait for the requests in flight; they time out eventually.
+        final long drainDeadlineNanos = System.nanoTime() + timeout.toNanos() + INTERVAL_NANOS;
+        while ((inFlight.get() > 0) && (System.nanoTime() < drainDeadlineNanos)) {
+            waitUntil(Math.min(nextIntervalNanos, drainDeadlineNanos));
+            if (System.nanoTime() >= nextIntervalNanos) {
+                nextInterval(log, startNanos);
+                nextIntervalNanos += INTERVAL_NANOS;
+            }
+        }
+        nextInterval(log, startNanos);
+        executor.shutdownNow();
+
+        System.out.println();
+        EndpointStats.printHeader(System.out);
+        for (final EndpointStats stats : allStats) {
+            stats.printSummary(System.out);
+        }
+        if (logFile != null) {
+            System.out.println("Histogram log: " + logFile);
+        }
+        return true;
+    }
+
+    private void send(final long intendedNanos) {
+        final EndpointStats stats;
+        final String path;
+        final String[] mapcode = (random.nextDouble() < getEncodeShare()) ? null : bucket.sample(random);
+        if (random.nextDouble() < territoriesShare) {
+            stats = territoriesStats;
+            path = "/mapcode/codes/" + randomLatLon() + "/territories" + clientParam;
+        } else if (mapcode == null) {
+            stats = encodeStats;
+            path = "/mapcode/codes/" + randomLatLon() + clientParam;
+        } else {
+            stats = decodeStats;
+            path = "/mapcode/coords/" + URLEncoder.encode(mapcode[0], StandardCharsets.UTF_8).replace("+", "%20") +
+                    clientParam + ((mapcode[1] == null) ? "" : ((clientParam.isEmpty() ? "?" : "&") +
+                    "context=" + URLEncoder.encode(mapcode[1], StandardCharsets.UTF_8)));
+        }
+        final HttpRequest request = HttpRequest.newBuilder(URI.create(url + path)).
+                header("Accept", "application/json").
+                timeout(timeout).
+                GET().
+                build();
+
+        stats.sent();
+        inFlight.incrementAndGet();
+        final long sentNanos = System.nanoTime();
+        httpClient.sendAsync(request, BodyHandlers.ofString()).whenComplete((response, throwable) -> {
+            final long completedNanos = System.nanoTime();
+            final int status = (response == null) ? 0 : response.statusCode();
+            stats.completed(intendedNanos, sentNanos, completedNanos, status, intendedNanos >= measureStartNanos);
+            if ((stats == encodeStats) && (status == 200)) {
+                bucket.addAll(response.body());
+            }
+            inFlight.decrementAndGet();
+        });
+    }
+
+    /**
+     * Return the share of encodes among encodes and decodes. Until there are mapcodes to decode, the mix
+     * prefers encodes.
+     */
+    private double getEncodeShare() {
+        return MAX_ENCODE_SHARE - ((MAX_ENCODE_SHARE - MIN_ENCODE_SHARE) * bucket.getFill());
+    }
+
+    @Nonnull
+    private String randomLatLon() {
+        final double lat = (random.nextDouble() * 2.0 * MAX_LAT) - MAX_LAT;
+        final double lon = (random.nextDouble() * 2.0 * MAX_LON) - MAX_LON;
+        return String.format(Locale.ROOT, "%.6f,%.6f", lat, lon);
+    }
+
+    private void nextInterval(@Nullable final HistogramLogWriter log, final long startNanos) {
+        final StringBuilder line = new StringBuilder();
+        line.append(String.format(Locale.ROOT, "%5ds%s",
+                TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - startNanos),
+                (System.nanoTime() < measureStartNanos) ? " (warm-up)" : ""));
+        long sent = 0;
+        long unsuccessful = 0;
+        for (final EndpointStats stats : allStats) {
+            final long count = stats.nextInterval(log);
+            sent += stats.getSent();
+            unsuccessful += stats.getUnsuccessful();
+            line.append(String.format(Locale.ROOT, "  %s %d/s p99 %.1f ms",
+                    stats.getName(), count, stats.getIntervalP99Millis()));
+        }
+        line.append(String.format(Locale.ROOT, "  sent %d, in flight %d, unsuccessful %d",
+                sent, inFlight.get(), unsuccessful));
+        System.err.println(line);
+    }
+
+    @Nonnull
+    private static HistogramLogWriter createLog(@Nonnull final String logFile) throws FileNotFoundException {
+        final HistogramLogWriter log = new HistogramLogWriter(logFile);
+        final long nowMillis = System.currentTimeMillis();
+        log.outputLogFormatVersion();
+        log.outputComment("mapcode load generator, latencies in microseconds; tags (endpoint) are measured " +
+                "from the intended send time, (endpoint).service from the actual send time");
+        log.outputStartTime(nowMillis);
+        log.setBaseTime(nowMillis);
+        log.outputLegend();
+        return log;
+    }
+
+    /**
+     * Get the version of the service, which also checks it is up.
+     *
+     * @return Version, or null if the service could not be reached.
+     */
+    @Nullable
+    private String getVersion() {
+        final HttpRequest request = HttpRequest.newBuilder(URI.create(url + "/mapcode/version")).
+                header("Accept", "application/json").
+                timeout(timeout).
+                GET().
+                build();
+        try {
+            final HttpResponse<String> response = httpClient.send(request, BodyHandlers.ofString());
+            if (response.statusCode() == 200) {
+                final Matcher matcher = VERSION.matcher(response.body());
+                return matcher.find() ? matcher.group(1) : response.body().trim();
+            }
+            System.out.println("Service at " + url + " returned status " + response.statusCode());
+        } catch (final IOException e) {
+            System.out.println("Cannot reach service at " + url + ": " + e.getMessage());
+        } catch (final InterruptedException ignored) {
+            Thread.currentThread().interrupt();
+        }
+        return null;
+    }
+
+    private static void waitUntil(final long nanos) {
+        long remaining;
+        while ((remaining = nanos - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+
+    private static void printUsage() {
+        System.out.println("Usage: java -jar loadgen/target/loadgen.jar [options]");
+        System.out.println();
+        System.out.println("  " + CMD_URL + " URL              Base URL of the service (default " + DEFAULT_URL + ").");
+        System.out.println("  " + CMD_RATE + " REQ_PER_SEC     Average request rate (default " + DEFAULT_RATE + ").");
+        System.out.println("  " + CMD_DURATION + " SECS        Duration of the measurement (default " +
+                DEFAULT_DURATION_SECS + ").");
+        System.out.println("  " + CMD_WARMUP + " SECS          Load before the measurement starts (default 0).");
+        System.out.println("  " + CMD_TOTAL_REQUESTS + " N     Stop after N requests (default unlimited).");
+        System.out.println("  " + CMD_BUCKET_SIZE + " N        Number of mapcodes kept for decodes (default " +
+                DEFAULT_BUCKET_SIZE + ").");
+        System.out.println("  " + CMD_TERRITORIES + " PERCENT  Share of territory lookups (default " +
+                DEFAULT_TERRITORIES_PERCENT + ").");
+        System.out.println("  " + CMD_TIMEOUT + " SECS         Request timeout (default " + DEFAULT_TIMEOUT_SECS + ").");
+        System.out.println("  " + CMD_CLIENT + " NAME          Client identifier, for rate limits (default none).");
+        System.out.println("  " + CMD_SEED + " N               Seed of the schedule and the requests (default random).");
+        System.out.println("  " + CMD_LOG + " FILE             Write the latency histograms to an HdrHistogram log.");
+    }
+}
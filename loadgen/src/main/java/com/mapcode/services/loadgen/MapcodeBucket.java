@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2016-2026, Stichting Mapcode Foundation (http://www.mapcode.com)
+ */
+package com.mapcode.services.loadgen;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A rolling FIFO of mapcodes that the service returned for encode requests, with their territories. Decode
+ * requests sample from it, so they decode mapcodes the service actually produced.
+ *
+ * The mapcodes are taken from the JSON responses without a JSON parser: every innermost object with a
+ * "mapcode" field is a mapcode, with the "territory" field of that object as its context, if any. This
+ * matches the "local", "international" and "mapcodes" objects of an encode response.
+ */
+final class MapcodeBucket {
+    private static final Pattern OBJECT = Pattern.compile("\\{[^{}]*}");
+    private static final Pattern MAPCODE = Pattern.compile("\"mapcode\"\\s*:\\s*\"([^\"]+)\"");
+    private static final Pattern TERRITORY = Pattern.compile("\"territory\"\\s*:\\s*\"([^\"]+)\"");
+    private static final String TERRITORY_INTERNATIONAL = "AAA";
+
+    @Nonnull
+    private final String[] mapcodes;
+    @Nonnull
+    private final String[] territories;
+    private int next = 0;
+    private int size = 0;
+
+    /**
+     * Create an empty bucket.
+     *
+     * @param capacity Maximum number of mapcodes; the oldest mapcode is removed when the bucket is full.
+     */
+    MapcodeBucket(final int capacity) {
+        assert capacity > 0;
+        this.mapcodes = new String[capacity];
+        this.territories = new String[capacity];
+    }
+
+    /**
+     * Add the mapcodes of an encode response.
+     *
+     * @param json JSON response body.
+     */
+    void addAll(@Nonnull final String json) {
+        assert json != null;
+        final Matcher object = OBJECT.matcher(json);
+        while (object.find()) {
+            final String fields = object.group();
+            final Matcher mapcode = MAPCODE.matcher(fields);
+            if (mapcode.find()) {
+                final Matcher territory = TERRITORY.matcher(fields);
+                add(mapcode.group(1), territory.find() ? territory.group(1) : null);
+            }
+        }
+    }
+
+    private synchronized void add(@Nonnull final String mapcode, @Nullable final String territory) {
+        mapcodes[next] = mapcode;
+        territories[next] = TERRITORY_INTERNATIONAL.equals(territory) ? null : territory;
+        next = (next + 1) % mapcodes.length;
+        size = Math.min(size + 1, mapcodes.length);
+    }
+
+    /**
+     * Pick a random mapcode.
+     *
+     * @param random Random generator.
+     * @return Mapcode and its territory (or null for international mapcodes), or null if the bucket is empty.
+     */
+    @Nullable
+    synchronized String[] sample(@Nonnull final Random random) {
+        if (size == 0) {
+            return null;
+        }
+        final int index = random.nextInt(size);
+        return new String[]{mapcodes[index], territories[index]};
+    }
+
+    /**
+     * Return how full the bucket is.
+     *
+     * @return Fraction of the capacity in use, in [0, 1].
+     */
+    synchronized double getFill() {
+        return size / (double) mapcodes.length;
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2016-2026, Stichting Mapcode Foundation (http://www.mapcode.com)
+ */
+package com.mapcode.services.loadgen;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bursty traffic with a given long-run average rate, as a compound Poisson process: bursts arrive after a
+ * jittered delay, and every burst has an exponentially distributed number of requests. This is the
+ * traffic model of tools/mapcode-stresstest.py, so both tools load the service in the same way.
+ *
+ * The delay after a burst is proportional to its size, so the average rate converges to the target rate,
+ * whatever the sizes of the bursts. At low rates, bursts are small (at least 1 request); the mean burst
+ * size grows with the rate, up to 50 requests.
+ */
+final class TrafficModel {
+    private static final double MAX_MEAN_BURST = 50.0;
+    private static final double MAX_BURST_FACTOR = 8.0;
+    private static final double MIN_JITTER = 0.3;
+    private static final double MAX_JITTER = 1.7;
+
+    private final double rate;
+    private final double meanBurst;
+    private final int maxBurst;
+    private final Random random;
+
+    /**
+     * Create a traffic model.
+     *
+     * @param rate Average rate, in requests per second; must be positive.
+     * @param seed Seed of the random generator, so runs can be repeated.
+     */
+    TrafficModel(final double rate, final long seed) {
+        assert rate > 0.0;
+        this.rate = rate;
+        this.meanBurst = Math.min(MAX_MEAN_BURST, Math.max(1.0, rate / 3.0));
+        this.maxBurst = Math.max(2, (int) (meanBurst * MAX_BURST_FACTOR));
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Return the number of requests in the next burst.
+     *
+     * @return Number of requests, at least 1.
+     */
+    int nextBurstSize() {
+        final double exponential = -meanBurst * Math.log(1.0 - random.nextDouble());
+        return Math.max(1, Math.min(maxBurst, (int) exponential));
+    }
+
+    /**
+     * Return the delay between the start of a burst and the start of the next one.
+     *
+     * @param burstSize Number of requests in the burst.
+     * @return Delay, in nanoseconds.
+     */
+    long nextDelayNanos(final int burstSize) {
+        final double jitter = MIN_JITTER + (random.nextDouble() * (MAX_JITTER - MIN_JITTER));
+        return (long) (((burstSize / rate) * jitter) * TimeUnit.SECONDS.toNanos(1));
+    }
+
+    double getMeanBurst() {
+        return meanBurst;
+    }
+}
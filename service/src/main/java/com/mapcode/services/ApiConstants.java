@@ -53,6 +53,18 @@ public final class ApiConstants {
     public static final int API_PRECISION_MIN = 0;
     public static final int API_PRECISION_MAX = 8;
 
+    /**
+     * Maximum number of items in a single batch request, and the number of items
+     * processed per parallel chunk.
+     */
+    public static final int API_BATCH_SIZE_MAX = 100000;
+    public static final int API_BATCH_CHUNK_SIZE = 256;
+
+    /**
+     * Maximum number of lines of a streaming request that are converted, but not written yet.
+     */
+    public static final int API_STREAM_IN_FLIGHT_MAX = 256;
+
     public static final int WEB_ID_MAX_LENGTH = 200;
     public static final int WEB_ID_MIN_LENGTH = 0;
 
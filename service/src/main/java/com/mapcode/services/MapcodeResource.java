@@ -25,6 +25,8 @@ import javax.ws.rs.*;
 import javax.ws.rs.container.AsyncResponse;
 import javax.ws.rs.container.Suspended;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.io.InputStream;
 
 /**
  * This class handle the Mapcode REST API, which includes conversions to and from mapcodes.
@@ -64,6 +66,12 @@ public interface MapcodeResource {
     static final String PARAM_ALLOW_LOG = "allowLog";
     static final String PARAM_CLIENT = "client";
 
+    /**
+     * Media types of streaming requests and responses.
+     */
+    static final String MEDIA_TYPE_NDJSON = "application/x-ndjson";
+    static final String MEDIA_TYPE_CSV = "text/csv";
+
     static final String DEFAULT_OFFSET = "0";
     static final String DEFAULT_COUNT = "1000";
 
@@ -209,6 +217,93 @@ public interface MapcodeResource {
             @QueryParam(PARAM_ALLOW_LOG) @DefaultValue("true") @Nonnull String paramAllowLog,
             @Suspended @Nonnull AsyncResponse response) throws ApiException;
 
+    /**
+     * Convert a batch of mapcodes into lat/lon pairs in a single request. Items are decoded independently:
+     * an item that fails carries an error code and message, rather than failing the whole batch.
+     *
+     * @param paramRequests Mapcodes to convert, each with an optional territory context.
+     *                      Format: {@link CoordsRequestsDTO}. Size: [0, {@link com.mapcode.services.ApiConstants#API_BATCH_SIZE_MAX}].
+     * @param paramInclude  Specifies whether to include additional info in the result, such as the encompassing rectangle.
+     *                      Range: {@link ParamInclude}.
+     * @param paramClient   Indicator of calling client (for stats).
+     * @param paramAllowLog True if logging of data for improving the service is allowed. Default is true.
+     * @param response      Results, in request order. Format: {@link CoordsResultsDTO}.
+     * @throws ApiException API exception, translated into HTTP status code.
+     */
+    @POST
+    @Consumes({MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML})
+    @Produces({MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML})
+    @Path("coords")
+    void convertMapcodesToLatLon(
+            @Nullable CoordsRequestsDTO paramRequests,
+            @QueryParam(PARAM_INCLUDE) @DefaultValue("") @Nonnull String paramInclude,
+            @QueryParam(PARAM_CLIENT) @DefaultValue("") @Nonnull String paramClient,
+            @QueryParam(PARAM_ALLOW_LOG) @DefaultValue("true") @Nonnull String paramAllowLog,
+            @Suspended @Nonnull AsyncResponse response) throws ApiException;
+
+    /**
+     * Convert a stream of lat/lon pairs into mapcodes, as newline-delimited JSON. Every input line is an object
+     * with a 'latDeg' and 'lonDeg'. Every output line is the {@link MapcodesDTO} for that point, or an object
+     * with an 'errorCode' and 'errorMessage'. Results are written in input order as soon as they are available,
+     * and memory use does not depend on the size of the input. Empty lines are skipped.
+     *
+     * Unlike the other methods, this method is not suspended: the response body is written while the
+     * request body is read.
+     *
+     * @param body                   Request body, one lat/lon per line.
+     * @param paramPrecisionAsString Precision specifier, for all points. Range: [0, 8].
+     * @param paramTerritory         Territory context to create local mapcodes for, for all points.
+     * @param paramAlphabet          Alphabet. Range: any valid alphabet code, alpha or numeric.
+     * @param paramInclude           Specifies whether to include additional info in the result. Range: {@link ParamInclude}.
+     * @param paramClient            Indicator of calling client (for stats).
+     * @param paramAllowLog          True if logging of data for improving the service is allowed. Default is true.
+     * @return Streaming response, one line per non-empty input line.
+     * @throws ApiException API exception for invalid query parameters, translated into HTTP status code.
+     */
+    @POST
+    @Consumes(MEDIA_TYPE_NDJSON)
+    @Produces(MEDIA_TYPE_NDJSON)
+    @Path("stream/codes")
+    @Nonnull
+    Response convertLatLonStreamToMapcodesNdjson(
+            @Nonnull InputStream body,
+            @QueryParam(PARAM_PRECISION) @DefaultValue("0") @Nullable String paramPrecisionAsString,
+            @QueryParam(PARAM_TERRITORY) @Nullable String paramTerritory,
+            @QueryParam(PARAM_ALPHABET) @Nullable String paramAlphabet,
+            @QueryParam(PARAM_INCLUDE) @DefaultValue("") @Nonnull String paramInclude,
+            @QueryParam(PARAM_CLIENT) @DefaultValue("") @Nonnull String paramClient,
+            @QueryParam(PARAM_ALLOW_LOG) @DefaultValue("true") @Nonnull String paramAllowLog) throws ApiException;
+
+    /**
+     * Convert a stream of lat/lon pairs into mapcodes, as CSV. The first 2 columns of every input line are
+     * the latitude and longitude, without a header line. Every output line is the input line, followed by the
+     * columns 'territory', 'mapcode' (the local mapcode, if any), 'international' and 'errorCode' (empty on success).
+     * Otherwise, this method behaves like {@link #convertLatLonStreamToMapcodesNdjson}.
+     *
+     * @param body                   Request body, one lat/lon per line.
+     * @param paramPrecisionAsString Precision specifier, for all points. Range: [0, 8].
+     * @param paramTerritory         Territory context to create local mapcodes for, for all points.
+     * @param paramAlphabet          Alphabet. Range: any valid alphabet code, alpha or numeric.
+     * @param paramInclude           Specifies whether to include additional info in the result. Range: {@link ParamInclude}.
+     * @param paramClient            Indicator of calling client (for stats).
+     * @param paramAllowLog          True if logging of data for improving the service is allowed. Default is true.
+     * @return Streaming response, one line per non-empty input line.
+     * @throws ApiException API exception for invalid query parameters, translated into HTTP status code.
+     */
+    @POST
+    @Consumes(MEDIA_TYPE_CSV)
+    @Produces(MEDIA_TYPE_CSV)
+    @Path("stream/codes")
+    @Nonnull
+    Response convertLatLonStreamToMapcodesCsv(
+            @Nonnull InputStream body,
+            @QueryParam(PARAM_PRECISION) @DefaultValue("0") @Nullable String paramPrecisionAsString,
+            @QueryParam(PARAM_TERRITORY) @Nullable String paramTerritory,
+            @QueryParam(PARAM_ALPHABET) @Nullable String paramAlphabet,
+            @QueryParam(PARAM_INCLUDE) @DefaultValue("") @Nonnull String paramInclude,
+            @QueryParam(PARAM_CLIENT) @DefaultValue("") @Nonnull String paramClient,
+            @QueryParam(PARAM_ALLOW_LOG) @DefaultValue("true") @Nonnull String paramAllowLog) throws ApiException;
+
     /**
      * Get a list of all valid territory codes.
      *
@@ -16,6 +16,7 @@
 
 package com.mapcode.services;
 
+import com.mapcode.services.dto.CoordsRequestsDTO;
 import com.tomtom.speedtools.apivalidation.exceptions.ApiException;
 
 import javax.annotation.Nonnull;
@@ -100,6 +101,17 @@ public interface OnlyXmlResource {
             @QueryParam(PARAM_ALLOW_LOG) @DefaultValue("true") @Nonnull String paramDebug,
             @Suspended @Nonnull AsyncResponse response) throws ApiException;
 
+    @POST
+    @Consumes({MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML})
+    @Produces(MediaType.APPLICATION_XML)
+    @Path("coords")
+    void convertMapcodesToLatLonXml(
+            @Nullable CoordsRequestsDTO paramRequests,
+            @QueryParam(PARAM_INCLUDE) @DefaultValue("") @Nonnull String paramInclude,
+            @QueryParam(PARAM_CLIENT) @DefaultValue("") @Nonnull String paramClient,
+            @QueryParam(PARAM_ALLOW_LOG) @DefaultValue("true") @Nonnull String paramDebug,
+            @Suspended @Nonnull AsyncResponse response) throws ApiException;
+
     @GET
     @Produces(MediaType.APPLICATION_XML)
     @Path("territories")
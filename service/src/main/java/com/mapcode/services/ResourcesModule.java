@@ -46,6 +46,38 @@ public class ResourcesModule implements Module {
     public void configure(@Nonnull final Binder binder) {
         assert binder != null;
 
+        // Providers for pre-serialized responses.
+        binder.bind(CachedEntityFilter.class).in(Singleton.class);
+        binder.bind(CachedEntityWriter.class).in(Singleton.class);
+
+        // Streaming JSON writer for the conversion responses.
+        binder.bind(MapcodeJsonWriter.class).in(Singleton.class);
+        binder.bind(MapcodeXmlWriter.class).in(Singleton.class);
+
+        // Cache validators for conversions.
+        binder.bind(ConversionCacheFilter.class).in(Singleton.class);
+
+        // Response compression.
+        binder.bind(CompressionInterceptor.class).in(Singleton.class);
+
+        // Opt-in Server-Timing header.
+        binder.bind(ServerTimingFilter.class).in(Singleton.class);
+
+        // Admission control and rate limits are shared by all resources.
+        binder.bind(RateLimitProperties.class).toInstance(RateLimitProperties.load());
+        binder.bind(ClientRateLimiter.class).in(Singleton.class);
+        binder.bind(RequestMetrics.class).in(Singleton.class);
+        binder.bind(AdmissionProcessor.class).in(Singleton.class);
+
+        // Background self-check and warm-up, reported by the status resources. The warm-up preloads the
+        // hot cells of the previous run.
+        binder.bind(HotCells.class).in(Singleton.class);
+        binder.bind(WarmUp.class).in(Singleton.class);
+        binder.bind(HealthCheck.class).in(Singleton.class);
+
+        // Metrics, reported by the root resource.
+        binder.bind(MetricsExporter.class).in(Singleton.class);
+
         // Bind APIs to their implementation.
         binder.bind(RootResource.class).to(RootResourceImpl.class).in(Singleton.class);
         binder.bind(MapcodeResource.class).to(MapcodeResourceImpl.class).in(Singleton.class);
@@ -23,6 +23,7 @@ import javax.ws.rs.Produces;
 import javax.ws.rs.container.AsyncResponse;
 import javax.ws.rs.container.Suspended;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
 
 @SuppressWarnings("SimplifiableAnnotation")
 @Path("/mapcode")
@@ -51,12 +52,49 @@ public interface RootResource {
 
     /**
      * This method returns whether the service is operational or not (status code 200 is OK).
+     * It returns the result of the last periodic self-check, it does not run a check itself.
      *
-     * @param response Returns a version number as JSON.
+     * @param response Returns status code 200 if OK, 500 if not.
      */
     @Path("status")
     @Produces({MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML})
     @GET
     void getStatus(@Suspended @Nonnull AsyncResponse response);
 
+    /**
+     * Liveness probe: returns status code 200 if the service is running, without any checks.
+     *
+     * @return Response with status code 200.
+     */
+    @Path("status/live")
+    @Produces({MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML})
+    @GET
+    @Nonnull
+    Response getLiveness();
+
+    /**
+     * Readiness probe: returns status code 200 if the service is ready to handle requests, or 503 if it
+     * is still starting, still warming up, or the last self-check failed. The body reports the state of
+     * the self-check and the warm-up.
+     *
+     * @return Response with status code 200 or 503, and a {@link com.mapcode.services.dto.ReadinessDTO}.
+     */
+    @Path("status/ready")
+    @Produces({MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML})
+    @GET
+    @Nonnull
+    Response getReadiness();
+
+    /**
+     * This method returns the request, territory lookup and JVM metrics of the service, in Prometheus text
+     * format.
+     *
+     * @return Response with the metrics as plain text.
+     */
+    @Path("metrics")
+    @Produces(MediaType.TEXT_PLAIN)
+    @GET
+    @Nonnull
+    Response getMetrics();
+
 }
@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2016-2026, Stichting Mapcode Foundation (http://www.mapcode.com)
+ */
+package com.mapcode.services.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.mapcode.services.ApiConstants;
+import com.tomtom.speedtools.apivalidation.ApiDTO;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+
+/**
+ * One item of a batch mapcode-to-lat/lon request: a mapcode and an optional territory context.
+ */
+@SuppressWarnings({"NullableProblems", "InstanceVariableMayNotBeInitialized"})
+@JsonInclude(Include.NON_EMPTY)
+@XmlRootElement(name = "request")
+@XmlAccessorType(XmlAccessType.FIELD)
+public final class CoordsRequestDTO extends ApiDTO {
+
+    @XmlElement(name = "code")
+    @Nonnull
+    private String code;
+
+    @XmlElement(name = "context")
+    @Nullable
+    private String context;
+
+    @Override
+    public void validate() {
+        validator().start();
+        validator().checkString(true, "code", code, ApiConstants.API_MAPCODE_LEN_MIN, ApiConstants.API_NAME_LEN_MAX);
+        validator().checkString(false, "context", context, ApiConstants.API_NAME_LEN_MIN, ApiConstants.API_NAME_LEN_MAX);
+        validator().done();
+    }
+
+    public CoordsRequestDTO(
+            @Nonnull final String code,
+            @Nullable final String context) {
+        this.code = code;
+        this.context = context;
+    }
+
+    public CoordsRequestDTO(@Nonnull final String code) {
+        this(code, null);
+    }
+
+    @SuppressWarnings("UnusedDeclaration")
+    @Deprecated
+    private CoordsRequestDTO() {
+        // Default constructor required by JAX-B.
+        super();
+    }
+
+    @Nonnull
+    public String getCode() {
+        beforeGet();
+        return code;
+    }
+
+    public void setCode(@Nonnull final String code) {
+        beforeSet();
+        assert code != null;
+        this.code = code;
+    }
+
+    @Nullable
+    public String getContext() {
+        beforeGet();
+        return context;
+    }
+
+    public void setContext(@Nullable final String context) {
+        beforeSet();
+        this.context = context;
+    }
+}
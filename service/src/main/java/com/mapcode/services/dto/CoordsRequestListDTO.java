@@ -0,0 +1,40 @@
+/*
+ * Copyright (C) 2016-2026, Stichting Mapcode Foundation (http://www.mapcode.com)
+ */
+package com.mapcode.services.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.tomtom.speedtools.apivalidation.ApiListDTO;
+
+import javax.annotation.Nonnull;
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlRootElement;
+import java.util.List;
+
+/**
+ * List of batch mapcode-to-lat/lon conversion requests. Items are validated one by one
+ * while decoding, so a single malformed item does not fail the whole batch.
+ */
+@JsonInclude(Include.NON_EMPTY)
+@XmlRootElement(name = "requests")
+@XmlAccessorType(XmlAccessType.FIELD)
+public final class CoordsRequestListDTO extends ApiListDTO<CoordsRequestDTO> {
+
+    @Override
+    public void validateOne(@Nonnull final CoordsRequestDTO elm) {
+        validator().checkNotNullAndValidate(true, "request", elm);
+    }
+
+    public CoordsRequestListDTO(@Nonnull final List<CoordsRequestDTO> requests) {
+        super(requests);
+    }
+
+    @SuppressWarnings("UnusedDeclaration")
+    @Deprecated
+    private CoordsRequestListDTO() {
+        // Default constructor required by JAX-B.
+        super();
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2016-2026, Stichting Mapcode Foundation (http://www.mapcode.com)
+ */
+package com.mapcode.services.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.tomtom.speedtools.apivalidation.ApiDTO;
+
+import javax.annotation.Nullable;
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+
+/**
+ * Request body of a batch mapcode-to-lat/lon conversion. The items themselves are validated
+ * one by one while decoding, so a single malformed item does not fail the whole batch.
+ */
+@SuppressWarnings({"NullableProblems", "InstanceVariableMayNotBeInitialized"})
+@JsonInclude(Include.NON_EMPTY)
+@XmlRootElement(name = "requests")
+@XmlAccessorType(XmlAccessType.FIELD)
+public final class CoordsRequestsDTO extends ApiDTO {
+
+    @JsonProperty("requests")
+    @XmlElement(name = "request")
+    @Nullable
+    private CoordsRequestListDTO requests;
+
+    @Override
+    public void validate() {
+        validator().start();
+        validator().checkNotNull(true, "requests", requests);
+        validator().done();
+    }
+
+    public CoordsRequestsDTO(@Nullable final CoordsRequestListDTO requests) {
+        this.requests = requests;
+    }
+
+    @SuppressWarnings("UnusedDeclaration")
+    @Deprecated
+    private CoordsRequestsDTO() {
+        // Default constructor required by JAX-B.
+        super();
+    }
+
+    @Nullable
+    public CoordsRequestListDTO getRequests() {
+        beforeGet();
+        return requests;
+    }
+
+    public void setRequests(@Nullable final CoordsRequestListDTO requests) {
+        beforeSet();
+        this.requests = requests;
+    }
+}
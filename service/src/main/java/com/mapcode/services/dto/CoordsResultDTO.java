@@ -0,0 +1,176 @@
+/*
+ * Copyright (C) 2016-2026, Stichting Mapcode Foundation (http://www.mapcode.com)
+ */
+package com.mapcode.services.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.mapcode.services.ApiConstants;
+import com.tomtom.speedtools.apivalidation.ApiDTO;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+
+/**
+ * One item of a batch mapcode-to-lat/lon response. Exactly one of 'point', 'rectangle' or
+ * 'errorCode' is set. The error code is the HTTP status the single-item call
+ * ({@code GET /mapcode/coords/{code}}) would have returned for the same input.
+ */
+@SuppressWarnings({"NullableProblems", "InstanceVariableMayNotBeInitialized"})
+@JsonInclude(Include.NON_EMPTY)
+@XmlRootElement(name = "result")
+@XmlAccessorType(XmlAccessType.FIELD)
+public final class CoordsResultDTO extends ApiDTO {
+
+    @XmlElement(name = "code")
+    @Nonnull
+    private String code;
+
+    @XmlElement(name = "context")
+    @Nullable
+    private String context;
+
+    @XmlElement(name = "point")
+    @Nullable
+    private PointDTO point;
+
+    @XmlElement(name = "rectangle")
+    @Nullable
+    private RectangleDTO rectangle;
+
+    @XmlElement(name = "errorCode")
+    @Nullable
+    private Integer errorCode;
+
+    @XmlElement(name = "errorMessage")
+    @Nullable
+    private String errorMessage;
+
+    @Override
+    public void validate() {
+        validator().start();
+        validator().checkNotNull(true, "code", code);
+        validator().checkNotNullAndValidate(false, "point", point);
+        validator().checkNotNullAndValidate(false, "rectangle", rectangle);
+        validator().checkInteger(false, "errorCode", errorCode, 400, 599);
+        validator().checkString(false, "errorMessage", errorMessage, 0, Integer.MAX_VALUE);
+        validator().checkTrue("result", ((point != null) ? 1 : 0) + ((rectangle != null) ? 1 : 0) +
+                ((errorCode != null) ? 1 : 0) == 1);
+        validator().done();
+    }
+
+    public CoordsResultDTO(
+            @Nonnull final String code,
+            @Nullable final String context,
+            @Nullable final PointDTO point,
+            @Nullable final RectangleDTO rectangle,
+            @Nullable final Integer errorCode,
+            @Nullable final String errorMessage) {
+        this.code = code;
+        this.context = context;
+        this.point = point;
+        this.rectangle = rectangle;
+        this.errorCode = errorCode;
+        this.errorMessage = errorMessage;
+    }
+
+    public CoordsResultDTO(
+            @Nonnull final String code,
+            @Nullable final String context,
+            @Nonnull final PointDTO point) {
+        this(code, context, point, null, null, null);
+    }
+
+    public CoordsResultDTO(
+            @Nonnull final String code,
+            @Nullable final String context,
+            @Nonnull final RectangleDTO rectangle) {
+        this(code, context, null, rectangle, null, null);
+    }
+
+    public CoordsResultDTO(
+            @Nonnull final String code,
+            @Nullable final String context,
+            final int errorCode,
+            @Nullable final String errorMessage) {
+        this(code, context, null, null, errorCode, errorMessage);
+    }
+
+    @SuppressWarnings("UnusedDeclaration")
+    @Deprecated
+    private CoordsResultDTO() {
+        // Default constructor required by JAX-B.
+        super();
+    }
+
+    @Nonnull
+    public String getCode() {
+        beforeGet();
+        return code;
+    }
+
+    public void setCode(@Nonnull final String code) {
+        beforeSet();
+        assert code != null;
+        this.code = code;
+    }
+
+    @Nullable
+    public String getContext() {
+        beforeGet();
+        return context;
+    }
+
+    public void setContext(@Nullable final String context) {
+        beforeSet();
+        this.context = context;
+    }
+
+    @Nullable
+    public PointDTO getPoint() {
+        beforeGet();
+        return point;
+    }
+
+    public void setPoint(@Nullable final PointDTO point) {
+        beforeSet();
+        this.point = point;
+    }
+
+    @Nullable
+    public RectangleDTO getRectangle() {
+        beforeGet();
+        return rectangle;
+    }
+
+    public void setRectangle(@Nullable final RectangleDTO rectangle) {
+        beforeSet();
+        this.rectangle = rectangle;
+    }
+
+    @Nullable
+    public Integer getErrorCode() {
+        beforeGet();
+        return errorCode;
+    }
+
+    public void setErrorCode(@Nullable final Integer errorCode) {
+        beforeSet();
+        this.errorCode = errorCode;
+    }
+
+    @Nullable
+    public String getErrorMessage() {
+        beforeGet();
+        return errorMessage;
+    }
+
+    public void setErrorMessage(@Nullable final String errorMessage) {
+        beforeSet();
+        this.errorMessage = errorMessage;
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright (C) 2016-2026, Stichting Mapcode Foundation (http://www.mapcode.com)
+ */
+package com.mapcode.services.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.tomtom.speedtools.apivalidation.ApiListDTO;
+
+import javax.annotation.Nonnull;
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlRootElement;
+import java.util.List;
+
+/**
+ * List of batch mapcode-to-lat/lon conversion results, in the same order as the request.
+ */
+@JsonInclude(Include.NON_EMPTY)
+@XmlRootElement(name = "results")
+@XmlAccessorType(XmlAccessType.FIELD)
+public final class CoordsResultListDTO extends ApiListDTO<CoordsResultDTO> {
+
+    @Override
+    public void validateOne(@Nonnull final CoordsResultDTO elm) {
+        validator().checkNotNullAndValidate(true, "result", elm);
+    }
+
+    public CoordsResultListDTO(@Nonnull final List<CoordsResultDTO> results) {
+        super(results);
+    }
+
+    @SuppressWarnings("UnusedDeclaration")
+    @Deprecated
+    private CoordsResultListDTO() {
+        // Default constructor required by JAX-B.
+        super();
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2016-2026, Stichting Mapcode Foundation (http://www.mapcode.com)
+ */
+package com.mapcode.services.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.mapcode.services.ApiConstants;
+import com.tomtom.speedtools.apivalidation.ApiDTO;
+
+import javax.annotation.Nonnull;
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+
+/**
+ * Response body of a batch mapcode-to-lat/lon conversion, in the same order as the request.
+ */
+@SuppressWarnings({"NullableProblems", "InstanceVariableMayNotBeInitialized"})
+@JsonInclude(Include.NON_EMPTY)
+@XmlRootElement(name = "results")
+@XmlAccessorType(XmlAccessType.FIELD)
+public final class CoordsResultsDTO extends ApiDTO {
+
+    @JsonProperty("total")
+    @XmlElement(name = "total")
+    private int total;
+
+    @JsonProperty("results")
+    @XmlElement(name = "result")
+    @Nonnull
+    private CoordsResultListDTO results;
+
+    @Override
+    public void validate() {
+        validator().start();
+        validator().checkInteger(true, "total", total, 0, ApiConstants.API_BATCH_SIZE_MAX);
+        validator().checkNotNull(true, "results", results);
+        validator().done();
+    }
+
+    public CoordsResultsDTO(
+            final int total,
+            @Nonnull final CoordsResultListDTO results) {
+        this.total = total;
+        this.results = results;
+    }
+
+    @SuppressWarnings("UnusedDeclaration")
+    @Deprecated
+    private CoordsResultsDTO() {
+        // Default constructor required by JAX-B.
+        super();
+    }
+
+    public int getTotal() {
+        beforeGet();
+        return total;
+    }
+
+    public void setTotal(final int total) {
+        beforeSet();
+        this.total = total;
+    }
+
+    @Nonnull
+    public CoordsResultListDTO getResults() {
+        beforeGet();
+        return results;
+    }
+
+    public void setResults(@Nonnull final CoordsResultListDTO results) {
+        beforeSet();
+        this.results = results;
+    }
+}
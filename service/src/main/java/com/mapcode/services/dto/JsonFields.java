@@ -0,0 +1,42 @@
+/*
+ * Copyright (C) 2016-2026, Stichting Mapcode Foundation (http://www.mapcode.com)
+ */
+package com.mapcode.services.dto;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+
+/**
+ * Helpers for the hand-written JSON output of the DTOs. Values are omitted if they are null or empty,
+ * like the generic JSON provider does for DTOs annotated with {@code @JsonInclude(NON_EMPTY)}.
+ */
+final class JsonFields {
+
+    private JsonFields() {
+        // Prevent instantiation.
+    }
+
+    static void writeString(
+            @Nonnull final JsonGenerator gen,
+            @Nonnull final SerializableString name,
+            @Nullable final String value) throws IOException {
+        if ((value != null) && !value.isEmpty()) {
+            gen.writeFieldName(name);
+            gen.writeString(value);
+        }
+    }
+
+    static void writeDouble(
+            @Nonnull final JsonGenerator gen,
+            @Nonnull final SerializableString name,
+            @Nullable final Double value) throws IOException {
+        if (value != null) {
+            gen.writeFieldName(name);
+            gen.writeNumber(value);
+        }
+    }
+}
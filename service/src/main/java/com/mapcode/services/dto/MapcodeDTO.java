@@ -18,6 +18,9 @@ package com.mapcode.services.dto;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
 import com.mapcode.services.ApiConstants;
 import com.tomtom.speedtools.apivalidation.ApiDTO;
 
@@ -27,6 +30,7 @@ import javax.xml.bind.annotation.XmlAccessType;
 import javax.xml.bind.annotation.XmlAccessorType;
 import javax.xml.bind.annotation.XmlElement;
 import javax.xml.bind.annotation.XmlRootElement;
+import java.io.IOException;
 
 @SuppressWarnings({"NullableProblems", "InstanceVariableMayNotBeInitialized"})
 @JsonInclude(Include.NON_EMPTY)
@@ -34,6 +38,13 @@ import javax.xml.bind.annotation.XmlRootElement;
 @XmlAccessorType(XmlAccessType.FIELD)
 public final class MapcodeDTO extends ApiDTO {
 
+    private static final SerializableString JSON_MAPCODE = new SerializedString("mapcode");
+    private static final SerializableString JSON_MAPCODE_IN_ALPHABET = new SerializedString("mapcodeInAlphabet");
+    private static final SerializableString JSON_TERRITORY = new SerializedString("territory");
+    private static final SerializableString JSON_TERRITORY_IN_ALPHABET = new SerializedString("territoryInAlphabet");
+    private static final SerializableString JSON_OFFSET_METERS = new SerializedString("offsetMeters");
+    private static final SerializableString JSON_RECTANGLE = new SerializedString("rectangle");
+
     @XmlElement(name = "mapcode")
     @Nonnull
     private String mapcode;
@@ -192,4 +203,31 @@ public final class MapcodeDTO extends ApiDTO {
         beforeSet();
         this.rectangle = rectangle;
     }
+
+    /**
+     * Write this DTO as a JSON object, with exactly the same output as the generic JSON provider.
+     * Unlike the getters, this reads the fields directly.
+     *
+     * @param gen JSON generator.
+     * @throws IOException If the DTO cannot be written.
+     */
+    public void writeJson(@Nonnull final JsonGenerator gen) throws IOException {
+        beforeGet();
+        writeJsonObject(gen);
+    }
+
+    // Nested DTOs are validated by their parent, so this does not call beforeGet().
+    void writeJsonObject(@Nonnull final JsonGenerator gen) throws IOException {
+        gen.writeStartObject();
+        JsonFields.writeString(gen, JSON_MAPCODE, mapcode);
+        JsonFields.writeString(gen, JSON_MAPCODE_IN_ALPHABET, mapcodeInAlphabet);
+        JsonFields.writeString(gen, JSON_TERRITORY, territory);
+        JsonFields.writeString(gen, JSON_TERRITORY_IN_ALPHABET, territoryInAlphabet);
+        JsonFields.writeDouble(gen, JSON_OFFSET_METERS, offsetMeters);
+        if (rectangle != null) {
+            gen.writeFieldName(JSON_RECTANGLE);
+            rectangle.writeJsonObject(gen);
+        }
+        gen.writeEndObject();
+    }
 }
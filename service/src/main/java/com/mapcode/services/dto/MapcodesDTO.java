@@ -19,11 +19,15 @@ package com.mapcode.services.dto;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonInclude.Include;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
 import com.tomtom.speedtools.apivalidation.ApiDTO;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.xml.bind.annotation.*;
+import java.io.IOException;
 import java.util.List;
 
 @SuppressWarnings({"NullableProblems", "InstanceVariableMayNotBeInitialized"})
@@ -32,6 +36,11 @@ import java.util.List;
 @XmlAccessorType(XmlAccessType.FIELD)
 public final class MapcodesDTO extends ApiDTO {
 
+    private static final SerializableString JSON_LOCAL = new SerializedString("local");
+    private static final SerializableString JSON_INTERNATIONAL = new SerializedString("international");
+    private static final SerializableString JSON_MAPCODES = new SerializedString("mapcodes");
+    private static final SerializableString JSON_TERRITORIES = new SerializedString("territories");
+
     @XmlElement(name = "local")
     @Nullable
     private MapcodeDTO local;
@@ -148,4 +157,54 @@ public final class MapcodesDTO extends ApiDTO {
         beforeSet();
         this.territories = territories;
     }
+
+    /**
+     * Write this DTO as a JSON object, with exactly the same output as the generic JSON provider.
+     * Unlike the getters, this reads the fields directly.
+     *
+     * @param gen JSON generator.
+     * @throws IOException If the DTO cannot be written.
+     */
+    public void writeJson(@Nonnull final JsonGenerator gen) throws IOException {
+        beforeGet();
+        writeJsonObject(gen);
+    }
+
+    // Nested DTOs are validated by their parent, so this does not call beforeGet().
+    void writeJsonObject(@Nonnull final JsonGenerator gen) throws IOException {
+        gen.writeStartObject();
+        if (local != null) {
+            gen.writeFieldName(JSON_LOCAL);
+            local.writeJsonObject(gen);
+        }
+        if (international != null) {
+            gen.writeFieldName(JSON_INTERNATIONAL);
+            international.writeJsonObject(gen);
+        }
+        if ((mapcodes != null) && !mapcodes.isEmpty()) {
+            gen.writeFieldName(JSON_MAPCODES);
+            gen.writeStartArray();
+            for (final MapcodeDTO mapcode : mapcodes) {
+                if (mapcode == null) {
+                    gen.writeNull();
+                } else {
+                    mapcode.writeJsonObject(gen);
+                }
+            }
+            gen.writeEndArray();
+        }
+        if ((territories != null) && !territories.isEmpty()) {
+            gen.writeFieldName(JSON_TERRITORIES);
+            gen.writeStartArray();
+            for (final TerritoryCandidateDTO territory : territories) {
+                if (territory == null) {
+                    gen.writeNull();
+                } else {
+                    territory.writeJsonObject(gen);
+                }
+            }
+            gen.writeEndArray();
+        }
+        gen.writeEndObject();
+    }
 }
@@ -18,6 +18,9 @@ package com.mapcode.services.dto;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
 import com.mapcode.Point;
 import com.mapcode.services.ApiConstants;
 import com.tomtom.speedtools.apivalidation.ApiDTO;
@@ -27,6 +30,7 @@ import javax.xml.bind.annotation.XmlAccessType;
 import javax.xml.bind.annotation.XmlAccessorType;
 import javax.xml.bind.annotation.XmlElement;
 import javax.xml.bind.annotation.XmlRootElement;
+import java.io.IOException;
 
 @SuppressWarnings({"NullableProblems", "InstanceVariableMayNotBeInitialized"})
 @JsonInclude(Include.NON_EMPTY)
@@ -34,6 +38,9 @@ import javax.xml.bind.annotation.XmlRootElement;
 @XmlAccessorType(XmlAccessType.FIELD)
 public final class PointDTO extends ApiDTO {
 
+    private static final SerializableString JSON_LAT_DEG = new SerializedString("latDeg");
+    private static final SerializableString JSON_LON_DEG = new SerializedString("lonDeg");
+
     @XmlElement(name = "latDeg")
     @Nonnull
     private Double latDeg;
@@ -91,4 +98,24 @@ public final class PointDTO extends ApiDTO {
         assert lonDeg != null;
         this.lonDeg = lonDeg;
     }
+
+    /**
+     * Write this DTO as a JSON object, with exactly the same output as the generic JSON provider.
+     * Unlike the getters, this reads the fields directly.
+     *
+     * @param gen JSON generator.
+     * @throws IOException If the DTO cannot be written.
+     */
+    public void writeJson(@Nonnull final JsonGenerator gen) throws IOException {
+        beforeGet();
+        writeJsonObject(gen);
+    }
+
+    // Nested DTOs are validated by their parent, so this does not call beforeGet().
+    void writeJsonObject(@Nonnull final JsonGenerator gen) throws IOException {
+        gen.writeStartObject();
+        JsonFields.writeDouble(gen, JSON_LAT_DEG, latDeg);
+        JsonFields.writeDouble(gen, JSON_LON_DEG, lonDeg);
+        gen.writeEndObject();
+    }
 }
@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2016-2026, Stichting Mapcode Foundation (http://www.mapcode.com)
+ */
+package com.mapcode.services.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.tomtom.speedtools.apivalidation.ApiDTO;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+import javax.annotation.Nonnull;
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+
+@SuppressWarnings({"NullableProblems", "InstanceVariableMayNotBeInitialized"})
+@JsonInclude(Include.NON_EMPTY)
+@XmlRootElement(name = "readiness")
+@XmlAccessorType(XmlAccessType.FIELD)
+public final class ReadinessDTO extends ApiDTO {
+
+    @XmlElement(name = "ready")
+    @Nonnull
+    private Boolean ready;
+
+    @XmlElement(name = "healthy")
+    @Nonnull
+    private Boolean healthy;
+
+    @XmlElement(name = "warmUp")
+    @Nonnull
+    private String warmUp;
+
+    @XmlElement(name = "warmUpProgress")
+    @Nonnull
+    private Integer warmUpProgress;
+
+    @XmlElement(name = "warmUpConversions")
+    @Nonnull
+    private Long warmUpConversions;
+
+    @Override
+    public void validate() {
+        validator().start();
+        validator().checkNotNull(true, "ready", ready);
+        validator().checkNotNull(true, "healthy", healthy);
+        validator().checkString(true, "warmUp", warmUp, 1, Integer.MAX_VALUE);
+        validator().checkInteger(true, "warmUpProgress", warmUpProgress, 0, 100);
+        validator().checkNotNull(true, "warmUpConversions", warmUpConversions);
+        validator().done();
+    }
+
+    public ReadinessDTO(
+            final boolean ready,
+            final boolean healthy,
+            @Nonnull final String warmUp,
+            final int warmUpProgress,
+            final long warmUpConversions) {
+        this.ready = ready;
+        this.healthy = healthy;
+        this.warmUp = warmUp;
+        this.warmUpProgress = warmUpProgress;
+        this.warmUpConversions = warmUpConversions;
+    }
+
+    @SuppressWarnings("UnusedDeclaration")
+    @Deprecated
+    private ReadinessDTO() {
+        // Default constructor required by JAX-B.
+        super();
+    }
+
+    @Nonnull
+    public Boolean getReady() {
+        beforeGet();
+        return ready;
+    }
+
+    public void setReady(@Nonnull final Boolean ready) {
+        beforeSet();
+        assert ready != null;
+        this.ready = ready;
+    }
+
+    @Nonnull
+    public Boolean getHealthy() {
+        beforeGet();
+        return healthy;
+    }
+
+    public void setHealthy(@Nonnull final Boolean healthy) {
+        beforeSet();
+        assert healthy != null;
+        this.healthy = healthy;
+    }
+
+    @Nonnull
+    public String getWarmUp() {
+        beforeGet();
+        return warmUp;
+    }
+
+    public void setWarmUp(@Nonnull final String warmUp) {
+        beforeSet();
+        assert warmUp != null;
+        this.warmUp = warmUp;
+    }
+
+    @Nonnull
+    public Integer getWarmUpProgress() {
+        beforeGet();
+        return warmUpProgress;
+    }
+
+    public void setWarmUpProgress(@Nonnull final Integer warmUpProgress) {
+        beforeSet();
+        assert warmUpProgress != null;
+        this.warmUpProgress = warmUpProgress;
+    }
+
+    @Nonnull
+    public Long getWarmUpConversions() {
+        beforeGet();
+        return warmUpConversions;
+    }
+
+    public void setWarmUpConversions(@Nonnull final Long warmUpConversions) {
+        beforeSet();
+        assert warmUpConversions != null;
+        this.warmUpConversions = warmUpConversions;
+    }
+
+    @Override
+    @Nonnull
+    public String toString() {
+        return ToStringBuilder.reflectionToString(this);
+    }
+}
@@ -18,6 +18,9 @@ package com.mapcode.services.dto;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
 import com.mapcode.Rectangle;
 import com.tomtom.speedtools.apivalidation.ApiDTO;
 
@@ -27,6 +30,7 @@ import javax.xml.bind.annotation.XmlAccessType;
 import javax.xml.bind.annotation.XmlAccessorType;
 import javax.xml.bind.annotation.XmlElement;
 import javax.xml.bind.annotation.XmlRootElement;
+import java.io.IOException;
 
 @SuppressWarnings({"NullableProblems", "InstanceVariableMayNotBeInitialized"})
 @JsonInclude(Include.NON_EMPTY)
@@ -34,6 +38,10 @@ import javax.xml.bind.annotation.XmlRootElement;
 @XmlAccessorType(XmlAccessType.FIELD)
 public final class RectangleDTO extends ApiDTO {
 
+    private static final SerializableString JSON_SOUTH_WEST = new SerializedString("southWest");
+    private static final SerializableString JSON_NORTH_EAST = new SerializedString("northEast");
+    private static final SerializableString JSON_CENTER = new SerializedString("center");
+
     @XmlElement(name = "southWest")
     @Nonnull
     private PointDTO southWest;
@@ -117,4 +125,35 @@ public final class RectangleDTO extends ApiDTO {
         beforeSet();
         this.center = center;
     }
+
+    /**
+     * Write this DTO as a JSON object, with exactly the same output as the generic JSON provider.
+     * Unlike the getters, this reads the fields directly.
+     *
+     * @param gen JSON generator.
+     * @throws IOException If the DTO cannot be written.
+     */
+    public void writeJson(@Nonnull final JsonGenerator gen) throws IOException {
+        beforeGet();
+        writeJsonObject(gen);
+    }
+
+    // Nested DTOs are validated by their parent, so this does not call beforeGet().
+    void writeJsonObject(@Nonnull final JsonGenerator gen) throws IOException {
+        gen.writeStartObject();
+        writeJsonPoint(gen, JSON_SOUTH_WEST, southWest);
+        writeJsonPoint(gen, JSON_NORTH_EAST, northEast);
+        writeJsonPoint(gen, JSON_CENTER, center);
+        gen.writeEndObject();
+    }
+
+    private static void writeJsonPoint(
+            @Nonnull final JsonGenerator gen,
+            @Nonnull final SerializableString name,
+            @Nullable final PointDTO point) throws IOException {
+        if (point != null) {
+            gen.writeFieldName(name);
+            point.writeJsonObject(gen);
+        }
+    }
 }
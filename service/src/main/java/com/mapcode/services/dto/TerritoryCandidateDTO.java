@@ -5,12 +5,16 @@ package com.mapcode.services.dto;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
 import com.mapcode.services.ApiConstants;
 import com.tomtom.speedtools.apivalidation.ApiDTO;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.xml.bind.annotation.*;
+import java.io.IOException;
 
 @SuppressWarnings({"NullableProblems", "InstanceVariableMayNotBeInitialized"})
 @JsonInclude(Include.NON_EMPTY)
@@ -18,6 +22,9 @@ import javax.xml.bind.annotation.*;
 @XmlAccessorType(XmlAccessType.FIELD)
 public final class TerritoryCandidateDTO extends ApiDTO {
 
+    private static final SerializableString JSON_ALPHA_CODE = new SerializedString("alphaCode");
+    private static final SerializableString JSON_PARENT_ALPHA_CODE = new SerializedString("parentAlphaCode");
+
     @XmlElement(name = "alphaCode")
     @Nonnull
     private String alphaCode;
@@ -70,4 +77,24 @@ public final class TerritoryCandidateDTO extends ApiDTO {
         beforeSet();
         this.parentAlphaCode = parentAlphaCode;
     }
+
+    /**
+     * Write this DTO as a JSON object, with exactly the same output as the generic JSON provider.
+     * Unlike the getters, this reads the fields directly.
+     *
+     * @param gen JSON generator.
+     * @throws IOException If the DTO cannot be written.
+     */
+    public void writeJson(@Nonnull final JsonGenerator gen) throws IOException {
+        beforeGet();
+        writeJsonObject(gen);
+    }
+
+    // Nested DTOs are validated by their parent, so this does not call beforeGet().
+    void writeJsonObject(@Nonnull final JsonGenerator gen) throws IOException {
+        gen.writeStartObject();
+        JsonFields.writeString(gen, JSON_ALPHA_CODE, alphaCode);
+        JsonFields.writeString(gen, JSON_PARENT_ALPHA_CODE, parentAlphaCode);
+        gen.writeEndObject();
+    }
 }
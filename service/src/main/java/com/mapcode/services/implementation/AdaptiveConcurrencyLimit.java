@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2016-2026, Stichting Mapcode Foundation (http://www.mapcode.com)
+ */
+package com.mapcode.services.implementation;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Concurrency limit that adapts to the observed latency (gradient algorithm).
+ *
+ * The limit grows while the short-term latency stays close to the long-term latency, and shrinks
+ * when the short-term latency rises, which means requests are queueing up somewhere (executor,
+ * CPU, locks). The limit only grows if it is actually being used, so an idle service does not
+ * build up a limit it cannot sustain.
+ *
+ * Acquiring and releasing a permit is lock-free; latency samples are processed under a lock.
+ */
+public final class AdaptiveConcurrencyLimit {
+    private static final double SHORT_RTT_SMOOTHING = 0.1;      // Approx. last 10 samples.
+    private static final double LONG_RTT_SMOOTHING = 0.002;     // Approx. last 500 samples.
+    private static final double LONG_RTT_DRIFT_RATIO = 2.0;     // Let long RTT catch up if it lags this much.
+    private static final double LONG_RTT_DRIFT_DECAY = 0.95;
+    private static final double TOLERANCE = 1.5;                // Latency increase that is tolerated.
+    private static final double MIN_GRADIENT = 0.5;             // Never shrink more than this per sample.
+    private static final double LIMIT_SMOOTHING = 0.2;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile int limit;
+
+    // Guarded by 'this'.
+    private double estimatedLimit;
+    private double shortRttNanos = 0.0;
+    private double longRttNanos = 0.0;
+
+    /**
+     * Create a limit.
+     *
+     * @param initialLimit Initial limit.
+     * @param minLimit     Minimum limit, must be &gt; 0.
+     * @param maxLimit     Maximum limit, must be &gt;= minLimit.
+     */
+    public AdaptiveConcurrencyLimit(final int initialLimit, final int minLimit, final int maxLimit) {
+        assert 0 < minLimit;
+        assert minLimit <= initialLimit;
+        assert initialLimit <= maxLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limit = initialLimit;
+        this.estimatedLimit = initialLimit;
+    }
+
+    /**
+     * Try to acquire a permit. If successful, it must be released with {@link #release(long)}.
+     *
+     * @return True if a permit was acquired, false if the limit is reached.
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            final int current = inFlight.get();
+            if (current >= limit) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Release a permit and update the limit with the latency of the request.
+     *
+     * @param rttNanos Time between acquiring the permit and releasing it, in nanos. Use a negative
+     *                 value to release the permit without sampling the latency.
+     */
+    public void release(final long rttNanos) {
+        final int current = inFlight.getAndDecrement();
+        assert current > 0;
+        if (rttNanos >= 0) {
+            update(rttNanos, current);
+        }
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    private synchronized void update(final long rttNanos, final int inFlightAtRelease) {
+        if (longRttNanos == 0.0) {
+            shortRttNanos = rttNanos;
+            longRttNanos = rttNanos;
+            return;
+        }
+        shortRttNanos += (rttNanos - shortRttNanos) * SHORT_RTT_SMOOTHING;
+        longRttNanos += (rttNanos - longRttNanos) * LONG_RTT_SMOOTHING;
+
+        // If the latency dropped a lot (e.g. after a burst), don't keep the old latency as reference.
+        if ((longRttNanos / shortRttNanos) > LONG_RTT_DRIFT_RATIO) {
+            longRttNanos *= LONG_RTT_DRIFT_DECAY;
+        }
+
+        // Don't grow the limit if less than half of it is used.
+        if (inFlightAtRelease < (estimatedLimit / 2)) {
+            return;
+        }
+        final double gradient = Math.max(MIN_GRADIENT, Math.min(1.0, (TOLERANCE * longRttNanos) / shortRttNanos));
+        final double queueSize = Math.sqrt(estimatedLimit);
+        final double newLimit = (estimatedLimit * gradient) + queueSize;
+        estimatedLimit = Math.max(minLimit, Math.min(maxLimit,
+                (estimatedLimit * (1.0 - LIMIT_SMOOTHING)) + (newLimit * LIMIT_SMOOTHING)));
+        limit = (int) estimatedLimit;
+    }
+}
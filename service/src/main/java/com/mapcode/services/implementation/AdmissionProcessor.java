@@ -0,0 +1,429 @@
+/*
+ * Copyright (C) 2016-2026, Stichting Mapcode Foundation (http://www.mapcode.com)
+ */
+package com.mapcode.services.implementation;
+
+import com.mapcode.services.implementation.RequestMetrics.Rejection;
+import com.tomtom.speedtools.rest.Reactor;
+import com.tomtom.speedtools.rest.ResourceHandler;
+import com.tomtom.speedtools.rest.ResourceProcessor;
+import com.tomtom.speedtools.testutils.SimpleExecutionContext;
+import org.joda.time.DateTime;
+import org.slf4j.Logger;
+import scala.concurrent.ExecutionContext;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Admission control in front of the {@link ResourceProcessor}. Requests are first checked against the
+ * rate limit of their client (see {@link ClientRateLimiter}) and rejected with "429 Too Many Requests"
+ * if the client exceeded it. Then, every lane has an adaptive concurrency
+ * limit (see {@link AdaptiveConcurrencyLimit}) and a short, bounded queue. Requests that do not fit
+ * in either are rejected immediately with "503 Service Unavailable" and a "Retry-After" header, so
+ * latency stays bounded under bursts instead of collapsing for everyone.
+ *
+ * Cheap requests (status, territories, alphabets) have their own lane, so they are never starved by
+ * conversions.
+ *
+ * Requests that are issued while handling an admitted request (such as the conversions executed by
+ * the status check) are not admitted again: they are covered by the permit of the outer request, and
+ * could otherwise wait for a permit held by their own caller.
+ *
+ * Handlers must resume the response before they return (as all handlers in this service do), because
+ * the permit is released when the handler returns. For the same reason, the latency recorded in the
+ * {@link RequestMetrics} is the time from arrival until the handler returned, and excludes serialization.
+ *
+ * Streams are the exception: they hold a permit of their own lane until the response body is written
+ * (see {@link #processStream(String, String, Logger, StreamHandler)}).
+ */
+public final class AdmissionProcessor {
+
+    /**
+     * Lanes, each with their own limit and queue.
+     */
+    public enum Lane {
+        CHEAP(8, 2, 64, 32),                // Status, territories and alphabets.
+        CONVERSION(16, 4, 1024, 64),        // Encoding and decoding.
+        STREAM(8, 8, 8, 1);                 // Streams, for their whole lifetime. Fixed limit; never queued.
+
+        private final int initialLimit;
+        private final int minLimit;
+        private final int maxLimit;
+        private final int queueSize;
+
+        // Limits are concurrent requests; the queue size is the number of waiting requests.
+        Lane(final int initialLimit, final int minLimit, final int maxLimit, final int queueSize) {
+            this.initialLimit = initialLimit;
+            this.minLimit = minLimit;
+            this.maxLimit = maxLimit;
+            this.queueSize = queueSize;
+        }
+    }
+
+    private static final long MAX_QUEUE_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final int RETRY_AFTER_SECS = 1;
+    private static final int HTTP_TOO_MANY_REQUESTS = 429;     // Not defined by JAX-RS 2.0.
+
+    // Set while an admitted handler runs on this thread.
+    private static final ThreadLocal<Boolean> ADMITTED = new ThreadLocal<>();
+
+    @Nonnull
+    private final ResourceProcessor processor;
+    @Nonnull
+    private final Executor executor;
+    @Nonnull
+    private final ClientRateLimiter rateLimiter;
+    @Nonnull
+    private final RequestMetrics metrics;
+    @Nonnull
+    private final Map<Lane, LaneState> lanes = new EnumMap<>(Lane.class);
+
+    @Inject
+    public AdmissionProcessor(
+            @Nonnull final Reactor reactor,
+            @Nonnull final ClientRateLimiter rateLimiter,
+            @Nonnull final RequestMetrics metrics) {
+        assert reactor != null;
+        assert rateLimiter != null;
+        assert metrics != null;
+        this.processor = new ResourceProcessor(reactor);
+        this.executor = runnable -> reactor.getExecutionContext().execute(runnable);
+        this.rateLimiter = rateLimiter;
+        this.metrics = metrics;
+        for (final Lane lane : Lane.values()) {
+            lanes.put(lane, new LaneState(lane));
+        }
+    }
+
+    public AdmissionProcessor(
+            @Nonnull final Reactor reactor,
+            @Nonnull final ClientRateLimiter rateLimiter) {
+        this(reactor, rateLimiter, new RequestMetrics());
+    }
+
+    /**
+     * Create an admission processor without rate limits, which runs handlers on the calling thread. It is
+     * used for conversions outside the server, such as the command-line converter and the warm-up. Its
+     * requests are recorded in metrics of their own.
+     *
+     * @return Admission processor.
+     */
+    @Nonnull
+    public static AdmissionProcessor createDirect() {
+        final Reactor reactor = new Reactor() {
+            @Nonnull
+            @Override
+            public ExecutionContext getExecutionContext() {
+                return SimpleExecutionContext.getInstance();
+            }
+
+            // This method is stubbed and never used.
+            @Nonnull
+            @Override
+            public DateTime getSystemStartupTime() {
+                return new DateTime();
+            }
+        };
+        return new AdmissionProcessor(reactor, new ClientRateLimiter(RateLimitProperties.UNLIMITED));
+    }
+
+    /**
+     * Process a request on a lane. The handler is executed by the {@link ResourceProcessor} if the lane
+     * has capacity, or later if the request is queued, or never if the request is rejected.
+     *
+     * @param lane     Lane to admit the request on.
+     * @param client   Client identifier, used for rate limiting. Null or empty for anonymous callers.
+     * @param name     Name of the handler, for logging.
+     * @param log      Logger of the caller.
+     * @param response Response to resume.
+     * @param handler  Handler, which must resume the response before it returns.
+     */
+    public void process(
+            @Nonnull final Lane lane,
+            @Nullable final String client,
+            @Nonnull final String name,
+            @Nonnull final Logger log,
+            @Nonnull final AsyncResponse response,
+            @Nonnull final ResourceHandler handler) {
+        assert lane != null;
+        assert name != null;
+        assert log != null;
+        assert response != null;
+        assert handler != null;
+
+        // The handler may run on another thread; take the server timing of the request along.
+        final ResourceHandler timedHandler = ServerTiming.propagate(handler);
+
+        // Nested requests are covered by the permit of the outer request.
+        if (ADMITTED.get() != null) {
+            processor.process(name, log, response, timedHandler);
+            return;
+        }
+        if (!rateLimiter.tryAcquire(client)) {
+            log.debug("{}: rate limit exceeded, client={}", name, client);
+            metrics.recordRejection(name, Rejection.RATE_LIMIT);
+            response.resume(createTooManyRequestsResponse());
+            return;
+        }
+        final LaneState state = lanes.get(lane);
+        final long arrivalNanos = System.nanoTime();
+        if (state.limit.tryAcquire()) {
+            dispatch(state, name, log, response, timedHandler, arrivalNanos, arrivalNanos);
+            return;
+        }
+        expireQueued(state);
+        if (!state.queue.offer(new PendingRequest(name, log, response, timedHandler, arrivalNanos))) {
+            reject(state, name, log, response);
+            return;
+        }
+
+        // A permit may have been released between the attempt to acquire it and queueing the request.
+        drainQueue(state);
+    }
+
+    /**
+     * Process a streaming request on the {@link Lane#STREAM} lane. A stream counts as a single request for
+     * the rate limit of the client. Streams are not queued: if the lane is full, the request is rejected
+     * immediately.
+     *
+     * The handler creates the response. If its entity is a {@link StreamingOutput}, the permit is held until
+     * that output is written, and the latency recorded in the {@link RequestMetrics} includes writing it.
+     * Otherwise (for example if a parameter is invalid) the permit is released when the handler returns.
+     *
+     * @param client  Client identifier, used for rate limiting. Null or empty for anonymous callers.
+     * @param name    Name of the handler, for logging.
+     * @param log     Logger of the caller.
+     * @param handler Handler.
+     * @return Response of the handler, or a "429 Too Many Requests" or "503 Service Unavailable" response.
+     */
+    @Nonnull
+    public Response processStream(
+            @Nullable final String client,
+            @Nonnull final String name,
+            @Nonnull final Logger log,
+            @Nonnull final StreamHandler handler) {
+        assert name != null;
+        assert log != null;
+        assert handler != null;
+        if (!rateLimiter.tryAcquire(client)) {
+            log.debug("{}: rate limit exceeded, client={}", name, client);
+            metrics.recordRejection(name, Rejection.RATE_LIMIT);
+            return createTooManyRequestsResponse();
+        }
+        final LaneState state = lanes.get(Lane.STREAM);
+        if (!state.limit.tryAcquire()) {
+            return reject(state, name, log);
+        }
+        final long arrivalNanos = System.nanoTime();
+        final Response response;
+        try {
+            response = handler.process(executor);
+        } catch (final RuntimeException | Error e) {
+            metrics.recordError(name, e);
+            releaseStream(state, name, arrivalNanos);
+            throw e;
+        }
+        if (!(response.getEntity() instanceof StreamingOutput)) {
+            releaseStream(state, name, arrivalNanos);
+            return response;
+        }
+        final StreamingOutput output = (StreamingOutput) response.getEntity();
+        final StreamingOutput admittedOutput = out -> {
+            try {
+                output.write(out);
+            } catch (final IOException | RuntimeException | Error e) {
+                metrics.recordError(name, e);
+                throw e;
+            } finally {
+                releaseStream(state, name, arrivalNanos);
+            }
+        };
+        return Response.fromResponse(response).entity(admittedOutput).build();
+    }
+
+    public int getLimit(@Nonnull final Lane lane) {
+        return lanes.get(lane).limit.getLimit();
+    }
+
+    public int getInFlight(@Nonnull final Lane lane) {
+        return lanes.get(lane).limit.getInFlight();
+    }
+
+    public int getQueued(@Nonnull final Lane lane) {
+        return lanes.get(lane).queue.size();
+    }
+
+    public long getRejected(@Nonnull final Lane lane) {
+        return lanes.get(lane).rejected.get();
+    }
+
+    @Nonnull
+    public RequestMetrics getMetrics() {
+        return metrics;
+    }
+
+    private void dispatch(
+            @Nonnull final LaneState state,
+            @Nonnull final String name,
+            @Nonnull final Logger log,
+            @Nonnull final AsyncResponse response,
+            @Nonnull final ResourceHandler handler,
+            final long arrivalNanos,
+            final long startNanos) {
+        try {
+            processor.process(name, log, response, () -> {
+                ADMITTED.set(Boolean.TRUE);
+                try {
+                    return handler.process();
+                } catch (final Exception | Error e) {
+
+                    // Thrown exceptions (mostly ApiExceptions) are mapped to an error status by the processor.
+                    metrics.recordError(name, e);
+                    throw e;
+                } finally {
+                    ADMITTED.remove();
+                    final long endNanos = System.nanoTime();
+                    state.limit.release(endNanos - startNanos);
+                    metrics.recordRequest(name, endNanos - arrivalNanos);
+                    drainQueue(state);
+                }
+            });
+        } catch (final RuntimeException e) {
+
+            // The handler was never scheduled (e.g. the executor was shut down).
+            state.limit.release(-1);
+            throw e;
+        }
+    }
+
+    private void releaseStream(
+            @Nonnull final LaneState state,
+            @Nonnull final String name,
+            final long arrivalNanos) {
+
+        // The lifetime of a stream says nothing about the capacity of the lane, so it is not sampled.
+        state.limit.release(-1);
+        metrics.recordRequest(name, System.nanoTime() - arrivalNanos);
+    }
+
+    private void drainQueue(@Nonnull final LaneState state) {
+        while (!state.queue.isEmpty() && state.limit.tryAcquire()) {
+            final PendingRequest pending = state.queue.poll();
+            if (pending == null) {
+                state.limit.release(-1);
+                return;
+            }
+            final long now = System.nanoTime();
+            if ((now - pending.queuedNanos) > MAX_QUEUE_WAIT_NANOS) {
+                state.limit.release(-1);
+                reject(state, pending.name, pending.log, pending.response);
+            } else {
+                dispatch(state, pending.name, pending.log, pending.response, pending.handler, pending.queuedNanos,
+                        now);
+            }
+        }
+    }
+
+    @Nonnull
+    private static Response createTooManyRequestsResponse() {
+        return Response.status(HTTP_TOO_MANY_REQUESTS).header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECS).build();
+    }
+
+    private void expireQueued(@Nonnull final LaneState state) {
+        final long now = System.nanoTime();
+        PendingRequest head = state.queue.peek();
+        while ((head != null) && ((now - head.queuedNanos) > MAX_QUEUE_WAIT_NANOS)) {
+            if (state.queue.remove(head)) {
+                reject(state, head.name, head.log, head.response);
+            }
+            head = state.queue.peek();
+        }
+    }
+
+    private void reject(
+            @Nonnull final LaneState state,
+            @Nonnull final String name,
+            @Nonnull final Logger log,
+            @Nonnull final AsyncResponse response) {
+        response.resume(reject(state, name, log));
+    }
+
+    @Nonnull
+    private Response reject(
+            @Nonnull final LaneState state,
+            @Nonnull final String name,
+            @Nonnull final Logger log) {
+        state.rejected.incrementAndGet();
+        metrics.recordRejection(name, Rejection.OVERLOAD);
+        log.debug("{}: rejected, limit={}, inFlight={}", name, state.limit.getLimit(), state.limit.getInFlight());
+        return Response.status(Response.Status.SERVICE_UNAVAILABLE).
+                header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECS).build();
+    }
+
+    /**
+     * Handler of a streaming request, see {@link #processStream(String, String, Logger, StreamHandler)}.
+     */
+    public interface StreamHandler {
+
+        /**
+         * Create the response of the stream.
+         *
+         * @param executor Executor of the request handlers, to do the work of the stream on.
+         * @return Response, with the stream as a {@link StreamingOutput} entity.
+         */
+        @Nonnull
+        Response process(@Nonnull Executor executor);
+    }
+
+    private static final class LaneState {
+        @Nonnull
+        private final AdaptiveConcurrencyLimit limit;
+        @Nonnull
+        private final ArrayBlockingQueue<PendingRequest> queue;
+        @Nonnull
+        private final AtomicLong rejected = new AtomicLong();
+
+        private LaneState(@Nonnull final Lane lane) {
+            this.limit = new AdaptiveConcurrencyLimit(lane.initialLimit, lane.minLimit, lane.maxLimit);
+            this.queue = new ArrayBlockingQueue<>(lane.queueSize);
+        }
+    }
+
+    private static final class PendingRequest {
+        @Nonnull
+        private final String name;
+        @Nonnull
+        private final Logger log;
+        @Nonnull
+        private final AsyncResponse response;
+        @Nonnull
+        private final ResourceHandler handler;
+        private final long queuedNanos;
+
+        private PendingRequest(
+                @Nonnull final String name,
+                @Nonnull final Logger log,
+                @Nonnull final AsyncResponse response,
+                @Nonnull final ResourceHandler handler,
+                final long queuedNanos) {
+            this.name = name;
+            this.log = log;
+            this.response = response;
+            this.handler = handler;
+            this.queuedNanos = queuedNanos;
+        }
+    }
+}
@@ -39,6 +39,9 @@ import java.util.Comparator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32C;
 
 /**
  * Loads a FlatGeobuf borders file at construction time and answers point-in-polygon queries.
@@ -49,6 +52,9 @@ public class BoundaryService {
     private static final GeometryFactory GEOMETRY_FACTORY = new GeometryFactory();
 
     private final STRtree index;
+    @Nonnull
+    private final String bordersHash;
+    private final long loadMillis;
     private static final int DEFAULT_PREPARED_CACHE_SIZE = 200;
     private final int preparedCacheSize = resolvePreparedCacheSize();
 
@@ -85,7 +91,13 @@ public class BoundaryService {
                 }
             });
 
+    // Lookup statistics, for the metrics.
+    private final LatencyHistogram lookupLatency = new LatencyHistogram();
+    private final LongAdder lookupCandidates = new LongAdder();
+    private final LongAdder preparedCacheMisses = new LongAdder();
+
     public BoundaryService(@Nonnull final String bordersFilePath) {
+        final long startNanos = System.nanoTime();
         final Path path = Paths.get(bordersFilePath);
         if (!Files.isReadable(path)) {
             throw new IllegalStateException("Borders file not readable: " + path);
@@ -93,12 +105,15 @@ public class BoundaryService {
         this.index = new STRtree();
         final int loaded;
         try {
-            loaded = loadFeatures(mapReadOnly(path));
+            final MappedByteBuffer mapped = mapReadOnly(path);
+            this.bordersHash = checksum(mapped);
+            loaded = loadFeatures(mapped);
         } catch (final IOException e) {
             throw new IllegalStateException("Failed to load borders file: " + path, e);
         }
         index.build();
-        LOG.info("BoundaryService: loaded {} polygons from {}", loaded, path);
+        this.loadMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        LOG.info("BoundaryService: loaded {} polygons from {} in {} ms", loaded, path, loadMillis);
     }
 
     /**
@@ -107,6 +122,7 @@ public class BoundaryService {
      */
     public BoundaryService(@Nonnull final InputStream stream,
                            @Nonnull final String sourceDescription) {
+        final long startNanos = System.nanoTime();
         this.index = new STRtree();
         final int loaded;
         final Path tmp;
@@ -116,12 +132,42 @@ public class BoundaryService {
             try (final OutputStream out = Files.newOutputStream(tmp, StandardOpenOption.TRUNCATE_EXISTING)) {
                 stream.transferTo(out);
             }
-            loaded = loadFeatures(mapReadOnly(tmp));
+            final MappedByteBuffer mapped = mapReadOnly(tmp);
+            this.bordersHash = checksum(mapped);
+            loaded = loadFeatures(mapped);
         } catch (final IOException e) {
             throw new IllegalStateException("Failed to load borders from " + sourceDescription, e);
         }
         index.build();
-        LOG.info("BoundaryService: loaded {} polygons from {}", loaded, sourceDescription);
+        this.loadMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        LOG.info("BoundaryService: loaded {} polygons from {} in {} ms", loaded, sourceDescription, loadMillis);
+    }
+
+    /**
+     * Return a hash of the contents of the borders file. The hash changes whenever the borders data
+     * changes, so it can be used as part of a cache validator.
+     *
+     * @return Hash, as a hexadecimal string.
+     */
+    @Nonnull
+    public String getBordersHash() {
+        return bordersHash;
+    }
+
+    /**
+     * Return the time it took to load and index the borders.
+     *
+     * @return Time in milliseconds.
+     */
+    public long getLoadMillis() {
+        return loadMillis;
+    }
+
+    @Nonnull
+    private static String checksum(@Nonnull final ByteBuffer bytes) {
+        final CRC32C crc = new CRC32C();
+        crc.update(bytes.duplicate());
+        return String.format("%08x", crc.getValue());
     }
 
     @Nonnull
@@ -321,6 +367,9 @@ public class BoundaryService {
 
     @Nonnull
     public List<TerritoryMatch> lookup(final double latDeg, final double lonDeg) {
+        final ConversionEvents.BoundaryLookup event = new ConversionEvents.BoundaryLookup();
+        event.begin();
+        final long startNanos = System.nanoTime();
         final Coordinate coord = new Coordinate(lonDeg, latDeg);
         final Envelope env = new Envelope(coord);
         @SuppressWarnings("unchecked")
@@ -330,7 +379,10 @@ public class BoundaryService {
         for (final IndexedEntry e : candidates) {
             final PreparedGeometry prepared =
                     preparedCache.computeIfAbsent(e,
-                            k -> PreparedGeometryFactory.prepare(k.geometry));
+                            k -> {
+                                preparedCacheMisses.increment();
+                                return PreparedGeometryFactory.prepare(k.geometry);
+                            });
             if (prepared.contains(point)) {
                 hits.add(new TerritoryMatch(e.alphaCode, e.parentAlphaCode, e.adminLevel, e.area));
             }
@@ -338,11 +390,36 @@ public class BoundaryService {
         hits.sort(Comparator
                 .comparingInt(TerritoryMatch::getAdminLevel).reversed() // level 4 before level 2
                 .thenComparingDouble(TerritoryMatch::getArea));          // smaller area first
+        lookupCandidates.add(candidates.size());
+        lookupLatency.record(System.nanoTime() - startNanos);
+        event.candidates = candidates.size();
+        event.territories = hits.size();
+        event.commit();
         return hits;
     }
 
-    /** Visible for testing — current number of cached prepared geometries. */
-    int preparedCacheSize() {
+    /** Latency of {@link #lookup(double, double)}; its count is the number of lookups. */
+    @Nonnull
+    public LatencyHistogram getLookupLatency() {
+        return lookupLatency;
+    }
+
+    /** Total number of candidate polygons tested for containment, over all lookups. */
+    public long getLookupCandidates() {
+        return lookupCandidates.sum();
+    }
+
+    /** Total number of candidate polygons that had to be prepared because they were not cached. */
+    public long getPreparedCacheMisses() {
+        return preparedCacheMisses.sum();
+    }
+
+    public int getPreparedCacheCapacity() {
+        return preparedCacheSize;
+    }
+
+    /** Current number of cached prepared geometries. */
+    public int preparedCacheSize() {
         synchronized (preparedCache) {
             return preparedCache.size();
         }
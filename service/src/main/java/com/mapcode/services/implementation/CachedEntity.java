@@ -0,0 +1,150 @@
+/*
+ * Copyright (C) 2016-2026, Stichting Mapcode Foundation (http://www.mapcode.com)
+ */
+package com.mapcode.services.implementation;
+
+import com.tomtom.speedtools.apivalidation.ApiDTO;
+
+import javax.annotation.Nonnull;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.ext.MessageBodyWriter;
+import javax.ws.rs.ext.Providers;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Response entity for data that never changes during the lifetime of the process, such as the lists
+ * of territories and alphabets. The DTO is validated once, and serialized once per media type, both
+ * plain and gzipped. The serialized bytes are tagged with a strong ETag.
+ *
+ * The DTO is serialized with the same message body writers the framework would use for the DTO itself,
+ * so the output is byte-identical to an uncached response. Use {@link CachedEntityFilter} and
+ * {@link CachedEntityWriter} to send it.
+ */
+public final class CachedEntity {
+    private static final Annotation[] NO_ANNOTATIONS = new Annotation[0];
+    private static final int ETAG_HASH_LENGTH = 16;
+
+    @Nonnull
+    private final ApiDTO dto;
+    @Nonnull
+    private final ConcurrentHashMap<MediaType, Serialized> serializedByMediaType = new ConcurrentHashMap<>();
+
+    /**
+     * Serialized representation of the DTO for a single media type.
+     */
+    public static final class Serialized {
+        @Nonnull
+        private final byte[] plain;
+        @Nonnull
+        private final byte[] gzip;
+        @Nonnull
+        private final String etag;
+
+        private Serialized(@Nonnull final byte[] plain) throws IOException {
+            this.plain = plain;
+            final ByteArrayOutputStream gzipped = new ByteArrayOutputStream(plain.length / 4);
+            try (GZIPOutputStream out = new GZIPOutputStream(gzipped)) {
+                out.write(plain);
+            }
+            this.gzip = gzipped.toByteArray();
+            this.etag = hash(plain);
+        }
+
+        @Nonnull
+        public byte[] getPlain() {
+            return plain;
+        }
+
+        @Nonnull
+        public byte[] getGzip() {
+            return gzip;
+        }
+
+        /**
+         * Return the ETag of the plain representation, without quotes. The ETag of the gzipped
+         * representation is this value plus {@link CachedEntityFilter#ETAG_GZIP_SUFFIX}.
+         *
+         * @return ETag value.
+         */
+        @Nonnull
+        public String getEtag() {
+            return etag;
+        }
+    }
+
+    /**
+     * Create a cached entity. The DTO is validated.
+     *
+     * @param dto DTO, which must not be changed afterwards.
+     */
+    public CachedEntity(@Nonnull final ApiDTO dto) {
+        assert dto != null;
+        dto.validate();
+        this.dto = dto;
+    }
+
+    @Nonnull
+    public ApiDTO getDto() {
+        return dto;
+    }
+
+    /**
+     * Get the serialized representation for a media type, serializing the DTO on first use.
+     *
+     * @param mediaType Media type.
+     * @param providers Providers to find the message body writer of the DTO.
+     * @return Serialized representation.
+     * @throws IOException If the DTO cannot be serialized for this media type.
+     */
+    @Nonnull
+    public Serialized getSerialized(
+            @Nonnull final MediaType mediaType,
+            @Nonnull final Providers providers) throws IOException {
+        assert mediaType != null;
+        assert providers != null;
+        final Serialized cached = serializedByMediaType.get(mediaType);
+        if (cached != null) {
+            return cached;
+        }
+
+        // Concurrent first requests may serialize twice; the results are identical.
+        final Serialized serialized = new Serialized(serialize(mediaType, providers));
+        serializedByMediaType.putIfAbsent(mediaType, serialized);
+        return serialized;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    @Nonnull
+    private byte[] serialize(
+            @Nonnull final MediaType mediaType,
+            @Nonnull final Providers providers) throws IOException {
+        final Class type = dto.getClass();
+        final MessageBodyWriter writer = providers.getMessageBodyWriter(type, type, NO_ANNOTATIONS, mediaType);
+        if (writer == null) {
+            throw new IOException("No message body writer for " + type.getSimpleName() + ", mediaType=" + mediaType);
+        }
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writer.writeTo(dto, type, type, NO_ANNOTATIONS, mediaType, new MultivaluedHashMap<>(), out);
+        return out.toByteArray();
+    }
+
+    @Nonnull
+    private static String hash(@Nonnull final byte[] bytes) {
+        try {
+            final byte[] digest = MessageDigest.getInstance("SHA-256").digest(bytes);
+            return new String(Base64.getUrlEncoder().withoutPadding().encode(digest), StandardCharsets.US_ASCII).
+                    substring(0, ETAG_HASH_LENGTH);
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
+    }
+}
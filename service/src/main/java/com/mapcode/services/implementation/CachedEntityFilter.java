@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2016-2026, Stichting Mapcode Foundation (http://www.mapcode.com)
+ */
+package com.mapcode.services.implementation;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.ext.Provider;
+import javax.ws.rs.ext.Providers;
+import java.io.IOException;
+
+/**
+ * Response filter for {@link CachedEntity} responses. It adds a strong ETag, a long Cache-Control max-age
+ * and Vary headers, answers a matching If-None-Match with "304 Not Modified" (without a body) and
+ * selects the gzipped representation if the client accepts it. The body itself is written by
+ * {@link CachedEntityWriter}.
+ */
+@Provider
+public class CachedEntityFilter implements ContainerResponseFilter {
+    private static final Logger LOG = LoggerFactory.getLogger(CachedEntityFilter.class);
+
+    public static final String ETAG_GZIP_SUFFIX = CompressionInterceptor.Coding.GZIP.getEtagSuffix();
+    public static final String CONTENT_ENCODING_GZIP = CompressionInterceptor.Coding.GZIP.getName();
+
+    private static final String CACHE_CONTROL = "public, max-age=86400";
+    private static final String VARY = HttpHeaders.ACCEPT + ", " + HttpHeaders.ACCEPT_ENCODING;
+
+    @Context
+    private Providers providers;
+
+    @Override
+    public void filter(
+            @Nonnull final ContainerRequestContext requestContext,
+            @Nonnull final ContainerResponseContext responseContext) throws IOException {
+        if (!(responseContext.getEntity() instanceof CachedEntity)) {
+            return;
+        }
+        final CachedEntity entity = (CachedEntity) responseContext.getEntity();
+        final MediaType mediaType = responseContext.getMediaType();
+        if (mediaType == null) {
+            LOG.warn("filter: no media type for cached entity, dto={}", entity.getDto().getClass().getSimpleName());
+            return;
+        }
+        final CachedEntity.Serialized serialized = entity.getSerialized(mediaType, providers);
+        final boolean gzip = acceptsGzip(requestContext.getHeaderString(HttpHeaders.ACCEPT_ENCODING));
+        final String etag = serialized.getEtag() + (gzip ? ETAG_GZIP_SUFFIX : "");
+
+        final MultivaluedMap<String, Object> headers = responseContext.getHeaders();
+        headers.putSingle(HttpHeaders.ETAG, '"' + etag + '"');
+        headers.putSingle(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL);
+        headers.putSingle(HttpHeaders.VARY, VARY);
+
+        if (matchesIfNoneMatch(requestContext.getHeaderString(HttpHeaders.IF_NONE_MATCH), serialized.getEtag())) {
+            responseContext.setStatus(Response.Status.NOT_MODIFIED.getStatusCode());
+            responseContext.setEntity(null);
+            return;
+        }
+        if (gzip) {
+            headers.putSingle(HttpHeaders.CONTENT_ENCODING, CONTENT_ENCODING_GZIP);
+        }
+    }
+
+    /**
+     * Return whether an Accept-Encoding header accepts gzip.
+     *
+     * @param acceptEncoding Header value, may be null.
+     * @return True if gzip is listed (or '*' is used) without q=0.
+     */
+    static boolean acceptsGzip(@Nullable final String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (final String coding : acceptEncoding.split(",")) {
+            final String[] parts = coding.split(";");
+            final String name = parts[0].trim();
+            if (name.equalsIgnoreCase(CONTENT_ENCODING_GZIP) || name.equals("*")) {
+                return !isQualityZero(parts);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Return whether an If-None-Match header matches an ETag, using weak comparison. Both the plain
+     * and the compressed representations match.
+     *
+     * @param ifNoneMatch Header value, may be null.
+     * @param etag        ETag of the plain representation, without quotes.
+     * @return True if the header matches.
+     */
+    static boolean matchesIfNoneMatch(@Nullable final String ifNoneMatch, @Nonnull final String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (final String tag : ifNoneMatch.split(",")) {
+            String value = tag.trim();
+            if (value.equals("*")) {
+                return true;
+            }
+            if (value.startsWith("W/")) {
+                value = value.substring(2);
+            }
+            if ((value.length() >= 2) && (value.charAt(0) == '"') && (value.charAt(value.length() - 1) == '"')) {
+                value = value.substring(1, value.length() - 1);
+            }
+            if (value.equals(etag)) {
+                return true;
+            }
+            for (final CompressionInterceptor.Coding coding : CompressionInterceptor.Coding.values()) {
+                if (value.equals(etag + coding.getEtagSuffix())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean isQualityZero(@Nonnull final String[] parts) {
+        for (int i = 1; i < parts.length; ++i) {
+            final String parameter = parts[i].trim();
+            if (parameter.startsWith("q=")) {
+                try {
+                    return Double.parseDouble(parameter.substring(2).trim()) == 0.0;
+                } catch (final NumberFormatException ignored) {
+                    return false;
+                }
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2016-2026, Stichting Mapcode Foundation (http://www.mapcode.com)
+ */
+package com.mapcode.services.implementation;
+
+import javax.annotation.Nonnull;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.MessageBodyWriter;
+import javax.ws.rs.ext.Provider;
+import javax.ws.rs.ext.Providers;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+
+/**
+ * Writes the pre-serialized bytes of a {@link CachedEntity}: gzipped if {@link CachedEntityFilter} selected
+ * the gzip content encoding, plain otherwise.
+ *
+ * The media types are listed explicitly (rather than a wildcard), so this writer is preferred over the
+ * generic JSON and XML writers, which would otherwise serialize the entity object itself.
+ */
+@Provider
+@Produces({MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML, MediaType.TEXT_XML})
+public class CachedEntityWriter implements MessageBodyWriter<CachedEntity> {
+
+    @Context
+    private Providers providers;
+
+    @Override
+    public boolean isWriteable(
+            @Nonnull final Class<?> type,
+            @Nonnull final Type genericType,
+            @Nonnull final Annotation[] annotations,
+            @Nonnull final MediaType mediaType) {
+        return CachedEntity.class.isAssignableFrom(type);
+    }
+
+    @Override
+    public long getSize(
+            @Nonnull final CachedEntity entity,
+            @Nonnull final Class<?> type,
+            @Nonnull final Type genericType,
+            @Nonnull final Annotation[] annotations,
+            @Nonnull final MediaType mediaType) {
+        return -1;
+    }
+
+    @Override
+    public void writeTo(
+            @Nonnull final CachedEntity entity,
+            @Nonnull final Class<?> type,
+            @Nonnull final Type genericType,
+            @Nonnull final Annotation[] annotations,
+            @Nonnull final MediaType mediaType,
+            @Nonnull final MultivaluedMap<String, Object> httpHeaders,
+            @Nonnull final OutputStream entityStream) throws IOException {
+        final CachedEntity.Serialized serialized = entity.getSerialized(mediaType, providers);
+        final Object contentEncoding = httpHeaders.getFirst(HttpHeaders.CONTENT_ENCODING);
+        final boolean gzip = (contentEncoding != null) &&
+                CachedEntityFilter.CONTENT_ENCODING_GZIP.equalsIgnoreCase(contentEncoding.toString());
+        entityStream.write(gzip ? serialized.getGzip() : serialized.getPlain());
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright (C) 2016-2026, Stichting Mapcode Foundation (http://www.mapcode.com)
+ */
+package com.mapcode.services.implementation;
+
+import com.mapcode.services.implementation.RateLimitProperties.Limit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-client rate limiter, keyed by the "client" parameter of the API. Every client identifier has its
+ * own token bucket; callers without a client identifier share a single bucket.
+ *
+ * The buckets are lock-free: a bucket is a single "theoretical arrival time" (the generic cell rate
+ * algorithm), which is updated with a compare-and-set. A bucket that has refilled completely holds no
+ * state worth keeping, so it may be evicted. Buckets are kept in a map of at most 'maxClients' entries;
+ * if the map is full and no bucket can be evicted, new clients share the anonymous bucket.
+ */
+public final class ClientRateLimiter {
+    private static final Logger LOG = LoggerFactory.getLogger(ClientRateLimiter.class);
+
+    // Client identifiers are truncated to bound the memory per bucket.
+    private static final int MAX_CLIENT_LENGTH = 64;
+    private static final long MIN_EVICTION_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    @Nonnull
+    private final RateLimitProperties properties;
+    @Nullable
+    private final Bucket anonymousBucket;
+    @Nonnull
+    private final ConcurrentHashMap<String, Bucket> clientBuckets = new ConcurrentHashMap<>();
+    @Nonnull
+    private final AtomicLong lastEvictionNanos;
+    @Nonnull
+    private final AtomicLong rejected = new AtomicLong();
+
+    @Inject
+    public ClientRateLimiter(@Nonnull final RateLimitProperties properties) {
+        assert properties != null;
+        this.properties = properties;
+        final long now = System.nanoTime();
+        this.anonymousBucket = properties.getAnonymousLimit().isUnlimited() ? null :
+                new Bucket(properties.getAnonymousLimit(), now);
+        this.lastEvictionNanos = new AtomicLong(now - MIN_EVICTION_INTERVAL_NANOS);
+    }
+
+    /**
+     * Take a token for a request of a client.
+     *
+     * @param client Client identifier, or null or empty for anonymous callers.
+     * @return True if the request is allowed, false if the client exceeded its rate.
+     */
+    public boolean tryAcquire(@Nullable final String client) {
+        final long now = System.nanoTime();
+        final Bucket bucket = getBucket(client, now);
+        if ((bucket == null) || bucket.tryAcquire(now)) {
+            return true;
+        }
+        rejected.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * Return the number of clients that have a bucket.
+     *
+     * @return Number of clients.
+     */
+    public int getNrClients() {
+        return clientBuckets.size();
+    }
+
+    /**
+     * Return the number of requests that were rejected since start-up.
+     *
+     * @return Number of rejected requests.
+     */
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    @Nullable
+    private Bucket getBucket(@Nullable final String client, final long now) {
+        if ((client == null) || client.isEmpty()) {
+            return anonymousBucket;
+        }
+        final String key = (client.length() > MAX_CLIENT_LENGTH) ? client.substring(0, MAX_CLIENT_LENGTH) : client;
+        final Bucket bucket = clientBuckets.get(key);
+        if (bucket != null) {
+            return bucket;
+        }
+        final Limit limit = properties.getClientOverrides().getOrDefault(key, properties.getClientLimit());
+        if (limit.isUnlimited()) {
+            return null;
+        }
+        if ((clientBuckets.size() >= properties.getMaxClients()) && !evictIdleBuckets(now)) {
+            return anonymousBucket;
+        }
+        return clientBuckets.computeIfAbsent(key, k -> new Bucket(limit, now));
+    }
+
+    /**
+     * Remove all buckets that have refilled completely. This is done at most once per second.
+     *
+     * @param now Current time, in nanos.
+     * @return True if there is room for a new bucket.
+     */
+    private boolean evictIdleBuckets(final long now) {
+        final long last = lastEvictionNanos.get();
+        if (((now - last) >= MIN_EVICTION_INTERVAL_NANOS) && lastEvictionNanos.compareAndSet(last, now)) {
+            final int before = clientBuckets.size();
+            clientBuckets.values().removeIf(bucket -> bucket.isFull(now));
+            LOG.debug("evictIdleBuckets: evicted {} of {} buckets", before - clientBuckets.size(), before);
+        }
+        return clientBuckets.size() < properties.getMaxClients();
+    }
+
+    /**
+     * Token bucket, implemented as a generic cell rate algorithm: a request is allowed if the theoretical
+     * arrival time of the next request is at most 'burst' intervals ahead of now.
+     */
+    private static final class Bucket {
+        private final long intervalNanos;
+        private final long toleranceNanos;
+        @Nonnull
+        private final AtomicLong theoreticalArrivalNanos;
+
+        private Bucket(@Nonnull final Limit limit, final long now) {
+            assert !limit.isUnlimited();
+            this.intervalNanos = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / limit.getRequestsPerSec()));
+            this.toleranceNanos = intervalNanos * limit.getBurst();
+            this.theoreticalArrivalNanos = new AtomicLong(now);
+        }
+
+        private boolean tryAcquire(final long now) {
+            while (true) {
+                final long arrival = theoreticalArrivalNanos.get();
+                final long nextArrival = Math.max(arrival, now) + intervalNanos;
+                if ((nextArrival - now) > toleranceNanos) {
+                    return false;
+                }
+                if (theoreticalArrivalNanos.compareAndSet(arrival, nextArrival)) {
+                    return true;
+                }
+            }
+        }
+
+        private boolean isFull(final long now) {
+            return (theoreticalArrivalNanos.get() - now) <= 0;
+        }
+    }
+}
@@ -0,0 +1,534 @@
+/*
+ * Copyright (C) 2016-2026, Stichting Mapcode Foundation (http://www.mapcode.com)
+ */
+package com.mapcode.services.implementation;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.Priority;
+import javax.inject.Inject;
+import javax.ws.rs.Priorities;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.Provider;
+import javax.ws.rs.ext.WriterInterceptor;
+import javax.ws.rs.ext.WriterInterceptorContext;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Compresses response bodies with the content coding negotiated from the Accept-Encoding header of the
+ * request: gzip or deflate. Bodies smaller than a threshold are sent uncompressed, as compressing them
+ * costs more CPU than it saves in transfer time.
+ *
+ * The response filter negotiates the coding; the writer interceptor buffers the body up to the threshold
+ * and only then commits to compressing it. Responses that already have a content encoding (such as the
+ * pre-serialized {@link CachedEntity} responses) are left alone. The ETag of a compressed response gets
+ * the suffix of its coding, as the compressed bytes are a different representation.
+ *
+ * Deflaters and buffers are pooled. They are not kept per thread, as request handlers may run on
+ * virtual threads, which are never reused.
+ *
+ * The threshold and compression level are set with the system properties "mapcode.compression.min-size"
+ * (in bytes, default 1024, at most 65536) and "mapcode.compression.level" (1-9, default 1, fastest).
+ */
+@Provider
+@Priority(Priorities.ENTITY_CODER)
+public class CompressionInterceptor implements ContainerResponseFilter, WriterInterceptor {
+    private static final Logger LOG = LoggerFactory.getLogger(CompressionInterceptor.class);
+
+    public static final int DEFAULT_MIN_SIZE = 1024;
+    public static final int MAX_MIN_SIZE = 64 * 1024;     // Each pooled encoder has a buffer of min-size bytes.
+    public static final int DEFAULT_LEVEL = Deflater.BEST_SPEED;
+
+    private static final String PROPERTY_CODING = CompressionInterceptor.class.getName() + ".coding";
+    private static final int OUTPUT_BUFFER_SIZE = 8192;
+    private static final int MAX_POOLED_ENCODERS = 2 * Runtime.getRuntime().availableProcessors();
+
+    // Gzip member header: magic, deflate method, no flags, no mtime, no extra flags, unknown OS.
+    private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+
+    /**
+     * Supported content codings, in order of preference if the client accepts them equally.
+     */
+    public enum Coding {
+        GZIP("gzip"),
+        DEFLATE("deflate");
+
+        @Nonnull
+        private final String name;
+
+        Coding(@Nonnull final String name) {
+            this.name = name;
+        }
+
+        /**
+         * Return the name of the coding, as used in the Content-Encoding header.
+         *
+         * @return Name.
+         */
+        @Nonnull
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Return the suffix of the ETag of a representation in this coding.
+         *
+         * @return Suffix.
+         */
+        @Nonnull
+        public String getEtagSuffix() {
+            return '-' + name;
+        }
+    }
+
+    private final int minSize;
+    private final int level;
+    @Nonnull
+    private final ArrayBlockingQueue<Encoder> pool = new ArrayBlockingQueue<>(MAX_POOLED_ENCODERS);
+
+    // Statistics per coding, indexed by its ordinal.
+    @Nonnull
+    private final AtomicLongArray compressedResponses = new AtomicLongArray(Coding.values().length);
+    @Nonnull
+    private final AtomicLongArray uncompressedResponses = new AtomicLongArray(Coding.values().length);
+    @Nonnull
+    private final AtomicLongArray bytesIn = new AtomicLongArray(Coding.values().length);
+    @Nonnull
+    private final AtomicLongArray bytesOut = new AtomicLongArray(Coding.values().length);
+    @Nonnull
+    private final AtomicLongArray compressNanos = new AtomicLongArray(Coding.values().length);
+
+    @Inject
+    public CompressionInterceptor() {
+        this(resolveIntProperty("mapcode.compression.min-size", DEFAULT_MIN_SIZE, 0, MAX_MIN_SIZE),
+                resolveIntProperty("mapcode.compression.level", DEFAULT_LEVEL, Deflater.BEST_SPEED,
+                        Deflater.BEST_COMPRESSION));
+    }
+
+    /**
+     * Create a compression interceptor.
+     *
+     * @param minSize Minimum size of a body to be compressed, in bytes, at most {@link #MAX_MIN_SIZE}.
+     * @param level   Compression level, 1 (fastest) to 9 (best compression).
+     */
+    public CompressionInterceptor(final int minSize, final int level) {
+        assert (0 <= minSize) && (minSize <= MAX_MIN_SIZE);
+        assert (Deflater.BEST_SPEED <= level) && (level <= Deflater.BEST_COMPRESSION);
+        this.minSize = minSize;
+        this.level = level;
+        LOG.info("CompressionInterceptor: minSize={}, level={}", minSize, level);
+    }
+
+    @Override
+    public void filter(
+            @Nonnull final ContainerRequestContext requestContext,
+            @Nonnull final ContainerResponseContext responseContext) {
+        if (responseContext.hasEntity()) {
+            final Coding coding = negotiate(requestContext.getHeaderString(HttpHeaders.ACCEPT_ENCODING));
+            if (coding != null) {
+                requestContext.setProperty(PROPERTY_CODING, coding);
+            }
+        }
+    }
+
+    @Override
+    public void aroundWriteTo(@Nonnull final WriterInterceptorContext context) throws IOException {
+        final MultivaluedMap<String, Object> headers = context.getHeaders();
+        if (headers.containsKey(HttpHeaders.CONTENT_ENCODING)) {
+            context.proceed();
+            return;
+        }
+        addVary(headers);
+        final Coding coding = (Coding) context.getProperty(PROPERTY_CODING);
+        if (coding == null) {
+            context.proceed();
+            return;
+        }
+
+        Encoder encoder = pool.poll();
+        if (encoder == null) {
+            encoder = new Encoder(minSize, level);
+        }
+        final OutputStream original = context.getOutputStream();
+        final EncodingOutputStream encoded = new EncodingOutputStream(original, headers, coding, encoder);
+        context.setOutputStream(encoded);
+        boolean reusable = false;
+        try {
+            context.proceed();
+            encoded.finish();
+            reusable = true;
+        } finally {
+            context.setOutputStream(original);
+            encoder.reset();
+            if (!reusable || !pool.offer(encoder)) {
+                encoder.end();
+            }
+        }
+    }
+
+    /**
+     * Return the number of responses that were compressed.
+     *
+     * @param coding Content coding.
+     * @return Number of responses.
+     */
+    public long getCompressedResponses(@Nonnull final Coding coding) {
+        return compressedResponses.get(coding.ordinal());
+    }
+
+    /**
+     * Return the number of responses that accepted compression, but were below the size threshold.
+     *
+     * @param coding Negotiated content coding.
+     * @return Number of responses.
+     */
+    public long getUncompressedResponses(@Nonnull final Coding coding) {
+        return uncompressedResponses.get(coding.ordinal());
+    }
+
+    /**
+     * Return the total size of the compressed responses before compression.
+     *
+     * @param coding Content coding.
+     * @return Number of bytes.
+     */
+    public long getBytesIn(@Nonnull final Coding coding) {
+        return bytesIn.get(coding.ordinal());
+    }
+
+    /**
+     * Return the total size of the compressed responses after compression.
+     *
+     * @param coding Content coding.
+     * @return Number of bytes.
+     */
+    public long getBytesOut(@Nonnull final Coding coding) {
+        return bytesOut.get(coding.ordinal());
+    }
+
+    /**
+     * Return the number of bytes saved by compression.
+     *
+     * @param coding Content coding.
+     * @return Number of bytes.
+     */
+    public long getBytesSaved(@Nonnull final Coding coding) {
+        return getBytesIn(coding) - getBytesOut(coding);
+    }
+
+    /**
+     * Return the total time spent compressing.
+     *
+     * @param coding Content coding.
+     * @return Time, in nanos.
+     */
+    public long getCompressNanos(@Nonnull final Coding coding) {
+        return compressNanos.get(coding.ordinal());
+    }
+
+    /**
+     * Negotiate the content coding from an Accept-Encoding header.
+     *
+     * @param acceptEncoding Header value, may be null.
+     * @return The coding with the highest quality, or null if no supported coding is accepted.
+     */
+    @Nullable
+    static Coding negotiate(@Nullable final String acceptEncoding) {
+        if ((acceptEncoding == null) || acceptEncoding.isEmpty()) {
+            return null;
+        }
+        double gzipQuality = -1.0;
+        double deflateQuality = -1.0;
+        double anyQuality = -1.0;
+        for (final String element : acceptEncoding.split(",")) {
+            final String[] parts = element.split(";");
+            final double quality = getQuality(parts);
+            switch (parts[0].trim().toLowerCase(Locale.ROOT)) {
+                case "gzip":
+                case "x-gzip":
+                    gzipQuality = quality;
+                    break;
+
+                case "deflate":
+                    deflateQuality = quality;
+                    break;
+
+                case "*":
+                    anyQuality = quality;
+                    break;
+
+                default:
+                    // Ignore unsupported codings.
+            }
+        }
+        if (gzipQuality < 0.0) {
+            gzipQuality = anyQuality;
+        }
+        if (deflateQuality < 0.0) {
+            deflateQuality = anyQuality;
+        }
+        if ((gzipQuality <= 0.0) && (deflateQuality <= 0.0)) {
+            return null;
+        }
+        return (gzipQuality >= deflateQuality) ? Coding.GZIP : Coding.DEFLATE;
+    }
+
+    private static double getQuality(@Nonnull final String[] parts) {
+        for (int i = 1; i < parts.length; ++i) {
+            final String parameter = parts[i].trim();
+            if (parameter.startsWith("q=")) {
+                try {
+                    return Double.parseDouble(parameter.substring(2).trim());
+                } catch (final NumberFormatException ignored) {
+                    return 0.0;
+                }
+            }
+        }
+        return 1.0;
+    }
+
+    private static void addVary(@Nonnull final MultivaluedMap<String, Object> headers) {
+        final Object vary = headers.getFirst(HttpHeaders.VARY);
+        if (vary == null) {
+            headers.putSingle(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        } else if (!vary.toString().contains(HttpHeaders.ACCEPT_ENCODING)) {
+            headers.putSingle(HttpHeaders.VARY, vary + ", " + HttpHeaders.ACCEPT_ENCODING);
+        }
+    }
+
+    private static int resolveIntProperty(@Nonnull final String name, final int defaultValue,
+                                          final int min, final int max) {
+        final String raw = System.getProperty(name);
+        if (raw == null) {
+            return defaultValue;
+        }
+        try {
+            final int value = Integer.parseInt(raw.trim());
+            if ((value >= min) && (value <= max)) {
+                return value;
+            }
+        } catch (final NumberFormatException ignored) {
+            // Fall through.
+        }
+        LOG.warn("CompressionInterceptor: ignoring invalid {}='{}', using default {}", name, raw, defaultValue);
+        return defaultValue;
+    }
+
+    /**
+     * Pooled state for compressing a single response: the threshold buffer and the deflaters.
+     */
+    private static final class Encoder {
+        private final int level;
+        @Nonnull
+        private final byte[] buffer;
+        @Nonnull
+        private final byte[] output = new byte[OUTPUT_BUFFER_SIZE];
+        @Nonnull
+        private final CRC32 crc = new CRC32();
+        @Nullable
+        private Deflater gzipDeflater = null;
+        @Nullable
+        private Deflater zlibDeflater = null;
+
+        private Encoder(final int minSize, final int level) {
+            this.buffer = new byte[minSize];
+            this.level = level;
+        }
+
+        @Nonnull
+        private Deflater getDeflater(@Nonnull final Coding coding) {
+            if (coding == Coding.GZIP) {
+                if (gzipDeflater == null) {
+                    gzipDeflater = new Deflater(level, true);
+                }
+                return gzipDeflater;
+            }
+            if (zlibDeflater == null) {
+                zlibDeflater = new Deflater(level, false);
+            }
+            return zlibDeflater;
+        }
+
+        private void reset() {
+            crc.reset();
+            if (gzipDeflater != null) {
+                gzipDeflater.reset();
+            }
+            if (zlibDeflater != null) {
+                zlibDeflater.reset();
+            }
+        }
+
+        private void end() {
+            if (gzipDeflater != null) {
+                gzipDeflater.end();
+            }
+            if (zlibDeflater != null) {
+                zlibDeflater.end();
+            }
+        }
+    }
+
+    /**
+     * Output stream that buffers the body up to the threshold, and compresses it if it gets larger.
+     * The headers are changed before the first byte is written to the underlying stream.
+     */
+    private final class EncodingOutputStream extends OutputStream {
+        @Nonnull
+        private final OutputStream out;
+        @Nonnull
+        private final MultivaluedMap<String, Object> headers;
+        @Nonnull
+        private final Coding coding;
+        @Nonnull
+        private final Encoder encoder;
+        @Nonnull
+        private final byte[] single = new byte[1];
+        @Nullable
+        private Deflater deflater = null;
+        private int buffered = 0;
+        private long written = 0;
+        private long read = 0;
+        private long nanos = 0;
+
+        private EncodingOutputStream(
+                @Nonnull final OutputStream out,
+                @Nonnull final MultivaluedMap<String, Object> headers,
+                @Nonnull final Coding coding,
+                @Nonnull final Encoder encoder) {
+            this.out = out;
+            this.headers = headers;
+            this.coding = coding;
+            this.encoder = encoder;
+        }
+
+        @Override
+        public void write(final int b) throws IOException {
+            single[0] = (byte) b;
+            write(single, 0, 1);
+        }
+
+        @Override
+        public void write(@Nonnull final byte[] b, final int off, final int len) throws IOException {
+            if (deflater == null) {
+                if ((buffered + len) <= encoder.buffer.length) {
+                    System.arraycopy(b, off, encoder.buffer, buffered, len);
+                    buffered += len;
+                    return;
+                }
+                startCompressing();
+            }
+            deflate(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            // Until the threshold is reached, the data is held back: writers flush when they are done,
+            // so a flush does not mean that more data is coming.
+            if (deflater != null) {
+                final long start = System.nanoTime();
+                while (drain(Deflater.SYNC_FLUSH) == encoder.output.length) {
+                    // Continue until the deflater has no more output.
+                }
+                nanos += System.nanoTime() - start;
+                out.flush();
+            }
+        }
+
+        @Override
+        public void close() {
+            // The underlying stream is closed by the container, after finish().
+        }
+
+        private void finish() throws IOException {
+            if (deflater == null) {
+                out.write(encoder.buffer, 0, buffered);
+                uncompressedResponses.incrementAndGet(coding.ordinal());
+                return;
+            }
+            final long start = System.nanoTime();
+            deflater.finish();
+            while (!deflater.finished()) {
+                drain(Deflater.NO_FLUSH);
+            }
+            if (coding == Coding.GZIP) {
+                final byte[] trailer = new byte[8];
+                writeIntLE(trailer, 0, (int) encoder.crc.getValue());
+                writeIntLE(trailer, 4, (int) read);
+                writeOut(trailer, trailer.length);
+            }
+            nanos += System.nanoTime() - start;
+            compressedResponses.incrementAndGet(coding.ordinal());
+            bytesIn.addAndGet(coding.ordinal(), read);
+            bytesOut.addAndGet(coding.ordinal(), written);
+            compressNanos.addAndGet(coding.ordinal(), nanos);
+        }
+
+        private void startCompressing() throws IOException {
+            headers.putSingle(HttpHeaders.CONTENT_ENCODING, coding.getName());
+            final Object etag = headers.getFirst(HttpHeaders.ETAG);
+            if (etag != null) {
+                final String value = etag.toString();
+                if (value.endsWith("\"")) {
+                    headers.putSingle(HttpHeaders.ETAG,
+                            value.substring(0, value.length() - 1) + coding.getEtagSuffix() + '"');
+                }
+            }
+            deflater = encoder.getDeflater(coding);
+            if (coding == Coding.GZIP) {
+                writeOut(GZIP_HEADER, GZIP_HEADER.length);
+            }
+            if (buffered > 0) {
+                deflate(encoder.buffer, 0, buffered);
+            }
+        }
+
+        private void deflate(@Nonnull final byte[] b, final int off, final int len) throws IOException {
+            assert deflater != null;
+            final long start = System.nanoTime();
+            if (coding == Coding.GZIP) {
+                encoder.crc.update(b, off, len);
+            }
+            deflater.setInput(b, off, len);
+            while (!deflater.needsInput()) {
+                drain(Deflater.NO_FLUSH);
+            }
+            nanos += System.nanoTime() - start;
+            read += len;
+        }
+
+        private int drain(final int flush) throws IOException {
+            assert deflater != null;
+            final int n = deflater.deflate(encoder.output, 0, encoder.output.length, flush);
+            if (n > 0) {
+                writeOut(encoder.output, n);
+            }
+            return n;
+        }
+
+        private void writeOut(@Nonnull final byte[] b, final int len) throws IOException {
+            out.write(b, 0, len);
+            written += len;
+        }
+    }
+
+    private static void writeIntLE(@Nonnull final byte[] b, final int offset, final int value) {
+        b[offset] = (byte) value;
+        b[offset + 1] = (byte) (value >> 8);
+        b[offset + 2] = (byte) (value >> 16);
+        b[offset + 3] = (byte) (value >> 24);
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2016-2026, Stichting Mapcode Foundation (http://www.mapcode.com)
+ */
+package com.mapcode.services.implementation;
+
+import com.tomtom.speedtools.maven.MavenProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import javax.ws.rs.HttpMethod;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.ext.Provider;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.regex.Pattern;
+
+/**
+ * Cache validators for the conversion resources "codes/{lat},{lon}" and "coords/{code}". Their output is
+ * a pure function of the request URI, the Accept header and the version of the software and borders data.
+ * The ETag is therefore a version fingerprint (POM version plus borders hash), computed once, plus a hash
+ * of the Accept header.
+ *
+ * A conditional GET with a matching If-None-Match is answered with "304 Not Modified" by the request
+ * filter, before the request is converted or encoded. Successful responses get an ETag, a Cache-Control
+ * max-age and "Vary: Accept" from the response filter.
+ */
+@Provider
+public class ConversionCacheFilter implements ContainerRequestFilter, ContainerResponseFilter {
+    private static final Logger LOG = LoggerFactory.getLogger(ConversionCacheFilter.class);
+
+    private static final int FINGERPRINT_LENGTH = 16;
+    private static final String CACHE_CONTROL = "public, max-age=86400";
+
+    // Matches the paths, relative to the application, of all conversion resources (and their JSON and XML variants).
+    private static final Pattern CONVERSION_PATH =
+            Pattern.compile("/?mapcode/(json/|xml/)?(codes/[^/]+,[^/]+(/[^/]+)?|coords/[^/]+)/?");
+
+    @Nonnull
+    private final String fingerprint;
+
+    @Inject
+    public ConversionCacheFilter(
+            @Nonnull final MavenProperties mavenProperties,
+            @Nonnull final BoundaryService boundaryService) {
+        assert mavenProperties != null;
+        assert boundaryService != null;
+        this.fingerprint = createFingerprint(mavenProperties.getPomVersion(), boundaryService.getBordersHash());
+        LOG.info("ConversionCacheFilter: version={}, borders={}, fingerprint={}",
+                mavenProperties.getPomVersion(), boundaryService.getBordersHash(), fingerprint);
+    }
+
+    @Override
+    public void filter(@Nonnull final ContainerRequestContext requestContext) {
+        final String ifNoneMatch = requestContext.getHeaderString(HttpHeaders.IF_NONE_MATCH);
+        if ((ifNoneMatch == null) || !isConversion(requestContext)) {
+            return;
+        }
+        final String etag = getEtag(requestContext.getHeaderString(HttpHeaders.ACCEPT));
+        if (CachedEntityFilter.matchesIfNoneMatch(ifNoneMatch, etag)) {
+            requestContext.abortWith(Response.notModified(etag).
+                    header(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL).
+                    header(HttpHeaders.VARY, HttpHeaders.ACCEPT).
+                    build());
+        }
+    }
+
+    @Override
+    public void filter(
+            @Nonnull final ContainerRequestContext requestContext,
+            @Nonnull final ContainerResponseContext responseContext) {
+        if ((responseContext.getStatus() != Response.Status.OK.getStatusCode()) || !isConversion(requestContext)) {
+            return;
+        }
+        final MultivaluedMap<String, Object> headers = responseContext.getHeaders();
+        headers.putSingle(HttpHeaders.ETAG, '"' + getEtag(requestContext.getHeaderString(HttpHeaders.ACCEPT)) + '"');
+        headers.putSingle(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL);
+        headers.putSingle(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+    }
+
+    /**
+     * Return the version fingerprint, which is part of every ETag.
+     *
+     * @return Fingerprint.
+     */
+    @Nonnull
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * Return the ETag of a conversion response, without quotes.
+     *
+     * @param accept Accept header of the request, may be null.
+     * @return ETag value.
+     */
+    @Nonnull
+    String getEtag(@Nullable final String accept) {
+        if ((accept == null) || accept.isEmpty()) {
+            return fingerprint;
+        }
+        return fingerprint + '-' + Integer.toHexString(accept.hashCode());
+    }
+
+    private static boolean isConversion(@Nonnull final ContainerRequestContext requestContext) {
+        return HttpMethod.GET.equals(requestContext.getMethod()) &&
+                CONVERSION_PATH.matcher(requestContext.getUriInfo().getPath()).matches();
+    }
+
+    @Nonnull
+    static String createFingerprint(@Nonnull final String pomVersion, @Nonnull final String bordersHash) {
+        try {
+            final byte[] digest = MessageDigest.getInstance("SHA-256").
+                    digest((pomVersion + '/' + bordersHash).getBytes(StandardCharsets.UTF_8));
+            return new String(Base64.getUrlEncoder().withoutPadding().encode(digest), StandardCharsets.US_ASCII).
+                    substring(0, FINGERPRINT_LENGTH);
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
+    }
+}
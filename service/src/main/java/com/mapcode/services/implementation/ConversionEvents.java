@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2016-2026, Stichting Mapcode Foundation (http://www.mapcode.com)
+ */
+package com.mapcode.services.implementation;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Java Flight Recorder events for the stages of a conversion request, so a slow request can be broken
+ * down in a recording: parameter parsing, encoding, decoding to rectangles, boundary lookup, DTO
+ * validation and serialization. The stages of a request are nested in time on the same thread.
+ *
+ * The events are cheap when no recording is running: begin() and commit() then do nothing, and the
+ * event objects are normally eliminated by escape analysis. Record them with, for example:
+ *
+ * <pre>
+ *     java -XX:StartFlightRecording:filename=mapcode.jfr,settings=profile -jar mapcode-rest-service.war
+ *     jfr print --categories Mapcode mapcode.jfr
+ * </pre>
+ *
+ * Usage follows the JFR pattern: create the event, call begin(), do the work, set the fields and
+ * call commit().
+ */
+public final class ConversionEvents {
+
+    private static final String CATEGORY = "Mapcode";
+    private static final String SUB_CATEGORY = "Conversion";
+
+    private ConversionEvents() {
+        // Prevent instantiation.
+    }
+
+    @Name("com.mapcode.Parse")
+    @Label("Parse Parameters")
+    @Category({CATEGORY, SUB_CATEGORY})
+    @Description("Parsing and checking the request parameters.")
+    @StackTrace(false)
+    static final class Parse extends Event {
+        @Label("Endpoint")
+        String endpoint;
+    }
+
+    @Name("com.mapcode.Encode")
+    @Label("Encode")
+    @Category({CATEGORY, SUB_CATEGORY})
+    @Description("Encoding a lat/lon to mapcodes.")
+    @StackTrace(false)
+    static final class Encode extends Event {
+        @Label("Endpoint")
+        String endpoint;
+
+        @Label("Territory")
+        String territory;
+
+        @Label("Mapcodes")
+        @Description("Number of mapcodes (all territories).")
+        int mapcodes;
+    }
+
+    @Name("com.mapcode.Rectangle")
+    @Label("Decode To Rectangle")
+    @Category({CATEGORY, SUB_CATEGORY})
+    @Description("Decoding the encoded mapcodes to their encompassing rectangles.")
+    @StackTrace(false)
+    static final class Rectangle extends Event {
+        @Label("Endpoint")
+        String endpoint;
+
+        @Label("Rectangles")
+        int rectangles;
+    }
+
+    @Name("com.mapcode.Decode")
+    @Label("Decode")
+    @Category({CATEGORY, SUB_CATEGORY})
+    @Description("Decoding a mapcode to a point or rectangle.")
+    @StackTrace(false)
+    static final class Decode extends Event {
+        @Label("Rectangle")
+        @Description("True if decoded to a rectangle, false if decoded to a point.")
+        boolean rectangle;
+
+        @Label("Found")
+        boolean found;
+    }
+
+    @Name("com.mapcode.BoundaryLookup")
+    @Label("Boundary Lookup")
+    @Category({CATEGORY, SUB_CATEGORY})
+    @Description("Finding the territories that contain a lat/lon.")
+    @StackTrace(false)
+    static final class BoundaryLookup extends Event {
+        @Label("Candidates")
+        @Description("Number of candidate polygons tested for containment.")
+        int candidates;
+
+        @Label("Territories")
+        @Description("Number of territories that contain the lat/lon.")
+        int territories;
+    }
+
+    @Name("com.mapcode.Validate")
+    @Label("Validate")
+    @Category({CATEGORY, SUB_CATEGORY})
+    @Description("Validating the result DTO.")
+    @StackTrace(false)
+    static final class Validate extends Event {
+        @Label("Endpoint")
+        String endpoint;
+
+        @Label("Type")
+        Class<?> type;
+    }
+
+    @Name("com.mapcode.Serialize")
+    @Label("Serialize")
+    @Category({CATEGORY, SUB_CATEGORY})
+    @Description("Writing a result DTO to the response.")
+    @StackTrace(false)
+    static final class Serialize extends Event {
+        @Label("Media Type")
+        String mediaType;
+
+        @Label("Type")
+        Class<?> type;
+    }
+}
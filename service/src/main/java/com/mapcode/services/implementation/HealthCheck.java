@@ -0,0 +1,230 @@
+/*
+ * Copyright (C) 2016-2026, Stichting Mapcode Foundation (http://www.mapcode.com)
+ */
+package com.mapcode.services.implementation;
+
+import com.mapcode.services.MapcodeResource;
+import com.mapcode.services.dto.MapcodeDTO;
+import com.mapcode.services.dto.PointDTO;
+import com.tomtom.speedtools.utils.MathUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import javax.ws.rs.core.Response;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Self-check of the service: a mapcode encode and decode round trip, run in the background at a fixed
+ * interval. The status resources return the cached result of the last check, so a probe never runs a
+ * conversion itself.
+ *
+ * The checks and the warm-up run on background threads, which are started by {@link #start()} and stopped
+ * by {@link #stop()}.
+ *
+ * The service is ready when the last check succeeded and the {@link WarmUp} is done; the health check starts
+ * the warm-up. Until the first check has completed, the status is pending: {@link #getStatus()} completes
+ * when it is known, {@link #isReady()} returns false.
+ *
+ * The round trip runs directly through a {@link MapcodeResourceImpl} of its own, like the warm-up, so the
+ * checks are not subject to rate limits or load shedding, and are not counted in the request metrics or
+ * the hot cells of the server.
+ *
+ * The interval is set with the system property "mapcode.health.interval" (in seconds, default 10).
+ */
+public class HealthCheck {
+    private static final Logger LOG = LoggerFactory.getLogger(HealthCheck.class);
+
+    public static final int DEFAULT_INTERVAL_SECS = 10;
+
+    private static final String PROPERTY_INTERVAL = "mapcode.health.interval";
+    private static final int TIMEOUT_SECS = 10;
+
+    // Round trip: this lat/lon must encode to the local mapcode, which must decode to the lat/lon again.
+    private static final double CHECK_LAT_DEG = 52.158974;
+    private static final double CHECK_LON_DEG = 4.492479;
+    private static final String CHECK_MAPCODE = "QJM.1G";
+    private static final String CHECK_TERRITORY = "NLD";
+
+    @Nonnull
+    private final MapcodeResource mapcodeResource;
+    @Nonnull
+    private final WarmUp warmUp;
+    @Nonnull
+    private final ScheduledExecutorService executor;
+    @Nonnull
+    private final CompletableFuture<Boolean> firstCheck = new CompletableFuture<>();
+    private final int intervalSecs;
+
+    private volatile boolean healthy = false;
+
+    // Guarded by 'this'.
+    private boolean started = false;
+
+    @Inject
+    public HealthCheck(@Nonnull final BoundaryService boundaryService, @Nonnull final WarmUp warmUp) {
+        this(new MapcodeResourceImpl(AdmissionProcessor.createDirect(), boundaryService), warmUp,
+                getIntervalSecs());
+    }
+
+    /**
+     * Create a health check of a given resource.
+     *
+     * @param mapcodeResource Resource to run the round trip on; it should not go through admission control.
+     * @param warmUp          Warm-up to start with the checks.
+     * @param intervalSecs    Interval between checks, in seconds.
+     */
+    public HealthCheck(
+            @Nonnull final MapcodeResource mapcodeResource,
+            @Nonnull final WarmUp warmUp,
+            final int intervalSecs) {
+        assert mapcodeResource != null;
+        assert warmUp != null;
+        assert intervalSecs > 0;
+        this.mapcodeResource = mapcodeResource;
+        this.warmUp = warmUp;
+        this.intervalSecs = intervalSecs;
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "mapcode-health-check");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Start running checks, the first one immediately, and start the warm-up. Does nothing if the checks
+     * have started already.
+     */
+    public synchronized void start() {
+        if (started) {
+            return;
+        }
+        started = true;
+        executor.scheduleWithFixedDelay(this::update, 0, intervalSecs, TimeUnit.SECONDS);
+        warmUp.start();
+        LOG.info("start: interval={}s", intervalSecs);
+    }
+
+    /**
+     * Return the result of the last check. If no check has completed yet, the returned stage completes with
+     * the result of the first check.
+     *
+     * @return True if the service is healthy.
+     */
+    @Nonnull
+    public CompletionStage<Boolean> getStatus() {
+        return firstCheck.isDone() ? CompletableFuture.completedFuture(healthy) : firstCheck;
+    }
+
+    /**
+     * Return whether the service is ready to handle requests: a check has completed and it succeeded, and
+     * the warm-up is done.
+     *
+     * @return True if ready.
+     */
+    public boolean isReady() {
+        return isHealthy() && warmUp.isDone();
+    }
+
+    /**
+     * Return whether the last check succeeded.
+     *
+     * @return True if a check has completed and it succeeded.
+     */
+    public boolean isHealthy() {
+        return firstCheck.isDone() && healthy;
+    }
+
+    @Nonnull
+    public WarmUp getWarmUp() {
+        return warmUp;
+    }
+
+    /**
+     * Stop running checks, and the warm-up if it is still running. The checks cannot be started again.
+     */
+    public synchronized void stop() {
+        started = true;     // Prevent starting the checks on an executor that was shut down.
+        executor.shutdownNow();
+        warmUp.stop();
+    }
+
+    private void update() {
+        final boolean ok = check();
+        if (ok != healthy) {
+            LOG.info("update: service is {}", ok ? "healthy" : "not healthy");
+        }
+        healthy = ok;
+        firstCheck.complete(ok);
+    }
+
+    /**
+     * Run a single check. Never throws, as that would cancel the scheduled checks.
+     *
+     * @return True if the round trip succeeded.
+     */
+    boolean check() {
+        try {
+            final TestAsyncResponse encoded = new TestAsyncResponse();
+            mapcodeResource.convertLatLonToMapcode(String.valueOf(CHECK_LAT_DEG), String.valueOf(CHECK_LON_DEG),
+                    "local", "0", CHECK_TERRITORY, null, null, null, "", "", "false", encoded);
+            final Object encodedEntity = getEntity(encoded);
+            if (!(encodedEntity instanceof MapcodeDTO) ||
+                    !CHECK_MAPCODE.equals(((MapcodeDTO) encodedEntity).getMapcode()) ||
+                    !CHECK_TERRITORY.equals(((MapcodeDTO) encodedEntity).getTerritory())) {
+                LOG.warn("check: unexpected encode result: {}", encodedEntity);
+                return false;
+            }
+
+            final TestAsyncResponse decoded = new TestAsyncResponse();
+            mapcodeResource.convertMapcodeToLatLon(CHECK_MAPCODE, CHECK_TERRITORY, null, "", "", "false", decoded);
+            final Object decodedEntity = getEntity(decoded);
+            if (!(decodedEntity instanceof PointDTO) ||
+                    !MathUtils.isAlmostEqual(CHECK_LAT_DEG, ((PointDTO) decodedEntity).getLatDeg()) ||
+                    !MathUtils.isAlmostEqual(CHECK_LON_DEG, ((PointDTO) decodedEntity).getLonDeg())) {
+                LOG.warn("check: unexpected decode result: {}", decodedEntity);
+                return false;
+            }
+            return true;
+        } catch (final InterruptedException ignored) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (final RuntimeException | ExecutionException | TimeoutException e) {
+            LOG.warn("check: round trip failed", e);
+            return false;
+        }
+    }
+
+    @Nullable
+    private static Object getEntity(@Nonnull final TestAsyncResponse asyncResponse)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        final Object response = asyncResponse.getFuture().get(TIMEOUT_SECS, TimeUnit.SECONDS);
+        return (response instanceof Response) ? ((Response) response).getEntity() : String.valueOf(response);
+    }
+
+    private static int getIntervalSecs() {
+        final String raw = System.getProperty(PROPERTY_INTERVAL);
+        if (raw == null) {
+            return DEFAULT_INTERVAL_SECS;
+        }
+        try {
+            final int value = Integer.parseInt(raw.trim());
+            if (value > 0) {
+                return value;
+            }
+        } catch (final NumberFormatException ignored) {
+            // Fall through.
+        }
+        LOG.warn("HealthCheck: ignoring invalid {}='{}', using default {}", PROPERTY_INTERVAL, raw,
+                DEFAULT_INTERVAL_SECS);
+        return DEFAULT_INTERVAL_SECS;
+    }
+}
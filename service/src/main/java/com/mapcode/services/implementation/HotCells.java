@@ -0,0 +1,383 @@
+/*
+ * Copyright (C) 2016-2026, Stichting Mapcode Foundation (http://www.mapcode.com)
+ */
+package com.mapcode.services.implementation;
+
+import com.mapcode.MapcodeCodec;
+import com.mapcode.Point;
+import com.mapcode.Territory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Approximate statistics of the hot spots of the traffic: how often points in cells of 0.1 by 0.1 degrees
+ * were converted, and how often mapcodes were decoded. Requests tend to come from a few metro areas, so a
+ * bounded number of counters covers almost all of them; requests for cells or mapcodes beyond that bound
+ * are not counted.
+ *
+ * The statistics are saved to a file periodically (and when stopped), after which the counts are halved,
+ * so old hot spots fade out and new ones can take their place. On start-up the file is read back, and
+ * {@link #preload()} looks up the hottest cells (and the points of the hottest mapcodes), so the prepared
+ * geometry cache of the {@link BoundaryService} starts with the working set of the previous run.
+ *
+ * The statistics are disabled unless the system property "mapcode.hotcells.file" is set. The save interval
+ * is set with "mapcode.hotcells.interval" (in seconds, default 300).
+ */
+public class HotCells {
+    private static final Logger LOG = LoggerFactory.getLogger(HotCells.class);
+
+    public static final int DEFAULT_INTERVAL_SECS = 300;
+
+    private static final String PROPERTY_FILE = "mapcode.hotcells.file";
+    private static final String PROPERTY_INTERVAL = "mapcode.hotcells.interval";
+
+    private static final double CELL_DEG = 0.1;
+    private static final int CELLS_PER_ROW = (int) Math.round(360.0 / CELL_DEG);
+    private static final int MAX_CELLS = 10000;
+    private static final int MAX_MAPCODES = 10000;
+
+    private static final String HEADER = "# mapcode hot cells v1";
+    private static final String TYPE_CELL = "cell";
+    private static final String TYPE_MAPCODE = "mapcode";
+    private static final char SEPARATOR = '\t';
+
+    @Nonnull
+    private final BoundaryService boundaryService;
+    @Nullable
+    private final Path file;
+    @Nonnull
+    private final CounterTable<Integer> cells = new CounterTable<>(MAX_CELLS);
+    @Nonnull
+    private final CounterTable<String> mapcodes = new CounterTable<>(MAX_MAPCODES);
+    @Nullable
+    private final ScheduledExecutorService executor;
+    @Nonnull
+    private final AtomicBoolean stopped = new AtomicBoolean(false);
+
+    @Inject
+    public HotCells(@Nonnull final BoundaryService boundaryService) {
+        this(boundaryService, getFile(), getIntervalSecs());
+    }
+
+    /**
+     * Create the statistics, and read back the statistics saved by a previous run, if any.
+     *
+     * @param boundaryService Boundary service to preload.
+     * @param file            File to save the statistics to, or null to disable them.
+     * @param intervalSecs    Interval between saves, in seconds, or 0 to only save when stopped.
+     */
+    public HotCells(@Nonnull final BoundaryService boundaryService, @Nullable final Path file, final int intervalSecs) {
+        assert boundaryService != null;
+        assert intervalSecs >= 0;
+        this.boundaryService = boundaryService;
+        this.file = file;
+        if ((file == null) || (intervalSecs == 0)) {
+            this.executor = null;
+        } else {
+            this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                final Thread thread = new Thread(runnable, "mapcode-hot-cells");
+                thread.setDaemon(true);
+                return thread;
+            });
+            executor.scheduleWithFixedDelay(this::save, intervalSecs, intervalSecs, TimeUnit.SECONDS);
+        }
+        if (file != null) {
+            load(file);
+            LOG.info("HotCells: file={}, interval={}s, {} cells, {} mapcodes", file, intervalSecs,
+                    cells.size(), mapcodes.size());
+        }
+    }
+
+    public boolean isEnabled() {
+        return file != null;
+    }
+
+    /**
+     * Count a request for a point.
+     *
+     * @param latDeg Latitude.
+     * @param lonDeg Longitude.
+     */
+    public void recordPoint(final double latDeg, final double lonDeg) {
+        if (file != null) {
+            cells.increment(toCell(latDeg, lonDeg), 1);
+        }
+    }
+
+    /**
+     * Count a request for a mapcode.
+     *
+     * @param code    Mapcode.
+     * @param context Territory context, or null if none.
+     */
+    public void recordMapcode(@Nonnull final String code, @Nullable final Territory context) {
+        if (file != null) {
+            mapcodes.increment(toKey(code, context), 1);
+        }
+    }
+
+    /**
+     * Look up the territories of the hottest cells, and of the points of the hottest mapcodes, to fill the
+     * prepared geometry cache of the boundary service. The cells are looked up in order of increasing
+     * count, so the hottest cells are the most recently used ones in the cache. At most as many cells are
+     * looked up as the cache holds geometries.
+     *
+     * @return Number of cells looked up.
+     */
+    public int preload() {
+        if (file == null) {
+            return 0;
+        }
+        final long startNanos = System.nanoTime();
+
+        // Mapcodes count for the cells of their points.
+        final Map<Integer, Long> counts = new HashMap<>(cells.snapshot());
+        for (final Map.Entry<String, Long> entry : mapcodes.snapshot().entrySet()) {
+            final Integer cell = decodeToCell(entry.getKey());
+            if (cell != null) {
+                counts.merge(cell, entry.getValue(), Long::sum);
+            }
+        }
+        final List<Map.Entry<Integer, Long>> hottest = new ArrayList<>(counts.entrySet());
+        hottest.sort(Map.Entry.<Integer, Long>comparingByValue().reversed());
+        final List<Map.Entry<Integer, Long>> preloaded =
+                hottest.subList(0, Math.min(hottest.size(), boundaryService.getPreparedCacheCapacity()));
+        for (int i = preloaded.size() - 1; i >= 0; --i) {
+            final int cell = preloaded.get(i).getKey();
+            boundaryService.lookup(toLatDeg(cell), toLonDeg(cell));
+        }
+        LOG.info("preload: looked up {} of {} hot cells in {} ms, boundary cache {} of {} geometries",
+                preloaded.size(), hottest.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos),
+                boundaryService.preparedCacheSize(), boundaryService.getPreparedCacheCapacity());
+        return preloaded.size();
+    }
+
+    /**
+     * Save the statistics to the file and halve the counts. Does nothing if the statistics are disabled.
+     */
+    public synchronized void save() {
+        if (file == null) {
+            return;
+        }
+        final Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            final Path parent = file.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            try (final BufferedWriter writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+                writer.write(HEADER);
+                writer.newLine();
+                for (final Map.Entry<Integer, Long> entry : cells.snapshot().entrySet()) {
+                    final int cell = entry.getKey();
+                    writer.write(TYPE_CELL + SEPARATOR + String.format(Locale.ROOT, "%.2f", toLatDeg(cell)) +
+                            SEPARATOR + String.format(Locale.ROOT, "%.2f", toLonDeg(cell)) +
+                            SEPARATOR + entry.getValue());
+                    writer.newLine();
+                }
+                for (final Map.Entry<String, Long> entry : mapcodes.snapshot().entrySet()) {
+                    writer.write(TYPE_MAPCODE + SEPARATOR + entry.getKey() + SEPARATOR + entry.getValue());
+                    writer.newLine();
+                }
+            }
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            LOG.debug("save: saved {} cells and {} mapcodes to {}", cells.size(), mapcodes.size(), file);
+        } catch (final IOException | RuntimeException e) {
+            LOG.warn("save: cannot save hot cells to {}: {}", file, e.getMessage());
+            return;
+        }
+        cells.halve();
+        mapcodes.halve();
+    }
+
+    /**
+     * Stop saving periodically, and save the statistics a last time. Only the first call has an effect, so
+     * the counts are not halved again if the statistics are stopped more than once.
+     */
+    public void stop() {
+        if (!stopped.compareAndSet(false, true)) {
+            return;
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+        save();
+    }
+
+    public int getCellCount() {
+        return cells.size();
+    }
+
+    public int getMapcodeCount() {
+        return mapcodes.size();
+    }
+
+    private void load(@Nonnull final Path path) {
+        if (!Files.isRegularFile(path)) {
+            return;
+        }
+        int lineNumber = 0;
+        try (final BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                ++lineNumber;
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                final String[] fields = line.split(String.valueOf(SEPARATOR), -1);
+                try {
+                    if (TYPE_CELL.equals(fields[0]) && (fields.length == 4)) {
+                        cells.increment(toCell(Double.parseDouble(fields[1]), Double.parseDouble(fields[2])),
+                                Long.parseLong(fields[3]));
+                        continue;
+                    }
+                    if (TYPE_MAPCODE.equals(fields[0]) && (fields.length == 4)) {
+                        mapcodes.increment(fields[1] + SEPARATOR + fields[2], Long.parseLong(fields[3]));
+                        continue;
+                    }
+                } catch (final NumberFormatException ignored) {
+                    // Fall through.
+                }
+                LOG.warn("load: ignoring invalid line {} of {}", lineNumber, path);
+            }
+        } catch (final IOException e) {
+            LOG.warn("load: cannot read hot cells from {} (line {}): {}", path, lineNumber, e.getMessage());
+        }
+    }
+
+    @Nullable
+    private static Integer decodeToCell(@Nonnull final String key) {
+        final int separator = key.indexOf(SEPARATOR);
+        final String code = key.substring(0, separator);
+        final String context = key.substring(separator + 1);
+        try {
+            final Point point = MapcodeCodec.decode(code, context.isEmpty() ? null : Territory.valueOf(context));
+            return toCell(point.getLatDeg(), point.getLonDeg());
+        } catch (final Exception ignored) {
+            // Not a (valid) mapcode anymore.
+            return null;
+        }
+    }
+
+    @Nonnull
+    private static String toKey(@Nonnull final String code, @Nullable final Territory context) {
+        return code + SEPARATOR + ((context == null) ? "" : context.name());
+    }
+
+    private static int toCell(final double latDeg, final double lonDeg) {
+        final int row = (int) Math.min(Math.floor((latDeg + 90.0) / CELL_DEG), (180.0 / CELL_DEG) - 1);
+        final int column = (int) Math.min(Math.floor((lonDeg + 180.0) / CELL_DEG), CELLS_PER_ROW - 1);
+        return (row * CELLS_PER_ROW) + column;
+    }
+
+    private static double toLatDeg(final int cell) {
+        return -90.0 + (((cell / CELLS_PER_ROW) + 0.5) * CELL_DEG);
+    }
+
+    private static double toLonDeg(final int cell) {
+        return -180.0 + (((cell % CELLS_PER_ROW) + 0.5) * CELL_DEG);
+    }
+
+    @Nullable
+    private static Path getFile() {
+        final String raw = System.getProperty(PROPERTY_FILE);
+        return ((raw == null) || raw.trim().isEmpty()) ? null : Paths.get(raw.trim());
+    }
+
+    private static int getIntervalSecs() {
+        final String raw = System.getProperty(PROPERTY_INTERVAL);
+        if (raw == null) {
+            return DEFAULT_INTERVAL_SECS;
+        }
+        try {
+            final int value = Integer.parseInt(raw.trim());
+            if (value >= 0) {
+                return value;
+            }
+        } catch (final NumberFormatException ignored) {
+            // Fall through.
+        }
+        LOG.warn("HotCells: ignoring invalid {}='{}', using default {}", PROPERTY_INTERVAL, raw,
+                DEFAULT_INTERVAL_SECS);
+        return DEFAULT_INTERVAL_SECS;
+    }
+
+    /**
+     * A bounded table of approximate counters. Counting is lock-free; once the table is full, new keys are
+     * not counted until halving has removed keys that are no longer counted.
+     */
+    private static final class CounterTable<K> {
+        private final int maxSize;
+        @Nonnull
+        private final ConcurrentHashMap<K, LongAdder> counters = new ConcurrentHashMap<>();
+
+        private CounterTable(final int maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        private void increment(@Nonnull final K key, final long count) {
+            LongAdder counter = counters.get(key);
+            if (counter == null) {
+                if (counters.size() >= maxSize) {
+                    return;
+                }
+                counter = counters.computeIfAbsent(key, k -> new LongAdder());
+            }
+            counter.add(count);
+        }
+
+        @Nonnull
+        private Map<K, Long> snapshot() {
+            final Map<K, Long> snapshot = new HashMap<>(counters.size());
+            counters.forEach((key, counter) -> {
+                final long count = counter.sum();
+                if (count > 0) {
+                    snapshot.put(key, count);
+                }
+            });
+            return snapshot;
+        }
+
+        /**
+         * Halve all counts, and remove the keys whose count drops to 0. Counts that are added concurrently
+         * may be lost; the counts are approximate anyway.
+         */
+        private void halve() {
+            counters.forEach((key, counter) -> {
+                final long count = counter.sumThenReset();
+                if (count > 1) {
+                    counter.add(count / 2);
+                } else {
+                    counters.remove(key, counter);
+                }
+            });
+        }
+
+        private int size() {
+            return counters.size();
+        }
+    }
+}
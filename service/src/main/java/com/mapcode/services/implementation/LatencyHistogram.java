@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2016-2026, Stichting Mapcode Foundation (http://www.mapcode.com)
+ */
+package com.mapcode.services.implementation;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram, with the same bucket layout as an HdrHistogram with 1 significant digit:
+ * values are recorded in microseconds, exactly up to 16 us and with a relative error of at most 1/8
+ * above that. Values above about 38 hours are recorded as 38 hours.
+ *
+ * Recording is a single atomic increment and can be done concurrently from any thread. Quantiles are
+ * computed from a snapshot of the buckets, so they may lag concurrent recordings slightly.
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;          // Buckets per power of 2.
+    private static final int LINEAR_BUCKETS = 2 * SUB_BUCKETS;            // Values below this are exact.
+    private static final int MAX_VALUE_BITS = 37;
+    private static final long MAX_VALUE_MICROS = (1L << MAX_VALUE_BITS) - 1;
+    private static final int NR_BUCKETS = getIndex(MAX_VALUE_MICROS) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(NR_BUCKETS);
+    private final LongAdder sumNanos = new LongAdder();
+
+    /**
+     * Record a duration.
+     *
+     * @param nanos Duration in nanoseconds. Negative values are recorded as 0.
+     */
+    public void record(final long nanos) {
+        final long value = Math.max(0, nanos);
+        counts.incrementAndGet(getIndex(Math.min(TimeUnit.NANOSECONDS.toMicros(value), MAX_VALUE_MICROS)));
+        sumNanos.add(value);
+    }
+
+    public long getCount() {
+        long count = 0;
+        for (int i = 0; i < NR_BUCKETS; ++i) {
+            count += counts.get(i);
+        }
+        return count;
+    }
+
+    public long getSumNanos() {
+        return sumNanos.sum();
+    }
+
+    /**
+     * Return the value at a quantile: the highest value that is equivalent (within the precision of the
+     * histogram) to the value below which the given fraction of the recorded values lie.
+     *
+     * @param quantile Quantile, in [0, 1].
+     * @return Value in microseconds, or 0 if nothing was recorded.
+     */
+    public long getValueAtQuantileMicros(final double quantile) {
+        assert (0.0 <= quantile) && (quantile <= 1.0);
+        final long[] snapshot = new long[NR_BUCKETS];
+        long total = 0;
+        for (int i = 0; i < NR_BUCKETS; ++i) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        final long target = Math.max(1, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        for (int i = 0; i < NR_BUCKETS; ++i) {
+            seen += snapshot[i];
+            if (seen >= target) {
+                return getUpperBound(i) - 1;
+            }
+        }
+        return MAX_VALUE_MICROS;
+    }
+
+    static int getIndex(final long micros) {
+        if (micros < LINEAR_BUCKETS) {
+            return (int) micros;
+        }
+        final int shift = (63 - Long.numberOfLeadingZeros(micros)) - SUB_BUCKET_BITS;
+        return ((shift + 1) * SUB_BUCKETS) + (int) (micros >>> shift) - SUB_BUCKETS;
+    }
+
+    static long getLowerBound(final int index) {
+        if (index < LINEAR_BUCKETS) {
+            return index;
+        }
+        final int shift = (index / SUB_BUCKETS) - 1;
+        return ((long) ((index % SUB_BUCKETS) + SUB_BUCKETS)) << shift;
+    }
+
+    static long getUpperBound(final int index) {
+        return (index < LINEAR_BUCKETS) ? (index + 1) : (getLowerBound(index) + (1L << ((index / SUB_BUCKETS) - 1)));
+    }
+}
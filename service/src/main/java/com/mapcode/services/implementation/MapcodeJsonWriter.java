@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2016-2026, Stichting Mapcode Foundation (http://www.mapcode.com)
+ */
+package com.mapcode.services.implementation;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.mapcode.services.dto.MapcodeDTO;
+import com.mapcode.services.dto.MapcodesDTO;
+import com.mapcode.services.dto.PointDTO;
+import com.mapcode.services.dto.RectangleDTO;
+import com.tomtom.speedtools.apivalidation.ApiDTO;
+
+import javax.annotation.Nonnull;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.MessageBodyWriter;
+import javax.ws.rs.ext.Provider;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * JSON writer for the DTOs of the conversion responses: {@link MapcodesDTO}, {@link MapcodeDTO},
+ * {@link PointDTO} and {@link RectangleDTO}. The DTOs stream themselves into the output with a
+ * {@link JsonGenerator} and pre-encoded field names (see their writeJson methods), instead of going
+ * through the reflection-based serializers and the validating getters.
+ *
+ * The output is byte-identical to that of the generic JSON provider: fields are written in declaration
+ * order and null or empty values are omitted, as specified by the {@code @JsonInclude(NON_EMPTY)}
+ * annotations of the DTOs.
+ */
+@Provider
+@Produces(MediaType.APPLICATION_JSON)
+public class MapcodeJsonWriter implements MessageBodyWriter<ApiDTO> {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory().
+            disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+    private static final int INITIAL_BUFFER_SIZE = 512;
+
+    /**
+     * Return whether this writer can write a type of DTO.
+     *
+     * @param type Type of DTO.
+     * @return True if the DTO is written by this writer.
+     */
+    public static boolean isSupported(@Nonnull final Class<?> type) {
+        return (type == MapcodesDTO.class) || (type == MapcodeDTO.class) ||
+                (type == PointDTO.class) || (type == RectangleDTO.class);
+    }
+
+    /**
+     * Write a DTO as a JSON string.
+     *
+     * @param dto DTO, of a supported type.
+     * @return JSON string.
+     * @throws IOException If the DTO cannot be written.
+     */
+    @Nonnull
+    public static String writeValueAsString(@Nonnull final ApiDTO dto) throws IOException {
+        assert dto != null;
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(INITIAL_BUFFER_SIZE);
+        writeValue(dto, out);
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Write a DTO as JSON to an output stream. The stream is flushed, but not closed.
+     *
+     * @param dto DTO, of a supported type.
+     * @param out Output stream.
+     * @throws IOException If the DTO cannot be written.
+     */
+    public static void writeValue(@Nonnull final ApiDTO dto, @Nonnull final OutputStream out) throws IOException {
+        assert dto != null;
+        assert out != null;
+        try (final JsonGenerator gen = JSON_FACTORY.createGenerator(out, JsonEncoding.UTF8)) {
+            if (dto instanceof MapcodesDTO) {
+                ((MapcodesDTO) dto).writeJson(gen);
+            } else if (dto instanceof MapcodeDTO) {
+                ((MapcodeDTO) dto).writeJson(gen);
+            } else if (dto instanceof PointDTO) {
+                ((PointDTO) dto).writeJson(gen);
+            } else if (dto instanceof RectangleDTO) {
+                ((RectangleDTO) dto).writeJson(gen);
+            } else {
+                throw new IllegalArgumentException("Unsupported DTO: " + dto.getClass().getSimpleName());
+            }
+        }
+    }
+
+    @Override
+    public boolean isWriteable(
+            @Nonnull final Class<?> type,
+            @Nonnull final Type genericType,
+            @Nonnull final Annotation[] annotations,
+            @Nonnull final MediaType mediaType) {
+        return isSupported(type);
+    }
+
+    @Override
+    public long getSize(
+            @Nonnull final ApiDTO dto,
+            @Nonnull final Class<?> type,
+            @Nonnull final Type genericType,
+            @Nonnull final Annotation[] annotations,
+            @Nonnull final MediaType mediaType) {
+        return -1;
+    }
+
+    @Override
+    public void writeTo(
+            @Nonnull final ApiDTO dto,
+            @Nonnull final Class<?> type,
+            @Nonnull final Type genericType,
+            @Nonnull final Annotation[] annotations,
+            @Nonnull final MediaType mediaType,
+            @Nonnull final MultivaluedMap<String, Object> httpHeaders,
+            @Nonnull final OutputStream entityStream) throws IOException {
+        final ConversionEvents.Serialize event = new ConversionEvents.Serialize();
+        event.begin();
+        writeValue(dto, entityStream);
+        if (event.shouldCommit()) {
+            event.mediaType = mediaType.getType() + '/' + mediaType.getSubtype();
+            event.type = type;
+            event.commit();
+        }
+    }
+}
@@ -17,18 +17,22 @@
 package com.mapcode.services.implementation;
 
 import akka.dispatch.Futures;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.base.Joiner;
 import com.mapcode.*;
 import com.mapcode.Territory.AlphaCodeFormat;
 import com.mapcode.services.ApiConstants;
 import com.mapcode.services.MapcodeResource;
 import com.mapcode.services.dto.*;
+import com.mapcode.services.implementation.AdmissionProcessor.Lane;
+import com.mapcode.services.implementation.ServerTiming.Stage;
 import com.tomtom.speedtools.apivalidation.ApiDTO;
 import com.tomtom.speedtools.apivalidation.exceptions.*;
 import com.tomtom.speedtools.geometry.Geo;
 import com.tomtom.speedtools.geometry.GeoPoint;
-import com.tomtom.speedtools.objects.Tuple;
-import com.tomtom.speedtools.rest.ResourceProcessor;
+import com.tomtom.speedtools.rest.GeneralExceptionMapper;
 import com.tomtom.speedtools.time.UTCTime;
 import com.tomtom.speedtools.tracer.Traceable;
 import com.tomtom.speedtools.tracer.TracerFactory;
@@ -44,13 +48,23 @@ import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.ws.rs.container.AsyncResponse;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Comparator;
+import java.util.Collections;
+import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 /**
  * This class implements the REST API that handles mapcode conversions.
@@ -59,8 +73,9 @@ public class MapcodeResourceImpl implements MapcodeResource {
     private static final Logger LOG = LoggerFactory.getLogger(MapcodeResourceImpl.class);
     private static final Tracer TRACER = TracerFactory.getTracer(MapcodeResourceImpl.class, Tracer.class);
 
-    private final ResourceProcessor processor;
+    private final AdmissionProcessor processor;
     private final BoundaryService boundaryService;
+    private final HotCells hotCells;
 
     private static final String API_ERROR_VALID_TERRITORY_CODES = Joiner.on('|').join(Arrays.stream(Territory.values()).
             collect(Collectors.toList()));
@@ -79,20 +94,44 @@ public class MapcodeResourceImpl implements MapcodeResource {
     private static final TerritoryListDTO ALL_TERRITORY_DTO = new TerritoryListDTO(Territory.values());
     private static final AlphabetListDTO ALL_ALPHABET_DTO = new AlphabetListDTO(Alphabet.values());
 
+    // Used to read and write single lines of a streaming request; thread-safe after configuration.
+    private static final ObjectMapper JSON_MAPPER = new ObjectMapper();
+
+    // Territory and alphabet responses never change, so they are cached (for at most this many requests).
+    private static final int MAX_CACHED_ENTITIES = 4096;
+    private final ConcurrentHashMap<String, CachedEntity> cachedEntities = new ConcurrentHashMap<>();
+
     /**
      * The constructor is called by Google Guice at start-up time and gets a processor injected
      * to executed web requests on.
      *
-     * @param processor        Processor to process web requests on.
+     * @param processor        Processor to admit and process web requests on.
+     * @param boundaryService  Service to find territories by their borders.
+     * @param hotCells         Statistics of the requested points and mapcodes.
      */
     @Inject
     public MapcodeResourceImpl(
-            @Nonnull final ResourceProcessor processor,
-            @Nonnull final BoundaryService boundaryService) {
+            @Nonnull final AdmissionProcessor processor,
+            @Nonnull final BoundaryService boundaryService,
+            @Nonnull final HotCells hotCells) {
         assert processor != null;
         assert boundaryService != null;
+        assert hotCells != null;
         this.processor = processor;
         this.boundaryService = boundaryService;
+        this.hotCells = hotCells;
+    }
+
+    /**
+     * Create a resource that does not keep statistics of the requested points and mapcodes.
+     *
+     * @param processor        Processor to admit and process web requests on.
+     * @param boundaryService  Service to find territories by their borders.
+     */
+    public MapcodeResourceImpl(
+            @Nonnull final AdmissionProcessor processor,
+            @Nonnull final BoundaryService boundaryService) {
+        this(processor, boundaryService, new HotCells(boundaryService, null, 0));
     }
 
     @Override
@@ -100,7 +139,7 @@ public class MapcodeResourceImpl implements MapcodeResource {
             @Nonnull final AsyncResponse response) throws ApiInvalidFormatException {
 
         // This method is forbidden. In REST terms, this should return ALL potential mapcodes - intractable.
-        processor.process("convertLatLonToMapcode", LOG, response, () -> {
+        processor.process(Lane.CONVERSION, null, "convertLatLonToMapcode", LOG, response, () -> {
             throw new ApiForbiddenException("Missing URL path parameters: /{lat,lon}/{" + API_ERROR_VALID_TYPES.toLowerCase() + '}');
         });
     }
@@ -139,49 +178,28 @@ public class MapcodeResourceImpl implements MapcodeResource {
             @Nonnull final AsyncResponse response) throws ApiInvalidFormatException {
         assert response != null;
 
-        processor.process("convertLatLonToMapcode", LOG, response, () -> {
+        processor.process(Lane.CONVERSION, paramClient, "convertLatLonToMapcode", LOG, response, () -> {
             // Get debug mode.
             final boolean allowLog = "true".equalsIgnoreCase(paramAllowLog);
+            if (allowLog) {
+                LOG.info("convertLatLonToMapcode: lat={}, lon={}, precision={}, type={}, context={}, alphabet={}, include={}, client={}, allowLog={}",
+                        paramLatDegAsString, paramLonDegAsString, paramPrecisionAsString, paramType, paramTerritory, paramAlphabet, paramInclude, paramClient,
+                        paramAllowLog);
+            }
+            final ServerTiming timing = ServerTiming.current();
+            final long parseStart = timing.start();
+            final ConversionEvents.Parse parseEvent = new ConversionEvents.Parse();
+            parseEvent.begin();
 
-            LOG.info("convertLatLonToMapcode: lat={}, lon={}, precision={}, type={}, context={}, alphabet={}, include={}, client={}, allowLog={}",
-                    paramLatDegAsString, paramLonDegAsString, paramPrecisionAsString, paramType, paramTerritory, paramAlphabet, paramInclude, paramClient,
-                    paramAllowLog);
             // Prevent 'context' from inadvertently being specified.
             if (paramContextMustBeNull != null) {
                 throw new ApiInvalidFormatException(PARAM_CONTEXT, paramContextMustBeNull, "null");
             }
 
-            // Check lat range.
-            final double latDeg;
-            try {
-                latDeg = Double.valueOf(StringUtils.nullToEmpty(paramLatDegAsString));
-                if (!MathUtils.isBetween(latDeg, ApiConstants.API_LAT_MIN, ApiConstants.API_LAT_MAX)) {
-                    throw new NumberFormatException(paramLatDegAsString);
-                }
-            } catch (final NumberFormatException e) {
-                throw new ApiInvalidFormatException(PARAM_LAT_DEG, paramLatDegAsString,
-                        "[" + ApiConstants.API_LAT_MIN + ", " + ApiConstants.API_LAT_MAX + ']');
-            }
-
-            // Check lon range.
-            final double lonDeg;
-            try {
-                lonDeg = Geo.mapToLon(Double.valueOf(StringUtils.nullToEmpty(paramLonDegAsString)));
-            } catch (final NumberFormatException e) {
-                throw new ApiInvalidFormatException(PARAM_LAT_DEG, paramLonDegAsString, "Double");
-            }
-
-            // Check precision.
-            final int precision;
-            try {
-                precision = Integer.valueOf(StringUtils.nullToEmpty(paramPrecisionAsString));
-                if (!MathUtils.isBetween(precision, ApiConstants.API_PRECISION_MIN, ApiConstants.API_PRECISION_MAX)) {
-                    throw new NumberFormatException(paramPrecisionAsString);
-                }
-            } catch (final NumberFormatException e) {
-                throw new ApiInvalidFormatException(PARAM_PRECISION, paramPrecisionAsString, "[" + ApiConstants.API_PRECISION_MIN +
-                        ", " + ApiConstants.API_PRECISION_MAX + ']');
-            }
+            // Check lat, lon and precision.
+            final double latDeg = parseLatDeg(paramLatDegAsString);
+            final double lonDeg = parseLonDeg(paramLonDegAsString);
+            final int precision = parsePrecision(paramPrecisionAsString);
 
             // Check if either paramTerritory or paramCountry is set (or neither).
             if ((paramTerritory != null) && (paramCountry != null)) {
@@ -192,11 +210,7 @@ public class MapcodeResourceImpl implements MapcodeResource {
             @Nullable Territory territory = null;
             @Nullable String country = null;
             if (paramTerritory != null) {
-                try {
-                    territory = resolveTerritory(StringEscapeUtils.unescapeHtml4(paramTerritory), null);
-                } catch (final IllegalArgumentException ignored) {
-                    throw new ApiInvalidFormatException(PARAM_TERRITORY, paramTerritory, API_ERROR_VALID_TERRITORY_CODES);
-                }
+                territory = parseTerritory(paramTerritory);
             } else if (paramCountry != null) {
                 try {
                     final String countryUnescaped = StringEscapeUtils.unescapeHtml4(paramCountry);
@@ -214,12 +228,7 @@ public class MapcodeResourceImpl implements MapcodeResource {
             }
 
             // Get the alphabet.
-            final Alphabet alphabet;
-            try {
-                alphabet = (paramAlphabet != null) ? Alphabet.fromString(paramAlphabet) : null;
-            } catch (final IllegalArgumentException ignored) {
-                throw new ApiInvalidFormatException(PARAM_ALPHABET, paramAlphabet, API_ERROR_VALID_ALPHABET_CODES);
-            }
+            final Alphabet alphabet = parseAlphabet(paramAlphabet);
 
             // Check type.
             ParamType type = null;
@@ -231,37 +240,11 @@ public class MapcodeResourceImpl implements MapcodeResource {
                 }
             }
 
-            // Need to store in finals, for lambda functions.
-            final boolean includeOffset;
-            final boolean includeTerritory;
-            final boolean includeAlphabet;
-            final boolean includeRectangle;
-            {
-                // Determine whether include=offset and territory=xxx were supplied as URL parameters.
-                boolean foundIncludeOffset = false;
-                boolean foundIncludeTerritory = false;
-                boolean foundIncludeAlphabet = false;
-                boolean foundIncludeRectangle = false;
-                for (final String arg : paramInclude.toUpperCase().split(",")) {
-                    if (!arg.isEmpty()) {
-                        try {
-                            final ParamInclude include = ParamInclude.valueOf(arg);
-                            foundIncludeOffset = foundIncludeOffset || (include == ParamInclude.OFFSET);
-                            foundIncludeTerritory = foundIncludeTerritory || (include == ParamInclude.TERRITORY);
-                            foundIncludeAlphabet = foundIncludeAlphabet || (include == ParamInclude.ALPHABET);
-                            foundIncludeRectangle = foundIncludeRectangle || (include == ParamInclude.RECTANGLE);
-                        } catch (final IllegalArgumentException ignored) {
-                            throw new ApiInvalidFormatException(PARAM_INCLUDE, paramInclude, API_ERROR_VALID_INCLUDES.toLowerCase());
-                        }
-                    }
-                }
-
-                // Need to store in finals, for lambda functions.
-                includeOffset = foundIncludeOffset;
-                includeTerritory = foundIncludeTerritory;
-                includeAlphabet = foundIncludeAlphabet;
-                includeRectangle = foundIncludeRectangle;
-            }
+            // Check include parameter.
+            final Set<ParamInclude> includes = parseIncludes(paramInclude);
+            parseEvent.endpoint = "convertLatLonToMapcode";
+            parseEvent.commit();
+            timing.stop(Stage.PARSE, parseStart);
 
             // Send a trace event with the lat/lon and other parameters.
             if (allowLog) {
@@ -269,171 +252,14 @@ public class MapcodeResourceImpl implements MapcodeResource {
                         paramAlphabet, paramInclude, UTCTime.now(), paramClient);
             }
 
-            final List<Tuple<Mapcode, Rectangle>> mapcodesAndRectangles = new ArrayList<>();
-            final Tuple<Mapcode, Rectangle> mapcodeInternationalAndRectangle;
-            final Tuple<Mapcode, Rectangle> mapcodeLocalAndRectangle;
-            try {
-
-                /**
-                 * First get all mapcodes. This is not the most efficient implementation, as we encode the
-                 * lat/lon 3 times, but unless there is a measured, significant performance issue in real life,
-                 * this implementation is good enough for now (and pretty straightforward).
-                 */
-
-                // Get all mapcodes.
-                final List<Mapcode> mapcodes;
-                if (country != null) {
-                    mapcodes = MapcodeCodec.encodeRestrictToCountryISO(latDeg, lonDeg, country);
-                } else {
-                    mapcodes = MapcodeCodec.encode(latDeg, lonDeg, territory);
-                }
-                mapcodes.forEach(mapcode -> {
-                    try {
-                        final Rectangle rectangle = MapcodeCodec.decodeToRectangle(mapcode.getCode(), mapcode.getTerritory());
-                        mapcodesAndRectangles.add(Tuple.create(mapcode, rectangle));
-                    } catch (final UnknownMapcodeException e) {
-                        LOG.warn("convertLatLonToMapcode: Unknown mapcode, exception=", e);
-                    }
-                });
-
-                // Get the international mapcode.
-                final Mapcode mapcodeInternational = MapcodeCodec.encodeToInternational(latDeg, lonDeg);
-                mapcodeInternationalAndRectangle = Tuple.create(mapcodeInternational,
-                        MapcodeCodec.decodeToRectangle(mapcodeInternational.getCode()));
-
-                // Get the shortest local mapcode.
-                Mapcode mapcodeLocal = null;
-                if (country != null) {
-
-                    // A territory was provided, so simply use first.
-                    try {
-                        mapcodeLocal = MapcodeCodec.encodeToShortest(latDeg, lonDeg, Territory.fromCountryISO(country));
-                    } catch (final UnknownMapcodeException ignored) {
-                    }
-                } else if (territory != null) {
-
-                    // A territory was provided, so simply use first.
-                    try {
-                        mapcodeLocal = MapcodeCodec.encodeToShortest(latDeg, lonDeg, territory);
-                    } catch (final UnknownMapcodeException ignored) {
-                    }
-                } else {
-
-                    // Get the shortest code.
-                    Territory localTerritory = null;
-                    for (final Mapcode mapcode : mapcodes) {
-                        if (mapcode.getTerritory() != Territory.AAA) {
-                            if (localTerritory == null) {
-
-                                // First local territory found. Use a local mapcode, unless another territory is found.
-                                localTerritory = mapcode.getTerritory();
-                                mapcodeLocal = mapcode;
-                            } else {
-                                if (localTerritory != mapcode.getTerritory()) {
-
-                                    // Found another local territory; reset local mapcode.
-                                    if (mapcode.getCode().length() < mapcodeLocal.getCode().length()) {
-                                        mapcodeLocal = mapcode;
-                                        localTerritory = mapcode.getTerritory();
-                                    }
-                                }
-                            }
-                        }
-                    }
-                }
-                mapcodeLocalAndRectangle = (mapcodeLocal == null) ? null : Tuple.create(
-                        mapcodeLocal,
-                        MapcodeCodec.decodeToRectangle(mapcodeLocal.getCode(), mapcodeLocal.getTerritory())
-                );
-            } catch (final UnknownMapcodeException ignored) {
-
-                // The mapcode conversion failed.
-                throw new ApiNotFoundException("No mapcode found for lat=" + latDeg + ", lon=" + lonDeg + ", territory=" + territory);
-            }
-
-            // Create result body, which is an ApiDTO. The exact type of DTO is still to be determined below.
-            final ApiDTO result;
-            if (type == null) {
-
-                // Look up the ranked territories containing this lat/lon, so the response
-                // mirrors what /mapcode/codes/{lat},{lon}/territories would return.
-                // Pass null (not an empty list) so the JSON field is omitted at sea.
-                final List<TerritoryMatch> territoryMatches = boundaryService.lookup(latDeg, lonDeg);
-                final List<TerritoryCandidateDTO> territoryCandidates = territoryMatches.isEmpty() ? null :
-                        territoryMatches.stream()
-                                .map(m -> new TerritoryCandidateDTO(m.getAlphaCode(), m.getParentAlphaCode()))
-                                .collect(Collectors.toList());
-
-                // Re-rank mapcodes and override local using the boundary-derived territories list.
-                // The territories list is the strongest hint of which codes are relevant for this point,
-                // so it drives both the order of 'mapcodes' and the choice of 'local'. Codes whose
-                // territory does not appear in 'territories' are kept at the end (stable order).
-                // When no territories match (e.g. at sea), the original order and the original
-                // local-selection logic are preserved.
-                Tuple<Mapcode, Rectangle> effectiveLocalAndRectangle = mapcodeLocalAndRectangle;
-                if (territoryCandidates != null) {
-                    final Map<String, Integer> territoryRank = new HashMap<>();
-                    for (int i = 0; i < territoryCandidates.size(); i++) {
-                        territoryRank.putIfAbsent(territoryCandidates.get(i).getAlphaCode(), i);
-                    }
-                    mapcodesAndRectangles.sort(Comparator.comparingInt(
-                            t -> territoryRank.getOrDefault(t.getValue1().getTerritory().toString(), Integer.MAX_VALUE)));
-                    final String topTerritoryAlpha = territoryCandidates.get(0).getAlphaCode();
-                    for (final Tuple<Mapcode, Rectangle> t : mapcodesAndRectangles) {
-                        if (topTerritoryAlpha.equals(t.getValue1().getTerritory().toString())) {
-                            effectiveLocalAndRectangle = t;
-                            break;
-                        }
-                    }
-                }
-
-                // No type was supplied, so we need to return the local, international and all mapcodes.
-                result = new MapcodesDTO(
-                        (effectiveLocalAndRectangle == null) ? null :
-                                createMapcodeDTO(effectiveLocalAndRectangle, precision, alphabet, includeOffset, includeTerritory,
-                                        includeAlphabet, includeRectangle, latDeg, lonDeg),
-                        createMapcodeDTO(mapcodeInternationalAndRectangle, precision, alphabet, includeOffset, includeTerritory,
-                                includeAlphabet, includeRectangle, latDeg, lonDeg),
-                        mapcodesAndRectangles.stream().
-                                map(mapcode -> createMapcodeDTO(mapcode, precision, alphabet, includeOffset, includeTerritory,
-                                        includeAlphabet, includeRectangle, latDeg, lonDeg)).
-                                collect(Collectors.toList()),
-                        territoryCandidates);
-            } else {
-
-                // Return only the local, international or all mapcodes.
-                switch (type) {
-                    case LOCAL: {
-                        if (mapcodeLocalAndRectangle == null) {
-                            throw new ApiNotFoundException("No local mapcode for: " + mapcodeInternationalAndRectangle.getValue1().getCode());
-                        }
-                        result = createMapcodeDTO(mapcodeLocalAndRectangle, precision, alphabet, includeOffset, includeTerritory,
-                                includeAlphabet, includeRectangle, latDeg, lonDeg);
-                        break;
-                    }
-
-                    case INTERNATIONAL: {
-                        result = createMapcodeDTO(mapcodeInternationalAndRectangle, precision, alphabet, includeOffset, includeTerritory,
-                                includeAlphabet, includeRectangle, latDeg, lonDeg);
-                        break;
-                    }
-
-                    case MAPCODES: {
-                        result = new MapcodeListDTO(mapcodesAndRectangles.stream().
-                                map(mapcode -> createMapcodeDTO(mapcode, precision, alphabet, includeOffset, includeTerritory,
-                                        includeAlphabet, includeRectangle, latDeg, lonDeg)).
-                                collect(Collectors.toList()));
-                        break;
-                    }
+            hotCells.recordPoint(latDeg, lonDeg);
 
-                    default:
-                        assert false;
-                        result = null;
-                }
-            }
+            // Create result body, which is an ApiDTO. The exact type of DTO depends on the type parameter.
+            final ApiDTO result = encodeLatLon("convertLatLonToMapcode", latDeg, lonDeg, type, precision, territory,
+                    country, alphabet, includes);
 
             // Validate the DTO before returning it, to make sure it's valid (internal consistency check).
-            result.validate();
+            validate("convertLatLonToMapcode", result);
             response.resume(Response.ok(result).build());
 
             // The response is already set within this method body.
@@ -450,39 +276,33 @@ public class MapcodeResourceImpl implements MapcodeResource {
             @Nonnull final AsyncResponse response) throws ApiInvalidFormatException {
         assert response != null;
 
-        processor.process("getTerritoriesForLatLon", LOG, response, () -> {
+        processor.process(Lane.CONVERSION, paramClient, "getTerritoriesForLatLon", LOG, response, () -> {
             // Get debug mode.
             final boolean allowLog = "true".equalsIgnoreCase(paramAllowLog);
             if (allowLog) {
                 LOG.info("getTerritoriesForLatLon: lat={}, lon={}, client={}, allowLog={}",
                         paramLatDegAsString, paramLonDegAsString, paramClient, paramAllowLog);
             }
-            // Check lat range.
-            final double latDeg;
-            try {
-                latDeg = Double.valueOf(StringUtils.nullToEmpty(paramLatDegAsString));
-                if (!MathUtils.isBetween(latDeg, ApiConstants.API_LAT_MIN, ApiConstants.API_LAT_MAX)) {
-                    throw new NumberFormatException(paramLatDegAsString);
-                }
-            } catch (final NumberFormatException e) {
-                throw new ApiInvalidFormatException(PARAM_LAT_DEG, paramLatDegAsString,
-                        "[" + ApiConstants.API_LAT_MIN + ", " + ApiConstants.API_LAT_MAX + ']');
-            }
-
-            // Check lon range (wrapped to [-180, 180]).
-            final double lonDeg;
-            try {
-                lonDeg = Geo.mapToLon(Double.valueOf(StringUtils.nullToEmpty(paramLonDegAsString)));
-            } catch (final NumberFormatException e) {
-                throw new ApiInvalidFormatException(PARAM_LON_DEG, paramLonDegAsString, "Double");
-            }
-
+            // Check lat and lon (wrapped to [-180, 180]).
+            final ServerTiming timing = ServerTiming.current();
+            final long parseStart = timing.start();
+            final ConversionEvents.Parse parseEvent = new ConversionEvents.Parse();
+            parseEvent.begin();
+            final double latDeg = parseLatDeg(paramLatDegAsString);
+            final double lonDeg = parseLonDeg(paramLonDegAsString);
+            parseEvent.endpoint = "getTerritoriesForLatLon";
+            parseEvent.commit();
+            timing.stop(Stage.PARSE, parseStart);
+            hotCells.recordPoint(latDeg, lonDeg);
+
+            final long boundaryStart = timing.start();
             final List<TerritoryMatch> matches = boundaryService.lookup(latDeg, lonDeg);
+            timing.stop(Stage.BOUNDARY, boundaryStart);
             final List<TerritoryCandidateDTO> candidates = matches.stream()
                     .map(m -> new TerritoryCandidateDTO(m.getAlphaCode(), m.getParentAlphaCode()))
                     .collect(Collectors.toList());
             final TerritoryCandidatesDTO result = new TerritoryCandidatesDTO(new TerritoryCandidateListDTO(candidates));
-            result.validate();
+            validate("getTerritoriesForLatLon", result);
 
             response.resume(Response.ok(result).build());
             return Futures.successful(null);
@@ -494,7 +314,7 @@ public class MapcodeResourceImpl implements MapcodeResource {
             @Nonnull final AsyncResponse response) throws ApiNotFoundException, ApiInvalidFormatException {
 
         // This method is forbidden. In REST terms, this would return all world coordinates - intractable.
-        processor.process("convertLatLonToMapcode", LOG, response, () -> {
+        processor.process(Lane.CONVERSION, null, "convertLatLonToMapcode", LOG, response, () -> {
             throw new ApiForbiddenException("Missing URL path parameters: /{mapcode}");
         });
     }
@@ -511,29 +331,25 @@ public class MapcodeResourceImpl implements MapcodeResource {
         assert paramCode != null;
         assert response != null;
 
-        processor.process("convertMapcodeToLatLon", LOG, response, () -> {
+        processor.process(Lane.CONVERSION, paramClient, "convertMapcodeToLatLon", LOG, response, () -> {
             // Get debug mode.
             final boolean allowLog = "true".equalsIgnoreCase(paramAllowLog);
+            if (allowLog) {
+                LOG.info("convertMapcodeToLatLon: code={}, territory={}, include={}, client={}, allowLog={}",
+                        paramCode, paramContext, paramInclude, paramClient, paramAllowLog);
+            }
+            final ServerTiming timing = ServerTiming.current();
+            final long parseStart = timing.start();
+            final ConversionEvents.Parse parseEvent = new ConversionEvents.Parse();
+            parseEvent.begin();
 
-            LOG.info("convertMapcodeToLatLon: code={}, territory={}, include={}, client={}, allowLog={}",
-                    paramCode, paramContext, paramInclude, paramClient, paramAllowLog);
             // Prevent 'territory' from inadvertently being specified.
             if (paramTerritoryMustBeNull != null) {
                 throw new ApiInvalidFormatException(PARAM_TERRITORY, paramTerritoryMustBeNull, "null");
             }
 
             // Check include parameter.
-            boolean foundIncludeRectangle = false;
-            for (final String arg : paramInclude.toUpperCase().split(",")) {
-                if (!arg.isEmpty()) {
-                    try {
-                        final ParamInclude include = ParamInclude.valueOf(arg);
-                        foundIncludeRectangle = foundIncludeRectangle || (include == ParamInclude.RECTANGLE);
-                    } catch (final IllegalArgumentException ignored) {
-                        throw new ApiInvalidFormatException(PARAM_INCLUDE, paramInclude, API_ERROR_VALID_INCLUDES.toLowerCase());
-                    }
-                }
-            }
+            final boolean foundIncludeRectangle = isIncludeRectangle(paramInclude);
 
             // Get the territory from the path (if specified).
             final Territory territoryContext;
@@ -553,6 +369,9 @@ public class MapcodeResourceImpl implements MapcodeResource {
             if (!Mapcode.isValidMapcodeFormat(paramCode)) {
                 throw new ApiInvalidFormatException("mapcode", paramCode, "[XXX] XX.XX[-XX]");
             }
+            parseEvent.endpoint = "convertMapcodeToLatLon";
+            parseEvent.commit();
+            timing.stop(Stage.PARSE, parseStart);
 
             // Send a trace event with the mapcode and territory.
             if (allowLog) {
@@ -560,25 +379,73 @@ public class MapcodeResourceImpl implements MapcodeResource {
             }
 
             // Create result body (always an ApiDTO).
-            final ApiDTO result;
-            if (foundIncludeRectangle) {
-                try {
-                    final Rectangle rectangle = MapcodeCodec.decodeToRectangle(paramCode, territoryContext);
-                    result = new RectangleDTO(rectangle);
-                } catch (final UnknownMapcodeException ignored) {
-                    throw new ApiNotFoundException("No rectangle found for mapcode='" + paramCode + "', context=" + territoryContext);
-                }
-            } else {
-                try {
-                    final Point point = MapcodeCodec.decode(paramCode, territoryContext);
-                    result = new PointDTO(point.getLatDeg(), point.getLonDeg());
-                } catch (final UnknownMapcodeException ignored) {
-                    throw new ApiNotFoundException("No location found for mapcode='" + paramCode + "', context=" + territoryContext);
+            final long decodeStart = timing.start();
+            final ApiDTO result = decodeMapcode(paramCode, territoryContext, foundIncludeRectangle);
+            timing.stop(Stage.DECODE, decodeStart);
+            hotCells.recordMapcode(paramCode, territoryContext);
+
+            // Validate the result (internal consistency check).
+            validate("convertMapcodeToLatLon", result);
+            response.resume(Response.ok(result).build());
+
+            // The response is already set within this method body.
+            return Futures.successful(null);
+        });
+    }
+
+    @Override
+    public void convertMapcodesToLatLon(
+            @Nullable final CoordsRequestsDTO paramRequests,
+            @Nonnull final String paramInclude,
+            @Nonnull final String paramClient,
+            @Nonnull final String paramAllowLog,
+            @Nonnull final AsyncResponse response) throws ApiInvalidFormatException {
+        assert response != null;
+
+        processor.process(Lane.CONVERSION, paramClient, "convertMapcodesToLatLon", LOG, response, () -> {
+            // Get debug mode.
+            final boolean allowLog = "true".equalsIgnoreCase(paramAllowLog);
+
+            if (paramRequests == null) {
+                throw new ApiParameterMissingException("requests");
+            }
+
+            // An empty XML body or JSON object without items is an empty batch.
+            final List<CoordsRequestDTO> requests = (paramRequests.getRequests() == null) ?
+                    Collections.emptyList() : paramRequests.getRequests();
+            LOG.info("convertMapcodesToLatLon: count={}, include={}, client={}, allowLog={}",
+                    requests.size(), paramInclude, paramClient, paramAllowLog);
+            final int nrRequests = requests.size();
+            if (nrRequests > ApiConstants.API_BATCH_SIZE_MAX) {
+                throw new ApiIntegerOutOfRangeException("requests", nrRequests, 0, ApiConstants.API_BATCH_SIZE_MAX);
+            }
+
+            // Check include parameter.
+            final boolean includeRectangle = isIncludeRectangle(paramInclude);
+
+            // Resolve every distinct context only once; all items with the same context share the result.
+            final Map<String, Territory> territoryContexts = new HashMap<>();
+            final Set<String> invalidContexts = new HashSet<>();
+            for (final CoordsRequestDTO request : requests) {
+                if (request != null) {
+                    resolveContext(request.getContext(), territoryContexts, invalidContexts);
                 }
             }
 
-            // Validate the result (internal consistency check).
-            result.validate();
+            // Decode in chunks, in parallel. Each chunk writes to its own slots, so the order is preserved.
+            final CoordsResultDTO[] results = new CoordsResultDTO[nrRequests];
+            final int chunkSize = ApiConstants.API_BATCH_CHUNK_SIZE;
+            IntStream.range(0, (nrRequests + chunkSize - 1) / chunkSize).parallel().forEach(chunk -> {
+                final int toIndex = Math.min(nrRequests, (chunk + 1) * chunkSize);
+                for (int i = chunk * chunkSize; i < toIndex; ++i) {
+                    results[i] = decodeBatchItem(requests.get(i), territoryContexts, invalidContexts,
+                            includeRectangle, allowLog, paramClient);
+                }
+            });
+
+            // Validate the result (internal consistency check). The items were already validated one by one.
+            final CoordsResultsDTO result = new CoordsResultsDTO(nrRequests, new CoordsResultListDTO(Arrays.asList(results)));
+            validate("convertMapcodesToLatLon", result);
             response.resume(Response.ok(result).build());
 
             // The response is already set within this method body.
@@ -586,6 +453,208 @@ public class MapcodeResourceImpl implements MapcodeResource {
         });
     }
 
+    @Override
+    @Nonnull
+    public Response convertLatLonStreamToMapcodesNdjson(
+            @Nonnull final InputStream body,
+            @Nullable final String paramPrecisionAsString,
+            @Nullable final String paramTerritory,
+            @Nullable final String paramAlphabet,
+            @Nonnull final String paramInclude,
+            @Nonnull final String paramClient,
+            @Nonnull final String paramAllowLog) {
+        return convertLatLonStreamToMapcodes(false, body, paramPrecisionAsString, paramTerritory, paramAlphabet,
+                paramInclude, paramClient, paramAllowLog);
+    }
+
+    @Override
+    @Nonnull
+    public Response convertLatLonStreamToMapcodesCsv(
+            @Nonnull final InputStream body,
+            @Nullable final String paramPrecisionAsString,
+            @Nullable final String paramTerritory,
+            @Nullable final String paramAlphabet,
+            @Nonnull final String paramInclude,
+            @Nonnull final String paramClient,
+            @Nonnull final String paramAllowLog) {
+        return convertLatLonStreamToMapcodes(true, body, paramPrecisionAsString, paramTerritory, paramAlphabet,
+                paramInclude, paramClient, paramAllowLog);
+    }
+
+    @Nonnull
+    private Response convertLatLonStreamToMapcodes(
+            final boolean csv,
+            @Nonnull final InputStream body,
+            @Nullable final String paramPrecisionAsString,
+            @Nullable final String paramTerritory,
+            @Nullable final String paramAlphabet,
+            @Nonnull final String paramInclude,
+            @Nonnull final String paramClient,
+            @Nonnull final String paramAllowLog) {
+        assert body != null;
+
+        // Get debug mode.
+        final boolean allowLog = "true".equalsIgnoreCase(paramAllowLog);
+
+        // The stream holds a permit of the stream lane until it is written. Its lines are converted on the
+        // executor of the request handlers.
+        return processor.processStream(paramClient, "convertLatLonStreamToMapcodes", LOG, executor -> {
+            LOG.info("convertLatLonStreamToMapcodes: csv={}, precision={}, territory={}, alphabet={}, include={}, client={}, allowLog={}",
+                    csv, paramPrecisionAsString, paramTerritory, paramAlphabet, paramInclude, paramClient, paramAllowLog);
+
+            // Check the parameters before the response is started; they apply to all lines.
+            // This method is not suspended, so exceptions are mapped here rather than by the processor.
+            final int precision;
+            final Territory territory;
+            final Alphabet alphabet;
+            final Set<ParamInclude> includes;
+            try {
+                precision = parsePrecision(paramPrecisionAsString);
+                territory = (paramTerritory == null) ? null : parseTerritory(paramTerritory);
+                alphabet = parseAlphabet(paramAlphabet);
+                includes = parseIncludes(paramInclude);
+            } catch (final ApiException e) {
+                return GeneralExceptionMapper.toResponse(LOG, e);
+            }
+
+            final OrderedLineConverter converter = new OrderedLineConverter(
+                    createLatLonLineConverter(csv, precision, territory, alphabet, includes, allowLog, paramClient),
+                    executor, ApiConstants.API_STREAM_IN_FLIGHT_MAX);
+
+            final StreamingOutput output = out -> {
+                final long count = converter.convert(body, out);
+                LOG.info("convertLatLonStreamToMapcodes: done, lines={}", count);
+            };
+            return Response.ok(output, csv ? MEDIA_TYPE_CSV : MEDIA_TYPE_NDJSON).build();
+        });
+    }
+
+    /**
+     * Create a converter for single lines of lat/lon pairs, as used by the streaming endpoints and the
+     * command-line converter. The converter never throws: failures are returned as an error line.
+     *
+     * @param csv        True for CSV lines "lat,lon[,...]", false for NDJSON lines {"latDeg":..,"lonDeg":..}.
+     * @param precision  Precision of the mapcodes.
+     * @param territory  Territory context for local mapcodes, or null.
+     * @param alphabet   Alphabet for the mapcodes, or null.
+     * @param includes   Additional info to include in the result.
+     * @param allowLog   True if logging of data for improving the service is allowed.
+     * @param client     Indicator of calling client (for stats).
+     * @return Line converter, thread-safe.
+     */
+    @Nonnull
+    public Function<String, String> createLatLonLineConverter(
+            final boolean csv,
+            final int precision,
+            @Nullable final Territory territory,
+            @Nullable final Alphabet alphabet,
+            @Nonnull final Set<ParamInclude> includes,
+            final boolean allowLog,
+            @Nonnull final String client) {
+        final String traceAlphabet = (alphabet == null) ? null : alphabet.toString();
+        final String traceInclude = Joiner.on(',').join(includes).toLowerCase();
+        return line -> {
+            try {
+
+                // Get the lat/lon from the line.
+                final String latDegAsString;
+                final String lonDegAsString;
+                if (csv) {
+                    final String[] columns = line.split(",", 3);
+                    latDegAsString = columns[0].trim();
+                    lonDegAsString = (columns.length > 1) ? columns[1].trim() : null;
+                } else {
+                    final JsonNode point;
+                    try {
+                        point = JSON_MAPPER.readTree(line);
+                    } catch (final IOException ignored) {
+                        throw new ApiInvalidFormatException("line", line, "{\"" + PARAM_LAT_DEG + "\":Double, \"" + PARAM_LON_DEG + "\":Double}");
+                    }
+                    latDegAsString = point.path(PARAM_LAT_DEG).asText(null);
+                    lonDegAsString = point.path(PARAM_LON_DEG).asText(null);
+                }
+                final double latDeg = parseLatDeg(latDegAsString);
+                final double lonDeg = parseLonDeg(lonDegAsString);
+
+                // Send a trace event with the lat/lon and other parameters.
+                if (allowLog) {
+                    TRACER.eventLatLonToMapcode(latDeg, lonDeg, territory, precision, null,
+                            traceAlphabet, traceInclude, UTCTime.now(), client);
+                }
+                final MapcodesDTO result = (MapcodesDTO) encodeLatLon("convertLatLonStreamToMapcodes", latDeg, lonDeg,
+                        null, precision, territory, null, alphabet, includes);
+
+                // Validate the result (internal consistency check).
+                validate("convertLatLonStreamToMapcodes", result);
+                return csv ? formatCsvLine(line, result) : MapcodeJsonWriter.writeValueAsString(result);
+            } catch (final ApiException e) {
+                final int status = (e instanceof ApiNotFoundException) ?
+                        Response.Status.NOT_FOUND.getStatusCode() : Response.Status.BAD_REQUEST.getStatusCode();
+                return csv ? (line + ",,,," + status) :
+                        JSON_MAPPER.createObjectNode().put("errorCode", status).put("errorMessage", e.getMessage()).toString();
+            } catch (final IOException e) {
+                LOG.error("createLatLonLineConverter: cannot serialize result, line={}", line, e);
+                return csv ? (line + ",,,," + Response.Status.INTERNAL_SERVER_ERROR.getStatusCode()) :
+                        JSON_MAPPER.createObjectNode().put("errorCode", Response.Status.INTERNAL_SERVER_ERROR.getStatusCode()).toString();
+            }
+        };
+    }
+
+    /**
+     * Create a converter for single lines of mapcodes, as used by the command-line converter. The
+     * converter never throws: failures are returned as an error line.
+     *
+     * @param csv              True for CSV lines "code[,context[,...]]", false for NDJSON lines {"code":..,"context":..}.
+     *                         CSV results are always points; NDJSON results have the format of {@link CoordsResultDTO}.
+     * @param includeRectangle True to return the encompassing rectangle instead of a point (NDJSON only).
+     * @param allowLog         True if logging of data for improving the service is allowed.
+     * @param client           Indicator of calling client (for stats).
+     * @return Line converter, thread-safe.
+     */
+    @Nonnull
+    public static Function<String, String> createMapcodeLineConverter(
+            final boolean csv,
+            final boolean includeRectangle,
+            final boolean allowLog,
+            @Nonnull final String client) {
+
+        // Contexts are resolved once and shared by all lines.
+        final Map<String, Territory> territoryContexts = new ConcurrentHashMap<>();
+        final Set<String> invalidContexts = ConcurrentHashMap.newKeySet();
+        return line -> {
+
+            // Get the code and context from the line.
+            CoordsRequestDTO request;
+            if (csv) {
+                final String[] columns = line.split(",", 3);
+                final String context = (columns.length > 1) ? columns[1].trim() : "";
+                request = new CoordsRequestDTO(columns[0].trim(), context.isEmpty() ? null : context);
+            } else {
+                try {
+                    request = JSON_MAPPER.readValue(line, CoordsRequestDTO.class);
+                } catch (final IOException ignored) {
+                    request = null;
+                }
+            }
+            if (request != null) {
+                resolveContext(request.getContext(), territoryContexts, invalidContexts);
+            }
+            final CoordsResultDTO result = decodeBatchItem(request, territoryContexts, invalidContexts,
+                    includeRectangle && !csv, allowLog, client);
+            if (csv) {
+                final PointDTO point = result.getPoint();
+                return line + ',' + ((point == null) ? "," : (point.getLatDeg() + "," + point.getLonDeg())) + ',' +
+                        ((result.getErrorCode() == null) ? "" : result.getErrorCode());
+            }
+            try {
+                return JSON_MAPPER.writeValueAsString(result);
+            } catch (final JsonProcessingException e) {
+                LOG.error("createMapcodeLineConverter: cannot serialize result, line={}", line, e);
+                return JSON_MAPPER.createObjectNode().put("errorCode", Response.Status.INTERNAL_SERVER_ERROR.getStatusCode()).toString();
+            }
+        };
+    }
+
     @Override
     public void getTerritories(
             final int offset,
@@ -595,7 +664,7 @@ public class MapcodeResourceImpl implements MapcodeResource {
             @Nonnull final AsyncResponse response) throws ApiIntegerOutOfRangeException {
         assert response != null;
 
-        processor.process("getTerritories", LOG, response, () -> {
+        processor.process(Lane.CHEAP, paramClient, "getTerritories", LOG, response, () -> {
             LOG.info("getTerritories: client={}, allowLog={}", paramClient, paramAllowLog);
 
             // Check value of count.
@@ -608,11 +677,9 @@ public class MapcodeResourceImpl implements MapcodeResource {
             final int nrTerritories = ALL_TERRITORY_DTO.size();
             final int fromIndex = (offset < 0) ? Math.max(0, nrTerritories + offset) : Math.min(nrTerritories, offset);
             final int toIndex = Math.min(nrTerritories, fromIndex + count);
-            final TerritoryListDTO territoryList = new TerritoryListDTO(ALL_TERRITORY_DTO.subList(fromIndex, toIndex));
-            final TerritoriesDTO result = new TerritoriesDTO(ALL_TERRITORY_DTO.size(), territoryList);
-
-            // Validate the result (internal consistency check).
-            result.validate();
+            final CachedEntity result = getCachedEntity("territories/" + fromIndex + '/' + toIndex, () ->
+                    new TerritoriesDTO(ALL_TERRITORY_DTO.size(),
+                            new TerritoryListDTO(ALL_TERRITORY_DTO.subList(fromIndex, toIndex))));
             response.resume(Response.ok(result).build());
 
             // The response is already set within this method body.
@@ -630,7 +697,7 @@ public class MapcodeResourceImpl implements MapcodeResource {
         assert paramTerritory != null;
         assert response != null;
 
-        processor.process("getTerritory", LOG, response, () -> {
+        processor.process(Lane.CHEAP, paramClient, "getTerritory", LOG, response, () -> {
             LOG.info("getTerritory: territory={}, context={}, client={}, allowLog={}", paramTerritory, paramContext, paramClient, paramAllowLog);
 
             // Get the territory from the URL.
@@ -642,20 +709,19 @@ public class MapcodeResourceImpl implements MapcodeResource {
             }
 
             // Return the right territory information.
-            final Territory parentTerritory = territory.getParentTerritory();
-            final TerritoryDTO result = new TerritoryDTO(
-                    territory.toString(),
-                    territory.toAlphaCode(AlphaCodeFormat.MINIMAL_UNAMBIGUOUS),
-                    territory.toAlphaCode(AlphaCodeFormat.MINIMAL),
-                    territory.getFullName(),
-                    (parentTerritory == null) ? null : parentTerritory.toString(),
-                    territory.getAliases(),
-                    territory.getFullNameAliases(),
-                    territory.getAlphabets()
-            );
-
-            // Validate the result (internal consistency check).
-            result.validate();
+            final CachedEntity result = getCachedEntity("territory/" + territory, () -> {
+                final Territory parentTerritory = territory.getParentTerritory();
+                return new TerritoryDTO(
+                        territory.toString(),
+                        territory.toAlphaCode(AlphaCodeFormat.MINIMAL_UNAMBIGUOUS),
+                        territory.toAlphaCode(AlphaCodeFormat.MINIMAL),
+                        territory.getFullName(),
+                        (parentTerritory == null) ? null : parentTerritory.toString(),
+                        territory.getAliases(),
+                        territory.getFullNameAliases(),
+                        territory.getAlphabets()
+                );
+            });
             response.resume(Response.ok(result).build());
 
             // The response is already set within this method body.
@@ -672,7 +738,7 @@ public class MapcodeResourceImpl implements MapcodeResource {
             @Nonnull final AsyncResponse response) throws ApiIntegerOutOfRangeException {
         assert response != null;
 
-        processor.process("getAlphabets", LOG, response, () -> {
+        processor.process(Lane.CHEAP, paramClient, "getAlphabets", LOG, response, () -> {
             LOG.info("getAlphabets: clien={}, allowLog={}", paramClient, paramAllowLog);
 
             // Check value of count.
@@ -685,11 +751,9 @@ public class MapcodeResourceImpl implements MapcodeResource {
             final int nrAlphabets = ALL_ALPHABET_DTO.size();
             final int fromIndex = (offset < 0) ? Math.max(0, nrAlphabets + offset) : Math.min(nrAlphabets, offset);
             final int toIndex = Math.min(nrAlphabets, fromIndex + count);
-            final AlphabetListDTO alphabetList = new AlphabetListDTO(ALL_ALPHABET_DTO.subList(fromIndex, toIndex));
-            final AlphabetsDTO result = new AlphabetsDTO(ALL_ALPHABET_DTO.size(), alphabetList);
-
-            // Validate the result (internal consistency check).
-            result.validate();
+            final CachedEntity result = getCachedEntity("alphabets/" + fromIndex + '/' + toIndex, () ->
+                    new AlphabetsDTO(ALL_ALPHABET_DTO.size(),
+                            new AlphabetListDTO(ALL_ALPHABET_DTO.subList(fromIndex, toIndex))));
             response.resume(Response.ok(result).build());
 
             // The response is already set within this method body.
@@ -706,7 +770,7 @@ public class MapcodeResourceImpl implements MapcodeResource {
         assert paramAlphabet != null;
         assert response != null;
 
-        processor.process("getAlphabet", LOG, response, () -> {
+        processor.process(Lane.CHEAP, paramClient, "getAlphabet", LOG, response, () -> {
 
             LOG.info("getAlphabet: alphabet={}, client={}, allowLog={}", paramAlphabet, paramClient, paramAllowLog);
 
@@ -718,11 +782,8 @@ public class MapcodeResourceImpl implements MapcodeResource {
                 throw new ApiInvalidFormatException("alphabet", paramAlphabet, API_ERROR_VALID_ALPHABET_CODES);
             }
 
-            // Return the right territory information.
-            final AlphabetDTO result = new AlphabetDTO(alphabet);
-
-            // Validate the result (internal consistency check).
-            result.validate();
+            // Return the right alphabet information.
+            final CachedEntity result = getCachedEntity("alphabet/" + alphabet, () -> new AlphabetDTO(alphabet));
             response.resume(Response.ok(result).build());
 
             // The response is already set within this method body.
@@ -730,6 +791,264 @@ public class MapcodeResourceImpl implements MapcodeResource {
         });
     }
 
+    /**
+     * Get a cached response entity, or create it. The DTO is validated when the entity is created.
+     *
+     * @param key     Unique key for the response, independent of the media type.
+     * @param factory Creates the DTO if it was not cached yet.
+     * @return Cached entity.
+     */
+    @Nonnull
+    private CachedEntity getCachedEntity(
+            @Nonnull final String key,
+            @Nonnull final Supplier<ApiDTO> factory) {
+        final CachedEntity cached = cachedEntities.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        final CachedEntity entity = new CachedEntity(factory.get());
+        if (cachedEntities.size() < MAX_CACHED_ENTITIES) {
+            cachedEntities.putIfAbsent(key, entity);
+        }
+        return entity;
+    }
+
+    /**
+     * Encode a lat/lon into mapcodes. Returns a {@link MapcodesDTO} if no type is given, or a {@link MapcodeDTO}
+     * or {@link MapcodeListDTO} for the specific type. The result is not validated yet.
+     *
+     * This runs for every encode request, so it only allocates what the response needs: rectangles are only
+     * decoded if they are included, and the mapcodes are ranked in place, in an array.
+     */
+    @Nonnull
+    private ApiDTO encodeLatLon(
+            @Nonnull final String endpoint,
+            final double latDeg,
+            final double lonDeg,
+            @Nullable final ParamType type,
+            final int precision,
+            @Nullable final Territory territory,
+            @Nullable final String country,
+            @Nullable final Alphabet alphabet,
+            @Nonnull final Set<ParamInclude> includes) throws ApiNotFoundException {
+        final boolean includeOffset = includes.contains(ParamInclude.OFFSET);
+        final boolean includeTerritory = includes.contains(ParamInclude.TERRITORY);
+        final boolean includeAlphabet = includes.contains(ParamInclude.ALPHABET);
+        final boolean includeRectangle = includes.contains(ParamInclude.RECTANGLE);
+        final ServerTiming timing = ServerTiming.current();
+
+        // Get all mapcodes. The international and (with a territory or country) the shortest local mapcode
+        // are encoded separately below.
+        final long encodeStart = timing.start();
+        final ConversionEvents.Encode encodeEvent = new ConversionEvents.Encode();
+        encodeEvent.begin();
+        final List<Mapcode> mapcodes;
+        if (country != null) {
+            mapcodes = MapcodeCodec.encodeRestrictToCountryISO(latDeg, lonDeg, country);
+        } else {
+            mapcodes = MapcodeCodec.encode(latDeg, lonDeg, territory);
+        }
+
+        // Get the international mapcode.
+        final Mapcode mapcodeInternational = MapcodeCodec.encodeToInternational(latDeg, lonDeg);
+
+        // Get the shortest local mapcode.
+        Mapcode mapcodeLocal = null;
+        if (country != null) {
+
+            // A territory was provided, so simply use first.
+            try {
+                mapcodeLocal = MapcodeCodec.encodeToShortest(latDeg, lonDeg, Territory.fromCountryISO(country));
+            } catch (final UnknownMapcodeException ignored) {
+            }
+        } else if (territory != null) {
+
+            // A territory was provided, so simply use first.
+            try {
+                mapcodeLocal = MapcodeCodec.encodeToShortest(latDeg, lonDeg, territory);
+            } catch (final UnknownMapcodeException ignored) {
+            }
+        } else {
+
+            // Get the shortest code.
+            Territory localTerritory = null;
+            for (final Mapcode mapcode : mapcodes) {
+                if (mapcode.getTerritory() != Territory.AAA) {
+                    if (localTerritory == null) {
+
+                        // First local territory found. Use a local mapcode, unless another territory is found.
+                        localTerritory = mapcode.getTerritory();
+                        mapcodeLocal = mapcode;
+                    } else {
+                        if (localTerritory != mapcode.getTerritory()) {
+
+                            // Found another local territory; reset local mapcode.
+                            if (mapcode.getCode().length() < mapcodeLocal.getCode().length()) {
+                                mapcodeLocal = mapcode;
+                                localTerritory = mapcode.getTerritory();
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        encodeEvent.endpoint = endpoint;
+        encodeEvent.territory = (country != null) ? country : ((territory == null) ? null : territory.toString());
+        encodeEvent.mapcodes = mapcodes.size();
+        encodeEvent.commit();
+        timing.stop(Stage.ENCODE, encodeStart);
+
+        final Mapcode[] orderedMapcodes = mapcodes.toArray(new Mapcode[mapcodes.size()]);
+        List<TerritoryCandidateDTO> territoryCandidates = null;
+        if (type == null) {
+
+            // Look up the ranked territories containing this lat/lon, so the response
+            // mirrors what /mapcode/codes/{lat},{lon}/territories would return.
+            // Keep null (not an empty list) so the JSON field is omitted at sea.
+            final long boundaryStart = timing.start();
+            final List<TerritoryMatch> territoryMatches = boundaryService.lookup(latDeg, lonDeg);
+            timing.stop(Stage.BOUNDARY, boundaryStart);
+
+            // Re-rank mapcodes and override local using the boundary-derived territories list.
+            // The territories list is the strongest hint of which codes are relevant for this point,
+            // so it drives both the order of 'mapcodes' and the choice of 'local'. Codes whose
+            // territory does not appear in 'territories' are kept at the end (stable order).
+            // When no territories match (e.g. at sea), the original order and the original
+            // local-selection logic are preserved.
+            if (!territoryMatches.isEmpty()) {
+                territoryCandidates = new ArrayList<>(territoryMatches.size());
+                for (final TerritoryMatch match : territoryMatches) {
+                    territoryCandidates.add(new TerritoryCandidateDTO(match.getAlphaCode(), match.getParentAlphaCode()));
+                }
+                sortByTerritoryRank(orderedMapcodes, territoryMatches);
+                final String topTerritoryAlpha = territoryMatches.get(0).getAlphaCode();
+                for (final Mapcode mapcode : orderedMapcodes) {
+                    if (topTerritoryAlpha.equals(mapcode.getTerritory().toString())) {
+                        mapcodeLocal = mapcode;
+                        break;
+                    }
+                }
+            }
+        }
+
+        // Get the encompassing rectangles of the mapcodes, in the same order, if they are included.
+        int mapcodeCount = orderedMapcodes.length;
+        final Rectangle[] rectangles;
+        final Rectangle rectangleInternational;
+        final Rectangle rectangleLocal;
+        if (includeRectangle) {
+            final long rectangleStart = timing.start();
+            final ConversionEvents.Rectangle rectangleEvent = new ConversionEvents.Rectangle();
+            rectangleEvent.begin();
+            rectangles = new Rectangle[orderedMapcodes.length];
+            mapcodeCount = 0;
+            for (final Mapcode mapcode : orderedMapcodes) {
+                try {
+                    rectangles[mapcodeCount] = MapcodeCodec.decodeToRectangle(mapcode.getCode(), mapcode.getTerritory());
+                    orderedMapcodes[mapcodeCount] = mapcode;
+                    ++mapcodeCount;
+                } catch (final UnknownMapcodeException e) {
+                    LOG.warn("convertLatLonToMapcode: Unknown mapcode, exception=", e);
+                }
+            }
+            try {
+                rectangleInternational = MapcodeCodec.decodeToRectangle(mapcodeInternational.getCode());
+                rectangleLocal = (mapcodeLocal == null) ? null :
+                        MapcodeCodec.decodeToRectangle(mapcodeLocal.getCode(), mapcodeLocal.getTerritory());
+            } catch (final UnknownMapcodeException ignored) {
+
+                // The mapcode conversion failed.
+                throw new ApiNotFoundException("No mapcode found for lat=" + latDeg + ", lon=" + lonDeg + ", territory=" + territory);
+            }
+            rectangleEvent.endpoint = endpoint;
+            rectangleEvent.rectangles = mapcodes.size() + ((mapcodeLocal == null) ? 1 : 2);
+            rectangleEvent.commit();
+            timing.stop(Stage.RECTANGLE, rectangleStart);
+        } else {
+            rectangles = null;
+            rectangleInternational = null;
+            rectangleLocal = null;
+        }
+
+        // Create result body, which is an ApiDTO. The exact type of DTO is determined below.
+        final ApiDTO result;
+        if (type == null) {
+
+            // No type was supplied, so we need to return the local, international and all mapcodes.
+            result = new MapcodesDTO(
+                    (mapcodeLocal == null) ? null :
+                            createMapcodeDTO(mapcodeLocal, rectangleLocal, precision, alphabet, includeOffset,
+                                    includeTerritory, includeAlphabet, includeRectangle, latDeg, lonDeg),
+                    createMapcodeDTO(mapcodeInternational, rectangleInternational, precision, alphabet, includeOffset,
+                            includeTerritory, includeAlphabet, includeRectangle, latDeg, lonDeg),
+                    createMapcodeDTOs(orderedMapcodes, rectangles, mapcodeCount, precision, alphabet, includeOffset,
+                            includeTerritory, includeAlphabet, includeRectangle, latDeg, lonDeg),
+                    territoryCandidates);
+        } else {
+
+            // Return only the local, international or all mapcodes.
+            switch (type) {
+                case LOCAL: {
+                    if (mapcodeLocal == null) {
+                        throw new ApiNotFoundException("No local mapcode for: " + mapcodeInternational.getCode());
+                    }
+                    result = createMapcodeDTO(mapcodeLocal, rectangleLocal, precision, alphabet, includeOffset,
+                            includeTerritory, includeAlphabet, includeRectangle, latDeg, lonDeg);
+                    break;
+                }
+
+                case INTERNATIONAL: {
+                    result = createMapcodeDTO(mapcodeInternational, rectangleInternational, precision, alphabet,
+                            includeOffset, includeTerritory, includeAlphabet, includeRectangle, latDeg, lonDeg);
+                    break;
+                }
+
+                case MAPCODES: {
+                    result = new MapcodeListDTO(createMapcodeDTOs(orderedMapcodes, rectangles, mapcodeCount, precision,
+                            alphabet, includeOffset, includeTerritory, includeAlphabet, includeRectangle, latDeg, lonDeg));
+                    break;
+                }
+
+                default:
+                    assert false;
+                    result = null;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Sort mapcodes by the position of their territory in a list of territory matches; mapcodes of other
+     * territories go last. The sort is stable. The lists are short, so an insertion sort is cheaper than a
+     * map of ranks and a comparator.
+     */
+    private static void sortByTerritoryRank(
+            @Nonnull final Mapcode[] mapcodes,
+            @Nonnull final List<TerritoryMatch> territoryMatches) {
+        final int[] ranks = new int[mapcodes.length];
+        for (int i = 0; i < mapcodes.length; ++i) {
+            final Mapcode mapcode = mapcodes[i];
+            final int rank = getTerritoryRank(mapcode.getTerritory().toString(), territoryMatches);
+            int j = i;
+            while ((j > 0) && (ranks[j - 1] > rank)) {
+                ranks[j] = ranks[j - 1];
+                mapcodes[j] = mapcodes[j - 1];
+                --j;
+            }
+            ranks[j] = rank;
+            mapcodes[j] = mapcode;
+        }
+    }
+
+    private static int getTerritoryRank(@Nonnull final String alphaCode, @Nonnull final List<TerritoryMatch> territoryMatches) {
+        for (int i = 0; i < territoryMatches.size(); ++i) {
+            if (alphaCode.equals(territoryMatches.get(i).getAlphaCode())) {
+                return i;
+            }
+        }
+        return Integer.MAX_VALUE;
+    }
+
     @Nonnull
     private static Territory resolveTerritory(@Nonnull final String paramTerritory, @Nullable final String paramParent) {
         Territory parentTerritory;
@@ -775,6 +1094,208 @@ public class MapcodeResourceImpl implements MapcodeResource {
         return Territory.fromString(paramTerritory.toUpperCase());
     }
 
+    private static double parseLatDeg(@Nullable final String paramLatDegAsString) throws ApiInvalidFormatException {
+        try {
+            final double latDeg = Double.valueOf(StringUtils.nullToEmpty(paramLatDegAsString));
+            if (!MathUtils.isBetween(latDeg, ApiConstants.API_LAT_MIN, ApiConstants.API_LAT_MAX)) {
+                throw new NumberFormatException(paramLatDegAsString);
+            }
+            return latDeg;
+        } catch (final NumberFormatException e) {
+            throw new ApiInvalidFormatException(PARAM_LAT_DEG, paramLatDegAsString,
+                    "[" + ApiConstants.API_LAT_MIN + ", " + ApiConstants.API_LAT_MAX + ']');
+        }
+    }
+
+    private static double parseLonDeg(@Nullable final String paramLonDegAsString) throws ApiInvalidFormatException {
+        try {
+            return Geo.mapToLon(Double.valueOf(StringUtils.nullToEmpty(paramLonDegAsString)));
+        } catch (final NumberFormatException e) {
+            throw new ApiInvalidFormatException(PARAM_LON_DEG, paramLonDegAsString, "Double");
+        }
+    }
+
+    private static int parsePrecision(@Nullable final String paramPrecisionAsString) throws ApiInvalidFormatException {
+        try {
+            final int precision = Integer.valueOf(StringUtils.nullToEmpty(paramPrecisionAsString));
+            if (!MathUtils.isBetween(precision, ApiConstants.API_PRECISION_MIN, ApiConstants.API_PRECISION_MAX)) {
+                throw new NumberFormatException(paramPrecisionAsString);
+            }
+            return precision;
+        } catch (final NumberFormatException e) {
+            throw new ApiInvalidFormatException(PARAM_PRECISION, paramPrecisionAsString, "[" + ApiConstants.API_PRECISION_MIN +
+                    ", " + ApiConstants.API_PRECISION_MAX + ']');
+        }
+    }
+
+    @Nonnull
+    private static Territory parseTerritory(@Nonnull final String paramTerritory) throws ApiInvalidFormatException {
+        try {
+            return resolveTerritory(StringEscapeUtils.unescapeHtml4(paramTerritory), null);
+        } catch (final IllegalArgumentException ignored) {
+            throw new ApiInvalidFormatException(PARAM_TERRITORY, paramTerritory, API_ERROR_VALID_TERRITORY_CODES);
+        }
+    }
+
+    @Nullable
+    private static Alphabet parseAlphabet(@Nullable final String paramAlphabet) throws ApiInvalidFormatException {
+        try {
+            return (paramAlphabet != null) ? Alphabet.fromString(paramAlphabet) : null;
+        } catch (final IllegalArgumentException ignored) {
+            throw new ApiInvalidFormatException(PARAM_ALPHABET, paramAlphabet, API_ERROR_VALID_ALPHABET_CODES);
+        }
+    }
+
+    @Nonnull
+    private static Set<ParamInclude> parseIncludes(@Nonnull final String paramInclude) {
+        final Set<ParamInclude> includes = EnumSet.noneOf(ParamInclude.class);
+        if (paramInclude.isEmpty()) {
+            return includes;
+        }
+        for (final String arg : paramInclude.toUpperCase().split(",")) {
+            if (!arg.isEmpty()) {
+                try {
+                    includes.add(ParamInclude.valueOf(arg));
+                } catch (final IllegalArgumentException ignored) {
+                    throw new ApiInvalidFormatException(PARAM_INCLUDE, paramInclude, API_ERROR_VALID_INCLUDES.toLowerCase());
+                }
+            }
+        }
+        return includes;
+    }
+
+    private static boolean isIncludeRectangle(@Nonnull final String paramInclude) {
+        return parseIncludes(paramInclude).contains(ParamInclude.RECTANGLE);
+    }
+
+    @Nonnull
+    private static ApiDTO decodeMapcode(
+            @Nonnull final String code,
+            @Nullable final Territory territoryContext,
+            final boolean includeRectangle) throws ApiNotFoundException {
+        final ConversionEvents.Decode event = new ConversionEvents.Decode();
+        event.begin();
+        event.rectangle = includeRectangle;
+        try {
+            final ApiDTO result;
+            if (includeRectangle) {
+                try {
+                    final Rectangle rectangle = MapcodeCodec.decodeToRectangle(code, territoryContext);
+                    result = new RectangleDTO(rectangle);
+                } catch (final UnknownMapcodeException ignored) {
+                    throw new ApiNotFoundException("No rectangle found for mapcode='" + code + "', context=" + territoryContext);
+                }
+            } else {
+                try {
+                    final Point point = MapcodeCodec.decode(code, territoryContext);
+                    result = new PointDTO(point.getLatDeg(), point.getLonDeg());
+                } catch (final UnknownMapcodeException ignored) {
+                    throw new ApiNotFoundException("No location found for mapcode='" + code + "', context=" + territoryContext);
+                }
+            }
+            event.found = true;
+            return result;
+        } finally {
+            event.commit();
+        }
+    }
+
+    /**
+     * Validate a result DTO (internal consistency check), recording the time it takes.
+     */
+    private static void validate(@Nonnull final String endpoint, @Nonnull final ApiDTO result) {
+        final ServerTiming timing = ServerTiming.current();
+        final long start = timing.start();
+        final ConversionEvents.Validate event = new ConversionEvents.Validate();
+        event.begin();
+        result.validate();
+        event.endpoint = endpoint;
+        event.type = result.getClass();
+        event.commit();
+        timing.stop(Stage.VALIDATE, start);
+    }
+
+    private static void resolveContext(
+            @Nullable final String context,
+            @Nonnull final Map<String, Territory> territoryContexts,
+            @Nonnull final Set<String> invalidContexts) {
+        if ((context != null) && !territoryContexts.containsKey(context) && !invalidContexts.contains(context)) {
+            try {
+                territoryContexts.put(context, resolveTerritory(context, null));
+            } catch (final IllegalArgumentException ignored) {
+                invalidContexts.add(context);
+            }
+        }
+    }
+
+    /**
+     * Decode a single item of a batch request. Failures are returned as an error result for the item,
+     * with the HTTP status code the single-item call would have returned.
+     */
+    @Nonnull
+    private static CoordsResultDTO decodeBatchItem(
+            @Nullable final CoordsRequestDTO request,
+            @Nonnull final Map<String, Territory> territoryContexts,
+            @Nonnull final Set<String> invalidContexts,
+            final boolean includeRectangle,
+            final boolean allowLog,
+            @Nonnull final String client) {
+        if (request == null) {
+            return new CoordsResultDTO("", null, Response.Status.BAD_REQUEST.getStatusCode(), "Missing request item");
+        }
+        final String code = request.getCode();
+        final String context = request.getContext();
+        CoordsResultDTO result;
+        try {
+            request.validate();
+            if ((context != null) && invalidContexts.contains(context)) {
+                throw new ApiInvalidFormatException(PARAM_CONTEXT, context, "territory code");
+            }
+            final Territory territoryContext = (context == null) ? null : territoryContexts.get(context);
+            if (!Mapcode.isValidMapcodeFormat(code)) {
+                throw new ApiInvalidFormatException("mapcode", code, "[XXX] XX.XX[-XX]");
+            }
+
+            // Send a trace event with the mapcode and territory.
+            if (allowLog) {
+                TRACER.eventMapcodeToLatLon(code, territoryContext, UTCTime.now(), client);
+            }
+            final ApiDTO decoded = decodeMapcode(code, territoryContext, includeRectangle);
+            result = includeRectangle ?
+                    new CoordsResultDTO(code, context, (RectangleDTO) decoded) :
+                    new CoordsResultDTO(code, context, (PointDTO) decoded);
+        } catch (final ApiNotFoundException e) {
+            result = new CoordsResultDTO(code, context, Response.Status.NOT_FOUND.getStatusCode(), e.getMessage());
+        } catch (final ApiException e) {
+            result = new CoordsResultDTO(StringUtils.nullToEmpty(code), context,
+                    Response.Status.BAD_REQUEST.getStatusCode(), e.getMessage());
+        }
+
+        // Validate the result (internal consistency check).
+        result.validate();
+        return result;
+    }
+
+    @Nonnull
+    private static String formatCsvLine(@Nonnull final String line, @Nonnull final MapcodesDTO mapcodes) {
+        final MapcodeDTO local = mapcodes.getLocal();
+        final MapcodeDTO international = mapcodes.getInternational();
+        final StringBuilder sb = new StringBuilder(line).append(',');
+        if (local != null) {
+            sb.append(firstNonNull(local.getTerritoryInAlphabet(), local.getTerritory())).append(',');
+            sb.append(firstNonNull(local.getMapcodeInAlphabet(), local.getMapcode())).append(',');
+        } else {
+            sb.append(",,");
+        }
+        sb.append(firstNonNull(international.getMapcodeInAlphabet(), international.getMapcode())).append(',');
+        return sb.toString();
+    }
+
+    @Nullable
+    private static String firstNonNull(@Nullable final String first, @Nullable final String second) {
+        return (first != null) ? first : second;
+    }
+
     @Nullable
     private static Territory getTerritoryAlias(@Nonnull final String paramAlias) {
         Territory context;
@@ -787,16 +1308,31 @@ public class MapcodeResourceImpl implements MapcodeResource {
     }
 
     @Nonnull
-    private static MapcodeDTO createMapcodeDTO(@Nonnull final Tuple<Mapcode, Rectangle> mapcodeAndRectangle, final int precision,
+    private static List<MapcodeDTO> createMapcodeDTOs(@Nonnull final Mapcode[] mapcodes, @Nullable final Rectangle[] rectangles,
+                                                      final int count, final int precision, @Nullable final Alphabet alphabet,
+                                                      final boolean includeOffset, final boolean includeTerritory,
+                                                      final boolean includeAlphabet, final boolean includeRectangle,
+                                                      final double latDeg, final double lonDeg) {
+        final List<MapcodeDTO> mapcodeDTOs = new ArrayList<>(count);
+        for (int i = 0; i < count; ++i) {
+            mapcodeDTOs.add(createMapcodeDTO(mapcodes[i], (rectangles == null) ? null : rectangles[i], precision, alphabet,
+                    includeOffset, includeTerritory, includeAlphabet, includeRectangle, latDeg, lonDeg));
+        }
+        return mapcodeDTOs;
+    }
+
+    @Nonnull
+    private static MapcodeDTO createMapcodeDTO(@Nonnull final Mapcode mapcode, @Nullable final Rectangle rectangle, final int precision,
                                                @Nullable final Alphabet alphabet, final boolean includeOffset,
                                                final boolean includeTerritory, final boolean includeAlphabet, final boolean includeRectangle,
                                                final double latDeg, final double lonDeg) {
-        final Mapcode mapcode = mapcodeAndRectangle.getValue1();
-        final Rectangle rectangle = mapcodeAndRectangle.getValue2();
+        assert !includeRectangle || (rectangle != null);
         final String code = mapcode.getCode(precision);
-        final String codeInAlphabet = mapcode.getCode(precision, alphabet);
         final String territory = mapcode.getTerritory().toString();
-        final String territoryInAlphabet = mapcode.getTerritory().toString(alphabet);
+
+        // Without an alphabet, the code and territory are Roman already.
+        final String codeInAlphabet = (alphabet == null) ? code : mapcode.getCode(precision, alphabet);
+        final String territoryInAlphabet = (alphabet == null) ? territory : mapcode.getTerritory().toString(alphabet);
         final boolean includeOrLocal = includeTerritory || (mapcode.getTerritory() != Territory.AAA);
         return new MapcodeDTO(
                 code,
@@ -0,0 +1,149 @@
+/*
+ * Copyright (C) 2016-2026, Stichting Mapcode Foundation (http://www.mapcode.com)
+ */
+package com.mapcode.services.implementation;
+
+import com.mapcode.services.dto.MapcodeDTO;
+import com.mapcode.services.dto.MapcodesDTO;
+import com.mapcode.services.dto.PointDTO;
+import com.mapcode.services.dto.RectangleDTO;
+import com.tomtom.speedtools.apivalidation.ApiDTO;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.MessageBodyWriter;
+import javax.ws.rs.ext.Provider;
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * XML writer for the DTOs of the conversion responses: {@link MapcodesDTO}, {@link MapcodeDTO},
+ * {@link PointDTO} and {@link RectangleDTO}. The generic JAXB provider looks up a JAXB context and
+ * creates a new marshaller for every response. This writer creates a single JAXB context for all
+ * conversion DTOs once, and reuses its marshallers from a bounded pool.
+ *
+ * The output is identical to that of the generic JAXB provider, as both marshal the same
+ * {@code @XmlRootElement} mappings.
+ */
+@Provider
+@Produces({MediaType.APPLICATION_XML, MediaType.TEXT_XML})
+public class MapcodeXmlWriter implements MessageBodyWriter<ApiDTO> {
+
+    private static final JAXBContext JAXB_CONTEXT = createContext();
+
+    // Marshallers are not thread-safe, so each one is used by one response at a time.
+    private static final BlockingQueue<Marshaller> MARSHALLERS =
+            new ArrayBlockingQueue<>(2 * Runtime.getRuntime().availableProcessors());
+
+    /**
+     * Return whether this writer can write a type of DTO.
+     *
+     * @param type Type of DTO.
+     * @return True if the DTO is written by this writer.
+     */
+    public static boolean isSupported(@Nonnull final Class<?> type) {
+        return MapcodeJsonWriter.isSupported(type);
+    }
+
+    /**
+     * Write a DTO as XML to an output stream. The stream is not closed.
+     *
+     * @param dto     DTO, of a supported type.
+     * @param charset Character encoding of the output, or null for UTF-8.
+     * @param out     Output stream.
+     * @throws IOException If the DTO cannot be written.
+     */
+    public static void writeValue(
+            @Nonnull final ApiDTO dto,
+            @Nullable final String charset,
+            @Nonnull final OutputStream out) throws IOException {
+        assert dto != null;
+        assert out != null;
+        if (!isSupported(dto.getClass())) {
+            throw new IllegalArgumentException("Unsupported DTO: " + dto.getClass().getSimpleName());
+        }
+        try {
+            if ((charset == null) || StandardCharsets.UTF_8.name().equalsIgnoreCase(charset)) {
+                final Marshaller marshaller = acquireMarshaller();
+                try {
+                    marshaller.marshal(dto, out);
+                } finally {
+                    //noinspection ResultOfMethodCallIgnored
+                    MARSHALLERS.offer(marshaller);
+                }
+            } else {
+
+                // Other encodings are rare, so their marshallers are not pooled.
+                final Marshaller marshaller = JAXB_CONTEXT.createMarshaller();
+                marshaller.setProperty(Marshaller.JAXB_ENCODING, charset);
+                marshaller.marshal(dto, out);
+            }
+        } catch (final JAXBException e) {
+            throw new IOException("Cannot write " + dto.getClass().getSimpleName() + " as XML", e);
+        }
+    }
+
+    @Override
+    public boolean isWriteable(
+            @Nonnull final Class<?> type,
+            @Nonnull final Type genericType,
+            @Nonnull final Annotation[] annotations,
+            @Nonnull final MediaType mediaType) {
+        return isSupported(type);
+    }
+
+    @Override
+    public long getSize(
+            @Nonnull final ApiDTO dto,
+            @Nonnull final Class<?> type,
+            @Nonnull final Type genericType,
+            @Nonnull final Annotation[] annotations,
+            @Nonnull final MediaType mediaType) {
+        return -1;
+    }
+
+    @Override
+    public void writeTo(
+            @Nonnull final ApiDTO dto,
+            @Nonnull final Class<?> type,
+            @Nonnull final Type genericType,
+            @Nonnull final Annotation[] annotations,
+            @Nonnull final MediaType mediaType,
+            @Nonnull final MultivaluedMap<String, Object> httpHeaders,
+            @Nonnull final OutputStream entityStream) throws IOException {
+        final ConversionEvents.Serialize event = new ConversionEvents.Serialize();
+        event.begin();
+        writeValue(dto, mediaType.getParameters().get(MediaType.CHARSET_PARAMETER), entityStream);
+        if (event.shouldCommit()) {
+            event.mediaType = mediaType.getType() + '/' + mediaType.getSubtype();
+            event.type = type;
+            event.commit();
+        }
+    }
+
+    @Nonnull
+    private static Marshaller acquireMarshaller() throws JAXBException {
+        final Marshaller marshaller = MARSHALLERS.poll();
+        return (marshaller != null) ? marshaller : JAXB_CONTEXT.createMarshaller();
+    }
+
+    @Nonnull
+    private static JAXBContext createContext() {
+        try {
+            return JAXBContext.newInstance(MapcodesDTO.class, MapcodeDTO.class, PointDTO.class, RectangleDTO.class);
+        } catch (final JAXBException e) {
+            throw new IllegalStateException("Cannot create JAXB context for the conversion DTOs", e);
+        }
+    }
+}
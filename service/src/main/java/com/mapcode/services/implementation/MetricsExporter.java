@@ -0,0 +1,238 @@
+/*
+ * Copyright (C) 2016-2026, Stichting Mapcode Foundation (http://www.mapcode.com)
+ */
+package com.mapcode.services.implementation;
+
+import com.mapcode.services.implementation.CompressionInterceptor.Coding;
+import com.mapcode.services.implementation.RequestMetrics.Endpoint;
+import com.mapcode.services.implementation.RequestMetrics.Rejection;
+
+import javax.annotation.Nonnull;
+import javax.inject.Inject;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes the request metrics, the {@link BoundaryService} and {@link CompressionInterceptor} statistics and
+ * JVM memory, GC and thread gauges in the Prometheus text exposition format (version 0.0.4).
+ *
+ * Latencies are exported as summaries, with quantiles computed over all requests since startup.
+ */
+public final class MetricsExporter {
+
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+    private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+    private static final double MICROS_PER_SECOND = TimeUnit.SECONDS.toMicros(1);
+
+    @Nonnull
+    private final RequestMetrics requestMetrics;
+    @Nonnull
+    private final BoundaryService boundaryService;
+    @Nonnull
+    private final CompressionInterceptor compressionInterceptor;
+
+    @Inject
+    public MetricsExporter(
+            @Nonnull final RequestMetrics requestMetrics,
+            @Nonnull final BoundaryService boundaryService,
+            @Nonnull final CompressionInterceptor compressionInterceptor) {
+        assert requestMetrics != null;
+        assert boundaryService != null;
+        assert compressionInterceptor != null;
+        this.requestMetrics = requestMetrics;
+        this.boundaryService = boundaryService;
+        this.compressionInterceptor = compressionInterceptor;
+    }
+
+    /**
+     * Return all metrics.
+     *
+     * @return Metrics in Prometheus text format.
+     */
+    @Nonnull
+    public String export() {
+        final StringBuilder out = new StringBuilder(4096);
+        writeRequests(out);
+        writeBoundaryService(out);
+        writeCompression(out);
+        writeJvm(out);
+        return out.toString();
+    }
+
+    private void writeRequests(@Nonnull final StringBuilder out) {
+        final SortedMap<String, Endpoint> endpoints = requestMetrics.getEndpoints();
+
+        header(out, "mapcode_requests_total", "counter", "Number of handled requests.");
+        endpoints.forEach((name, endpoint) ->
+                sample(out, "mapcode_requests_total", labels("endpoint", name), endpoint.getLatency().getCount()));
+
+        header(out, "mapcode_request_errors_total", "counter", "Number of requests that failed, by exception type.");
+        endpoints.forEach((name, endpoint) -> {
+            for (final Map.Entry<String, Long> error : endpoint.getErrors().entrySet()) {
+                sample(out, "mapcode_request_errors_total",
+                        labels("endpoint", name, "exception", error.getKey()), error.getValue());
+            }
+        });
+
+        header(out, "mapcode_requests_rejected_total", "counter",
+                "Number of requests rejected by rate limiting or load shedding.");
+        endpoints.forEach((name, endpoint) -> {
+            for (final Rejection rejection : Rejection.values()) {
+                sample(out, "mapcode_requests_rejected_total",
+                        labels("endpoint", name, "reason", rejection.name().toLowerCase(Locale.ROOT)),
+                        endpoint.getRejections(rejection));
+            }
+        });
+
+        header(out, "mapcode_request_duration_seconds", "summary",
+                "Time from arrival until the response was produced, including queueing.");
+        endpoints.forEach((name, endpoint) ->
+                summary(out, "mapcode_request_duration_seconds", endpoint.getLatency(), "endpoint", name));
+    }
+
+    private void writeBoundaryService(@Nonnull final StringBuilder out) {
+        final LatencyHistogram latency = boundaryService.getLookupLatency();
+        header(out, "mapcode_boundary_lookup_duration_seconds", "summary", "Time of a territory boundary lookup.");
+        summary(out, "mapcode_boundary_lookup_duration_seconds", latency);
+
+        header(out, "mapcode_boundary_lookup_candidates_total", "counter",
+                "Number of candidate polygons tested, over all lookups.");
+        sample(out, "mapcode_boundary_lookup_candidates_total", labels(), boundaryService.getLookupCandidates());
+
+        header(out, "mapcode_boundary_cache_misses_total", "counter",
+                "Number of candidate polygons that were not in the prepared geometry cache.");
+        sample(out, "mapcode_boundary_cache_misses_total", labels(), boundaryService.getPreparedCacheMisses());
+
+        header(out, "mapcode_boundary_cache_size", "gauge", "Number of cached prepared geometries.");
+        sample(out, "mapcode_boundary_cache_size", labels(), boundaryService.preparedCacheSize());
+
+        header(out, "mapcode_boundary_cache_capacity", "gauge", "Maximum number of cached prepared geometries.");
+        sample(out, "mapcode_boundary_cache_capacity", labels(), boundaryService.getPreparedCacheCapacity());
+    }
+
+    private void writeCompression(@Nonnull final StringBuilder out) {
+        final Coding[] codings = Coding.values();
+
+        header(out, "mapcode_compression_responses_total", "counter", "Number of compressed responses.");
+        for (final Coding coding : codings) {
+            sample(out, "mapcode_compression_responses_total", labels("coding", coding.getName()),
+                    compressionInterceptor.getCompressedResponses(coding));
+        }
+
+        header(out, "mapcode_compression_bytes_saved_total", "counter",
+                "Number of bytes saved by compressing responses.");
+        for (final Coding coding : codings) {
+            sample(out, "mapcode_compression_bytes_saved_total", labels("coding", coding.getName()),
+                    compressionInterceptor.getBytesSaved(coding));
+        }
+
+        header(out, "mapcode_compression_seconds_total", "counter", "Time spent compressing responses.");
+        for (final Coding coding : codings) {
+            sample(out, "mapcode_compression_seconds_total", labels("coding", coding.getName()),
+                    compressionInterceptor.getCompressNanos(coding) / NANOS_PER_SECOND);
+        }
+    }
+
+    private static void writeJvm(@Nonnull final StringBuilder out) {
+        final MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        final MemoryUsage nonHeap = ManagementFactory.getMemoryMXBean().getNonHeapMemoryUsage();
+
+        header(out, "jvm_memory_used_bytes", "gauge", "Used JVM memory.");
+        sample(out, "jvm_memory_used_bytes", labels("area", "heap"), heap.getUsed());
+        sample(out, "jvm_memory_used_bytes", labels("area", "nonheap"), nonHeap.getUsed());
+
+        header(out, "jvm_memory_committed_bytes", "gauge", "Committed JVM memory.");
+        sample(out, "jvm_memory_committed_bytes", labels("area", "heap"), heap.getCommitted());
+        sample(out, "jvm_memory_committed_bytes", labels("area", "nonheap"), nonHeap.getCommitted());
+
+        header(out, "jvm_memory_max_bytes", "gauge", "Maximum JVM memory, or -1 if undefined.");
+        sample(out, "jvm_memory_max_bytes", labels("area", "heap"), heap.getMax());
+        sample(out, "jvm_memory_max_bytes", labels("area", "nonheap"), nonHeap.getMax());
+
+        header(out, "jvm_gc_collections_total", "counter", "Number of garbage collections.");
+        for (final GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            sample(out, "jvm_gc_collections_total", labels("gc", gc.getName()), Math.max(0, gc.getCollectionCount()));
+        }
+
+        header(out, "jvm_gc_collection_seconds_total", "counter", "Time spent in garbage collections.");
+        for (final GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            sample(out, "jvm_gc_collection_seconds_total", labels("gc", gc.getName()),
+                    Math.max(0, gc.getCollectionTime()) / 1000.0);
+        }
+
+        header(out, "jvm_threads_live", "gauge", "Number of live threads.");
+        sample(out, "jvm_threads_live", labels(), ManagementFactory.getThreadMXBean().getThreadCount());
+    }
+
+    private static void summary(
+            @Nonnull final StringBuilder out,
+            @Nonnull final String name,
+            @Nonnull final LatencyHistogram histogram,
+            @Nonnull final String... namesAndValues) {
+        final String[] withQuantile = Arrays.copyOf(namesAndValues, namesAndValues.length + 2);
+        withQuantile[namesAndValues.length] = "quantile";
+        for (final double quantile : QUANTILES) {
+            withQuantile[namesAndValues.length + 1] = String.valueOf(quantile);
+            sample(out, name, labels(withQuantile), histogram.getValueAtQuantileMicros(quantile) / MICROS_PER_SECOND);
+        }
+        sample(out, name + "_sum", labels(namesAndValues), histogram.getSumNanos() / NANOS_PER_SECOND);
+        sample(out, name + "_count", labels(namesAndValues), histogram.getCount());
+    }
+
+    private static void header(
+            @Nonnull final StringBuilder out,
+            @Nonnull final String name,
+            @Nonnull final String type,
+            @Nonnull final String help) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void sample(
+            @Nonnull final StringBuilder out,
+            @Nonnull final String name,
+            @Nonnull final String labels,
+            final long value) {
+        out.append(name).append(labels).append(' ').append(value).append('\n');
+    }
+
+    private static void sample(
+            @Nonnull final StringBuilder out,
+            @Nonnull final String name,
+            @Nonnull final String labels,
+            final double value) {
+        out.append(name).append(labels).append(' ').append(value).append('\n');
+    }
+
+    /**
+     * Create a label set from name and value pairs, with escaped values.
+     *
+     * @param namesAndValues Alternating label names and values.
+     * @return Label set, such as {endpoint="getStatus"}, or an empty string if there are no labels.
+     */
+    @Nonnull
+    static String labels(@Nonnull final String... namesAndValues) {
+        assert (namesAndValues.length % 2) == 0;
+        if (namesAndValues.length == 0) {
+            return "";
+        }
+        final StringBuilder labels = new StringBuilder("{");
+        for (int i = 0; i < namesAndValues.length; i += 2) {
+            if (i > 0) {
+                labels.append(',');
+            }
+            labels.append(namesAndValues[i]).append("=\"").
+                    append(namesAndValues[i + 1].replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n")).
+                    append('"');
+        }
+        return labels.append('}').toString();
+    }
+}
@@ -19,6 +19,7 @@ package com.mapcode.services.implementation;
 import com.mapcode.services.MapcodeResource;
 import com.mapcode.services.OnlyXmlResource;
 import com.mapcode.services.RootResource;
+import com.mapcode.services.dto.CoordsRequestsDTO;
 import com.tomtom.speedtools.apivalidation.exceptions.ApiIntegerOutOfRangeException;
 import com.tomtom.speedtools.apivalidation.exceptions.ApiInvalidFormatException;
 import com.tomtom.speedtools.apivalidation.exceptions.ApiNotFoundException;
@@ -115,6 +116,17 @@ public class OnlyXmlResourceImpl implements OnlyXmlResource {
         mapcodeResource.convertMapcodeToLatLon(paramCode, paramContext, paramTerritoryMustBeNull, paramInclude, paramClient, paramDebug, response);
     }
 
+    @Override
+    public void convertMapcodesToLatLonXml(
+            @Nullable final CoordsRequestsDTO paramRequests,
+            @Nonnull final String paramInclude,
+            @Nonnull final String paramClient,
+            @Nonnull final String paramDebug,
+            @Suspended @Nonnull final AsyncResponse response)
+            throws ApiInvalidFormatException {
+        mapcodeResource.convertMapcodesToLatLon(paramRequests, paramInclude, paramClient, paramDebug, response);
+    }
+
     @Override
     public void getTerritoriesXml(
             final int offset,
@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2016-2026, Stichting Mapcode Foundation (http://www.mapcode.com)
+ */
+package com.mapcode.services.implementation;
+
+import javax.annotation.Nonnull;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+/**
+ * Converts a text stream line by line, writing exactly one output line per non-empty input line.
+ * Lines are converted concurrently on an executor, but written in input order. At most 'maxInFlight'
+ * lines are read ahead of the output, so memory use does not depend on the size of the input.
+ *
+ * If writing fails (for example because the client disconnected), lines that are not converted yet
+ * are cancelled and the exception is rethrown.
+ */
+public final class OrderedLineConverter {
+
+    @Nonnull
+    private final Function<String, String> converter;
+    @Nonnull
+    private final Executor executor;
+    private final int maxInFlight;
+
+    /**
+     * Create a line converter.
+     *
+     * @param converter   Converts a single input line into a single output line (without line separator).
+     *                    It must not throw; failures should be converted into an output line instead.
+     * @param executor    Executor to run the conversions on.
+     * @param maxInFlight Maximum number of lines that are read, but not written yet. Must be &gt; 0.
+     */
+    public OrderedLineConverter(
+            @Nonnull final Function<String, String> converter,
+            @Nonnull final Executor executor,
+            final int maxInFlight) {
+        assert converter != null;
+        assert executor != null;
+        assert maxInFlight > 0;
+        this.converter = converter;
+        this.executor = executor;
+        this.maxInFlight = maxInFlight;
+    }
+
+    /**
+     * Convert all lines from 'in' and write them to 'out'. Both are read and written as UTF-8.
+     * The output is flushed whenever the input has no more data available yet, so results of a slow
+     * producer are not held back in the buffer.
+     *
+     * @param in  Input stream. Not closed by this method.
+     * @param out Output stream. Flushed, but not closed by this method.
+     * @return Number of lines converted.
+     * @throws IOException If reading or writing fails.
+     */
+    public long convert(
+            @Nonnull final InputStream in,
+            @Nonnull final OutputStream out) throws IOException {
+        assert in != null;
+        assert out != null;
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        final Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        final ArrayDeque<CompletableFuture<String>> inFlight = new ArrayDeque<>(maxInFlight);
+        long count = 0;
+        try {
+            while (true) {
+
+                // Write what is done already and flush it, before (possibly) blocking on input.
+                if (!reader.ready()) {
+                    while (!inFlight.isEmpty() && inFlight.peekFirst().isDone()) {
+                        writeLine(writer, inFlight.removeFirst());
+                    }
+                    writer.flush();
+                }
+                final String line = reader.readLine();
+                if (line == null) {
+                    break;
+                }
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+
+                // Wait for the oldest line if too many lines are being converted.
+                if (inFlight.size() >= maxInFlight) {
+                    writeLine(writer, inFlight.removeFirst());
+                }
+                inFlight.addLast(CompletableFuture.supplyAsync(() -> converter.apply(line), executor));
+                ++count;
+            }
+            while (!inFlight.isEmpty()) {
+                writeLine(writer, inFlight.removeFirst());
+            }
+            writer.flush();
+            return count;
+        } finally {
+
+            // Only non-empty if the conversion failed; conversions that did not start yet are skipped.
+            inFlight.forEach(future -> future.cancel(false));
+        }
+    }
+
+    private static void writeLine(
+            @Nonnull final Writer writer,
+            @Nonnull final CompletableFuture<String> future) throws IOException {
+        writer.write(future.join());
+        writer.write('\n');
+    }
+}
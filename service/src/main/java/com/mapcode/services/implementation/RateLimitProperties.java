@@ -0,0 +1,222 @@
+/*
+ * Copyright (C) 2016-2026, Stichting Mapcode Foundation (http://www.mapcode.com)
+ */
+package com.mapcode.services.implementation;
+
+import com.tomtom.speedtools.guice.InvalidPropertyValueException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Configuration of the per-client rate limits, see {@link ClientRateLimiter}.
+ *
+ * The limits are read from the classpath file "mapcode-ratelimit.properties", rather than from
+ * "mapcode.properties", because SpeedTools only allows properties in that file that are also defined in
+ * "speedtools.default.properties".
+ */
+public final class RateLimitProperties {
+    private static final Logger LOG = LoggerFactory.getLogger(RateLimitProperties.class);
+
+    public static final String RESOURCE_NAME = "/mapcode-ratelimit.properties";
+
+    private static final String KEY_REQUESTS_PER_SEC = "RateLimit.requestsPerSec";
+    private static final String KEY_BURST = "RateLimit.burst";
+    private static final String KEY_ANONYMOUS_REQUESTS_PER_SEC = "RateLimit.anonymousRequestsPerSec";
+    private static final String KEY_ANONYMOUS_BURST = "RateLimit.anonymousBurst";
+    private static final String KEY_MAX_CLIENTS = "RateLimit.maxClients";
+    private static final String KEY_CLIENTS = "RateLimit.clients";
+
+    private static final int DEFAULT_MAX_CLIENTS = 10000;
+
+    /**
+     * Unlimited rates, for use without configuration (tests, offline conversion).
+     */
+    public static final RateLimitProperties UNLIMITED = new RateLimitProperties(
+            Limit.UNLIMITED, Limit.UNLIMITED, DEFAULT_MAX_CLIENTS, Collections.emptyMap());
+
+    /**
+     * Sustained rate and burst size of a token bucket.
+     */
+    public static final class Limit {
+        public static final Limit UNLIMITED = new Limit(0.0, 0);
+
+        private final double requestsPerSec;
+        private final int burst;
+
+        /**
+         * Create a limit.
+         *
+         * @param requestsPerSec Sustained number of requests per second; 0 means unlimited.
+         * @param burst          Number of requests that may be issued at once, must be &gt; 0 if limited.
+         */
+        public Limit(final double requestsPerSec, final int burst) {
+            if ((requestsPerSec < 0.0) || ((requestsPerSec > 0.0) && (burst <= 0))) {
+                throw new InvalidPropertyValueException("Invalid rate limit: " + requestsPerSec + " requests/sec, burst " + burst);
+            }
+            this.requestsPerSec = requestsPerSec;
+            this.burst = burst;
+        }
+
+        public double getRequestsPerSec() {
+            return requestsPerSec;
+        }
+
+        public int getBurst() {
+            return burst;
+        }
+
+        public boolean isUnlimited() {
+            return requestsPerSec == 0.0;
+        }
+    }
+
+    @Nonnull
+    private final Limit clientLimit;
+    @Nonnull
+    private final Limit anonymousLimit;
+    private final int maxClients;
+    @Nonnull
+    private final Map<String, Limit> clientOverrides;
+
+    /**
+     * Create rate limit properties.
+     *
+     * @param clientLimit     Limit for every single client identifier.
+     * @param anonymousLimit  Limit shared by all callers without a client identifier.
+     * @param maxClients      Maximum number of client identifiers to track.
+     * @param clientOverrides Limits for specific client identifiers.
+     */
+    public RateLimitProperties(
+            @Nonnull final Limit clientLimit,
+            @Nonnull final Limit anonymousLimit,
+            final int maxClients,
+            @Nonnull final Map<String, Limit> clientOverrides) {
+        assert clientLimit != null;
+        assert anonymousLimit != null;
+        assert clientOverrides != null;
+        if (maxClients <= 0) {
+            throw new InvalidPropertyValueException(KEY_MAX_CLIENTS + " must be > 0, but is " + maxClients);
+        }
+        this.clientLimit = clientLimit;
+        this.anonymousLimit = anonymousLimit;
+        this.maxClients = maxClients;
+        this.clientOverrides = Collections.unmodifiableMap(new HashMap<>(clientOverrides));
+    }
+
+    /**
+     * Read the rate limits from {@link #RESOURCE_NAME} on the classpath.
+     *
+     * @return Rate limits, or {@link #UNLIMITED} if the file does not exist.
+     * @throws InvalidPropertyValueException If the file contains an invalid value.
+     */
+    @Nonnull
+    public static RateLimitProperties load() {
+        try (InputStream stream = RateLimitProperties.class.getResourceAsStream(RESOURCE_NAME)) {
+            if (stream == null) {
+                LOG.info("load: no {} found on the classpath; rate limiting is disabled", RESOURCE_NAME);
+                return UNLIMITED;
+            }
+            final Properties properties = new Properties();
+            properties.load(stream);
+            return fromProperties(properties);
+        } catch (final IOException e) {
+            throw new InvalidPropertyValueException("Cannot read " + RESOURCE_NAME + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Parse rate limits. The per-client overrides are specified as a comma-separated list of
+     * "client:requestsPerSec:burst".
+     *
+     * @param properties Properties.
+     * @return Rate limits.
+     * @throws InvalidPropertyValueException If a value is missing or invalid.
+     */
+    @Nonnull
+    public static RateLimitProperties fromProperties(@Nonnull final Properties properties) {
+        assert properties != null;
+        final Limit clientLimit = new Limit(
+                parseDouble(properties, KEY_REQUESTS_PER_SEC),
+                parseInt(properties, KEY_BURST));
+        final Limit anonymousLimit = new Limit(
+                parseDouble(properties, KEY_ANONYMOUS_REQUESTS_PER_SEC),
+                parseInt(properties, KEY_ANONYMOUS_BURST));
+        final int maxClients = parseInt(properties, KEY_MAX_CLIENTS);
+
+        final Map<String, Limit> clientOverrides = new HashMap<>();
+        final String clients = properties.getProperty(KEY_CLIENTS, "").trim();
+        if (!clients.isEmpty()) {
+            for (final String client : clients.split(",")) {
+                final String[] parts = client.trim().split(":");
+                if ((parts.length != 3) || parts[0].trim().isEmpty()) {
+                    throw new InvalidPropertyValueException(KEY_CLIENTS + " must be a list of 'client:requestsPerSec:burst', " +
+                            "but contains '" + client.trim() + '\'');
+                }
+                clientOverrides.put(parts[0].trim(), new Limit(
+                        parseDouble(KEY_CLIENTS, parts[1]),
+                        parseInt(KEY_CLIENTS, parts[2])));
+            }
+        }
+        return new RateLimitProperties(clientLimit, anonymousLimit, maxClients, clientOverrides);
+    }
+
+    @Nonnull
+    public Limit getClientLimit() {
+        return clientLimit;
+    }
+
+    @Nonnull
+    public Limit getAnonymousLimit() {
+        return anonymousLimit;
+    }
+
+    public int getMaxClients() {
+        return maxClients;
+    }
+
+    @Nonnull
+    public Map<String, Limit> getClientOverrides() {
+        return clientOverrides;
+    }
+
+    private static double parseDouble(@Nonnull final Properties properties, @Nonnull final String key) {
+        return parseDouble(key, getRequired(properties, key));
+    }
+
+    private static int parseInt(@Nonnull final Properties properties, @Nonnull final String key) {
+        return parseInt(key, getRequired(properties, key));
+    }
+
+    private static double parseDouble(@Nonnull final String key, @Nonnull final String value) {
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (final NumberFormatException ignored) {
+            throw new InvalidPropertyValueException(key + " must be a number, but is '" + value + '\'');
+        }
+    }
+
+    private static int parseInt(@Nonnull final String key, @Nonnull final String value) {
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (final NumberFormatException ignored) {
+            throw new InvalidPropertyValueException(key + " must be an integer, but is '" + value + '\'');
+        }
+    }
+
+    @Nonnull
+    private static String getRequired(@Nonnull final Properties properties, @Nonnull final String key) {
+        final String value = properties.getProperty(key);
+        if (value == null) {
+            throw new InvalidPropertyValueException("Missing property " + key + " in " + RESOURCE_NAME);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2016-2026, Stichting Mapcode Foundation (http://www.mapcode.com)
+ */
+package com.mapcode.services.implementation;
+
+import javax.annotation.Nonnull;
+import javax.inject.Inject;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-endpoint request metrics: request counts, latencies, errors by exception type and rejections.
+ * Endpoints are identified by the handler name passed to the {@link AdmissionProcessor}, which records
+ * them. All methods are lock-free and can be called from any thread.
+ */
+public final class RequestMetrics {
+
+    /**
+     * Reasons to reject a request before it was handled.
+     */
+    public enum Rejection {
+        RATE_LIMIT,         // 429 Too Many Requests.
+        OVERLOAD            // 503 Service Unavailable.
+    }
+
+    @Nonnull
+    private final ConcurrentMap<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+
+    @Inject
+    public RequestMetrics() {
+        // Empty.
+    }
+
+    /**
+     * Record a handled request.
+     *
+     * @param endpoint Endpoint name.
+     * @param nanos    Time from arrival until the response was resumed, including time in the queue.
+     */
+    public void recordRequest(@Nonnull final String endpoint, final long nanos) {
+        assert endpoint != null;
+        getEndpoint(endpoint).latency.record(nanos);
+    }
+
+    /**
+     * Record an exception thrown by a handler, such as an ApiException that is returned as an error status.
+     *
+     * @param endpoint  Endpoint name.
+     * @param exception Exception.
+     */
+    public void recordError(@Nonnull final String endpoint, @Nonnull final Throwable exception) {
+        assert endpoint != null;
+        assert exception != null;
+        getEndpoint(endpoint).errors.computeIfAbsent(exception.getClass().getSimpleName(),
+                key -> new LongAdder()).increment();
+    }
+
+    public void recordRejection(@Nonnull final String endpoint, @Nonnull final Rejection rejection) {
+        assert endpoint != null;
+        assert rejection != null;
+        getEndpoint(endpoint).rejections.get(rejection).increment();
+    }
+
+    /**
+     * Return the metrics of all endpoints that received requests, sorted by name.
+     *
+     * @return Endpoint metrics by endpoint name.
+     */
+    @Nonnull
+    public SortedMap<String, Endpoint> getEndpoints() {
+        return Collections.unmodifiableSortedMap(new TreeMap<>(endpoints));
+    }
+
+    @Nonnull
+    private Endpoint getEndpoint(@Nonnull final String endpoint) {
+        final Endpoint existing = endpoints.get(endpoint);
+        return (existing != null) ? existing : endpoints.computeIfAbsent(endpoint, key -> new Endpoint());
+    }
+
+    /**
+     * Metrics of a single endpoint.
+     */
+    public static final class Endpoint {
+        @Nonnull
+        private final LatencyHistogram latency = new LatencyHistogram();
+        @Nonnull
+        private final ConcurrentMap<String, LongAdder> errors = new ConcurrentHashMap<>();
+        @Nonnull
+        private final Map<Rejection, LongAdder> rejections;
+
+        private Endpoint() {
+            final Map<Rejection, LongAdder> map = new EnumMap<>(Rejection.class);
+            for (final Rejection rejection : Rejection.values()) {
+                map.put(rejection, new LongAdder());
+            }
+            this.rejections = Collections.unmodifiableMap(map);
+        }
+
+        @Nonnull
+        public LatencyHistogram getLatency() {
+            return latency;
+        }
+
+        /**
+         * Return the number of errors, by simple class name of the exception.
+         *
+         * @return Errors by exception type, sorted by name.
+         */
+        @Nonnull
+        public SortedMap<String, Long> getErrors() {
+            final SortedMap<String, Long> result = new TreeMap<>();
+            errors.forEach((type, count) -> result.put(type, count.sum()));
+            return result;
+        }
+
+        public long getRejections(@Nonnull final Rejection rejection) {
+            return rejections.get(rejection).sum();
+        }
+    }
+}
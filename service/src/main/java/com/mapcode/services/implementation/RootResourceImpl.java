@@ -16,15 +16,13 @@
 
 package com.mapcode.services.implementation;
 
-import com.mapcode.services.MapcodeResource;
+import akka.dispatch.Futures;
+import com.mapcode.services.ApiConstants;
 import com.mapcode.services.RootResource;
-import com.mapcode.services.dto.MapcodeDTO;
-import com.mapcode.services.dto.PointDTO;
+import com.mapcode.services.dto.ReadinessDTO;
 import com.mapcode.services.dto.VersionDTO;
+import com.mapcode.services.implementation.AdmissionProcessor.Lane;
 import com.tomtom.speedtools.maven.MavenProperties;
-import com.tomtom.speedtools.time.UTCTime;
-import com.tomtom.speedtools.utils.MathUtils;
-import org.joda.time.DateTime;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -33,6 +31,7 @@ import javax.inject.Inject;
 import javax.ws.rs.container.AsyncResponse;
 import javax.ws.rs.container.Suspended;
 import javax.ws.rs.core.Response;
+import java.util.Locale;
 
 /**
  * This class implements the REST API that deals with the root resource for the Mapcode REST API.
@@ -63,7 +62,13 @@ public class RootResourceImpl implements RootResource {
 
             "GET /mapcode         Returns this help page.\n" +
             "GET /mapcode/version Returns the software version.\n" +
-            "GET /mapcode/status  Returns 200 if the service OK.\n\n" +
+            "GET /mapcode/status  Returns 200 if the service OK.\n" +
+            "GET /mapcode/status/live   Returns 200 if the service is running.\n" +
+            "GET /mapcode/status/ready  Returns 200 if the service is ready, 503 if not.\n" +
+            "GET /mapcode/metrics       Returns the service metrics in Prometheus text format.\n\n" +
+
+            "   Add 'timing=true' to the query parameters of any request to get a 'Server-Timing' header with the\n" +
+            "   durations of the stages of the request (parse, encode, rectangle, decode, boundary, validate, serialize).\n\n" +
 
             "GET /mapcode/codes/{lat},{lon}[/[mapcodes|local|international]]\n" +
             "     [?precision=[0..8] & territory={restrictToTerritory} & country={restrictToCountry}\n" +
@@ -144,6 +149,40 @@ public class RootResourceImpl implements RootResource {
             "     include         : An additional option may be set:\n" +
             "                         rectangle = Include the encompassing rectangle of a mapcode.\n\n" +
 
+            "POST /mapcode/coords [?include={include}]\n" +
+            "   Convert a batch of mapcodes into latitude/longitude pairs with a single request.\n\n" +
+
+            "   Request body:\n" +
+            "     A list of {code, context} items, where 'context' is optional and has the same meaning as for\n" +
+            "     'GET /mapcode/coords/{code}'. As JSON: {\"requests\":[{\"code\":\"NLD 49.4V\"}, {\"code\":\"JL0.KP\",\"context\":\"LUX\"}]}\n" +
+            "     As XML: <requests><request><code>NLD 49.4V</code></request>...</requests>\n" +
+            "     At most " + ApiConstants.API_BATCH_SIZE_MAX + " items are allowed per request.\n\n" +
+
+            "   Query parameters:\n" +
+            "     include         : An additional option may be set:\n" +
+            "                         rectangle = Return the encompassing rectangle of each mapcode instead of a point.\n\n" +
+
+            "   Returns: the number of results in 'total' and a list of results in request order. Each result echoes\n" +
+            "   'code' and 'context' and contains either a 'point', a 'rectangle', or an 'errorCode' (the HTTP status code\n" +
+            "   the single mapcode request would have returned) with an 'errorMessage'. A failing item does not fail the\n" +
+            "   other items.\n\n" +
+
+            "POST /mapcode/stream/codes [?precision={precision} & territory={restrictToTerritory} & alphabet={alphabet} & include={include}]\n" +
+            "   Convert a stream of latitude/longitude pairs into mapcodes, for inputs that are too large for a single request.\n" +
+            "   One result line is written per (non-empty) input line, in input order, as soon as it is available.\n\n" +
+
+            "   Request body (set 'Content-Type' to select the format; the response has the same format):\n" +
+            "     application/x-ndjson : One JSON object per line, for example: {\"latDeg\":50.141726,\"lonDeg\":6.1358875}\n" +
+            "                            Every result line is the same as for 'GET /mapcode/codes/{lat},{lon}', or an\n" +
+            "                            object with an 'errorCode' and 'errorMessage'.\n" +
+            "     text/csv             : Latitude and longitude as the first 2 columns, without a header line. Every result line\n" +
+            "                            is the input line followed by the columns: territory, local mapcode, international mapcode\n" +
+            "                            and errorCode (empty if no error occurred).\n\n" +
+
+            "   Query parameters:\n" +
+            "     precision, territory, alphabet and include have the same meaning as for 'GET /mapcode/codes/{lat},{lon}' and\n" +
+            "     apply to all lines.\n\n" +
+
             "GET /mapcode/territories [?offset={offset}&count={count}]\n" +
             "   Return a list of all territories.\n\n" +
 
@@ -194,18 +233,26 @@ public class RootResourceImpl implements RootResource {
             "    GET /mapcode/xml/territories       GET /mapcode/json/territories\n" +
             "    GET /mapcode/xml/alphabets         GET /mapcode/json/alphabets\n";
 
-    private final MapcodeResource mapcodeResource;
+    private final AdmissionProcessor processor;
+    private final HealthCheck healthCheck;
+    private final MetricsExporter metricsExporter;
     private final MavenProperties mavenProperties;
 
     @Inject
     public RootResourceImpl(
-            @Nonnull final MapcodeResource mapcodeResource,
+            @Nonnull final AdmissionProcessor processor,
+            @Nonnull final HealthCheck healthCheck,
+            @Nonnull final MetricsExporter metricsExporter,
             @Nonnull final MavenProperties mavenProperties) {
-        assert mapcodeResource != null;
+        assert processor != null;
+        assert healthCheck != null;
+        assert metricsExporter != null;
         assert mavenProperties != null;
 
         // Store the injected values.
-        this.mapcodeResource = mapcodeResource;
+        this.processor = processor;
+        this.healthCheck = healthCheck;
+        this.metricsExporter = metricsExporter;
         this.mavenProperties = mavenProperties;
     }
 
@@ -239,82 +286,37 @@ public class RootResourceImpl implements RootResource {
     @Override
     public void getStatus(@Suspended @Nonnull final AsyncResponse response) {
         assert response != null;
-        LOG.info("getStatus: get status");
-
-        try {
-            // Execute a lat/lon to mapcode conversion
-            final double latDeg = 52.158974;
-            final double lonDeg = 4.492479;
-            final String mapcode = "QJM.1G";
-            final String territory = "NLD";
-            final int precision = 0;
-            final String include = "";
-            final String client = "";
-            final String allowLog = "false";
-            final TestAsyncResponse asyncResponse1 = new TestAsyncResponse();
-            mapcodeResource.convertLatLonToMapcode(String.valueOf(latDeg), String.valueOf(lonDeg), "local",
-                    String.valueOf(precision), territory, null, null, null, include, client,
-                    allowLog, asyncResponse1);
-            waitForResponse(asyncResponse1);
-
-            // Check if conversion was OK.
-            if (asyncResponse1.getResponse() instanceof Response) {
-                final Response response1 = (Response) asyncResponse1.getResponse();
-                if (response1.getEntity() instanceof MapcodeDTO) {
-                    final MapcodeDTO result1 = (MapcodeDTO) response1.getEntity();
-                    final MapcodeDTO expected1 = new MapcodeDTO(mapcode, null, territory, null);
-                    //noinspection ConstantConditions
-                    if (expected1.getMapcode().equals(result1.getMapcode()) &&
-                            expected1.getTerritory().equals(result1.getTerritory())) {
-
-                        // Now execute a mapcode to lat/lon conversion.
-                        final TestAsyncResponse asyncResponse2 = new TestAsyncResponse();
-                        mapcodeResource.convertMapcodeToLatLon(mapcode, territory,
-                                null, include, client, allowLog, asyncResponse2);
-                        waitForResponse(asyncResponse2);
-
-                        if (asyncResponse2.getResponse() instanceof Response) {
-                            final Response response2 = (Response) asyncResponse2.getResponse();
-                            if (response2.getEntity() instanceof PointDTO) {
-                                final PointDTO result2 = (PointDTO) response2.getEntity();
-                                final PointDTO expected2 = new PointDTO(latDeg, lonDeg);
-                                if (MathUtils.isAlmostEqual(expected2.getLatDeg(), result2.getLatDeg()) &&
-                                        MathUtils.isAlmostEqual(expected2.getLonDeg(), result2.getLonDeg())) {
-
-                                    // Yes, all is OK.
-                                    response.resume(Response.ok().build());
-                                    return;
-                                }
-                            }
-                        }
-                        response.resume(Response.ok().build());
-                        return;
-                    }
-                }
-            }
-        } catch (final InterruptedException ignored) {
-            // Empty.
-        }
-
-        // This are not OK.
-        response.resume(Response.serverError().build());
+        processor.process(Lane.CHEAP, null, "getStatus", LOG, response, () -> {
+            LOG.info("getStatus: get status");
+
+            // Return the result of the last self-check; only the very first probe may have to wait for it.
+            healthCheck.getStatus().thenAccept(healthy ->
+                    response.resume(healthy ? Response.ok().build() : Response.serverError().build()));
+            return Futures.successful(null);
+        });
     }
 
-    private static void waitForResponse(@Nonnull  final TestAsyncResponse asyncResponse) throws InterruptedException {
-        final int sleepMillis = 100;                            // No more than 10 reqs/sec.
-        final DateTime now = UTCTime.now();
-        final DateTime until = now.plusSeconds(10);             // Wait at most 10 seconds.
-        while (now.isBefore(until)) {
-            if (asyncResponse.isReady()) {
-                if (asyncResponse.getResponse() != null) {      // If the object is null, retry.
-
-                    // All OK.
-                    return;
-                }
-            }
-            //noinspection BusyWait
-            Thread.sleep(sleepMillis);
-        }
-        throw new IllegalStateException("Did not receive a response");
+    @Override
+    @Nonnull
+    public Response getLiveness() {
+        return Response.ok().build();
+    }
+
+    @Override
+    @Nonnull
+    public Response getReadiness() {
+        final WarmUp warmUp = healthCheck.getWarmUp();
+        final boolean ready = healthCheck.isReady();
+        final ReadinessDTO result = new ReadinessDTO(ready, healthCheck.isHealthy(),
+                warmUp.getState().name().toLowerCase(Locale.ROOT), warmUp.getProgress(), warmUp.getConversions());
+        result.validate();
+        return Response.status(ready ? Response.Status.OK : Response.Status.SERVICE_UNAVAILABLE).
+                entity(result).build();
+    }
+
+    @Override
+    @Nonnull
+    public Response getMetrics() {
+        return Response.ok(metricsExporter.export(), MetricsExporter.CONTENT_TYPE).build();
     }
 }
@@ -0,0 +1,172 @@
+/*
+ * Copyright (C) 2016-2026, Stichting Mapcode Foundation (http://www.mapcode.com)
+ */
+package com.mapcode.services.implementation;
+
+import com.tomtom.speedtools.rest.ResourceHandler;
+import org.jboss.resteasy.spi.HttpRequest;
+import org.jboss.resteasy.spi.ResteasyProviderFactory;
+
+import javax.annotation.Nonnull;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Durations of the stages of a single request, for the "Server-Timing" response header. Timing is
+ * opt-in per request (see {@link ServerTimingFilter}); for other requests, {@link #current()} returns
+ * a disabled instance that does not even read the clock.
+ *
+ * Usage, in a request handler:
+ *
+ * <pre>
+ *     final ServerTiming timing = ServerTiming.current();
+ *     final long start = timing.start();
+ *     ...
+ *     timing.stop(Stage.ENCODE, start);
+ * </pre>
+ *
+ * Stages may be recorded more than once; their durations are added up.
+ */
+public final class ServerTiming {
+
+    /**
+     * Stages of a request, in the order they are reported.
+     */
+    public enum Stage {
+        PARSE,              // Parsing and checking the parameters.
+        ENCODE,             // Encoding a lat/lon to mapcodes.
+        RECTANGLE,          // Decoding mapcodes to rectangles, when encoding.
+        DECODE,             // Decoding a mapcode to a point or rectangle.
+        BOUNDARY,           // Looking up the territories that contain a lat/lon.
+        VALIDATE,           // Validating the result DTO.
+        SERIALIZE;          // Writing (and compressing) the response body.
+
+        @Nonnull
+        private final String metricName = name().toLowerCase(Locale.ROOT);
+    }
+
+    private static final ServerTiming DISABLED = new ServerTiming(false);
+    private static final ThreadLocal<ServerTiming> CURRENT = new ThreadLocal<>();
+    private static final String ATTRIBUTE = ServerTiming.class.getName();
+    private static final double NANOS_PER_MILLI = 1000000.0;
+
+    private final boolean enabled;
+    @Nonnull
+    private final AtomicLongArray nanos = new AtomicLongArray(Stage.values().length);
+
+    private ServerTiming(final boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Create an enabled instance, to record the stages of a request.
+     *
+     * @return Server timing.
+     */
+    @Nonnull
+    static ServerTiming create() {
+        return new ServerTiming(true);
+    }
+
+    /**
+     * Return the server timing of the request handled by the current thread.
+     *
+     * @return Server timing, which is disabled if the request did not ask for it.
+     */
+    @Nonnull
+    public static ServerTiming current() {
+        final ServerTiming timing = CURRENT.get();
+        return (timing == null) ? DISABLED : timing;
+    }
+
+    /**
+     * Make the server timing of the request that is being dispatched available to the handler, which may
+     * run on another thread. Must be called on the thread that dispatches the request.
+     *
+     * @param handler Handler of the request.
+     * @return Handler for which {@link #current()} returns the server timing of the request.
+     */
+    @Nonnull
+    static ResourceHandler propagate(@Nonnull final ResourceHandler handler) {
+        final HttpRequest request = ResteasyProviderFactory.getContextData(HttpRequest.class);
+        final ServerTiming timing = (request == null) ? null : (ServerTiming) request.getAttribute(ATTRIBUTE);
+        if (timing == null) {
+            return handler;
+        }
+        return () -> {
+            final ServerTiming previous = CURRENT.get();
+            CURRENT.set(timing);
+            try {
+                return handler.process();
+            } finally {
+                if (previous == null) {
+                    CURRENT.remove();
+                } else {
+                    CURRENT.set(previous);
+                }
+            }
+        };
+    }
+
+    /**
+     * Return the name of the request attribute (or request context property) that holds the server
+     * timing of a request.
+     *
+     * @return Attribute name.
+     */
+    @Nonnull
+    static String getAttributeName() {
+        return ATTRIBUTE;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Start timing a stage.
+     *
+     * @return Start time in nanoseconds, to pass to {@link #stop(Stage, long)}.
+     */
+    public long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Stop timing a stage.
+     *
+     * @param stage      Stage.
+     * @param startNanos Start time, as returned by {@link #start()}.
+     */
+    public void stop(@Nonnull final Stage stage, final long startNanos) {
+        if (enabled) {
+            nanos.addAndGet(stage.ordinal(), System.nanoTime() - startNanos);
+        }
+    }
+
+    public long getNanos(@Nonnull final Stage stage) {
+        return nanos.get(stage.ordinal());
+    }
+
+    /**
+     * Return the value of the "Server-Timing" header: the stages that were recorded, with their
+     * durations in milliseconds, such as "parse;dur=0.012, encode;dur=0.085".
+     *
+     * @return Header value, empty if no stages were recorded.
+     */
+    @Nonnull
+    public String toHeaderValue() {
+        final StringBuilder value = new StringBuilder();
+        for (final Stage stage : Stage.values()) {
+            final long stageNanos = nanos.get(stage.ordinal());
+            if (stageNanos > 0) {
+                if (value.length() > 0) {
+                    value.append(", ");
+                }
+                value.append(stage.metricName).append(";dur=").
+                        append(String.format(Locale.ROOT, "%.3f", stageNanos / NANOS_PER_MILLI));
+            }
+        }
+        return value.toString();
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2016-2026, Stichting Mapcode Foundation (http://www.mapcode.com)
+ */
+package com.mapcode.services.implementation;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Priority;
+import javax.inject.Inject;
+import javax.ws.rs.Priorities;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.StreamingOutput;
+import javax.ws.rs.ext.Provider;
+import javax.ws.rs.ext.WriterInterceptor;
+import javax.ws.rs.ext.WriterInterceptorContext;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Adds a "Server-Timing" header with the durations of the stages of a request (see {@link ServerTiming}),
+ * if the request has the query parameter "timing=true". Timing is off by default.
+ *
+ * The request filter creates the server timing of the request; the handler records its stages. The
+ * writer interceptor runs outside the other interceptors, so it can time the serialization too: it
+ * buffers the body, and adds the header before it writes the body. Writer interceptors with a lower
+ * priority run outside those with a higher one, so its priority is lower than that of
+ * {@link CompressionInterceptor}, and the time to compress the body is included. Streamed bodies are not
+ * buffered and get no header.
+ *
+ * The header is also allowed to be read by scripts from other origins ("Timing-Allow-Origin: *").
+ */
+@Provider
+@Priority(Priorities.ENTITY_CODER - 1000)
+public class ServerTimingFilter implements ContainerRequestFilter, WriterInterceptor {
+
+    public static final String PARAM_TIMING = "timing";
+    public static final String HEADER_SERVER_TIMING = "Server-Timing";
+    public static final String HEADER_TIMING_ALLOW_ORIGIN = "Timing-Allow-Origin";
+
+    @Inject
+    public ServerTimingFilter() {
+        // Empty.
+    }
+
+    @Override
+    public void filter(@Nonnull final ContainerRequestContext requestContext) {
+        if ("true".equalsIgnoreCase(requestContext.getUriInfo().getQueryParameters().getFirst(PARAM_TIMING))) {
+            requestContext.setProperty(ServerTiming.getAttributeName(), ServerTiming.create());
+        }
+    }
+
+    @Override
+    public void aroundWriteTo(@Nonnull final WriterInterceptorContext context) throws IOException {
+        final ServerTiming timing = (ServerTiming) context.getProperty(ServerTiming.getAttributeName());
+        if ((timing == null) || (context.getEntity() instanceof StreamingOutput)) {
+            context.proceed();
+            return;
+        }
+        final OutputStream original = context.getOutputStream();
+        final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        context.setOutputStream(buffer);
+        try {
+            final long start = timing.start();
+            context.proceed();
+            timing.stop(ServerTiming.Stage.SERIALIZE, start);
+        } finally {
+            context.setOutputStream(original);
+        }
+        final MultivaluedMap<String, Object> headers = context.getHeaders();
+        headers.putSingle(HEADER_SERVER_TIMING, timing.toHeaderValue());
+        headers.putSingle(HEADER_TIMING_ALLOW_ORIGIN, "*");
+        buffer.writeTo(original);
+    }
+}
@@ -16,18 +16,21 @@
 
 package com.mapcode.services.implementation;
 
+import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.ws.rs.container.AsyncResponse;
 import javax.ws.rs.container.TimeoutHandler;
 import java.util.Collection;
 import java.util.Date;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 
 public class TestAsyncResponse implements AsyncResponse {
 
-    private boolean ready = false;
-    private Object response = null;
+    private final CompletableFuture<Object> future = new CompletableFuture<>();
+    private volatile boolean ready = false;
+    private volatile Object response = null;
 
     public boolean isReady() {
         return ready;
@@ -38,35 +41,51 @@ public class TestAsyncResponse implements AsyncResponse {
         return response;
     }
 
+    /**
+     * Return a future that completes with the response (or null, if cancelled) when the response is
+     * resumed, so callers do not need to poll {@link #isReady()}.
+     *
+     * @return Future of the response.
+     */
+    @Nonnull
+    public CompletableFuture<Object> getFuture() {
+        return future;
+    }
+
     @Override
     public boolean resume(final Object response) {
-        this.ready = true;
         this.response = response;
+        this.ready = true;
+        future.complete(response);
         return true;
     }
 
     @Override
     public boolean resume(final Throwable response) {
-        this.ready = true;
         this.response = response;
+        this.ready = true;
+        future.complete(response);
         return true;
     }
 
     @Override
     public boolean cancel() {
         this.ready = true;
+        future.complete(null);
         return true;
     }
 
     @Override
     public boolean cancel(final int retryAfter) {
         this.ready = true;
+        future.complete(null);
         return true;
     }
 
     @Override
     public boolean cancel(final Date retryAfter) {
         this.ready = true;
+        future.complete(null);
         return true;
     }
 
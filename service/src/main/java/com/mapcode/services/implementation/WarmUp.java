@@ -0,0 +1,298 @@
+/*
+ * Copyright (C) 2016-2026, Stichting Mapcode Foundation (http://www.mapcode.com)
+ */
+package com.mapcode.services.implementation;
+
+import com.mapcode.services.MapcodeResource;
+import com.mapcode.services.dto.MapcodeDTO;
+import com.mapcode.services.dto.MapcodesDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import javax.ws.rs.core.Response;
+import java.lang.management.CompilationMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Warm-up of the service before it reports ready: a synthetic mix of encodes (with and without
+ * rectangles), decodes and territory lookups across world regions, run on a background thread. This
+ * gets the conversion code compiled by the JIT and fills the prepared geometry cache of the
+ * {@link BoundaryService}, so the first real requests do not run in the interpreter.
+ *
+ * The conversions run directly through a {@link MapcodeResourceImpl} of their own, which shares the
+ * boundary service of the server, on the calling thread, without rate limits and without being counted
+ * in the request metrics of the server.
+ *
+ * Finally, the warm-up preloads the hot cells of the previous run (see {@link HotCells}), so the prepared
+ * geometry cache holds the working set of real traffic, rather than that of the synthetic mix. This also
+ * happens if the warm-up is disabled.
+ *
+ * The warm-up stops when compilation has stabilized (the JIT compiled for less than 10 ms per second for
+ * 3 seconds in a row, after at least 20000 conversions), or when its time budget is used up. The budget
+ * is set with the system property "mapcode.warmup.duration" (in seconds, default 30); 0 disables the
+ * warm-up.
+ */
+public class WarmUp {
+    private static final Logger LOG = LoggerFactory.getLogger(WarmUp.class);
+
+    public static final int DEFAULT_DURATION_SECS = 30;
+
+    /**
+     * State of the warm-up.
+     */
+    public enum State {
+        DISABLED,           // No warm-up configured.
+        RUNNING,            // Not started yet, or running.
+        DONE                // Completed, stopped or failed.
+    }
+
+    public static final String PROPERTY_DURATION = "mapcode.warmup.duration";
+    private static final long SAMPLE_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final long STABLE_COMPILATION_MILLIS_PER_SAMPLE = 10;
+    private static final int STABLE_SAMPLES = 3;
+    private static final long MIN_CONVERSIONS = 20000;
+
+    // Areas to pick points from, as {minLat, maxLat, minLon, maxLon}: populated regions on all
+    // continents, with many territories and subdivisions, and some open sea.
+    private static final double[][] REGIONS = {
+            {36.0, 60.0, -10.0, 30.0},          // Europe.
+            {25.0, 49.0, -125.0, -67.0},        // United States.
+            {43.0, 60.0, -130.0, -60.0},        // Canada.
+            {15.0, 32.0, -117.0, -87.0},        // Mexico.
+            {-35.0, 5.0, -75.0, -35.0},         // South America.
+            {-35.0, 35.0, -17.0, 50.0},         // Africa.
+            {12.0, 42.0, 35.0, 60.0},           // Middle East.
+            {8.0, 35.0, 68.0, 90.0},            // India.
+            {20.0, 45.0, 100.0, 125.0},         // China.
+            {31.0, 45.0, 129.0, 146.0},         // Japan.
+            {-10.0, 20.0, 95.0, 140.0},         // South-East Asia.
+            {-40.0, -12.0, 113.0, 154.0},       // Australia.
+            {50.0, 70.0, 30.0, 140.0},          // Russia.
+            {-60.0, 60.0, -180.0, 180.0}        // Anywhere, mostly sea.
+    };
+    private static final String[] PRECISIONS = {"0", "0", "1", "2"};
+    private static final String[] INCLUDES = {"", "", "territory", "rectangle", "offset,rectangle"};
+
+    private final int durationSecs;
+    @Nonnull
+    private final BoundaryService boundaryService;
+    @Nonnull
+    private final HotCells hotCells;
+    @Nonnull
+    private final MapcodeResource mapcodeResource;
+    @Nonnull
+    private final Random random = new Random(1);
+    @Nullable
+    private Thread thread = null;
+    private boolean started = false;
+
+    private volatile boolean done;
+    private volatile long conversions = 0;
+    private volatile long startNanos = 0;
+
+    @Inject
+    public WarmUp(@Nonnull final BoundaryService boundaryService, @Nonnull final HotCells hotCells) {
+        this(boundaryService, hotCells, getDurationSecs());
+    }
+
+    public WarmUp(
+            @Nonnull final BoundaryService boundaryService,
+            @Nonnull final HotCells hotCells,
+            final int durationSecs) {
+        assert boundaryService != null;
+        assert hotCells != null;
+        assert durationSecs >= 0;
+        this.durationSecs = durationSecs;
+        this.boundaryService = boundaryService;
+        this.hotCells = hotCells;
+        this.mapcodeResource = new MapcodeResourceImpl(AdmissionProcessor.createDirect(), boundaryService);
+        this.done = (durationSecs == 0);
+    }
+
+    /**
+     * Start the warm-up on a background thread. Does nothing if it has started already. If it is disabled,
+     * only the hot cells are preloaded, on the calling thread.
+     */
+    public synchronized void start() {
+        if (started) {
+            return;
+        }
+        started = true;
+        if (durationSecs == 0) {
+            hotCells.preload();
+            return;
+        }
+        if (done) {
+            return;
+        }
+        LOG.info("start: warm-up for at most {}s", durationSecs);
+        final Thread warmUpThread = new Thread(this::run, "mapcode-warm-up");
+        warmUpThread.setDaemon(true);
+        thread = warmUpThread;
+        warmUpThread.start();
+    }
+
+    /**
+     * Stop the warm-up, if it is running. It is considered done afterwards.
+     */
+    public synchronized void stop() {
+        if (thread != null) {
+            thread.interrupt();
+        }
+        done = true;
+    }
+
+    public boolean isDone() {
+        return done;
+    }
+
+    @Nonnull
+    public State getState() {
+        if (durationSecs == 0) {
+            return State.DISABLED;
+        }
+        return done ? State.DONE : State.RUNNING;
+    }
+
+    /**
+     * Return the progress of the warm-up: the part of its time budget used so far, or 100 if it is done.
+     * It may be done before its budget is used up.
+     *
+     * @return Progress, in percent [0, 100].
+     */
+    public int getProgress() {
+        if (done) {
+            return 100;
+        }
+        final long start = startNanos;
+        if (start == 0) {
+            return 0;
+        }
+        final long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        return (int) Math.min(99, (elapsedMillis / 10) / durationSecs);
+    }
+
+    public long getConversions() {
+        return conversions;
+    }
+
+    private void run() {
+        final CompilationMXBean compiler = ManagementFactory.getCompilationMXBean();
+        final boolean monitorCompiler = (compiler != null) && compiler.isCompilationTimeMonitoringSupported();
+        startNanos = System.nanoTime();
+        final long deadlineNanos = startNanos + TimeUnit.SECONDS.toNanos(durationSecs);
+        long nextSampleNanos = startNanos + SAMPLE_NANOS;
+        long compilationMillis = monitorCompiler ? compiler.getTotalCompilationTime() : 0;
+        int stableSamples = 0;
+        String reason = "stopped";
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                convert();
+                final long now = System.nanoTime();
+                if (now >= deadlineNanos) {
+                    reason = "time budget used up";
+                    break;
+                }
+                if (now >= nextSampleNanos) {
+                    nextSampleNanos = now + SAMPLE_NANOS;
+                    final long totalCompilationMillis = monitorCompiler ? compiler.getTotalCompilationTime() : 0;
+                    final long sampleCompilationMillis = totalCompilationMillis - compilationMillis;
+                    compilationMillis = totalCompilationMillis;
+                    if ((conversions >= MIN_CONVERSIONS) &&
+                            (sampleCompilationMillis <= STABLE_COMPILATION_MILLIS_PER_SAMPLE)) {
+                        ++stableSamples;
+                    } else {
+                        stableSamples = 0;
+                    }
+                    LOG.info("run: warm-up {}%, {} conversions, compiled for {} ms in the last second",
+                            getProgress(), conversions, sampleCompilationMillis);
+                    if (stableSamples >= STABLE_SAMPLES) {
+                        reason = "compilation stabilized";
+                        break;
+                    }
+                }
+            }
+            if (!Thread.currentThread().isInterrupted()) {
+                hotCells.preload();
+            }
+        } catch (final RuntimeException e) {
+            LOG.warn("run: warm-up failed", e);
+            reason = "failed";
+        } finally {
+            done = true;
+        }
+        LOG.info("run: warm-up done ({}), {} conversions in {} ms, boundary cache {} of {} geometries",
+                reason, conversions, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos),
+                boundaryService.preparedCacheSize(), boundaryService.getPreparedCacheCapacity());
+    }
+
+    /**
+     * Run a single round of conversions for a random point: an encode to all mapcodes, a territory lookup,
+     * and decodes of the international and local mapcode.
+     */
+    private void convert() {
+        final double[] region = REGIONS[random.nextInt(REGIONS.length)];
+        final String latDeg = format(region[0] + (random.nextDouble() * (region[1] - region[0])));
+        final String lonDeg = format(region[2] + (random.nextDouble() * (region[3] - region[2])));
+        final String precision = PRECISIONS[random.nextInt(PRECISIONS.length)];
+        final String include = INCLUDES[random.nextInt(INCLUDES.length)];
+
+        final TestAsyncResponse encoded = new TestAsyncResponse();
+        mapcodeResource.convertLatLonToMapcode(latDeg, lonDeg, precision, null, null, null, null, include,
+                "", "false", encoded);
+        final TestAsyncResponse territories = new TestAsyncResponse();
+        mapcodeResource.getTerritoriesForLatLon(latDeg, lonDeg, "", "false", territories);
+        conversions += 2;
+
+        final Object entity = getEntity(encoded);
+        if (entity instanceof MapcodesDTO) {
+            decode(((MapcodesDTO) entity).getInternational(), include);
+            decode(((MapcodesDTO) entity).getLocal(), include);
+        }
+    }
+
+    private void decode(@Nullable final MapcodeDTO mapcode, @Nonnull final String include) {
+        if (mapcode != null) {
+            final String territory = mapcode.getTerritory();
+            final String context = (territory == null) || "AAA".equals(territory) ? null : territory;
+            mapcodeResource.convertMapcodeToLatLon(mapcode.getMapcode(), context, null, include, "", "false",
+                    new TestAsyncResponse());
+            conversions += 1;
+        }
+    }
+
+    @Nullable
+    private static Object getEntity(@Nonnull final TestAsyncResponse asyncResponse) {
+        final Object response = asyncResponse.getResponse();
+        return (response instanceof Response) ? ((Response) response).getEntity() : response;
+    }
+
+    @Nonnull
+    private static String format(final double deg) {
+        return String.format(Locale.ROOT, "%.6f", deg);
+    }
+
+    private static int getDurationSecs() {
+        final String raw = System.getProperty(PROPERTY_DURATION);
+        if (raw == null) {
+            return DEFAULT_DURATION_SECS;
+        }
+        try {
+            final int value = Integer.parseInt(raw.trim());
+            if (value >= 0) {
+                return value;
+            }
+        } catch (final NumberFormatException ignored) {
+            // Fall through.
+        }
+        LOG.warn("WarmUp: ignoring invalid {}='{}', using default {}", PROPERTY_DURATION, raw,
+                DEFAULT_DURATION_SECS);
+        return DEFAULT_DURATION_SECS;
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) 2016-2026, Stichting Mapcode Foundation (http://www.mapcode.com)
+ */
+package com.mapcode.services.standalone;
+
+import com.tomtom.speedtools.rest.Reactor;
+import com.tomtom.speedtools.time.UTCTime;
+import org.joda.time.DateTime;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import scala.concurrent.ExecutionContext;
+import scala.concurrent.ExecutionContextExecutorService;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reactor that runs request handlers on its own executor, so the container thread is released as soon as
+ * a request is handed off and the asynchronous response is resumed from the executor.
+ *
+ * If the JVM supports virtual threads (Java 21+), every request gets its own virtual thread. Otherwise a
+ * fixed pool of platform (daemon) threads is used.
+ */
+public final class ExecutorReactor implements Reactor {
+    private static final Logger LOG = LoggerFactory.getLogger(ExecutorReactor.class);
+
+    private static final String THREAD_NAME_PREFIX = "mapcode-request-";
+    private static final long SHUTDOWN_TIMEOUT_SECS = 5;
+
+    @Nonnull
+    private final ExecutorService executor;
+    @Nonnull
+    private final ExecutionContextExecutorService executionContext;
+    @Nonnull
+    private final DateTime systemStartupTime;
+    private final boolean virtualThreads;
+
+    private ExecutorReactor(
+            @Nonnull final ExecutorService executor,
+            final boolean virtualThreads) {
+        assert executor != null;
+        this.executor = executor;
+        this.executionContext = ExecutionContext.fromExecutorService(executor);
+        this.systemStartupTime = UTCTime.now();
+        this.virtualThreads = virtualThreads;
+    }
+
+    /**
+     * Create a reactor.
+     *
+     * @param platformThreads Number of platform threads. If 0, a virtual thread per request is used if the
+     *                        JVM supports it, or else one platform thread per available processor.
+     *                        If &gt; 0, a pool of this many platform threads is always used.
+     * @return Reactor. Must be shut down with {@link #shutdown()}.
+     */
+    @Nonnull
+    public static ExecutorReactor create(final int platformThreads) {
+        assert platformThreads >= 0;
+        if (platformThreads == 0) {
+            final ExecutorService virtualExecutor = createVirtualThreadExecutor();
+            if (virtualExecutor != null) {
+                LOG.info("create: using a virtual thread per request");
+                return new ExecutorReactor(virtualExecutor, true);
+            }
+        }
+        final int nrThreads = (platformThreads > 0) ? platformThreads : Runtime.getRuntime().availableProcessors();
+        LOG.info("create: using a pool of {} platform threads", nrThreads);
+        return new ExecutorReactor(Executors.newFixedThreadPool(nrThreads, new DaemonThreadFactory()), false);
+    }
+
+    @Nonnull
+    @Override
+    public ExecutionContext getExecutionContext() {
+        return executionContext;
+    }
+
+    @Nonnull
+    @Override
+    public DateTime getSystemStartupTime() {
+        return systemStartupTime;
+    }
+
+    /**
+     * Return whether request handlers run on virtual threads.
+     *
+     * @return True if a virtual thread is used per request, false for a platform thread pool.
+     */
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * Stop accepting new requests and wait (briefly) for running requests to finish.
+     */
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(SHUTDOWN_TIMEOUT_SECS, TimeUnit.SECONDS)) {
+                LOG.warn("shutdown: requests still running after {} secs, interrupting them", SHUTDOWN_TIMEOUT_SECS);
+                executor.shutdownNow();
+            }
+        } catch (final InterruptedException ignored) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Create a virtual-thread-per-task executor. This uses reflection, as the service is compiled for
+     * (and may run on) Java versions that have no virtual threads.
+     *
+     * @return Executor, or null if virtual threads are not supported by this JVM.
+     */
+    @Nullable
+    private static ExecutorService createVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (final NoSuchMethodException ignored) {
+            LOG.debug("createVirtualThreadExecutor: virtual threads not available in this JVM");
+            return null;
+        } catch (final ReflectiveOperationException | UnsupportedOperationException e) {
+
+            // Preview releases throw if preview features are not enabled.
+            LOG.debug("createVirtualThreadExecutor: virtual threads not enabled: {}", e.toString());
+            return null;
+        }
+    }
+
+    private static final class DaemonThreadFactory implements ThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Nonnull
+        @Override
+        public Thread newThread(@Nonnull final Runnable runnable) {
+            final Thread thread = new Thread(runnable, THREAD_NAME_PREFIX + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
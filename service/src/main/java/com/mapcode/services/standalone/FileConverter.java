@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2016-2026, Stichting Mapcode Foundation (http://www.mapcode.com)
+ */
+package com.mapcode.services.standalone;
+
+import com.google.common.io.CountingInputStream;
+import com.mapcode.services.implementation.OrderedLineConverter;
+
+import javax.annotation.Nonnull;
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Converts a file line by line in-process, without the HTTP stack, using the same line converters as
+ * the streaming endpoints. Lines are converted on all cores of the common fork-join pool and written in
+ * input order. Progress and throughput are reported while the conversion runs.
+ */
+@SuppressWarnings("UseOfSystemOutOrSystemErr")
+final class FileConverter {
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final int IN_FLIGHT_PER_CORE = 4096;
+    private static final long PROGRESS_INTERVAL_SECS = 5;
+
+    private FileConverter() {
+        // Prevent instantiation.
+    }
+
+    /**
+     * Convert a file.
+     *
+     * @param lineConverter Converter for a single line, thread-safe.
+     * @param inputFile     Input file.
+     * @param outputFile    Output file, overwritten if it exists.
+     * @param progress      Stream to report progress to.
+     * @return Number of lines converted.
+     * @throws IOException If reading or writing fails.
+     */
+    static long convert(
+            @Nonnull final Function<String, String> lineConverter,
+            @Nonnull final Path inputFile,
+            @Nonnull final Path outputFile,
+            @Nonnull final PrintStream progress) throws IOException {
+        assert lineConverter != null;
+        assert inputFile != null;
+        assert outputFile != null;
+        assert progress != null;
+        final long inputSize = Files.size(inputFile);
+        final ForkJoinPool pool = ForkJoinPool.commonPool();
+        final AtomicLong converted = new AtomicLong();
+        final OrderedLineConverter converter = new OrderedLineConverter(line -> {
+            final String result = lineConverter.apply(line);
+            converted.incrementAndGet();
+            return result;
+        }, pool, pool.getParallelism() * IN_FLIGHT_PER_CORE);
+
+        progress.println("Converting " + inputFile + " to " + outputFile + ", using " + pool.getParallelism() + " threads...");
+        final long startNanos = System.nanoTime();
+        final ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "convert-progress");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try (final CountingInputStream in = new CountingInputStream(
+                new BufferedInputStream(Files.newInputStream(inputFile), BUFFER_SIZE));
+             final OutputStream out = new BufferedOutputStream(Files.newOutputStream(outputFile), BUFFER_SIZE)) {
+            reporter.scheduleAtFixedRate(() -> progress.println(String.format("Converted %,d lines (%d%% of input), %,.0f lines/sec",
+                    converted.get(), (inputSize == 0) ? 100 : ((in.getCount() * 100) / inputSize),
+                    linesPerSec(converted.get(), startNanos))), PROGRESS_INTERVAL_SECS, PROGRESS_INTERVAL_SECS, TimeUnit.SECONDS);
+            final long count = converter.convert(in, out);
+            progress.println(String.format("Converted %,d lines in %.1f secs, %,.0f lines/sec",
+                    count, (System.nanoTime() - startNanos) / 1.0e9, linesPerSec(count, startNanos)));
+            return count;
+        } finally {
+            reporter.shutdownNow();
+        }
+    }
+
+    private static double linesPerSec(final long lines, final long startNanos) {
+        final long elapsedNanos = Math.max(1, System.nanoTime() - startNanos);
+        return (lines * 1.0e9) / elapsedNanos;
+    }
+}
@@ -18,7 +18,12 @@ package com.mapcode.services.standalone;
 
 import com.google.inject.Guice;
 import com.google.inject.Injector;
+import com.mapcode.services.MapcodeResource.ParamInclude;
 import com.mapcode.services.ResourcesModule;
+import com.mapcode.services.implementation.AdmissionProcessor;
+import com.mapcode.services.implementation.BoundaryService;
+import com.mapcode.services.implementation.MapcodeResourceImpl;
+import com.mapcode.services.implementation.WarmUp;
 import com.tomtom.speedtools.guice.GuiceConfigurationModule;
 import com.tomtom.speedtools.rest.ServicesModule;
 import org.apache.log4j.ConsoleAppender;
@@ -26,22 +31,39 @@ import org.apache.log4j.Level;
 import org.apache.log4j.Logger;
 import org.apache.log4j.SimpleLayout;
 
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.EnumSet;
+import java.util.function.Function;
+
 @SuppressWarnings({"UseOfSystemOutOrSystemErr", "ConstantConditions"})
 public final class MainCommandLine {
     private static final String CMD_HELP = "--help";
     private static final String CMD_SILENT = "--silent";
     private static final String CMD_DEBUG = "--debug";
     private static final String CMD_PORT = "--port";
+    private static final String CMD_ENGINE = "--engine";
+    private static final String CMD_IO_THREADS = "--io-threads";
+    private static final String CMD_WORKER_THREADS = "--worker-threads";
+    private static final String CMD_REQUEST_THREADS = "--request-threads";
+    private static final String CMD_CONVERT = "--convert";
+    private static final String CMD_DECODE = "--decode";
+    private static final String CMD_TRAIN = "--train";
+
+    private static final String CONVERT_CLIENT = "cli";
 
     private static final int DEFAULT_PORT = 8080;
+    private static final int TRAINING_ROUNDS = 3;
 
+    private static final Injector guice;
     private static final Server server;
     private static final Logger rootLogger;
     private static final ConsoleAppender consoleAppender;
 
     // Static init.
     static {
-        final Injector guice = createGuice();
+        guice = createGuice();
         server = guice.getInstance(Server.class);
 
         // Configure log4j.
@@ -57,10 +79,29 @@ public final class MainCommandLine {
         // Prevent instantiation.
     }
 
+    /**
+     * Entry point for running from the JARs of an exploded WAR on the classpath, without the WAR launcher.
+     * AppCDS archives only cover classes loaded from the classpath, so this is the entry point to use
+     * with an archive.
+     *
+     * @param args Command-line arguments.
+     */
+    public static void main(final String... args) {
+        execute(args);
+    }
+
     public static void execute(final String... args) {
         int port = DEFAULT_PORT;
+        Server.Engine engine = Server.Engine.TJWS;
+        int ioThreads = 0;
+        int workerThreads = 0;
+        int requestThreads = 0;
         String command = null;
         boolean debug = false;
+        String convertInput = null;
+        String convertOutput = null;
+        boolean decode = false;
+        boolean train = false;
 
         // Parse command-line arguments.
         int index = 0;
@@ -86,6 +127,71 @@ public final class MainCommandLine {
                     ++index;
                     break;
 
+                case CMD_ENGINE:
+                    if (index >= (args.length - 1)) {
+                        System.out.println("Missing engine");
+                        printUsage();
+                        return;
+                    }
+                    try {
+                        engine = Server.Engine.valueOf(args[index + 1].toUpperCase());
+                    } catch (final IllegalArgumentException ignored) {
+                        System.out.println("Unknown engine: " + args[index + 1]);
+                        printUsage();
+                        return;
+                    }
+                    ++index;
+                    break;
+
+                case CMD_IO_THREADS:
+                    if (index >= (args.length - 1)) {
+                        System.out.println("Missing number of I/O threads");
+                        printUsage();
+                        return;
+                    }
+                    ioThreads = Integer.parseInt(args[index + 1]);
+                    ++index;
+                    break;
+
+                case CMD_WORKER_THREADS:
+                    if (index >= (args.length - 1)) {
+                        System.out.println("Missing number of worker threads");
+                        printUsage();
+                        return;
+                    }
+                    workerThreads = Integer.parseInt(args[index + 1]);
+                    ++index;
+                    break;
+
+                case CMD_REQUEST_THREADS:
+                    if (index >= (args.length - 1)) {
+                        System.out.println("Missing number of request threads");
+                        printUsage();
+                        return;
+                    }
+                    requestThreads = Integer.parseInt(args[index + 1]);
+                    ++index;
+                    break;
+
+                case CMD_CONVERT:
+                    if (index >= (args.length - 2)) {
+                        System.out.println("Missing input or output file");
+                        printUsage();
+                        return;
+                    }
+                    convertInput = args[index + 1];
+                    convertOutput = args[index + 2];
+                    index += 2;
+                    break;
+
+                case CMD_DECODE:
+                    decode = true;
+                    break;
+
+                case CMD_TRAIN:
+                    train = true;
+                    break;
+
                 default:
                     if (args[index].startsWith("-")) {
                         System.out.println("Unknown option: " + args[index]);
@@ -109,8 +215,15 @@ public final class MainCommandLine {
 
         if ((command != null) && command.equals(CMD_HELP)) {
             printUsage();
+        } else if (convertInput != null) {
+            convert(convertInput, convertOutput, decode);
+        } else if (train) {
+            train(port, engine, ioThreads, workerThreads, requestThreads);
         } else {
-            server.startServer(port);
+            server.startServer(port, engine, ioThreads, workerThreads, requestThreads);
+
+            // Stop the server on SIGTERM or Ctrl-C as well, so the hot cells are saved a last time.
+            Runtime.getRuntime().addShutdownHook(new Thread(MainCommandLine::stop, "mapcode-shutdown"));
         }
     }
 
@@ -118,6 +231,64 @@ public final class MainCommandLine {
         server.stopServer();
     }
 
+    /**
+     * Convert a file in-process, without starting the server. CSV is used if the input file
+     * name ends with ".csv", NDJSON otherwise. Exits with status 1 if a file cannot be read or written.
+     *
+     * @param inputFile  Input file, with lat/lon pairs, or mapcodes if 'decode' is true.
+     * @param outputFile Output file.
+     * @param decode     True to convert mapcodes to lat/lon, false to convert lat/lon to mapcodes.
+     */
+    private static void convert(
+            @Nonnull final String inputFile,
+            @Nonnull final String outputFile,
+            final boolean decode) {
+        final boolean csv = inputFile.toLowerCase().endsWith(".csv");
+        final Function<String, String> lineConverter;
+        if (decode) {
+            lineConverter = MapcodeResourceImpl.createMapcodeLineConverter(csv, false, false, CONVERT_CLIENT);
+        } else {
+            final MapcodeResourceImpl mapcodeResource = new MapcodeResourceImpl(
+                    AdmissionProcessor.createDirect(),
+                    guice.getInstance(BoundaryService.class));
+            lineConverter = mapcodeResource.createLatLonLineConverter(csv, 0, null, null,
+                    EnumSet.noneOf(ParamInclude.class), false, CONVERT_CLIENT);
+        }
+        try {
+            FileConverter.convert(lineConverter, Paths.get(inputFile), Paths.get(outputFile), System.out);
+        } catch (final IOException e) {
+            System.out.println("Cannot convert " + inputFile + " to " + outputFile + ": " + e.getMessage());
+
+            // Let scripts see that the conversion failed.
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Start the server, send it a scripted mix of requests, stop it and exit. Run with
+     * -XX:ArchiveClassesAtExit=file to create an AppCDS archive of the classes that were used, for
+     * faster starts with -XX:SharedArchiveFile=file.
+     */
+    private static void train(
+            final int port,
+            @Nonnull final Server.Engine engine,
+            final int ioThreads,
+            final int workerThreads,
+            final int requestThreads) {
+        // Without a warm-up, the service is ready right after the first health check. The training run
+        // requests the readiness status, which would otherwise fail (503) while the warm-up is running.
+        System.setProperty(WarmUp.PROPERTY_DURATION, "0");
+        server.startServer(port, engine, ioThreads, workerThreads, requestThreads);
+        final int failures = TrainingRun.run(port, TRAINING_ROUNDS, System.out);
+        server.stopServer();
+        if (failures > 0) {
+            System.out.println("Training run failed: " + failures + " requests failed");
+        }
+
+        // The archive is written when the JVM exits; do not wait for lingering non-daemon threads.
+        System.exit((failures == 0) ? 0 : 1);
+    }
+
     /**
      * Create the guice injector.
      *
@@ -136,6 +307,10 @@ public final class MainCommandLine {
 
     private static void printUsage() {
         System.out.println("Usage: java -jar <warfile>" + " [" + CMD_PORT + " <port>] [" + CMD_SILENT + "] [" + CMD_DEBUG + ']');
+        System.out.println("       [" + CMD_ENGINE + " tjws|netty] [" + CMD_IO_THREADS + " <n>] [" + CMD_WORKER_THREADS + " <n>]");
+        System.out.println("       [" + CMD_REQUEST_THREADS + " <n>] [" + CMD_TRAIN + ']');
+        System.out.println("       java -jar <warfile> " + CMD_CONVERT + " <input.csv|input.ndjson> <output> [" + CMD_DECODE + "] [" +
+                CMD_SILENT + "] [" + CMD_DEBUG + ']');
         System.out.println("       java -jar <warfile> " + CMD_HELP);
     }
 }
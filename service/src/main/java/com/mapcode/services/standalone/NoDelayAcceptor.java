@@ -0,0 +1,29 @@
+/*
+ * Copyright (C) 2016-2026, Stichting Mapcode Foundation (http://www.mapcode.com)
+ */
+package com.mapcode.services.standalone;
+
+import Acme.Serve.SimpleAcceptor;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.net.Socket;
+
+/**
+ * Acceptor for the TJWS engine that disables Nagle's algorithm on accepted connections. TJWS writes a
+ * chunked response in several small segments; with Nagle's algorithm, the last one waits for the client to
+ * acknowledge the previous one, which clients delay by up to 40 ms. That limits every keep-alive connection to
+ * about 25 requests per second.
+ *
+ * TJWS creates the acceptor by its class name, so this class must be public and have a public constructor.
+ */
+public class NoDelayAcceptor extends SimpleAcceptor {
+
+    @Override
+    @Nonnull
+    public Socket accept() throws IOException {
+        final Socket socket = super.accept();
+        socket.setTcpNoDelay(true);
+        return socket;
+    }
+}
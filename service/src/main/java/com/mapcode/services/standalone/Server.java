@@ -16,97 +16,136 @@
 
 package com.mapcode.services.standalone;
 
+import Acme.Serve.Serve;
 import com.google.inject.Inject;
 import com.mapcode.services.implementation.*;
 import com.tomtom.speedtools.maven.MavenProperties;
-import com.tomtom.speedtools.rest.Reactor;
-import com.tomtom.speedtools.rest.ResourceProcessor;
-import com.tomtom.speedtools.testutils.SimpleExecutionContext;
 import org.jboss.resteasy.core.Dispatcher;
 import org.jboss.resteasy.plugins.interceptors.CacheControlFeature;
 import org.jboss.resteasy.plugins.providers.*;
 import org.jboss.resteasy.plugins.providers.jackson.ResteasyJackson2Provider;
 import org.jboss.resteasy.plugins.providers.jaxb.*;
+import org.jboss.resteasy.plugins.server.embedded.EmbeddedJaxrsServer;
+import org.jboss.resteasy.plugins.server.netty.NettyJaxrsServer;
 import org.jboss.resteasy.plugins.server.tjws.TJWSEmbeddedJaxrsServer;
 import org.jboss.resteasy.spi.ResteasyDeployment;
 import org.jboss.resteasy.spi.ResteasyProviderFactory;
-import org.joda.time.DateTime;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import scala.concurrent.ExecutionContext;
 
 import javax.annotation.Nonnull;
-import java.io.InputStream;
+import javax.annotation.Nullable;
+import java.lang.management.ManagementFactory;
 import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
 
 public class Server {
     private static final Logger LOG = LoggerFactory.getLogger(Server.class);
 
+    /**
+     * Embedded HTTP engines to host the REST API on.
+     */
+    public enum Engine {
+        TJWS,           // Thread-per-connection server (default).
+        NETTY           // Non-blocking event-loop server, with separate I/O and worker threads.
+    }
+
     private final MavenProperties mavenProperties;
+    private final ClientRateLimiter rateLimiter;
+    private final CompressionInterceptor compressionInterceptor;
+    private final BoundaryService boundaryService;
+    private final RequestMetrics requestMetrics;
+    private final MetricsExporter metricsExporter;
+    private final ConversionCacheFilter conversionCacheFilter;
+    private final HotCells hotCells;
     private boolean started = false;
-    private final TJWSEmbeddedJaxrsServer server;
+    @Nullable
+    private EmbeddedJaxrsServer server = null;
+    @Nullable
+    private ExecutorReactor reactor = null;
+    @Nullable
+    private HealthCheck healthCheck = null;
 
+    /**
+     * The server shares the borders, metrics and providers of the Guice injector, so the borders are loaded
+     * and indexed only once. The resources are created when the server starts, because they depend on the
+     * request threads.
+     */
     @Inject
-    public Server(@Nonnull final MavenProperties mavenProperties) {
+    public Server(
+            @Nonnull final MavenProperties mavenProperties,
+            @Nonnull final ClientRateLimiter rateLimiter,
+            @Nonnull final CompressionInterceptor compressionInterceptor,
+            @Nonnull final BoundaryService boundaryService,
+            @Nonnull final RequestMetrics requestMetrics,
+            @Nonnull final MetricsExporter metricsExporter,
+            @Nonnull final ConversionCacheFilter conversionCacheFilter,
+            @Nonnull final HotCells hotCells) {
         this.mavenProperties = mavenProperties;
-        server = new TJWSEmbeddedJaxrsServer();
+        this.rateLimiter = rateLimiter;
+        this.compressionInterceptor = compressionInterceptor;
+        this.boundaryService = boundaryService;
+        this.requestMetrics = requestMetrics;
+        this.metricsExporter = metricsExporter;
+        this.conversionCacheFilter = conversionCacheFilter;
+        this.hotCells = hotCells;
     }
 
     public synchronized void startServer(final int port) {
-        stopServer();
-        server.setPort(port);
+        startServer(port, Engine.TJWS, 0, 0, 0);
+    }
 
-        /**
-         * Create a simple ResourceProcessor, required for implementation of REST service using the
-         * SpeedTools framework.
-         */
-        LOG.debug("Server: create execution context...");
-        final Reactor reactor = new Reactor() {
-            @Nonnull
-            @Override
-            public ExecutionContext getExecutionContext() {
-                return SimpleExecutionContext.getInstance();
-            }
+    /**
+     * Start the server.
+     *
+     * @param port          Port to listen on, 0 for any free port.
+     * @param engine        Embedded HTTP engine.
+     * @param ioThreads     Number of I/O (event loop) threads, only used by {@link Engine#NETTY}.
+     *                      0 uses the engine default (2 per core).
+     * @param workerThreads Number of container threads that dispatch requests. 0 uses the engine default.
+     * @param requestThreads Number of platform threads that execute request handlers. 0 uses a virtual
+     *                       thread per request if the JVM supports it, or one thread per core otherwise.
+     */
+    public synchronized void startServer(
+            final int port,
+            @Nonnull final Engine engine,
+            final int ioThreads,
+            final int workerThreads,
+            final int requestThreads) {
+        assert engine != null;
+        stopEngine();
+        final long startNanos = System.nanoTime();
+        LOG.info("Server: engine={}, port={}, ioThreads={}, workerThreads={}, requestThreads={}",
+                engine, port, ioThreads, workerThreads, requestThreads);
+        final EmbeddedJaxrsServer embeddedServer = createEmbeddedServer(engine, port, ioThreads, workerThreads);
+        server = embeddedServer;
 
-            // This method is stubbed and never used.
-            @Nonnull
-            @Override
-            public DateTime getSystemStartupTime() {
-                return new DateTime();
-            }
-        };
-        final ResourceProcessor resourceProcessor = new ResourceProcessor(reactor);
-        final String bordersFilePath = System.getProperty("mapcode.borders.path",
-                System.getenv("MAPCODE_BORDERS_PATH"));
-        final BoundaryService boundaryService;
-        if (bordersFilePath != null && !bordersFilePath.isEmpty()) {
-            boundaryService = new BoundaryService(bordersFilePath);
-        } else {
-            final InputStream stream = Server.class.getResourceAsStream("/borders.fgb");
-            if (stream != null) {
-                LOG.info("Server: no borders path configured; loading bundled borders.fgb from classpath");
-                boundaryService = new BoundaryService(stream, "classpath:/borders.fgb");
-            } else {
-                throw new IllegalStateException(
-                        "No borders file configured (set mapcode.borders.path or MAPCODE_BORDERS_PATH) " +
-                        "and no bundled borders.fgb found on the classpath.");
-            }
-        }
+        // Request handlers run on their own executor, which releases the container threads immediately.
+        LOG.debug("Server: create execution context...");
+        final ExecutorReactor executorReactor = ExecutorReactor.create(requestThreads);
+        reactor = executorReactor;
+        final AdmissionProcessor processor = new AdmissionProcessor(executorReactor, rateLimiter, requestMetrics);
 
         LOG.debug("Server: add resources...");
-        final ResteasyDeployment deployment = server.getDeployment();
+        final ResteasyDeployment deployment = embeddedServer.getDeployment();
         final List<Object> resources = deployment.getResources();
 
         // Add mapcode resource.
         final MapcodeResourceImpl mapcodeResource = new MapcodeResourceImpl(
-                resourceProcessor,
-                boundaryService
+                processor,
+                boundaryService,
+                hotCells
         );
         resources.add(mapcodeResource);
 
-        // Add root resource.
+        // Add root resource, with a background self-check and warm-up for its status.
+        healthCheck = new HealthCheck(boundaryService, new WarmUp(boundaryService, hotCells));
+        healthCheck.start();
         final RootResourceImpl rootResource = new RootResourceImpl(
-                mapcodeResource,
+                processor,
+                healthCheck,
+                metricsExporter,
                 mavenProperties
         );
         resources.add(rootResource);
@@ -115,14 +154,17 @@ public class Server {
         resources.add(new OnlyJsonResourceImpl(rootResource, mapcodeResource));
         resources.add(new OnlyXmlResourceImpl(rootResource, mapcodeResource));
 
+        final long resourcesNanos = System.nanoTime();
+
         LOG.debug("Server: start server...");
-        server.start();
+        embeddedServer.start();
+        final long engineNanos = System.nanoTime();
 
         LOG.debug("Server: register providers...");
         final Dispatcher dispatcher = deployment.getDispatcher();
         final ResteasyProviderFactory providerFactory = dispatcher.getProviderFactory();
 
-        // Slim provider set: JSON (Jackson), XML (JAXB), plain text.
+        // Slim provider set: JSON (Jackson), XML (JAXB), plain text, streams.
         // The mapcode service has no multipart, form, file, image, or XOP endpoints.
         providerFactory.registerProvider(JAXBXmlSeeAlsoProvider.class, true);
         providerFactory.registerProvider(JAXBXmlRootElementProvider.class, true);
@@ -131,17 +173,97 @@ public class Server {
         providerFactory.registerProvider(XmlJAXBContextFinder.class, true);
         providerFactory.registerProvider(DefaultTextPlain.class, true);
         providerFactory.registerProvider(StringTextStar.class, true);
+        providerFactory.registerProvider(InputStreamProvider.class, true);
+        providerFactory.registerProvider(StreamingOutputProvider.class, true);
         providerFactory.registerProvider(CacheControlFeature.class, true);
         providerFactory.registerProvider(ResteasyJackson2Provider.class, true);
 
-        LOG.debug("Server: server is ready");
+        // Pre-serialized responses for territories and alphabets.
+        providerFactory.registerProvider(CachedEntityFilter.class);
+        providerFactory.registerProvider(CachedEntityWriter.class);
+
+        // Streaming JSON writer for the conversion responses.
+        providerFactory.registerProvider(MapcodeJsonWriter.class);
+        providerFactory.registerProvider(MapcodeXmlWriter.class);
+
+        // Cache validators for conversions.
+        providerFactory.registerProviderInstance(conversionCacheFilter);
+
+        // Response compression.
+        providerFactory.registerProviderInstance(compressionInterceptor);
+
+        // Opt-in Server-Timing header.
+        providerFactory.registerProvider(ServerTimingFilter.class);
+
+        final long endNanos = System.nanoTime();
+
+        LOG.info("Server: started in {} ms (resources {} ms, engine {} ms, providers {} ms), " +
+                        "borders loaded in {} ms, JVM uptime {} ms",
+                TimeUnit.NANOSECONDS.toMillis(endNanos - startNanos),
+                TimeUnit.NANOSECONDS.toMillis(resourcesNanos - startNanos),
+                TimeUnit.NANOSECONDS.toMillis(engineNanos - resourcesNanos),
+                TimeUnit.NANOSECONDS.toMillis(endNanos - engineNanos),
+                boundaryService.getLoadMillis(),
+                ManagementFactory.getRuntimeMXBean().getUptime());
         started = true;
     }
 
+    @Nonnull
+    private static EmbeddedJaxrsServer createEmbeddedServer(
+            @Nonnull final Engine engine,
+            final int port,
+            final int ioThreads,
+            final int workerThreads) {
+        switch (engine) {
+            case NETTY: {
+                final NettyJaxrsServer nettyServer = new NettyJaxrsServer();
+                nettyServer.setPort(port);
+                if (ioThreads > 0) {
+                    nettyServer.setIoWorkerCount(ioThreads);
+                }
+                if (workerThreads > 0) {
+                    nettyServer.setExecutorThreadCount(workerThreads);
+                }
+                return nettyServer;
+            }
+
+            case TJWS: {
+                final TJWSEmbeddedJaxrsServer tjwsServer = new TJWSEmbeddedJaxrsServer();
+                final Properties props = new Properties();
+                props.setProperty(Serve.ARG_ACCEPTOR_CLASS, NoDelayAcceptor.class.getName());
+                tjwsServer.setProps(props);
+                tjwsServer.setPort(port);
+                if (workerThreads > 0) {
+                    tjwsServer.setThreadPoolSize(workerThreads);
+                }
+                return tjwsServer;
+            }
+
+            default:
+                throw new IllegalArgumentException("Unknown engine: " + engine);
+        }
+    }
+
+    /**
+     * Stop the server, and stop the hot cells, which saves them a last time. After this, the hot cells are
+     * no longer saved periodically, also if the server is started again.
+     */
     public synchronized void stopServer() {
         LOG.debug("Server: stop server, started={}", started);
         if (started) {
+            stopEngine();
+            hotCells.stop();
+        }
+    }
+
+    private void stopEngine() {
+        if (started) {
+            assert server != null;
             server.stop();
+            assert reactor != null;
+            reactor.shutdown();
+            assert healthCheck != null;
+            healthCheck.stop();
             started = false;
         }
     }
@@ -0,0 +1,202 @@
+/*
+ * Copyright (C) 2016-2026, Stichting Mapcode Foundation (http://www.mapcode.com)
+ */
+package com.mapcode.services.standalone;
+
+import com.mapcode.services.MapcodeResource;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A scripted mix of requests, sent to a running server over HTTP. The training run ("--train") uses it to
+ * load every class that serving requests needs: resources, JSON, XML and text providers, compression,
+ * caching filters, batch and streaming requests, and error responses. Run with
+ * -XX:ArchiveClassesAtExit, the JVM then writes these classes to an AppCDS archive, so later starts load
+ * them from the archive instead of parsing and verifying them again.
+ */
+@SuppressWarnings("UseOfSystemOutOrSystemErr")
+final class TrainingRun {
+    private static final int TIMEOUT_MILLIS = 30000;
+    private static final String LATLON = "52.376514,4.908543";
+    private static final String CODE = "VJ0L6.9PNQ";
+    private static final String JSON = MediaType.APPLICATION_JSON;
+    private static final String XML = MediaType.APPLICATION_XML;
+    private static final String TEXT = MediaType.TEXT_PLAIN;
+
+    private static final List<Request> REQUESTS = Arrays.asList(
+            // The status waits for the first health check, so the server is ready after this request.
+            get("/mapcode/status", JSON),
+            get("/mapcode", TEXT),
+            get("/mapcode/version", JSON),
+            get("/mapcode/version", XML),
+            get("/mapcode/status/live", JSON),
+            get("/mapcode/status/ready", JSON),
+            get("/mapcode/metrics", TEXT),
+
+            get("/mapcode/codes/" + LATLON, JSON),
+            get("/mapcode/codes/" + LATLON, XML),
+            get("/mapcode/codes/" + LATLON + "?precision=2&include=offset,territory,alphabet,rectangle", JSON),
+            get("/mapcode/codes/" + LATLON + "?precision=2&include=offset,territory,alphabet,rectangle", XML),
+            get("/mapcode/codes/" + LATLON + "/local?territory=NLD&alphabet=greek", JSON),
+            get("/mapcode/codes/" + LATLON + "/international", XML),
+            get("/mapcode/codes/" + LATLON + "/territories", JSON),
+            get("/mapcode/codes/" + LATLON + "/territories", XML),
+            get("/mapcode/codes/" + LATLON + "?timing=true", JSON),
+            get("/mapcode/json/codes/" + LATLON, JSON),
+            get("/mapcode/xml/codes/" + LATLON, XML),
+
+            get("/mapcode/coords/" + CODE, JSON),
+            get("/mapcode/coords/" + CODE, XML),
+            get("/mapcode/coords/NLD%2049.4V?include=rectangle", JSON),
+            get("/mapcode/coords/NLD%2049.4V?include=rectangle", XML),
+            post("/mapcode/coords", JSON, JSON,
+                    "{\"requests\":[{\"code\":\"" + CODE + "\"},{\"code\":\"JL0.KP\",\"context\":\"LUX\"}]}"),
+            post("/mapcode/coords", XML, XML,
+                    "<requests><request><code>JL0.KP</code><context>LUX</context></request></requests>"),
+            post("/mapcode/stream/codes", MapcodeResource.MEDIA_TYPE_NDJSON, MapcodeResource.MEDIA_TYPE_NDJSON,
+                    "{\"latDeg\":52.376514,\"lonDeg\":4.908543}\n{\"latDeg\":50.141706,\"lonDeg\":6.135864}\n"),
+            post("/mapcode/stream/codes", MapcodeResource.MEDIA_TYPE_CSV, MapcodeResource.MEDIA_TYPE_CSV,
+                    LATLON + "\n50.141706,6.135864\n"),
+
+            get("/mapcode/territories", JSON),
+            get("/mapcode/territories", XML),
+            get("/mapcode/territories/NLD", JSON),
+            get("/mapcode/territories/USA", XML),
+            get("/mapcode/alphabets", JSON),
+            get("/mapcode/alphabets", XML),
+            get("/mapcode/alphabets/greek", JSON),
+
+            // Error responses.
+            get("/mapcode/codes/x,y", JSON),
+            get("/mapcode/coords/XYZ", XML),
+            get("/mapcode/territories/XYZ", JSON));
+
+    private TrainingRun() {
+        // Prevent instantiation.
+    }
+
+    /**
+     * Send the requests to a server, a number of times. Every request is sent once uncompressed and once
+     * with "Accept-Encoding: gzip".
+     *
+     * @param port   Port of the server, on localhost.
+     * @param rounds Number of times to send all requests.
+     * @param out    Stream to report progress to.
+     * @return Number of requests that could not be sent, or that returned a server error (5xx).
+     */
+    static int run(final int port, final int rounds, @Nonnull final PrintStream out) {
+        assert out != null;
+        int failures = 0;
+        for (int round = 1; round <= rounds; ++round) {
+            for (final Request request : REQUESTS) {
+                for (final boolean gzip : new boolean[]{false, true}) {
+                    try {
+                        final int status = request.send(port, gzip);
+                        if (status >= 500) {
+                            out.println("Training request failed: " + request + " returned " + status);
+                            ++failures;
+                        }
+                    } catch (final IOException e) {
+                        out.println("Training request failed: " + request + ": " + e.getMessage());
+                        ++failures;
+                    }
+                }
+            }
+            out.println("Training round " + round + " of " + rounds + " done");
+        }
+        return failures;
+    }
+
+    @Nonnull
+    private static Request get(@Nonnull final String path, @Nonnull final String accept) {
+        return new Request("GET", path, accept, null, null);
+    }
+
+    @Nonnull
+    private static Request post(
+            @Nonnull final String path,
+            @Nonnull final String contentType,
+            @Nonnull final String accept,
+            @Nonnull final String body) {
+        return new Request("POST", path, accept, contentType, body);
+    }
+
+    private static final class Request {
+        @Nonnull
+        private final String method;
+        @Nonnull
+        private final String path;
+        @Nonnull
+        private final String accept;
+        @Nullable
+        private final String contentType;
+        @Nullable
+        private final String body;
+
+        private Request(
+                @Nonnull final String method,
+                @Nonnull final String path,
+                @Nonnull final String accept,
+                @Nullable final String contentType,
+                @Nullable final String body) {
+            this.method = method;
+            this.path = path;
+            this.accept = accept;
+            this.contentType = contentType;
+            this.body = body;
+        }
+
+        private int send(final int port, final boolean gzip) throws IOException {
+            final HttpURLConnection connection =
+                    (HttpURLConnection) new URL("http", "localhost", port, path).openConnection();
+            try {
+                connection.setConnectTimeout(TIMEOUT_MILLIS);
+                connection.setReadTimeout(TIMEOUT_MILLIS);
+                connection.setRequestMethod(method);
+                connection.setRequestProperty(HttpHeaders.ACCEPT, accept);
+                if (gzip) {
+                    connection.setRequestProperty(HttpHeaders.ACCEPT_ENCODING, "gzip");
+                }
+                if (body != null) {
+                    assert contentType != null;
+                    connection.setDoOutput(true);
+                    connection.setRequestProperty(HttpHeaders.CONTENT_TYPE, contentType);
+                    try (final OutputStream os = connection.getOutputStream()) {
+                        os.write(body.getBytes(StandardCharsets.UTF_8));
+                    }
+                }
+                final int status = connection.getResponseCode();
+                try (final InputStream is = (status < 400) ? connection.getInputStream() : connection.getErrorStream()) {
+                    if (is != null) {
+                        final byte[] buffer = new byte[8192];
+                        //noinspection StatementWithEmptyBody
+                        while (is.read(buffer) >= 0) {
+                            // Read the response fully.
+                        }
+                    }
+                }
+                return status;
+            } finally {
+                connection.disconnect();
+            }
+        }
+
+        @Override
+        @Nonnull
+        public String toString() {
+            return method + ' ' + path + " (" + accept + ')';
+        }
+    }
+}
@@ -27,9 +27,16 @@ import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
 
 @SuppressWarnings("JUnitTestMethodWithNoAssertions")
 public class ApiCodesTest {
@@ -552,4 +559,232 @@ public class ApiCodesTest {
         Assert.assertEquals("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?><mapcodes><local><mapcode>QKM.N4</mapcode><mapcodeInAlphabet>QKM.N4</mapcodeInAlphabet><territory>NLD</territory><territoryInAlphabet>NLD</territoryInAlphabet><offsetMeters>2.843693</offsetMeters></local><international><mapcode>VHVN4.YZ74</mapcode><mapcodeInAlphabet>VHVN4.YZ74</mapcodeInAlphabet><territory>AAA</territory><territoryInAlphabet>AAA</territoryInAlphabet><offsetMeters>1.907245</offsetMeters></international><mapcodes><mapcode><mapcode>QKM.N4</mapcode><mapcodeInAlphabet>QKM.N4</mapcodeInAlphabet><territory>NLD</territory><territoryInAlphabet>NLD</territoryInAlphabet><offsetMeters>2.843693</offsetMeters></mapcode><mapcode><mapcode>CZQ.376</mapcode><mapcodeInAlphabet>CZQ.376</mapcodeInAlphabet><territory>NLD</territory><territoryInAlphabet>NLD</territoryInAlphabet><offsetMeters>5.004936</offsetMeters></mapcode><mapcode><mapcode>N39J.QW0</mapcode><mapcodeInAlphabet>N39J.QW0</mapcodeInAlphabet><territory>NLD</territory><territoryInAlphabet>NLD</territoryInAlphabet><offsetMeters>2.836538</offsetMeters></mapcode><mapcode><mapcode>VHVN4.YZ74</mapcode><mapcodeInAlphabet>VHVN4.YZ74</mapcodeInAlphabet><territory>AAA</territory><territoryInAlphabet>AAA</territoryInAlphabet><offsetMeters>1.907245</offsetMeters></mapcode></mapcodes><territories><territory><alphaCode>NLD</alphaCode></territory></territories></mapcodes>",
                 response.readEntity(String.class));
     }
+
+    @Test
+    public void checkStreamCodesNdjson() {
+        LOG.info("checkStreamCodesNdjson");
+        final String expected = new ResteasyClientBuilder().build().
+                target(server.url("/mapcode/codes/" + TEST_LATLON1)).
+                request().
+                accept(MediaType.APPLICATION_JSON_TYPE).get().readEntity(String.class);
+
+        final Response response = new ResteasyClientBuilder().build().
+                target(server.url("/mapcode/stream/codes")).
+                request().
+                post(Entity.entity("{\"latDeg\":" + TEST_LAT1 + ",\"lonDeg\":" + TEST_LON1 + "}\n" +
+                        "\n" +
+                        "{\"latDeg\":91,\"lonDeg\":0}\n" +
+                        "not json\n", MapcodeResource.MEDIA_TYPE_NDJSON));
+        Assert.assertNotNull(response);
+        Assert.assertEquals(200, response.getStatus());
+        final String[] lines = response.readEntity(String.class).split("\n");
+        Assert.assertEquals(3, lines.length);
+        Assert.assertEquals(expected, lines[0]);
+        Assert.assertTrue(lines[1].startsWith("{\"errorCode\":400,\"errorMessage\":"));
+        Assert.assertTrue(lines[2].startsWith("{\"errorCode\":400,\"errorMessage\":"));
+    }
+
+    @Test
+    public void checkStreamCodesCsv() {
+        LOG.info("checkStreamCodesCsv");
+        final Response response = new ResteasyClientBuilder().build().
+                target(server.url("/mapcode/stream/codes")).
+                request().
+                post(Entity.entity(TEST_LATLON1 + ",first\n" + TEST_LATLON_INTL + "\nx,y\n", MapcodeResource.MEDIA_TYPE_CSV));
+        Assert.assertNotNull(response);
+        Assert.assertEquals(200, response.getStatus());
+        Assert.assertEquals(
+                TEST_LATLON1 + ",first,LUX,JL0.KP,VJ0L6.9PNQ,\n" +
+                        TEST_LATLON_INTL + ",,,WHWZG.5Q6Q,\n" +
+                        "x,y,,,,400\n",
+                response.readEntity(String.class));
+    }
+
+    @Test
+    public void checkStreamCodesCsvOrder() {
+        LOG.info("checkStreamCodesCsvOrder");
+        final int count = (ApiConstants.API_STREAM_IN_FLIGHT_MAX * 4) + 1;
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; ++i) {
+            sb.append(i % 80).append('.').append(i).append(",5,").append(i).append('\n');
+        }
+        final Response response = new ResteasyClientBuilder().build().
+                target(server.url("/mapcode/stream/codes")).
+                request().
+                post(Entity.entity(sb.toString(), MapcodeResource.MEDIA_TYPE_CSV));
+        Assert.assertNotNull(response);
+        Assert.assertEquals(200, response.getStatus());
+        final String[] lines = response.readEntity(String.class).split("\n");
+        Assert.assertEquals(count, lines.length);
+        for (int i = 0; i < count; ++i) {
+            Assert.assertTrue(lines[i].startsWith((i % 80) + "." + i + ",5," + i + ','));
+        }
+    }
+
+    @Test
+    public void checkStreamCodesIncorrectParameters() {
+        LOG.info("checkStreamCodesIncorrectParameters");
+        final Response response = new ResteasyClientBuilder().build().
+                target(server.url("/mapcode/stream/codes?precision=99")).
+                request().
+                post(Entity.entity(TEST_LATLON1 + '\n', MapcodeResource.MEDIA_TYPE_CSV));
+        Assert.assertNotNull(response);
+        Assert.assertEquals(400, response.getStatus());
+    }
+
+    @Test
+    public void checkCodesEtag() {
+        LOG.info("checkCodesEtag");
+        final Response response = new ResteasyClientBuilder().build().
+                target(server.url("/mapcode/codes/" + TEST_LATLON1)).
+                request().
+                accept(MediaType.APPLICATION_JSON_TYPE).get();
+        Assert.assertEquals(200, response.getStatus());
+        final String etag = response.getHeaderString(HttpHeaders.ETAG);
+        Assert.assertNotNull(etag);
+        Assert.assertEquals("public, max-age=86400", response.getHeaderString(HttpHeaders.CACHE_CONTROL));
+        Assert.assertEquals(HttpHeaders.ACCEPT + ", " + HttpHeaders.ACCEPT_ENCODING, response.getHeaderString(HttpHeaders.VARY));
+        response.close();
+
+        // The XML representation has a different ETag.
+        final Response responseXml = new ResteasyClientBuilder().build().
+                target(server.url("/mapcode/codes/" + TEST_LATLON1)).
+                request().
+                accept(MediaType.APPLICATION_XML_TYPE).get();
+        Assert.assertEquals(200, responseXml.getStatus());
+        Assert.assertNotEquals(etag, responseXml.getHeaderString(HttpHeaders.ETAG));
+        responseXml.close();
+
+        // A matching If-None-Match returns 304 without a body, for any conversion.
+        final Response notModified = new ResteasyClientBuilder().build().
+                target(server.url("/mapcode/codes/" + TEST_LATLON2 + "/local")).
+                request().
+                accept(MediaType.APPLICATION_JSON_TYPE).
+                header(HttpHeaders.IF_NONE_MATCH, etag).get();
+        Assert.assertEquals(304, notModified.getStatus());
+        Assert.assertEquals(etag, notModified.getHeaderString(HttpHeaders.ETAG));
+        Assert.assertFalse(notModified.hasEntity());
+        notModified.close();
+
+        // Errors are not cached.
+        final Response error = new ResteasyClientBuilder().build().
+                target(server.url("/mapcode/codes/x,1")).
+                request().
+                accept(MediaType.APPLICATION_JSON_TYPE).get();
+        Assert.assertEquals(400, error.getStatus());
+        Assert.assertNull(error.getHeaderString(HttpHeaders.ETAG));
+        error.close();
+    }
+
+    @Test
+    public void checkCodesCompressed() throws IOException {
+        LOG.info("checkCodesCompressed");
+        final String url = server.url("/mapcode/codes/" + TEST_LATLON2 + "?include=rectangle,offset,territory,alphabet");
+        final Response plain = new ResteasyClientBuilder().build().
+                target(url).
+                request().
+                accept(MediaType.APPLICATION_JSON_TYPE).get();
+        Assert.assertEquals(200, plain.getStatus());
+        Assert.assertNull(plain.getHeaderString(HttpHeaders.CONTENT_ENCODING));
+        final String etag = plain.getHeaderString(HttpHeaders.ETAG);
+        final String body = plain.readEntity(String.class);
+        Assert.assertTrue(body.length() > 1024);
+
+        final Response gzipped = new ResteasyClientBuilder().build().
+                target(url).
+                request().
+                accept(MediaType.APPLICATION_JSON_TYPE).
+                header(HttpHeaders.ACCEPT_ENCODING, "deflate;q=0.5, gzip").get();
+        Assert.assertEquals(200, gzipped.getStatus());
+        Assert.assertEquals("gzip", gzipped.getHeaderString(HttpHeaders.CONTENT_ENCODING));
+        final String gzipEtag = gzipped.getHeaderString(HttpHeaders.ETAG);
+        Assert.assertEquals(etag.substring(0, etag.length() - 1) + "-gzip\"", gzipEtag);
+        try (InputStream in = new GZIPInputStream(gzipped.readEntity(InputStream.class))) {
+            Assert.assertEquals(body, new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+
+        final Response deflated = new ResteasyClientBuilder().build().
+                target(url).
+                request().
+                accept(MediaType.APPLICATION_JSON_TYPE).
+                header(HttpHeaders.ACCEPT_ENCODING, "deflate").get();
+        Assert.assertEquals(200, deflated.getStatus());
+        Assert.assertEquals("deflate", deflated.getHeaderString(HttpHeaders.CONTENT_ENCODING));
+        try (InputStream in = new InflaterInputStream(deflated.readEntity(InputStream.class))) {
+            Assert.assertEquals(body, new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+
+        // The ETag of the compressed representation is accepted in a conditional request.
+        final Response notModified = new ResteasyClientBuilder().build().
+                target(url).
+                request().
+                accept(MediaType.APPLICATION_JSON_TYPE).
+                header(HttpHeaders.ACCEPT_ENCODING, "gzip").
+                header(HttpHeaders.IF_NONE_MATCH, gzipEtag).get();
+        Assert.assertEquals(304, notModified.getStatus());
+        notModified.close();
+
+        // Small responses are not compressed.
+        final Response small = new ResteasyClientBuilder().build().
+                target(server.url("/mapcode/codes/" + TEST_LATLON1 + "/local")).
+                request().
+                accept(MediaType.APPLICATION_JSON_TYPE).
+                header(HttpHeaders.ACCEPT_ENCODING, "gzip").get();
+        Assert.assertEquals(200, small.getStatus());
+        Assert.assertNull(small.getHeaderString(HttpHeaders.CONTENT_ENCODING));
+        Assert.assertTrue(small.readEntity(String.class).startsWith("{"));
+    }
+
+    @Test
+    public void checkCodesServerTiming() {
+        LOG.info("checkCodesServerTiming");
+        final Response untimed = new ResteasyClientBuilder().build().
+                target(server.url("/mapcode/codes/" + TEST_LATLON1)).
+                request().
+                accept(MediaType.APPLICATION_JSON_TYPE).get();
+        Assert.assertEquals(200, untimed.getStatus());
+        Assert.assertNull(untimed.getHeaderString("Server-Timing"));
+        untimed.close();
+
+        final Response timed = new ResteasyClientBuilder().build().
+                target(server.url("/mapcode/codes/" + TEST_LATLON1 + "?timing=true&include=rectangle")).
+                request().
+                accept(MediaType.APPLICATION_JSON_TYPE).get();
+        Assert.assertEquals(200, timed.getStatus());
+        final String serverTiming = timed.getHeaderString("Server-Timing");
+        LOG.info("Server-Timing: {}", serverTiming);
+        Assert.assertNotNull(serverTiming);
+        Assert.assertTrue(serverTiming.contains("parse;dur="));
+        Assert.assertTrue(serverTiming.contains("encode;dur="));
+        Assert.assertTrue(serverTiming.contains("serialize;dur="));
+        Assert.assertEquals("*", timed.getHeaderString("Timing-Allow-Origin"));
+        Assert.assertTrue(timed.readEntity(String.class).startsWith("{"));
+    }
+
+    @Test
+    public void checkCodesServerTimingCompressed() throws IOException {
+        LOG.info("checkCodesServerTimingCompressed");
+        final String url = server.url("/mapcode/codes/" + TEST_LATLON2 + "?include=rectangle,offset,territory,alphabet");
+        final Response plain = new ResteasyClientBuilder().build().
+                target(url).
+                request().
+                accept(MediaType.APPLICATION_JSON_TYPE).get();
+        Assert.assertEquals(200, plain.getStatus());
+        final String body = plain.readEntity(String.class);
+
+        // Server timing is the outer interceptor: it times the compression and adds its header.
+        final Response timed = new ResteasyClientBuilder().build().
+                target(url + "&timing=true").
+                request().
+                accept(MediaType.APPLICATION_JSON_TYPE).
+                header(HttpHeaders.ACCEPT_ENCODING, "gzip").get();
+        Assert.assertEquals(200, timed.getStatus());
+        Assert.assertEquals("gzip", timed.getHeaderString(HttpHeaders.CONTENT_ENCODING));
+        final String serverTiming = timed.getHeaderString("Server-Timing");
+        Assert.assertNotNull(serverTiming);
+        Assert.assertTrue(serverTiming.contains("serialize;dur="));
+        try (InputStream in = new GZIPInputStream(timed.readEntity(InputStream.class))) {
+            Assert.assertEquals(body, new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
 }
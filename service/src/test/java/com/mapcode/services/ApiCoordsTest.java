@@ -24,6 +24,8 @@ import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 
@@ -99,4 +101,114 @@ public class ApiCoordsTest {
         Assert.assertEquals("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?><point><latDeg>50.141735</latDeg><lonDeg>6.135845</lonDeg></point>",
                 response.readEntity(String.class));
     }
+
+    @Test
+    public void checkCoordsBatchJson() {
+        LOG.info("checkCoordsBatchJson");
+        final Response response = new ResteasyClientBuilder().build().
+                target(server.url("/mapcode/coords")).
+                request().
+                accept(MediaType.APPLICATION_JSON_TYPE).
+                post(Entity.entity("{\"requests\":[{\"code\":\"" + TEST_CODE1 + "\"}," +
+                        "{\"code\":\"" + TEST_CODE2 + "\",\"context\":\"" + TEST_CONTEXT2 + "\"}]}", MediaType.APPLICATION_JSON_TYPE));
+        Assert.assertNotNull(response);
+        Assert.assertEquals(200, response.getStatus());
+        Assert.assertEquals("{\"total\":2,\"results\":[" +
+                        "{\"code\":\"VJ0L6.9PNQ\",\"point\":{\"latDeg\":50.141726,\"lonDeg\":6.1358875}}," +
+                        "{\"code\":\"JL0.KP\",\"context\":\"LUX\",\"point\":{\"latDeg\":50.141735,\"lonDeg\":6.135845}}]}",
+                response.readEntity(String.class));
+    }
+
+    @Test
+    public void checkCoordsBatchXml() {
+        LOG.info("checkCoordsBatchXml");
+        final Response response = new ResteasyClientBuilder().build().
+                target(server.url("/mapcode/xml/coords")).
+                request().
+                post(Entity.entity("<requests><request><code>" + TEST_CODE2 + "</code><context>" + TEST_CONTEXT2 +
+                        "</context></request></requests>", MediaType.APPLICATION_XML_TYPE));
+        Assert.assertNotNull(response);
+        Assert.assertEquals(200, response.getStatus());
+        Assert.assertEquals("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?><results><total>1</total><result><code>JL0.KP</code>" +
+                        "<context>LUX</context><point><latDeg>50.141735</latDeg><lonDeg>6.135845</lonDeg></point></result></results>",
+                response.readEntity(String.class));
+    }
+
+    @Test
+    public void checkCoordsBatchRectangleJson() {
+        LOG.info("checkCoordsBatchRectangleJson");
+        final Response response = new ResteasyClientBuilder().build().
+                target(server.url("/mapcode/json/coords?include=rectangle")).
+                request().
+                post(Entity.entity("{\"requests\":[{\"code\":\"" + TEST_CODE1 + "\"}]}", MediaType.APPLICATION_JSON_TYPE));
+        Assert.assertNotNull(response);
+        Assert.assertEquals(200, response.getStatus());
+        final String body = response.readEntity(String.class);
+        Assert.assertTrue(body.startsWith("{\"total\":1,\"results\":[{\"code\":\"VJ0L6.9PNQ\",\"rectangle\":{\"southWest\":"));
+        Assert.assertFalse(body.contains("\"point\""));
+    }
+
+    @Test
+    public void checkCoordsBatchErrorsPerItem() {
+        LOG.info("checkCoordsBatchErrorsPerItem");
+        final Response response = new ResteasyClientBuilder().build().
+                target(server.url("/mapcode/coords")).
+                request().
+                accept(MediaType.APPLICATION_JSON_TYPE).
+                post(Entity.entity("{\"requests\":[{\"code\":\"xx\"},{\"code\":\"" + TEST_CODE2 + "\",\"context\":\"XYZ\"}," +
+                        "{\"code\":\"" + TEST_CODE2 + "\",\"context\":\"" + TEST_CONTEXT2 + "\"}]}", MediaType.APPLICATION_JSON_TYPE));
+        Assert.assertNotNull(response);
+        Assert.assertEquals(200, response.getStatus());
+        final String body = response.readEntity(String.class);
+        Assert.assertTrue(body.startsWith("{\"total\":3,\"results\":[{\"code\":\"xx\",\"errorCode\":400,"));
+        Assert.assertTrue(body.contains("{\"code\":\"JL0.KP\",\"context\":\"XYZ\",\"errorCode\":400,"));
+        Assert.assertTrue(body.endsWith("{\"code\":\"JL0.KP\",\"context\":\"LUX\",\"point\":{\"latDeg\":50.141735,\"lonDeg\":6.135845}}]}"));
+    }
+
+    @Test
+    public void checkCoordsBatchTooLarge() {
+        LOG.info("checkCoordsBatchTooLarge");
+        final StringBuilder sb = new StringBuilder("{\"requests\":[");
+        for (int i = 0; i <= ApiConstants.API_BATCH_SIZE_MAX; ++i) {
+            sb.append((i == 0) ? "" : ",").append("{\"code\":\"").append(TEST_CODE1).append("\"}");
+        }
+        sb.append("]}");
+        final Response response = new ResteasyClientBuilder().build().
+                target(server.url("/mapcode/coords")).
+                request().
+                accept(MediaType.APPLICATION_JSON_TYPE).
+                post(Entity.entity(sb.toString(), MediaType.APPLICATION_JSON_TYPE));
+        Assert.assertNotNull(response);
+        Assert.assertEquals(400, response.getStatus());
+    }
+
+    @Test
+    public void checkCoordsEtag() {
+        LOG.info("checkCoordsEtag");
+        final Response response = new ResteasyClientBuilder().build().
+                target(server.url("/mapcode/coords/" + TEST_CODE1)).
+                request().
+                accept(MediaType.APPLICATION_JSON_TYPE).get();
+        Assert.assertEquals(200, response.getStatus());
+        final String etag = response.getHeaderString(HttpHeaders.ETAG);
+        Assert.assertNotNull(etag);
+        Assert.assertEquals(HttpHeaders.ACCEPT + ", " + HttpHeaders.ACCEPT_ENCODING, response.getHeaderString(HttpHeaders.VARY));
+        response.close();
+
+        final Response notModified = new ResteasyClientBuilder().build().
+                target(server.url("/mapcode/json/coords/" + TEST_CODE1)).
+                request().
+                accept(MediaType.APPLICATION_JSON_TYPE).
+                header(HttpHeaders.IF_NONE_MATCH, "\"other\", " + etag).get();
+        Assert.assertEquals(304, notModified.getStatus());
+        notModified.close();
+
+        final Response modified = new ResteasyClientBuilder().build().
+                target(server.url("/mapcode/coords/" + TEST_CODE1)).
+                request().
+                accept(MediaType.APPLICATION_JSON_TYPE).
+                header(HttpHeaders.IF_NONE_MATCH, "\"other\"").get();
+        Assert.assertEquals(200, modified.getStatus());
+        Assert.assertEquals("{\"latDeg\":50.141726,\"lonDeg\":6.1358875}", modified.readEntity(String.class));
+    }
 }
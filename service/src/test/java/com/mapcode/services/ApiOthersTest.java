@@ -77,6 +77,59 @@ public class ApiOthersTest {
         Assert.assertEquals(200, status);
     }
 
+    @Test
+    public void checkLivenessReadiness() {
+        LOG.info("checkLivenessReadiness");
+        Response request = new ResteasyClientBuilder().build().
+                target(server.url("/mapcode/status/live")).
+                request().
+                get();
+        Assert.assertNotNull(request);
+        Assert.assertEquals(200, request.getStatus());
+
+        // The status waits for the first self-check, after which the service must be ready.
+        request = new ResteasyClientBuilder().build().
+                target(server.url("/mapcode/status")).
+                request().
+                get();
+        Assert.assertNotNull(request);
+        Assert.assertEquals(200, request.getStatus());
+
+        request = new ResteasyClientBuilder().build().
+                target(server.url("/mapcode/status/ready")).
+                request().
+                accept(MediaType.APPLICATION_JSON_TYPE).
+                get();
+        Assert.assertNotNull(request);
+        final int status = request.getStatus();
+        LOG.info("status = {}", status);
+        Assert.assertEquals(200, status);
+        Assert.assertEquals("{\"ready\":true,\"healthy\":true,\"warmUp\":\"disabled\",\"warmUpProgress\":100,\"warmUpConversions\":0}",
+                request.readEntity(String.class));
+    }
+
+    @Test
+    public void getMetrics() {
+        LOG.info("getMetrics");
+        new ResteasyClientBuilder().build().
+                target(server.url("/mapcode/status")).
+                request().
+                get().close();
+
+        final Response response = new ResteasyClientBuilder().build().
+                target(server.url("/mapcode/metrics")).
+                request().
+                get();
+        Assert.assertNotNull(response);
+        Assert.assertEquals(200, response.getStatus());
+        final String metrics = response.readEntity(String.class);
+        Assert.assertTrue(metrics.contains("mapcode_requests_total{endpoint=\"getStatus\"} "));
+        Assert.assertTrue(metrics.contains("# TYPE mapcode_request_duration_seconds summary\n"));
+        Assert.assertTrue(metrics.contains("mapcode_boundary_lookup_duration_seconds_count "));
+        Assert.assertTrue(metrics.contains("mapcode_compression_responses_total{coding=\"gzip\"} "));
+        Assert.assertTrue(metrics.contains("jvm_memory_used_bytes{area=\"heap\"} "));
+    }
+
     @Test
     public void getHelp() {
         LOG.info("getHelp");
@@ -24,8 +24,13 @@ import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
 
 @SuppressWarnings("JUnitTestMethodWithNoAssertions")
 public class ApiTerritoriesTest {
@@ -333,4 +338,58 @@ public class ApiTerritoriesTest {
         Assert.assertEquals("{\"alphaCode\":\"RU-IN\",\"alphaCodeMinimalUnambiguous\":\"RU-IN\",\"alphaCodeMinimal\":\"IN\",\"fullName\":\"Ingushetia Republic\",\"parentTerritory\":\"RUS\",\"alphabets\":[{\"name\":\"CYRILLIC\"},{\"name\":\"ROMAN\"}]}",
                 response.readEntity(String.class));
     }
+
+    @Test
+    public void checkTerritoriesEtag() throws Exception {
+        LOG.info("checkTerritoriesEtag");
+        final Response response = new ResteasyClientBuilder().build().
+                target(server.url("/mapcode/territories?offset=10&count=5")).
+                request().
+                accept(MediaType.APPLICATION_JSON_TYPE).get();
+        Assert.assertEquals(200, response.getStatus());
+        final String etag = response.getHeaderString(HttpHeaders.ETAG);
+        Assert.assertNotNull(etag);
+        Assert.assertTrue(etag.startsWith("\"") && etag.endsWith("\""));
+        Assert.assertEquals("public, max-age=86400", response.getHeaderString(HttpHeaders.CACHE_CONTROL));
+        final String body = response.readEntity(String.class);
+
+        // The XML representation has a different ETag.
+        final Response responseXml = new ResteasyClientBuilder().build().
+                target(server.url("/mapcode/territories?offset=10&count=5")).
+                request().
+                accept(MediaType.APPLICATION_XML_TYPE).get();
+        Assert.assertEquals(200, responseXml.getStatus());
+        Assert.assertNotEquals(etag, responseXml.getHeaderString(HttpHeaders.ETAG));
+        responseXml.close();
+
+        // A matching If-None-Match returns 304 without a body.
+        final Response notModified = new ResteasyClientBuilder().build().
+                target(server.url("/mapcode/territories?offset=10&count=5")).
+                request().
+                accept(MediaType.APPLICATION_JSON_TYPE).
+                header(HttpHeaders.IF_NONE_MATCH, etag).get();
+        Assert.assertEquals(304, notModified.getStatus());
+        Assert.assertEquals(etag, notModified.getHeaderString(HttpHeaders.ETAG));
+        Assert.assertFalse(notModified.hasEntity());
+        notModified.close();
+
+        // Gzip is used if accepted, with the same content.
+        final Response gzipped = new ResteasyClientBuilder().build().
+                target(server.url("/mapcode/territories?offset=10&count=5")).
+                request().
+                accept(MediaType.APPLICATION_JSON_TYPE).
+                header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate").get();
+        Assert.assertEquals(200, gzipped.getStatus());
+        Assert.assertEquals("gzip", gzipped.getHeaderString(HttpHeaders.CONTENT_ENCODING));
+        Assert.assertNotEquals(etag, gzipped.getHeaderString(HttpHeaders.ETAG));
+        try (InputStream in = new GZIPInputStream(gzipped.readEntity(InputStream.class))) {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[4096];
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                out.write(buffer, 0, n);
+            }
+            Assert.assertEquals(body, new String(out.toByteArray(), StandardCharsets.UTF_8));
+        }
+    }
 }
@@ -19,7 +19,6 @@ package com.mapcode.services;
 import com.mapcode.services.implementation.*;
 import com.tomtom.speedtools.maven.MavenProperties;
 import com.tomtom.speedtools.rest.Reactor;
-import com.tomtom.speedtools.rest.ResourceProcessor;
 import com.tomtom.speedtools.testutils.SimpleExecutionContext;
 import org.jboss.resteasy.plugins.server.tjws.TJWSEmbeddedJaxrsServer;
 import org.joda.time.DateTime;
@@ -29,6 +28,7 @@ import org.slf4j.LoggerFactory;
 import scala.concurrent.ExecutionContext;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 @SuppressWarnings("JUnitTestMethodWithNoAssertions")
 public class LocalTestServer {
@@ -40,6 +40,8 @@ public class LocalTestServer {
     private final TJWSEmbeddedJaxrsServer server;
     private final String version;
     private final int port;
+    @Nullable
+    private HealthCheck healthCheck = null;
 
     public LocalTestServer(
             @Nonnull final String version,
@@ -52,7 +54,7 @@ public class LocalTestServer {
 
     public void start() {
 
-        // Create a simple ResourceProcessor, required for implementation of REST service using the SpeedTools framework.
+        // Create a simple Reactor, required for implementation of REST service using the SpeedTools framework.
         final Reactor reactor = new Reactor() {
             @Nonnull
             @Override
@@ -67,7 +69,8 @@ public class LocalTestServer {
                 return new DateTime();
             }
         };
-        final ResourceProcessor resourceProcessor = new ResourceProcessor(reactor);
+        final AdmissionProcessor processor = new AdmissionProcessor(reactor,
+                new ClientRateLimiter(RateLimitProperties.UNLIMITED));
 
         final MavenProperties mavenProperties = new MavenProperties(version);
 
@@ -79,14 +82,21 @@ public class LocalTestServer {
 
         // Add mapcode resource.
         final MapcodeResourceImpl mapcodeResource = new MapcodeResourceImpl(
-                resourceProcessor,
+                processor,
                 boundaryService
         );
         server.getDeployment().getResources().add(mapcodeResource);
 
-        // Add root resource.
+        // Response compression, with its statistics in the metrics.
+        final CompressionInterceptor compressionInterceptor = new CompressionInterceptor();
+
+        // Add root resource, with a background self-check for its status, without a warm-up.
+        healthCheck = new HealthCheck(boundaryService, new WarmUp(boundaryService, new HotCells(boundaryService, null, 0), 0));
+        healthCheck.start();
         final RootResourceImpl rootResource = new RootResourceImpl(
-                mapcodeResource,
+                processor,
+                healthCheck,
+                new MetricsExporter(processor.getMetrics(), boundaryService, compressionInterceptor),
                 mavenProperties
         );
         server.getDeployment().getResources().add(rootResource);
@@ -94,6 +104,23 @@ public class LocalTestServer {
         // Add JSON and XML mapcode resource.
         server.getDeployment().getResources().add(new OnlyJsonResourceImpl(rootResource, mapcodeResource));
         server.getDeployment().getResources().add(new OnlyXmlResourceImpl(rootResource, mapcodeResource));
+
+        // Add providers for pre-serialized responses.
+        server.getDeployment().getProviderClasses().add(CachedEntityFilter.class.getName());
+        server.getDeployment().getProviderClasses().add(CachedEntityWriter.class.getName());
+
+        // Add streaming JSON writer for the conversion responses.
+        server.getDeployment().getProviderClasses().add(MapcodeJsonWriter.class.getName());
+        server.getDeployment().getProviderClasses().add(MapcodeXmlWriter.class.getName());
+
+        // Add cache validators for conversions.
+        server.getDeployment().getProviders().add(new ConversionCacheFilter(mavenProperties, boundaryService));
+
+        // Add response compression.
+        server.getDeployment().getProviders().add(compressionInterceptor);
+
+        // Add opt-in Server-Timing header.
+        server.getDeployment().getProviderClasses().add(ServerTimingFilter.class.getName());
         server.start();
         LOG.debug("start: Start local server, baseUrl={}", getBaseUrl());
     }
@@ -102,6 +129,9 @@ public class LocalTestServer {
     public void stop() {
         LOG.debug("stop: Stop local server, baseUrl={}", getBaseUrl());
         server.stop();
+        if (healthCheck != null) {
+            healthCheck.stop();
+        }
     }
 
     public int getPort() {
@@ -0,0 +1,251 @@
+/*
+ * Copyright (C) 2016-2026, Stichting Mapcode Foundation (http://www.mapcode.com)
+ */
+package com.mapcode.services.implementation;
+
+import akka.dispatch.Futures;
+import com.mapcode.services.implementation.AdmissionProcessor.Lane;
+import com.mapcode.services.standalone.ExecutorReactor;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class AdmissionProcessorTest {
+    private static final Logger LOG = LoggerFactory.getLogger(AdmissionProcessorTest.class);
+
+    @Test
+    public void limitShrinksWhenLatencyRises() {
+        final AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(100, 10, 1000);
+        for (int i = 0; i < 1000; ++i) {
+            saturateAndRelease(limit, 1000);
+        }
+        final int stableLimit = limit.getLimit();
+        assertTrue(stableLimit >= 100);
+
+        // A sudden latency increase shrinks the limit (until the long-term latency catches up).
+        saturateAndRelease(limit, 10000);
+        assertTrue(limit.getLimit() < stableLimit);
+        assertTrue(limit.getLimit() >= 10);
+    }
+
+    @Test
+    public void limitDoesNotGrowWhenUnused() {
+        final AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(100, 10, 1000);
+        for (int i = 0; i < 1000; ++i) {
+            assertTrue(limit.tryAcquire());
+            limit.release(1000);
+        }
+        assertEquals(100, limit.getLimit());
+        assertEquals(0, limit.getInFlight());
+    }
+
+    @Test
+    public void overloadIsRejectedWithRetryAfter() throws Exception {
+        final ExecutorReactor reactor = ExecutorReactor.create(64);
+        try {
+            final AdmissionProcessor processor = new AdmissionProcessor(reactor,
+                    new ClientRateLimiter(RateLimitProperties.UNLIMITED));
+            final CountDownLatch started = new CountDownLatch(processor.getLimit(Lane.CHEAP));
+            final CountDownLatch done = new CountDownLatch(1);
+            final List<TestAsyncResponse> responses = new ArrayList<>();
+
+            // Occupy all permits of the lane.
+            final int limit = processor.getLimit(Lane.CHEAP);
+            for (int i = 0; i < limit; ++i) {
+                final TestAsyncResponse response = new TestAsyncResponse();
+                responses.add(response);
+                processor.process(Lane.CHEAP, null, "blocked", LOG, response, () -> {
+                    started.countDown();
+                    done.await();
+                    response.resume(Response.ok().build());
+                    return Futures.successful(null);
+                });
+            }
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            assertEquals(limit, processor.getInFlight(Lane.CHEAP));
+
+            // Fill the queue, then overflow it.
+            int queued = 0;
+            while (processor.getRejected(Lane.CHEAP) == 0) {
+                final TestAsyncResponse response = new TestAsyncResponse();
+                processor.process(Lane.CHEAP, null, "queued", LOG, response, () -> {
+                    response.resume(Response.ok().build());
+                    return Futures.successful(null);
+                });
+                if (response.isReady()) {
+                    final Response rejected = (Response) response.getResponse();
+                    assertEquals(503, rejected.getStatus());
+                    assertEquals("1", String.valueOf(rejected.getMetadata().getFirst(HttpHeaders.RETRY_AFTER)));
+                } else {
+                    responses.add(response);
+                    ++queued;
+                }
+            }
+            assertEquals(queued, processor.getQueued(Lane.CHEAP));
+
+            // The conversion lane is not affected.
+            final TestAsyncResponse conversion = new TestAsyncResponse();
+            final CountDownLatch converted = new CountDownLatch(1);
+            processor.process(Lane.CONVERSION, null, "conversion", LOG, conversion, () -> {
+                conversion.resume(Response.ok().build());
+                converted.countDown();
+                return Futures.successful(null);
+            });
+            assertTrue(converted.await(5, TimeUnit.SECONDS));
+
+            // Release the blocked requests; queued requests are served or expired, but always answered.
+            done.countDown();
+            for (final TestAsyncResponse response : responses) {
+                final long until = System.currentTimeMillis() + 5000;
+                while (!response.isReady() && (System.currentTimeMillis() < until)) {
+                    Thread.sleep(1);
+                }
+                assertTrue(response.isReady());
+                final int status = ((Response) response.getResponse()).getStatus();
+                assertTrue((status == 200) || (status == 503));
+            }
+        } finally {
+            reactor.shutdown();
+        }
+    }
+
+    @Test
+    public void nestedRequestsAreNotAdmittedAgain() throws Exception {
+        final ExecutorReactor reactor = ExecutorReactor.create(64);
+        try {
+            final AdmissionProcessor processor = new AdmissionProcessor(reactor,
+                    new ClientRateLimiter(RateLimitProperties.UNLIMITED));
+            final CountDownLatch done = new CountDownLatch(1);
+
+            // Occupy all permits but one.
+            final int limit = processor.getLimit(Lane.CHEAP);
+            for (int i = 0; i < (limit - 1); ++i) {
+                final TestAsyncResponse response = new TestAsyncResponse();
+                processor.process(Lane.CHEAP, null, "blocked", LOG, response, () -> {
+                    done.await();
+                    response.resume(Response.ok().build());
+                    return Futures.successful(null);
+                });
+            }
+
+            // The outer request takes the last permit; the inner request must not wait for a permit.
+            final TestAsyncResponse outer = new TestAsyncResponse();
+            final TestAsyncResponse inner = new TestAsyncResponse();
+            final CountDownLatch innerDone = new CountDownLatch(1);
+            processor.process(Lane.CHEAP, null, "outer", LOG, outer, () -> {
+                processor.process(Lane.CHEAP, null, "inner", LOG, inner, () -> {
+                    inner.resume(Response.ok().build());
+                    innerDone.countDown();
+                    return Futures.successful(null);
+                });
+                innerDone.await();
+                outer.resume(Response.ok().build());
+                return Futures.successful(null);
+            });
+            assertTrue(innerDone.await(5, TimeUnit.SECONDS));
+            assertEquals(200, ((Response) inner.getResponse()).getStatus());
+            assertEquals(0, processor.getRejected(Lane.CHEAP));
+            done.countDown();
+        } finally {
+            reactor.shutdown();
+        }
+    }
+
+    @Test
+    public void clientOverRateIsRejectedWithTooManyRequests() throws Exception {
+        final ExecutorReactor reactor = ExecutorReactor.create(2);
+        try {
+            final AdmissionProcessor processor = new AdmissionProcessor(reactor,
+                    new ClientRateLimiter(new RateLimitProperties(new RateLimitProperties.Limit(0.001, 1),
+                            RateLimitProperties.Limit.UNLIMITED, 100, Collections.emptyMap())));
+            final TestAsyncResponse allowed = new TestAsyncResponse();
+            final CountDownLatch done = new CountDownLatch(1);
+            processor.process(Lane.CONVERSION, "client", "allowed", LOG, allowed, () -> {
+                allowed.resume(Response.ok().build());
+                done.countDown();
+                return Futures.successful(null);
+            });
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+
+            final TestAsyncResponse rejected = new TestAsyncResponse();
+            processor.process(Lane.CONVERSION, "client", "rejected", LOG, rejected, () -> {
+                throw new IllegalStateException("Must not be called");
+            });
+            assertTrue(rejected.isReady());
+            assertEquals(429, ((Response) rejected.getResponse()).getStatus());
+            assertEquals(429, processor.processStream("client", "rejectedStream", LOG, executor -> {
+                throw new IllegalStateException("Must not be called");
+            }).getStatus());
+            assertEquals(200, processor.processStream(null, "allowedStream", LOG,
+                    executor -> Response.ok().build()).getStatus());
+        } finally {
+            reactor.shutdown();
+        }
+    }
+
+    @Test
+    public void streamHoldsPermitUntilWritten() throws Exception {
+        final ExecutorReactor reactor = ExecutorReactor.create(2);
+        try {
+            final AdmissionProcessor processor = new AdmissionProcessor(reactor,
+                    new ClientRateLimiter(RateLimitProperties.UNLIMITED));
+            final int limit = processor.getLimit(Lane.STREAM);
+            final List<StreamingOutput> streams = new ArrayList<>();
+            for (int i = 0; i < limit; ++i) {
+                final Response response = processor.processStream(null, "stream", LOG,
+                        executor -> Response.ok((StreamingOutput) out -> out.write('x')).build());
+                assertEquals(200, response.getStatus());
+                streams.add((StreamingOutput) response.getEntity());
+            }
+            assertEquals(limit, processor.getInFlight(Lane.STREAM));
+            assertEquals(0, processor.getInFlight(Lane.CONVERSION));
+
+            // The lane is full until a stream is written.
+            final Response rejected = processor.processStream(null, "stream", LOG, executor -> {
+                throw new IllegalStateException("Must not be called");
+            });
+            assertEquals(503, rejected.getStatus());
+            assertEquals("1", rejected.getHeaderString(HttpHeaders.RETRY_AFTER));
+            assertEquals(1, processor.getRejected(Lane.STREAM));
+
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            streams.get(0).write(out);
+            assertEquals("x", out.toString("UTF-8"));
+            assertEquals(limit - 1, processor.getInFlight(Lane.STREAM));
+
+            // Responses without a stream (such as errors) release the permit immediately.
+            assertEquals(400, processor.processStream(null, "stream", LOG,
+                    executor -> Response.status(400).build()).getStatus());
+            assertEquals(limit - 1, processor.getInFlight(Lane.STREAM));
+
+            final RequestMetrics.Endpoint endpoint = processor.getMetrics().getEndpoints().get("stream");
+            assertEquals(2, endpoint.getLatency().getCount());
+            assertEquals(1, endpoint.getRejections(RequestMetrics.Rejection.OVERLOAD));
+        } finally {
+            reactor.shutdown();
+        }
+    }
+
+    private static void saturateAndRelease(final AdaptiveConcurrencyLimit limit, final long rttNanos) {
+        int acquired = 0;
+        while (limit.tryAcquire()) {
+            ++acquired;
+        }
+        for (int i = 0; i < acquired; ++i) {
+            limit.release(rttNanos);
+        }
+    }
+}
@@ -0,0 +1,269 @@
+/*
+ * Copyright (C) 2016-2026, Stichting Mapcode Foundation (http://www.mapcode.com)
+ */
+package com.mapcode.services.implementation;
+
+import com.mapcode.Mapcode;
+import com.mapcode.MapcodeCodec;
+import com.mapcode.Territory;
+import com.mapcode.Territory.AlphaCodeFormat;
+import com.mapcode.services.MapcodeResource;
+import com.mapcode.services.dto.CoordsRequestDTO;
+import com.mapcode.services.dto.CoordsRequestListDTO;
+import com.mapcode.services.dto.CoordsRequestsDTO;
+import org.apache.log4j.Level;
+import org.junit.AfterClass;
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.ws.rs.core.Response;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Allocation budgets of the operations of the mapcode resource: the bytes allocated per request on the
+ * calling thread, measured with com.sun.management.ThreadMXBean.getThreadAllocatedBytes after a warm-up.
+ * The operations are called through the resource layer (admission, validation and building the response),
+ * but without HTTP, serialization and logging, so the budgets do not depend on the container or the log
+ * configuration.
+ *
+ * The budgets are in allocation-budgets.properties. A change that makes an operation allocate more than
+ * its budget fails this test. To record new budgets (the measured allocation plus some headroom), run:
+ *
+ * <pre>
+ *     mvn test -pl service -Dtest=AllocationBudgetTest -Dmapcode.allocation.record=true
+ * </pre>
+ *
+ * The budgets were recorded on JDK 17.0.9 with mapcode 2.4.18 and flatgeobuf 3.26.2, not with the versions
+ * in the POMs (mapcode 2.4.19 and flatgeobuf 3.27.1), as those are not published on Maven Central. The
+ * allocation of the library calls may differ between versions; record the budgets again when the declared
+ * versions are available.
+ */
+public class AllocationBudgetTest {
+    private static final Logger LOG = LoggerFactory.getLogger(AllocationBudgetTest.class);
+
+    private static final String PROPERTY_RECORD = "mapcode.allocation.record";
+    private static final Path BUDGETS_FILE = Paths.get("src", "test", "resources", "allocation-budgets.properties");
+    private static final String BUDGETS_RESOURCE = "/allocation-budgets.properties";
+
+    private static final int WARM_UP_REQUESTS = 20000;
+    private static final int MEASURED_REQUESTS = 2000;
+    private static final int MEASUREMENTS = 3;
+    private static final double RECORD_HEADROOM = 1.2;
+    private static final int RECORD_GRANULARITY = 256;
+
+    // Points in various territories, all with a local mapcode.
+    private static final String[][] LATLONS = {
+            {"52.376514", "4.908543"},
+            {"50.141706", "6.135864"},
+            {"52.158974", "4.492479"},
+            {"40.748817", "-73.985428"},
+            {"48.858370", "2.294481"},
+            {"35.658581", "139.745438"},
+            {"-33.856784", "151.215297"}
+    };
+
+    private static com.sun.management.ThreadMXBean threads;
+    private static org.apache.log4j.Logger serviceLogger;
+    private static Level serviceLogLevel;
+    private static MapcodeResource resource;
+    private static String[] localCodes;
+    private static String[] localContexts;
+    private static String[] internationalCodes;
+
+    @BeforeClass
+    public static void setUp() {
+        final java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        threads = (com.sun.management.ThreadMXBean) bean;
+        Assume.assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        // Logging is left out of the budgets, except for the results of this test.
+        serviceLogger = org.apache.log4j.Logger.getLogger("com.mapcode.services");
+        serviceLogLevel = serviceLogger.getLevel();
+        serviceLogger.setLevel(Level.WARN);
+        org.apache.log4j.Logger.getLogger(AllocationBudgetTest.class).setLevel(Level.INFO);
+
+        resource = new MapcodeResourceImpl(AdmissionProcessor.createDirect(), new BoundaryService(
+                Paths.get("src", "test", "resources", "borders-test.fgb").toAbsolutePath().toString()));
+        localCodes = new String[LATLONS.length];
+        localContexts = new String[LATLONS.length];
+        internationalCodes = new String[LATLONS.length];
+        for (int i = 0; i < LATLONS.length; ++i) {
+            final List<Mapcode> mapcodes = MapcodeCodec.encode(
+                    Double.parseDouble(LATLONS[i][0]), Double.parseDouble(LATLONS[i][1]));
+            final Mapcode local = mapcodes.get(0);
+            localCodes[i] = local.getCode();
+            localContexts[i] = (local.getTerritory() == Territory.AAA) ? null :
+                    local.getTerritory().toAlphaCode(AlphaCodeFormat.INTERNATIONAL);
+            internationalCodes[i] = mapcodes.get(mapcodes.size() - 1).getCode();
+        }
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        if (serviceLogger != null) {
+            serviceLogger.setLevel(serviceLogLevel);
+            org.apache.log4j.Logger.getLogger(AllocationBudgetTest.class).setLevel(null);
+        }
+    }
+
+    @Test
+    public void operationsStayWithinAllocationBudget() throws IOException {
+        final Map<String, Operation> operations = createOperations();
+        final Map<String, Long> measured = new LinkedHashMap<>();
+        for (final Map.Entry<String, Operation> operation : operations.entrySet()) {
+            final long bytes = measure(operation.getKey(), operation.getValue());
+            measured.put(operation.getKey(), bytes);
+        }
+
+        if (Boolean.getBoolean(PROPERTY_RECORD)) {
+            recordBudgets(measured);
+            return;
+        }
+        final Properties budgets = loadBudgets();
+        final List<String> failures = new ArrayList<>();
+        for (final Map.Entry<String, Long> entry : measured.entrySet()) {
+            final String budget = budgets.getProperty(entry.getKey());
+            if (budget == null) {
+                failures.add(entry.getKey() + ": no budget");
+            } else if (entry.getValue() > Long.parseLong(budget.trim())) {
+
+                // Allocation is higher while the JIT compiler has not (re)compiled the operation yet, which
+                // can take longer than the warm-up on a busy machine. Measure once more before failing.
+                final long bytes = Math.min(entry.getValue(), measure(entry.getKey(), operations.get(entry.getKey())));
+                if (bytes > Long.parseLong(budget.trim())) {
+                    failures.add(entry.getKey() + ": " + bytes + " bytes per request, budget " + budget.trim());
+                }
+            }
+        }
+        if (!failures.isEmpty()) {
+            fail("Allocation budget exceeded (record new budgets with -D" + PROPERTY_RECORD + "=true):\n" +
+                    String.join("\n", failures));
+        }
+    }
+
+    @Nonnull
+    private static Map<String, Operation> createOperations() {
+        final Map<String, Operation> operations = new LinkedHashMap<>();
+        operations.put("encode", (i, r) -> resource.convertLatLonToMapcode(lat(i), lon(i), "0", null, null, null,
+                null, "", "", "false", r));
+        operations.put("encode.precision2", (i, r) -> resource.convertLatLonToMapcode(lat(i), lon(i), "2", null,
+                null, null, null, "", "", "false", r));
+        operations.put("encode.rectangle", (i, r) -> resource.convertLatLonToMapcode(lat(i), lon(i), "0", null,
+                null, null, null, "rectangle", "", "false", r));
+        operations.put("encode.allIncludes", (i, r) -> resource.convertLatLonToMapcode(lat(i), lon(i), "0", null,
+                null, null, null, "offset,territory,alphabet,rectangle", "", "false", r));
+        operations.put("encode.alphabet", (i, r) -> resource.convertLatLonToMapcode(lat(i), lon(i), "0", null,
+                null, null, "greek", "", "", "false", r));
+        operations.put("encode.local", (i, r) -> resource.convertLatLonToMapcode(lat(i), lon(i), "local",
+                "0", null, null, null, null, "", "", "false", r));
+        operations.put("encode.international", (i, r) -> resource.convertLatLonToMapcode(lat(i), lon(i),
+                "international", "0", null, null, null, null, "", "", "false", r));
+        operations.put("encode.mapcodes", (i, r) -> resource.convertLatLonToMapcode(lat(i), lon(i), "mapcodes",
+                "0", null, null, null, null, "", "", "false", r));
+        operations.put("territoriesForLatLon", (i, r) -> resource.getTerritoriesForLatLon(lat(i), lon(i), "",
+                "false", r));
+        operations.put("decode.local", (i, r) -> resource.convertMapcodeToLatLon(localCodes[i],
+                localContexts[i], null, "", "", "false", r));
+        operations.put("decode.international", (i, r) -> resource.convertMapcodeToLatLon(internationalCodes[i],
+                null, null, "", "", "false", r));
+        operations.put("decode.rectangle", (i, r) -> resource.convertMapcodeToLatLon(localCodes[i],
+                localContexts[i], null, "rectangle", "", "false", r));
+        operations.put("decode.batch", (i, r) -> resource.convertMapcodesToLatLon(new CoordsRequestsDTO(
+                new CoordsRequestListDTO(Arrays.asList(
+                        new CoordsRequestDTO(localCodes[i], localContexts[i]),
+                        new CoordsRequestDTO(internationalCodes[i])))), "", "", "false", r));
+        operations.put("territories", (i, r) -> resource.getTerritories(0, 1000, "", "false", r));
+        operations.put("territory", (i, r) -> resource.getTerritory("NLD", null, "", "false", r));
+        operations.put("alphabets", (i, r) -> resource.getAlphabets(0, 1000, "", "false", r));
+        operations.put("alphabet", (i, r) -> resource.getAlphabet("greek", "", "false", r));
+        return operations;
+    }
+
+    /**
+     * Measure the bytes an operation allocates per request, after a warm-up, as the lowest of a few
+     * measurements, so a one-off allocation (such as a lazily created cache) is not counted.
+     */
+    private static long measure(@Nonnull final String name, @Nonnull final Operation operation) {
+        for (int i = 0; i < WARM_UP_REQUESTS; ++i) {
+            final TestAsyncResponse response = new TestAsyncResponse();
+            operation.run(i % LATLONS.length, response);
+            if (i < LATLONS.length) {
+                final Object result = response.getResponse();
+                assertTrue(name + " failed: " + result, result instanceof Response);
+                assertEquals(name, 200, ((Response) result).getStatus());
+            }
+        }
+        final long threadId = Thread.currentThread().getId();
+        long lowest = Long.MAX_VALUE;
+        for (int measurement = 0; measurement < MEASUREMENTS; ++measurement) {
+            final long before = threads.getThreadAllocatedBytes(threadId);
+            for (int i = 0; i < MEASURED_REQUESTS; ++i) {
+                operation.run(i % LATLONS.length, new TestAsyncResponse());
+            }
+            lowest = Math.min(lowest, (threads.getThreadAllocatedBytes(threadId) - before) / MEASURED_REQUESTS);
+        }
+        LOG.info("measure: {} allocates {} bytes per request", name, lowest);
+        return lowest;
+    }
+
+    @Nonnull
+    private static Properties loadBudgets() throws IOException {
+        final Properties budgets = new Properties();
+        try (InputStream in = AllocationBudgetTest.class.getResourceAsStream(BUDGETS_RESOURCE)) {
+            assertTrue("Missing " + BUDGETS_RESOURCE, in != null);
+            budgets.load(in);
+        }
+        return budgets;
+    }
+
+    private static void recordBudgets(@Nonnull final Map<String, Long> measured) throws IOException {
+        final List<String> lines = new ArrayList<>();
+        lines.add("# Allocation budgets of the operations of the mapcode resource, in bytes per request.");
+        lines.add("# Checked by AllocationBudgetTest; recorded with -D" + PROPERTY_RECORD + "=true.");
+        for (final Map.Entry<String, Long> entry : measured.entrySet()) {
+            final long budget = (long) Math.ceil((entry.getValue() * RECORD_HEADROOM) / RECORD_GRANULARITY) *
+                    RECORD_GRANULARITY;
+            lines.add(String.format(Locale.ROOT, "%s=%d", entry.getKey(), Math.max(RECORD_GRANULARITY, budget)));
+        }
+        Files.write(BUDGETS_FILE, lines, StandardCharsets.UTF_8);
+        LOG.info("recordBudgets: recorded budgets in {}", BUDGETS_FILE.toAbsolutePath());
+    }
+
+    @Nonnull
+    private static String lat(final int i) {
+        return LATLONS[i][0];
+    }
+
+    @Nonnull
+    private static String lon(final int i) {
+        return LATLONS[i][1];
+    }
+
+    @FunctionalInterface
+    private interface Operation {
+        void run(int index, @Nonnull TestAsyncResponse response);
+    }
+}
@@ -5,6 +5,8 @@ package com.mapcode.services.implementation;
 
 import org.junit.Test;
 
+import java.io.InputStream;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.List;
@@ -111,4 +113,14 @@ public class BoundaryServiceTest {
             }
         }
     }
+
+    @Test
+    public void bordersHashDoesNotDependOnSource() throws Exception {
+        final BoundaryService fromPath = new BoundaryService(FIXTURE.toString());
+        try (final InputStream stream = Files.newInputStream(FIXTURE)) {
+            final BoundaryService fromStream = new BoundaryService(stream, FIXTURE.toString());
+            assertEquals(fromPath.getBordersHash(), fromStream.getBordersHash());
+        }
+        assertEquals(8, fromPath.getBordersHash().length());
+    }
 }
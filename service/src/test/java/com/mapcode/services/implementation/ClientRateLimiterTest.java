@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2016-2026, Stichting Mapcode Foundation (http://www.mapcode.com)
+ */
+package com.mapcode.services.implementation;
+
+import com.mapcode.services.implementation.RateLimitProperties.Limit;
+import com.tomtom.speedtools.guice.InvalidPropertyValueException;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Properties;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ClientRateLimiterTest {
+
+    // Slow enough not to refill during a test.
+    private static final double RATE = 0.001;
+
+    @Test
+    public void clientIsLimitedToBurst() {
+        final ClientRateLimiter limiter = new ClientRateLimiter(new RateLimitProperties(
+                new Limit(RATE, 3), Limit.UNLIMITED, 100, Collections.emptyMap()));
+        for (int i = 0; i < 3; ++i) {
+            assertTrue(limiter.tryAcquire("a"));
+        }
+        assertFalse(limiter.tryAcquire("a"));
+        assertTrue(limiter.tryAcquire("b"));
+        assertEquals(1, limiter.getRejected());
+        assertEquals(2, limiter.getNrClients());
+    }
+
+    @Test
+    public void anonymousCallersShareBucket() {
+        final ClientRateLimiter limiter = new ClientRateLimiter(new RateLimitProperties(
+                Limit.UNLIMITED, new Limit(RATE, 2), 100, Collections.emptyMap()));
+        assertTrue(limiter.tryAcquire(null));
+        assertTrue(limiter.tryAcquire(""));
+        assertFalse(limiter.tryAcquire(null));
+        assertTrue(limiter.tryAcquire("a"));
+        assertEquals(0, limiter.getNrClients());
+    }
+
+    @Test
+    public void overridesApplyPerClient() {
+        final ClientRateLimiter limiter = new ClientRateLimiter(new RateLimitProperties(
+                new Limit(RATE, 1), Limit.UNLIMITED, 100, Collections.singletonMap("big", new Limit(RATE, 5))));
+        assertTrue(limiter.tryAcquire("small"));
+        assertFalse(limiter.tryAcquire("small"));
+        for (int i = 0; i < 5; ++i) {
+            assertTrue(limiter.tryAcquire("big"));
+        }
+        assertFalse(limiter.tryAcquire("big"));
+    }
+
+    @Test
+    public void bucketRefills() throws Exception {
+        final ClientRateLimiter limiter = new ClientRateLimiter(new RateLimitProperties(
+                new Limit(100.0, 1), Limit.UNLIMITED, 100, Collections.emptyMap()));
+        assertTrue(limiter.tryAcquire("a"));
+        assertFalse(limiter.tryAcquire("a"));
+        Thread.sleep(20);
+        assertTrue(limiter.tryAcquire("a"));
+    }
+
+    @Test
+    public void newClientsShareAnonymousBucketIfFull() {
+        final ClientRateLimiter limiter = new ClientRateLimiter(new RateLimitProperties(
+                new Limit(RATE, 1), new Limit(RATE, 1), 2, Collections.emptyMap()));
+        assertTrue(limiter.tryAcquire("a"));
+        assertTrue(limiter.tryAcquire("b"));
+
+        // Buckets 'a' and 'b' are not idle, so 'c' and 'd' use the anonymous bucket.
+        assertTrue(limiter.tryAcquire("c"));
+        assertFalse(limiter.tryAcquire("d"));
+        assertEquals(2, limiter.getNrClients());
+    }
+
+    @Test
+    public void idleBucketsAreEvicted() throws Exception {
+        final ClientRateLimiter limiter = new ClientRateLimiter(new RateLimitProperties(
+                new Limit(1000.0, 1), Limit.UNLIMITED, 2, Collections.emptyMap()));
+        assertTrue(limiter.tryAcquire("a"));
+        assertTrue(limiter.tryAcquire("b"));
+        Thread.sleep(10);
+        assertTrue(limiter.tryAcquire("c"));
+        assertEquals(1, limiter.getNrClients());
+    }
+
+    @Test
+    public void parseProperties() {
+        final Properties properties = new Properties();
+        properties.setProperty("RateLimit.requestsPerSec", "10");
+        properties.setProperty("RateLimit.burst", "20");
+        properties.setProperty("RateLimit.anonymousRequestsPerSec", "0");
+        properties.setProperty("RateLimit.anonymousBurst", "0");
+        properties.setProperty("RateLimit.maxClients", "50");
+        properties.setProperty("RateLimit.clients", " app:500:1000, batch:0:0 ");
+        final RateLimitProperties rateLimits = RateLimitProperties.fromProperties(properties);
+        assertEquals(10.0, rateLimits.getClientLimit().getRequestsPerSec(), 0.0);
+        assertEquals(20, rateLimits.getClientLimit().getBurst());
+        assertTrue(rateLimits.getAnonymousLimit().isUnlimited());
+        assertEquals(50, rateLimits.getMaxClients());
+        assertEquals(2, rateLimits.getClientOverrides().size());
+        assertEquals(1000, rateLimits.getClientOverrides().get("app").getBurst());
+        assertTrue(rateLimits.getClientOverrides().get("batch").isUnlimited());
+    }
+
+    @Test(expected = InvalidPropertyValueException.class)
+    public void parseInvalidOverride() {
+        final Properties properties = new Properties();
+        properties.setProperty("RateLimit.requestsPerSec", "10");
+        properties.setProperty("RateLimit.burst", "20");
+        properties.setProperty("RateLimit.anonymousRequestsPerSec", "0");
+        properties.setProperty("RateLimit.anonymousBurst", "0");
+        properties.setProperty("RateLimit.maxClients", "50");
+        properties.setProperty("RateLimit.clients", "app:500");
+        RateLimitProperties.fromProperties(properties);
+    }
+
+    @Test
+    public void loadBundledProperties() {
+        final RateLimitProperties rateLimits = RateLimitProperties.load();
+        assertFalse(rateLimits.getClientLimit().isUnlimited());
+        assertTrue(rateLimits.getClientOverrides().isEmpty());
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright (C) 2016-2026, Stichting Mapcode Foundation (http://www.mapcode.com)
+ */
+package com.mapcode.services.implementation;
+
+import com.mapcode.services.implementation.CompressionInterceptor.Coding;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class CompressionInterceptorTest {
+
+    @Test
+    public void negotiatePrefersGzip() {
+        assertEquals(Coding.GZIP, CompressionInterceptor.negotiate("gzip, deflate"));
+        assertEquals(Coding.GZIP, CompressionInterceptor.negotiate("deflate, gzip"));
+        assertEquals(Coding.GZIP, CompressionInterceptor.negotiate("br, x-gzip"));
+        assertEquals(Coding.GZIP, CompressionInterceptor.negotiate("*"));
+    }
+
+    @Test
+    public void negotiateUsesQuality() {
+        assertEquals(Coding.DEFLATE, CompressionInterceptor.negotiate("gzip;q=0.5, deflate"));
+        assertEquals(Coding.DEFLATE, CompressionInterceptor.negotiate("gzip;q=0, *"));
+        assertEquals(Coding.DEFLATE, CompressionInterceptor.negotiate("deflate"));
+    }
+
+    @Test
+    public void negotiateNothingAccepted() {
+        assertNull(CompressionInterceptor.negotiate(null));
+        assertNull(CompressionInterceptor.negotiate(""));
+        assertNull(CompressionInterceptor.negotiate("identity"));
+        assertNull(CompressionInterceptor.negotiate("br, zstd"));
+        assertNull(CompressionInterceptor.negotiate("gzip;q=0, deflate;q=0"));
+        assertNull(CompressionInterceptor.negotiate("*;q=0"));
+    }
+
+    @Test
+    public void etagsOfCompressedRepresentationsMatch() {
+        assertTrue(CachedEntityFilter.matchesIfNoneMatch("\"abc\"", "abc"));
+        assertTrue(CachedEntityFilter.matchesIfNoneMatch("\"abc-gzip\"", "abc"));
+        assertTrue(CachedEntityFilter.matchesIfNoneMatch("W/\"abc-deflate\"", "abc"));
+        assertFalse(CachedEntityFilter.matchesIfNoneMatch("\"abc-br\"", "abc"));
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2016-2026, Stichting Mapcode Foundation (http://www.mapcode.com)
+ */
+package com.mapcode.services.implementation;
+
+import com.mapcode.services.dto.MapcodesDTO;
+import com.mapcode.services.standalone.ExecutorReactor;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Test;
+
+import javax.ws.rs.core.Response;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ConversionEventsTest {
+
+    @Test
+    public void encodeRecordsAllStages() throws Exception {
+        final ExecutorReactor reactor = ExecutorReactor.create(2);
+        final Path file = Files.createTempFile("mapcode-events-", ".jfr");
+        try (final Recording recording = new Recording()) {
+            for (final String name : new String[]{"Parse", "Encode", "Rectangle", "BoundaryLookup", "Validate"}) {
+                recording.enable("com.mapcode." + name).withThreshold(Duration.ZERO);
+            }
+            final MapcodeResourceImpl mapcodeResource = new MapcodeResourceImpl(
+                    new AdmissionProcessor(reactor,
+                            new ClientRateLimiter(RateLimitProperties.UNLIMITED)),
+                    new BoundaryService(
+                            Paths.get("src", "test", "resources", "borders-test.fgb").toAbsolutePath().toString()));
+
+            recording.start();
+            final TestAsyncResponse response = new TestAsyncResponse();
+            mapcodeResource.convertLatLonToMapcode("52.158974", "4.492479", null, "0", null, null, null, null,
+                    "rectangle", "", "false", response);
+            final Object result = response.getFuture().get(10, TimeUnit.SECONDS);
+            recording.stop();
+            recording.dump(file);
+
+            final MapcodesDTO mapcodes = (MapcodesDTO) ((Response) result).getEntity();
+            final Map<String, RecordedEvent> events = RecordingFile.readAllEvents(file).stream().
+                    collect(Collectors.toMap(event -> event.getEventType().getName(), Function.identity(),
+                            (first, second) -> first));
+            assertEquals("convertLatLonToMapcode", events.get("com.mapcode.Parse").getString("endpoint"));
+            assertEquals(mapcodes.getMapcodes().size(), events.get("com.mapcode.Encode").getInt("mapcodes"));
+            assertEquals(mapcodes.getMapcodes().size() + 2, events.get("com.mapcode.Rectangle").getInt("rectangles"));
+            assertTrue(events.get("com.mapcode.BoundaryLookup").getInt("candidates") >= 0);
+            assertEquals("convertLatLonToMapcode", events.get("com.mapcode.Validate").getString("endpoint"));
+        } finally {
+            Files.deleteIfExists(file);
+            reactor.shutdown();
+        }
+    }
+}
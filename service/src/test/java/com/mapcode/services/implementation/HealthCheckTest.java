@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2016-2026, Stichting Mapcode Foundation (http://www.mapcode.com)
+ */
+package com.mapcode.services.implementation;
+
+import com.mapcode.services.MapcodeResource;
+import com.mapcode.services.standalone.ExecutorReactor;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class HealthCheckTest {
+
+    @Test
+    public void roundTripMakesServiceReady() throws Exception {
+        final ExecutorReactor reactor = ExecutorReactor.create(2);
+        final AdmissionProcessor processor = new AdmissionProcessor(reactor,
+                new ClientRateLimiter(RateLimitProperties.UNLIMITED));
+        final BoundaryService boundaryService = createBoundaryService();
+        final HealthCheck healthCheck = new HealthCheck(new MapcodeResourceImpl(processor, boundaryService),
+                new WarmUp(boundaryService, new HotCells(boundaryService, null, 0), 0), 60);
+        try {
+            healthCheck.start();
+            assertTrue(healthCheck.getStatus().toCompletableFuture().get(10, TimeUnit.SECONDS));
+            assertTrue(healthCheck.isReady());
+            assertTrue(healthCheck.check());
+        } finally {
+            healthCheck.stop();
+            reactor.shutdown();
+        }
+    }
+
+    @Test
+    public void failingRoundTripIsNotReady() throws Exception {
+        final MapcodeResource failing = (MapcodeResource) Proxy.newProxyInstance(
+                MapcodeResource.class.getClassLoader(), new Class<?>[]{MapcodeResource.class},
+                (proxy, method, args) -> {
+                    throw new IllegalStateException("Failing resource");
+                });
+        final HealthCheck healthCheck = new HealthCheck(failing, createWarmUp(), 60);
+        try {
+            healthCheck.start();
+            assertFalse(healthCheck.getStatus().toCompletableFuture().get(10, TimeUnit.SECONDS));
+            assertFalse(healthCheck.isReady());
+        } finally {
+            healthCheck.stop();
+        }
+    }
+
+    @Test
+    public void noChecksUntilStarted() throws Exception {
+        final WarmUp warmUp = createWarmUp();
+        final HealthCheck healthCheck = new HealthCheck(createBoundaryService(), warmUp);
+        try {
+            assertFalse(healthCheck.getStatus().toCompletableFuture().isDone());
+            assertFalse(healthCheck.isHealthy());
+        } finally {
+            healthCheck.stop();
+        }
+
+        // A stopped health check cannot be started again.
+        healthCheck.start();
+        assertFalse(healthCheck.getStatus().toCompletableFuture().isDone());
+    }
+
+    @Test
+    public void notReadyUntilWarmedUp() throws Exception {
+        final ExecutorReactor reactor = ExecutorReactor.create(2);
+        final AdmissionProcessor processor = new AdmissionProcessor(reactor,
+                new ClientRateLimiter(RateLimitProperties.UNLIMITED));
+        final BoundaryService boundaryService = createBoundaryService();
+        final WarmUp warmUp = new WarmUp(boundaryService, new HotCells(boundaryService, null, 0), 60);
+        final HealthCheck healthCheck = new HealthCheck(new MapcodeResourceImpl(processor, boundaryService),
+                warmUp, 60);
+        try {
+            healthCheck.start();
+            assertTrue(healthCheck.getStatus().toCompletableFuture().get(10, TimeUnit.SECONDS));
+            assertTrue(healthCheck.isHealthy());
+            assertEquals(warmUp.isDone(), healthCheck.isReady());
+            warmUp.stop();
+            assertTrue(healthCheck.isReady());
+        } finally {
+            healthCheck.stop();
+            reactor.shutdown();
+        }
+    }
+
+    private static WarmUp createWarmUp() {
+        final BoundaryService boundaryService = createBoundaryService();
+        return new WarmUp(boundaryService, new HotCells(boundaryService, null, 0), 0);
+    }
+
+    private static BoundaryService createBoundaryService() {
+        return new BoundaryService(
+                Paths.get("src", "test", "resources", "borders-test.fgb").toAbsolutePath().toString());
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2016-2026, Stichting Mapcode Foundation (http://www.mapcode.com)
+ */
+package com.mapcode.services.implementation;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class HotCellsTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void savedCellsArePreloadedAfterRestart() throws Exception {
+        final Path file = folder.getRoot().toPath().resolve("hot-cells.txt");
+        final HotCells hotCells = new HotCells(createBoundaryService(), file, 0);
+        assertTrue(hotCells.isEnabled());
+        for (int i = 0; i < 10; ++i) {
+            hotCells.recordPoint(52.03, 5.03);      // Inside NLD square.
+            hotCells.recordPoint(52.04, 5.06);      // Same cell.
+            hotCells.recordPoint(36.03, -119.97);   // Inside USA-CA square.
+        }
+        hotCells.recordMapcode("VJ0L6.9PNQ", null);
+        assertEquals(2, hotCells.getCellCount());
+        assertEquals(1, hotCells.getMapcodeCount());
+        hotCells.stop();
+
+        final List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        assertTrue(lines.contains("cell\t52.05\t5.05\t20"));
+        assertTrue(lines.contains("cell\t36.05\t-119.95\t10"));
+        assertTrue(lines.contains("mapcode\tVJ0L6.9PNQ\t\t1"));
+
+        // The mapcode is preloaded as the cell of its point.
+        final BoundaryService boundaryService = createBoundaryService();
+        final HotCells restarted = new HotCells(boundaryService, file, 0);
+        assertEquals(2, restarted.getCellCount());
+        assertEquals(1, restarted.getMapcodeCount());
+        assertEquals(0, boundaryService.preparedCacheSize());
+        assertEquals(3, restarted.preload());
+        assertTrue(boundaryService.preparedCacheSize() > 0);
+    }
+
+    @Test
+    public void countsFadeOutAfterSaving() {
+        final Path file = folder.getRoot().toPath().resolve("hot-cells.txt");
+        final HotCells hotCells = new HotCells(createBoundaryService(), file, 0);
+        hotCells.recordPoint(52.03, 5.03);
+        hotCells.recordPoint(36.03, -119.97);
+        hotCells.recordPoint(36.03, -119.97);
+        hotCells.save();
+        assertEquals(1, hotCells.getCellCount());
+        hotCells.save();
+        assertEquals(0, hotCells.getCellCount());
+    }
+
+    @Test
+    public void invalidLinesAreIgnored() throws Exception {
+        final Path file = folder.getRoot().toPath().resolve("hot-cells.txt");
+        Files.write(file, ("# mapcode hot cells v1\nunknown\t1\ncell\t52.05\t5.05\t4\ncell\tx\ty\t1\n").
+                getBytes(StandardCharsets.UTF_8));
+        final HotCells hotCells = new HotCells(createBoundaryService(), file, 0);
+        assertEquals(1, hotCells.getCellCount());
+    }
+
+    @Test
+    public void disabledHotCellsCountNothing() {
+        final HotCells hotCells = new HotCells(createBoundaryService(), null, 0);
+        assertFalse(hotCells.isEnabled());
+        hotCells.recordPoint(52.0, 5.0);
+        hotCells.recordMapcode("VJ0L6.9PNQ", null);
+        assertEquals(0, hotCells.getCellCount());
+        assertEquals(0, hotCells.getMapcodeCount());
+        assertEquals(0, hotCells.preload());
+    }
+
+    private static BoundaryService createBoundaryService() {
+        return new BoundaryService(
+                Paths.get("src", "test", "resources", "borders-test.fgb").toAbsolutePath().toString());
+    }
+}
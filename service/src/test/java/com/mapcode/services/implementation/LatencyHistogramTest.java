@@ -0,0 +1,54 @@
+/*
+ * Copyright (C) 2016-2026, Stichting Mapcode Foundation (http://www.mapcode.com)
+ */
+package com.mapcode.services.implementation;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void bucketsAreContiguous() {
+        long expected = 0;
+        for (int i = 0; i < 200; ++i) {
+            assertEquals(expected, LatencyHistogram.getLowerBound(i));
+            assertEquals(i, LatencyHistogram.getIndex(LatencyHistogram.getLowerBound(i)));
+            assertEquals(i, LatencyHistogram.getIndex(LatencyHistogram.getUpperBound(i) - 1));
+            expected = LatencyHistogram.getUpperBound(i);
+        }
+    }
+
+    @Test
+    public void quantilesAreWithinPrecision() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getValueAtQuantileMicros(0.5));
+        for (int micros = 1; micros <= 10000; ++micros) {
+            histogram.record(TimeUnit.MICROSECONDS.toNanos(micros));
+        }
+        assertEquals(10000, histogram.getCount());
+        assertEquals(TimeUnit.MICROSECONDS.toNanos(50005000L), histogram.getSumNanos());
+        assertWithin(5000, histogram.getValueAtQuantileMicros(0.5));
+        assertWithin(9900, histogram.getValueAtQuantileMicros(0.99));
+        assertWithin(10000, histogram.getValueAtQuantileMicros(1.0));
+    }
+
+    @Test
+    public void extremeValuesAreClamped() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-1);
+        histogram.record(Long.MAX_VALUE);
+        assertEquals(2, histogram.getCount());
+        assertEquals(0, histogram.getValueAtQuantileMicros(0.5));
+        assertTrue(histogram.getValueAtQuantileMicros(1.0) > TimeUnit.HOURS.toMicros(24));
+    }
+
+    private static void assertWithin(final long expected, final long actual) {
+        assertTrue("expected=" + expected + ", actual=" + actual,
+                (actual >= expected) && (actual <= (expected + (expected / 8))));
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2016-2026, Stichting Mapcode Foundation (http://www.mapcode.com)
+ */
+package com.mapcode.services.implementation;
+
+import com.mapcode.services.dto.MapcodeDTO;
+import com.mapcode.services.dto.MapcodesDTO;
+import com.mapcode.services.dto.PointDTO;
+import com.mapcode.services.dto.RectangleDTO;
+import com.mapcode.services.dto.TerritoryCandidateDTO;
+import com.tomtom.speedtools.apivalidation.ApiDTO;
+import org.jboss.resteasy.plugins.providers.jackson.ResteasyJackson2Provider;
+import org.junit.Test;
+
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedHashMap;
+import java.io.ByteArrayOutputStream;
+import java.lang.annotation.Annotation;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MapcodeJsonWriterTest {
+
+    private static final RectangleDTO RECTANGLE = new RectangleDTO(
+            new PointDTO(52.15, 4.49), new PointDTO(52.16, 4.5));
+
+    @Test
+    public void supportedTypes() {
+        assertTrue(MapcodeJsonWriter.isSupported(MapcodesDTO.class));
+        assertTrue(MapcodeJsonWriter.isSupported(MapcodeDTO.class));
+        assertTrue(MapcodeJsonWriter.isSupported(PointDTO.class));
+        assertTrue(MapcodeJsonWriter.isSupported(RectangleDTO.class));
+        assertFalse(MapcodeJsonWriter.isSupported(TerritoryCandidateDTO.class));
+    }
+
+    @Test
+    public void pointIsIdentical() throws Exception {
+        checkIdentical(new PointDTO(50.141726, 6.1358875));
+        checkIdentical(new PointDTO(-90.0, 180.0));
+        checkIdentical(new PointDTO(1.0E-7, -0.0));
+    }
+
+    @Test
+    public void rectangleIsIdentical() throws Exception {
+        checkIdentical(RECTANGLE);
+        checkIdentical(new RectangleDTO(new PointDTO(1.0, 2.0), new PointDTO(3.0, 4.0), null));
+    }
+
+    @Test
+    public void mapcodeIsIdentical() throws Exception {
+        checkIdentical(new MapcodeDTO("VJ0L6.9PNQ"));
+        checkIdentical(new MapcodeDTO("QKM.N4", "ΘΚΜ.Ν4", "NLD", "ΝΛΔ", 2.843693, RECTANGLE));
+        checkIdentical(new MapcodeDTO("XX.XV", null, "NLD", null, 0.0));
+        checkIdentical(new MapcodeDTO("A\"B\\C\n", null, "N\u0001L"));
+    }
+
+    @Test
+    public void mapcodesIsIdentical() throws Exception {
+        final MapcodeDTO local = new MapcodeDTO("JL0.KP", null, "LUX");
+        final MapcodeDTO international = new MapcodeDTO("VJ0L6.9PNQ");
+        checkIdentical(new MapcodesDTO(local, international, Arrays.asList(local, international)));
+        checkIdentical(new MapcodesDTO(null, international, Collections.singletonList(international)));
+        checkIdentical(new MapcodesDTO(null, international, Collections.emptyList()));
+        checkIdentical(new MapcodesDTO(local, international, Collections.singletonList(local),
+                Arrays.asList(new TerritoryCandidateDTO("USA-CA", "USA"), new TerritoryCandidateDTO("USA", null))));
+        checkIdentical(new MapcodesDTO(local, international, Collections.singletonList(local),
+                Collections.emptyList()));
+    }
+
+    private static void checkIdentical(final ApiDTO dto) throws Exception {
+        dto.validate();
+        final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        new ResteasyJackson2Provider().writeTo(dto, dto.getClass(), dto.getClass(), new Annotation[0],
+                MediaType.APPLICATION_JSON_TYPE, new MultivaluedHashMap<>(), expected);
+
+        final ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        new MapcodeJsonWriter().writeTo(dto, dto.getClass(), dto.getClass(), new Annotation[0],
+                MediaType.APPLICATION_JSON_TYPE, new MultivaluedHashMap<>(), actual);
+        assertEquals(new String(expected.toByteArray(), StandardCharsets.UTF_8),
+                new String(actual.toByteArray(), StandardCharsets.UTF_8));
+        assertEquals(new String(expected.toByteArray(), StandardCharsets.UTF_8),
+                MapcodeJsonWriter.writeValueAsString(dto));
+    }
+}
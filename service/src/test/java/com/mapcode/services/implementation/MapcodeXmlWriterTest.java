@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2016-2026, Stichting Mapcode Foundation (http://www.mapcode.com)
+ */
+package com.mapcode.services.implementation;
+
+import com.mapcode.services.dto.MapcodeDTO;
+import com.mapcode.services.dto.MapcodesDTO;
+import com.mapcode.services.dto.PointDTO;
+import com.mapcode.services.dto.RectangleDTO;
+import com.mapcode.services.dto.TerritoryCandidateDTO;
+import com.tomtom.speedtools.apivalidation.ApiDTO;
+import org.junit.Test;
+
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.Marshaller;
+import java.io.ByteArrayOutputStream;
+import java.lang.annotation.Annotation;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MapcodeXmlWriterTest {
+
+    private static final RectangleDTO RECTANGLE = new RectangleDTO(
+            new PointDTO(52.15, 4.49), new PointDTO(52.16, 4.5));
+
+    @Test
+    public void supportedTypes() {
+        assertTrue(MapcodeXmlWriter.isSupported(MapcodesDTO.class));
+        assertTrue(MapcodeXmlWriter.isSupported(MapcodeDTO.class));
+        assertTrue(MapcodeXmlWriter.isSupported(PointDTO.class));
+        assertTrue(MapcodeXmlWriter.isSupported(RectangleDTO.class));
+        assertFalse(MapcodeXmlWriter.isSupported(TerritoryCandidateDTO.class));
+    }
+
+    @Test
+    public void pointIsIdentical() throws Exception {
+        checkIdentical(new PointDTO(50.141726, 6.1358875), null);
+        checkIdentical(new PointDTO(-90.0, 180.0), null);
+    }
+
+    @Test
+    public void rectangleIsIdentical() throws Exception {
+        checkIdentical(RECTANGLE, null);
+    }
+
+    @Test
+    public void mapcodeIsIdentical() throws Exception {
+        checkIdentical(new MapcodeDTO("VJ0L6.9PNQ"), null);
+        checkIdentical(new MapcodeDTO("QKM.N4", "ΘΚΜ.Ν4", "NLD", "ΝΛΔ", 2.843693, RECTANGLE), null);
+        checkIdentical(new MapcodeDTO("A<B&C>", null, "NLD"), null);
+    }
+
+    @Test
+    public void mapcodesIsIdentical() throws Exception {
+        final MapcodeDTO local = new MapcodeDTO("JL0.KP", null, "LUX");
+        final MapcodeDTO international = new MapcodeDTO("VJ0L6.9PNQ");
+        checkIdentical(new MapcodesDTO(local, international, Arrays.asList(local, international)), null);
+        checkIdentical(new MapcodesDTO(null, international, Collections.emptyList()), null);
+        checkIdentical(new MapcodesDTO(local, international, Collections.singletonList(local),
+                Arrays.asList(new TerritoryCandidateDTO("USA-CA", "USA"), new TerritoryCandidateDTO("USA", null))), null);
+    }
+
+    @Test
+    public void charsetIsIdentical() throws Exception {
+        checkIdentical(new MapcodeDTO("QKM.N4", "ΘΚΜ.Ν4", "NLD", "ΝΛΔ", 2.843693, RECTANGLE), "UTF-8");
+        checkIdentical(new MapcodeDTO("QKM.N4", "ΘΚΜ.Ν4", "NLD", "ΝΛΔ", 2.843693, RECTANGLE), "ISO-8859-1");
+    }
+
+    @Test
+    public void marshallersAreReused() throws Exception {
+        for (int i = 0; i < 100; ++i) {
+            checkIdentical(new PointDTO(1.0, (double) i), null);
+        }
+    }
+
+    private static void checkIdentical(final ApiDTO dto, final String charset) throws Exception {
+        dto.validate();
+        final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        final Marshaller marshaller = JAXBContext.newInstance(dto.getClass()).createMarshaller();
+        if (charset != null) {
+            marshaller.setProperty(Marshaller.JAXB_ENCODING, charset);
+        }
+        marshaller.marshal(dto, expected);
+
+        final MediaType mediaType = (charset == null) ? MediaType.APPLICATION_XML_TYPE :
+                MediaType.APPLICATION_XML_TYPE.withCharset(charset);
+        final ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        new MapcodeXmlWriter().writeTo(dto, dto.getClass(), dto.getClass(), new Annotation[0],
+                mediaType, new MultivaluedHashMap<>(), actual);
+        assertArrayEquals(expected.toByteArray(), actual.toByteArray());
+    }
+}
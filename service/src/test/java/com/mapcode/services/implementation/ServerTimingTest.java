@@ -0,0 +1,55 @@
+/*
+ * Copyright (C) 2016-2026, Stichting Mapcode Foundation (http://www.mapcode.com)
+ */
+package com.mapcode.services.implementation;
+
+import com.mapcode.services.implementation.ServerTiming.Stage;
+import com.tomtom.speedtools.rest.ResourceHandler;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ServerTimingTest {
+
+    @Test
+    public void disabledByDefault() {
+        final ServerTiming timing = ServerTiming.current();
+        assertFalse(timing.isEnabled());
+        assertEquals(0, timing.start());
+        timing.stop(Stage.ENCODE, System.nanoTime() - 1000000);
+        assertEquals(0, timing.getNanos(Stage.ENCODE));
+        assertEquals("", timing.toHeaderValue());
+    }
+
+    @Test
+    public void stagesAreAddedUp() {
+        final ServerTiming timing = ServerTiming.create();
+        assertTrue(timing.isEnabled());
+        final long now = System.nanoTime();
+        timing.stop(Stage.ENCODE, now - 1000000);
+        timing.stop(Stage.ENCODE, now - 1000000);
+        timing.stop(Stage.PARSE, now - 1000);
+        assertTrue(timing.getNanos(Stage.ENCODE) >= 2000000);
+        assertTrue(timing.getNanos(Stage.PARSE) >= 1000);
+        assertEquals(0, timing.getNanos(Stage.DECODE));
+    }
+
+    @Test
+    public void headerValueListsRecordedStagesInOrder() {
+        final ServerTiming timing = ServerTiming.create();
+        final long now = System.nanoTime();
+        timing.stop(Stage.SERIALIZE, now - 1000);
+        timing.stop(Stage.PARSE, now - 1000);
+        final String value = timing.toHeaderValue();
+        assertTrue(value, value.matches("parse;dur=\\d+\\.\\d{3}, serialize;dur=\\d+\\.\\d{3}"));
+    }
+
+    @Test
+    public void handlerWithoutRequestIsNotWrapped() {
+        final ResourceHandler handler = () -> null;
+        assertSame(handler, ServerTiming.propagate(handler));
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright (C) 2016-2026, Stichting Mapcode Foundation (http://www.mapcode.com)
+ */
+package com.mapcode.services.implementation;
+
+import org.junit.Test;
+
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class WarmUpTest {
+
+    @Test
+    public void warmUpRunsWithinBudget() throws Exception {
+        final WarmUp warmUp = createWarmUp(2);
+        assertEquals(WarmUp.State.RUNNING, warmUp.getState());
+        assertFalse(warmUp.isDone());
+        warmUp.start();
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (!warmUp.isDone() && (System.nanoTime() < deadline)) {
+            Thread.sleep(50);
+        }
+        assertTrue(warmUp.isDone());
+        assertEquals(WarmUp.State.DONE, warmUp.getState());
+        assertEquals(100, warmUp.getProgress());
+        assertTrue(warmUp.getConversions() > 0);
+    }
+
+    @Test
+    public void disabledWarmUpIsDone() {
+        final WarmUp warmUp = createWarmUp(0);
+        warmUp.start();
+        assertTrue(warmUp.isDone());
+        assertEquals(WarmUp.State.DISABLED, warmUp.getState());
+        assertEquals(100, warmUp.getProgress());
+        assertEquals(0, warmUp.getConversions());
+    }
+
+    private static WarmUp createWarmUp(final int durationSecs) {
+        final BoundaryService boundaryService = new BoundaryService(
+                Paths.get("src", "test", "resources", "borders-test.fgb").toAbsolutePath().toString());
+        return new WarmUp(boundaryService, new HotCells(boundaryService, null, 0), durationSecs);
+    }
+}
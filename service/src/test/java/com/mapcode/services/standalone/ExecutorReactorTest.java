@@ -0,0 +1,49 @@
+/*
+ * Copyright (C) 2016-2026, Stichting Mapcode Foundation (http://www.mapcode.com)
+ */
+package com.mapcode.services.standalone;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+public class ExecutorReactorTest {
+    private static final Logger LOG = LoggerFactory.getLogger(ExecutorReactorTest.class);
+
+    @Test
+    public void testPlatformThreads() throws Exception {
+        LOG.info("testPlatformThreads");
+        final ExecutorReactor reactor = ExecutorReactor.create(2);
+        try {
+            Assert.assertFalse(reactor.isVirtualThreads());
+            Assert.assertNotNull(reactor.getSystemStartupTime());
+
+            // Handlers must run on a different thread than the caller.
+            final CompletableFuture<Thread> thread = new CompletableFuture<>();
+            reactor.getExecutionContext().execute(() -> thread.complete(Thread.currentThread()));
+            final Thread handlerThread = thread.get(5, TimeUnit.SECONDS);
+            Assert.assertNotSame(Thread.currentThread(), handlerThread);
+            Assert.assertTrue(handlerThread.isDaemon());
+            Assert.assertTrue(handlerThread.getName().startsWith("mapcode-request-"));
+        } finally {
+            reactor.shutdown();
+        }
+    }
+
+    @Test
+    public void testDefaultThreads() throws Exception {
+        LOG.info("testDefaultThreads");
+        final ExecutorReactor reactor = ExecutorReactor.create(0);
+        try {
+            final CompletableFuture<Thread> thread = new CompletableFuture<>();
+            reactor.getExecutionContext().execute(() -> thread.complete(Thread.currentThread()));
+            Assert.assertNotSame(Thread.currentThread(), thread.get(5, TimeUnit.SECONDS));
+        } finally {
+            reactor.shutdown();
+        }
+    }
+}
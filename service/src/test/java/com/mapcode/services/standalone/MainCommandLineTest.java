@@ -24,8 +24,14 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nonnull;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
 
 @SuppressWarnings({"rawtypes", "ProhibitedExceptionDeclared", "unchecked"})
 public class MainCommandLineTest {
@@ -61,6 +67,8 @@ public class MainCommandLineTest {
         MainCommandLine.execute("--help", "unknown");
         MainCommandLine.execute("--unknown");
         MainCommandLine.execute("--port");
+        MainCommandLine.execute("--convert", "input.csv");
+        MainCommandLine.execute("--engine", "unknown");
     }
 
     @SuppressWarnings("JUnitTestMethodWithNoAssertions")
@@ -78,6 +86,71 @@ public class MainCommandLineTest {
         MainCommandLine.stop();
     }
 
+    @Test
+    public void testServerNetty() {
+        LOG.info("testServerNetty");
+
+        // Initialize Mockito.
+        MockitoAnnotations.initMocks(this);
+        MainCommandLine.execute("--silent", "--engine", "netty", "--io-threads", "2", "--worker-threads", "4", "--request-threads", "4", "--port", "8081");
+
+        // Execute REST API calls.
+        checkVersionXmlJson();
+        final Response response = new ResteasyClientBuilder().build().
+                target(localUrl("/mapcode/coords/VJ0L6.9PNQ")).
+                request().
+                accept(MediaType.APPLICATION_JSON_TYPE).get();
+        Assert.assertNotNull(response);
+        Assert.assertEquals(200, response.getStatus());
+        Assert.assertEquals("{\"latDeg\":50.141726,\"lonDeg\":6.1358875}", response.readEntity(String.class));
+
+        // Pre-serialized responses are tagged.
+        final Response alphabet = new ResteasyClientBuilder().build().
+                target(localUrl("/mapcode/alphabets/roman")).
+                request().
+                accept(MediaType.APPLICATION_JSON_TYPE).get();
+        Assert.assertEquals(200, alphabet.getStatus());
+        Assert.assertNotNull(alphabet.getHeaderString(HttpHeaders.ETAG));
+        Assert.assertEquals("{\"name\":\"ROMAN\"}", alphabet.readEntity(String.class));
+
+        MainCommandLine.stop();
+    }
+
+    @Test
+    public void testConvertCsv() throws Exception {
+        LOG.info("testConvertCsv");
+        final Path input = Files.createTempFile("convert", ".csv");
+        final Path output = Files.createTempFile("convert", ".csv");
+        try {
+            Files.write(input, Arrays.asList("50.141706,6.135864,first", "", "x,y"), StandardCharsets.UTF_8);
+            MainCommandLine.execute("--convert", input.toString(), output.toString());
+            Assert.assertEquals(Arrays.asList("50.141706,6.135864,first,LUX,JL0.KP,VJ0L6.9PNQ,", "x,y,,,,400"),
+                    Files.readAllLines(output, StandardCharsets.UTF_8));
+        } finally {
+            Files.delete(input);
+            Files.delete(output);
+        }
+    }
+
+    @Test
+    public void testConvertDecodeNdjson() throws Exception {
+        LOG.info("testConvertDecodeNdjson");
+        final Path input = Files.createTempFile("convert", ".ndjson");
+        final Path output = Files.createTempFile("convert", ".ndjson");
+        try {
+            Files.write(input, Arrays.asList("{\"code\":\"JL0.KP\",\"context\":\"LUX\"}", "{\"code\":\"JL0.KP\",\"context\":\"XYZ\"}"),
+                    StandardCharsets.UTF_8);
+            MainCommandLine.execute("--convert", input.toString(), output.toString(), "--decode");
+            final List<String> lines = Files.readAllLines(output, StandardCharsets.UTF_8);
+            Assert.assertEquals(2, lines.size());
+            Assert.assertEquals("{\"code\":\"JL0.KP\",\"context\":\"LUX\",\"point\":{\"latDeg\":50.141735,\"lonDeg\":6.135845}}", lines.get(0));
+            Assert.assertTrue(lines.get(1).startsWith("{\"code\":\"JL0.KP\",\"context\":\"XYZ\",\"errorCode\":400,"));
+        } finally {
+            Files.delete(input);
+            Files.delete(output);
+        }
+    }
+
     public void checkVersionXmlJson() {
         LOG.info("checkVersionXmlJson");
         final String expectedXml = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?><version>";